@@ -0,0 +1,480 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+package application;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Predicate;
+
+import application.data.FarmTotals;
+import application.data.MilkData;
+import application.data.MilkEntry;
+import application.data.ReportQueries;
+import application.data.ReportSource;
+import application.io.MilkDataLoader;
+import application.io.PartitionedDataset;
+import application.io.ReportFormat;
+import application.io.ReportWriter;
+import application.metrics.FlightRecording;
+import application.metrics.Metrics;
+import application.metrics.ReportExportEvent;
+import application.server.PartitionWorker;
+import application.server.QueryCoordinator;
+import application.server.ReportServer;
+
+/**
+ * Generates reports from the command line, or serves them over HTTP, without
+ * starting JavaFX. This class (and everything it uses) must not reference any
+ * javafx.* class, so that it starts quickly and runs on machines without a
+ * display.
+ *
+ * Usage: java -cp bin application.HeadlessMain REPORT [OPTIONS] FILE...
+ *
+ * @author A-Team 128
+ *
+ */
+public class HeadlessMain {
+
+	private static final String USAGE = String.join("\n",
+			"Usage: java -cp bin application.HeadlessMain REPORT [OPTIONS] FILE...", "",
+			"Reports:", "  farm     --farm ID --year YYYY      Monthly weights of a farm in a year",
+			"  annual   --year YYYY                Total weight of every farm in a year",
+			"  monthly  --year YYYY --month M      Total weight of every farm in a month (1-12)",
+			"  range    --start DATE --end DATE    Total weight of every farm between two dates (YYYY-MM-DD)",
+			"  serve    [--port PORT]              Serve all reports as JSON over HTTP on the loopback address",
+			"  worker   --port PORT --partition I --partitions N [--by farm|year]",
+			"                                      Hold partition I of N of the data for other commands' --workers",
+			"  footprint                           Estimated memory taken by the loaded data, by structure and per row",
+			"  partition --output DIR              Store the data as a data set partitioned by year and month, whose",
+			"                                      DIR/manifest.csv can be opened in place of the data files",
+			"", "Options:", "  --output FILE    Write the report to FILE instead of standard output",
+			"  --workers HOST:PORT,...",
+			"                   Query these workers instead of loading data files",
+			"  --record FILE    Record a Java Flight Recorder file of the run, written on exit", "");
+
+	// Reports which can be requested
+	private static final List<String> REPORTS = List.of("farm", "annual", "monthly", "range", "serve", "worker",
+			"footprint", "partition");
+
+	// Exit codes
+	private static final int EXIT_USAGE = 2;
+	private static final int EXIT_ERROR = 1;
+
+	/**
+	 * Parses the command line, loads the data files and writes the requested
+	 * report as CSV
+	 *
+	 * @param args The command line arguments
+	 */
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.print(USAGE);
+			System.exit(EXIT_USAGE);
+		}
+
+		String report = args[0];
+		HashMap<String, String> options = new HashMap<String, String>();
+		List<File> files = new ArrayList<File>();
+
+		// Split the remaining arguments into options and data files
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].startsWith("--")) {
+				if (i + 1 >= args.length)
+					usageError("Missing value for " + args[i]);
+				options.put(args[i].substring(2), args[++i]);
+			} else
+				files.add(new File(args[i]));
+		}
+
+		if (!REPORTS.contains(report))
+			usageError("Unknown report '" + report + "'");
+
+		if (options.containsKey("record"))
+			startRecording(options.get("record"));
+
+		if (report.equals("worker")) {
+			startWorker(options, files);
+			return;
+		}
+
+		if (report.equals("partition")) {
+			writeDataset(options, files);
+			return;
+		}
+
+		if (report.equals("footprint")) {
+			if (options.containsKey("workers"))
+				usageError("The footprint is only available for data files");
+			System.out.print(loadData(files, (MilkEntry entry) -> true).getFootprint().format());
+			return;
+		}
+
+		ReportSource source = options.containsKey("workers") ? connectToWorkers(options, files)
+				: new ReportQueries(loadReportData(report, options, files));
+
+		if (report.equals("serve")) {
+			serve(source, options);
+			return;
+		}
+
+		// Write the report
+		String output = options.get("output");
+		ReportExportEvent event = new ReportExportEvent();
+		event.begin();
+		try (ReportWriter writer = output == null
+				? new ReportWriter(Channels.newChannel(new FileOutputStream(FileDescriptor.out)))
+				: ReportWriter.open(Paths.get(output))) {
+			writeReport(report, options, source, writer);
+
+			event.destination = output == null ? "standard output" : output;
+			event.reports = 1;
+			event.rows = writer.getRowsWritten();
+			event.commit();
+		} catch (IOException e) {
+			System.err.println("Could not write the report: " + e.getMessage());
+			System.exit(EXIT_ERROR);
+		} catch (UncheckedIOException e) {
+			System.err.println(e.getMessage());
+			System.exit(EXIT_ERROR);
+		}
+
+		// Close the connections to the workers, if any
+		if (source instanceof QueryCoordinator)
+			((QueryCoordinator) source).close();
+	}
+
+	/**
+	 * Stores the data files as a data set partitioned by year and month
+	 *
+	 * @param options The command's options
+	 * @param files   The data files
+	 */
+	private static void writeDataset(HashMap<String, String> options, List<File> files) {
+		if (options.containsKey("workers"))
+			usageError("A data set can only be written from data files");
+		Path directory = Paths.get(requireOption(options, "output"));
+		MilkData data = loadData(files, (MilkEntry entry) -> true);
+
+		try {
+			int partitions = PartitionedDataset.write(data, directory);
+			System.err.println(
+					"Wrote " + partitions + " partitions, open " + directory.resolve(PartitionedDataset.MANIFEST_NAME));
+		} catch (IOException e) {
+			System.err.println("Could not write the data set: " + e.getMessage());
+			System.exit(EXIT_ERROR);
+		}
+	}
+
+	/**
+	 * Starts a flight recording which is written to a file when the process exits
+	 *
+	 * @param file The .jfr file to write
+	 */
+	private static void startRecording(String file) {
+		try {
+			FlightRecording.start(Paths.get(file));
+		} catch (IOException | IllegalStateException | SecurityException e) {
+			System.err.println("Could not start the flight recording: " + e.getMessage());
+			System.exit(EXIT_ERROR);
+		}
+	}
+
+	/**
+	 * Reads the data files, reporting any lines or files which could not be read
+	 *
+	 * @param files  The data files
+	 * @param filter Decides which entries are kept
+	 * @return the data read
+	 */
+	private static MilkData loadData(List<File> files, Predicate<MilkEntry> filter) {
+		if (files.isEmpty())
+			usageError("No data files were given");
+
+		MilkDataLoader loader = new MilkDataLoader();
+		MilkData data = loader.load(files, filter);
+		printRejected(loader);
+		return data;
+	}
+
+	/**
+	 * Reports any lines or files the last load could not read
+	 *
+	 * @param loader The loader
+	 */
+	private static void printRejected(MilkDataLoader loader) {
+		if (loader.getRejectedFiles() > 0 || loader.getRejectedLines() > 0)
+			System.err.printf("%d line(s) and %d file(s) could not be read.%n", loader.getRejectedLines(),
+					loader.getRejectedFiles());
+	}
+
+	/**
+	 * Reads the entries of the data files a report needs. The dates and farm of
+	 * the report are known, so indexed data files only have those parts read.
+	 *
+	 * @param report  The name of the report
+	 * @param options The report's options
+	 * @param files   The data files
+	 * @return the data read
+	 */
+	private static MilkData loadReportData(String report, HashMap<String, String> options, List<File> files) {
+		Date startDate = null;
+		Date endDate = null;
+		String farmID = null;
+
+		switch (report) {
+		case "farm":
+		case "annual": {
+			// A farm report is limited to its farm as well as its year
+			if (report.equals("farm"))
+				farmID = requireOption(options, "farm");
+
+			int year = parseInt(requireOption(options, "year"), "year");
+			startDate = new GregorianCalendar(year, Calendar.JANUARY, 1).getTime();
+			endDate = new GregorianCalendar(year, Calendar.DECEMBER, 31).getTime();
+			break;
+		}
+		case "monthly": {
+			int year = parseInt(requireOption(options, "year"), "year");
+			int month = parseInt(requireOption(options, "month"), "month");
+			if (month < 1 || month > 12)
+				usageError("The month should be a number between 1 and 12");
+
+			Calendar calendar = new GregorianCalendar(year, month - 1, 1);
+			startDate = calendar.getTime();
+			calendar.set(Calendar.DAY_OF_MONTH, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
+			endDate = calendar.getTime();
+			break;
+		}
+		case "range":
+			startDate = java.sql.Date.valueOf(parseDate(requireOption(options, "start"), "start"));
+			endDate = java.sql.Date.valueOf(parseDate(requireOption(options, "end"), "end"));
+			break;
+		}
+
+		// Reports over all of the data
+		if (startDate == null)
+			return loadData(files, (MilkEntry entry) -> true);
+
+		if (files.isEmpty())
+			usageError("No data files were given");
+
+		MilkDataLoader loader = new MilkDataLoader();
+		MilkData data = loader.load(files, startDate, endDate, farmID);
+		printRejected(loader);
+		return data;
+	}
+
+	/**
+	 * Connects to the partition workers listed by the --workers option
+	 *
+	 * @param options The options
+	 * @param files   The data files, which must be empty since the workers hold
+	 *                the data
+	 * @return a source which queries the workers
+	 */
+	private static ReportSource connectToWorkers(HashMap<String, String> options, List<File> files) {
+		if (!files.isEmpty())
+			usageError("Data files cannot be given with --workers, the workers load the data");
+
+		List<InetSocketAddress> workers = new ArrayList<InetSocketAddress>();
+		for (String worker : options.get("workers").split(",")) {
+			int colon = worker.lastIndexOf(':');
+			if (colon < 0)
+				usageError("Workers should be given as HOST:PORT,HOST:PORT,...");
+			workers.add(new InetSocketAddress(worker.substring(0, colon),
+					parseInt(worker.substring(colon + 1), "workers")));
+		}
+
+		try {
+			return new QueryCoordinator(workers);
+		} catch (IOException e) {
+			System.err.println("Could not connect to the workers: " + e.getMessage());
+			System.exit(EXIT_ERROR);
+			return null;
+		}
+	}
+
+	/**
+	 * Loads one partition of the data files and answers queries over it for a
+	 * coordinator until the process is stopped. An entry belongs to partition
+	 * hash(farm ID) mod N, or year mod N.
+	 *
+	 * @param options The worker's options
+	 * @param files   The data files
+	 */
+	private static void startWorker(HashMap<String, String> options, List<File> files) {
+		int port = parseInt(requireOption(options, "port"), "port");
+		int partition = parseInt(requireOption(options, "partition"), "partition");
+		int partitions = parseInt(requireOption(options, "partitions"), "partitions");
+		String by = options.getOrDefault("by", "farm");
+
+		if (partitions < 1 || partition < 0 || partition >= partitions)
+			usageError("The partition should be a number between 0 and the number of partitions - 1");
+
+		Predicate<MilkEntry> filter = null;
+		if (by.equals("farm")) {
+			filter = (MilkEntry entry) -> Math.floorMod(entry.getFarmID().hashCode(), partitions) == partition;
+		} else if (by.equals("year")) {
+			// Only used by the loading thread
+			Calendar calendar = new GregorianCalendar();
+			filter = (MilkEntry entry) -> {
+				calendar.setTime(entry.getDate());
+				return Math.floorMod(calendar.get(Calendar.YEAR), partitions) == partition;
+			};
+		} else
+			usageError("--by should be farm or year");
+
+		ReportQueries queries = new ReportQueries(loadData(files, filter));
+
+		// Long running, so make its metrics available to JMX clients
+		Metrics.exportToJmx();
+
+		try {
+			PartitionWorker worker = new PartitionWorker(queries,
+					new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+			worker.start();
+			System.err.println("Worker " + partition + "/" + partitions + " (by " + by + ") listening on port " + port);
+		} catch (IOException e) {
+			System.err.println("Could not start the worker: " + e.getMessage());
+			System.exit(EXIT_ERROR);
+		}
+	}
+
+	/**
+	 * Computes and writes a report
+	 *
+	 * @param report  The name of the report
+	 * @param options The report's options
+	 * @param queries The source to compute the report with
+	 * @param writer  The writer to write the report to
+	 * @throws IOException if the report could not be written
+	 */
+	private static void writeReport(String report, HashMap<String, String> options, ReportSource queries,
+			ReportWriter writer) throws IOException {
+		switch (report) {
+		case "farm": {
+			String farmID = requireOption(options, "farm");
+			int year = parseInt(requireOption(options, "year"), "year");
+
+			ReportFormat.writeFarmReport(writer, farmID, String.valueOf(year), queries.getFarmReport(farmID, year));
+			break;
+		}
+		case "annual": {
+			int year = parseInt(requireOption(options, "year"), "year");
+			ReportFormat.writeAnnualReport(writer, queries.getAnnualReport(year));
+			break;
+		}
+		case "monthly": {
+			int year = parseInt(requireOption(options, "year"), "year");
+			int month = parseInt(requireOption(options, "month"), "month");
+			if (month < 1 || month > 12)
+				usageError("The month should be a number between 1 and 12");
+
+			FarmTotals totals = queries.getMonthlyReport(year, month - 1);
+			ReportFormat.writeFarmShareReport(writer, totals, totals.getOrdering(FarmTotals.Column.FARM_ID));
+			break;
+		}
+		case "range": {
+			LocalDate start = parseDate(requireOption(options, "start"), "start");
+			LocalDate end = parseDate(requireOption(options, "end"), "end");
+			if (end.isBefore(start))
+				usageError("The end date is before the start date");
+
+			// Uses java.sql.Date to convert java.time.localDate to java.util.Date
+			FarmTotals totals = queries.getRangeReport(java.sql.Date.valueOf(start), java.sql.Date.valueOf(end));
+			ReportFormat.writeFarmShareReport(writer, totals, totals.getOrdering(FarmTotals.Column.FARM_ID));
+			break;
+		}
+		}
+	}
+
+	/**
+	 * Serves all reports over HTTP until the process is stopped
+	 *
+	 * @param queries The source to answer requests from
+	 * @param options The server's options
+	 */
+	private static void serve(ReportSource queries, HashMap<String, String> options) {
+		String port = options.get("port");
+		InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(),
+				port == null ? ReportServer.DEFAULT_PORT : parseInt(port, "port"));
+
+		// Long running, so make its metrics available to JMX clients
+		Metrics.exportToJmx();
+
+		try {
+			ReportServer server = new ReportServer(queries, address);
+			server.start();
+			System.err.println("Serving reports on http://" + address.getHostString() + ":" + address.getPort() + "/");
+		} catch (IOException e) {
+			System.err.println("Could not start the server: " + e.getMessage());
+			System.exit(EXIT_ERROR);
+		}
+	}
+
+	/**
+	 * Returns the value of a required option, exiting if it is missing
+	 */
+	private static String requireOption(HashMap<String, String> options, String name) {
+		String value = options.get(name);
+		if (value == null)
+			usageError("Missing required option --" + name);
+		return value;
+	}
+
+	/**
+	 * Parses a number option, exiting if it is not a number
+	 */
+	private static int parseInt(String value, String name) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			usageError("--" + name + " should be a number");
+			return 0;
+		}
+	}
+
+	/**
+	 * Parses a date option, exiting if it is not a YYYY-MM-DD date
+	 */
+	private static LocalDate parseDate(String value, String name) {
+		try {
+			return LocalDate.parse(value);
+		} catch (DateTimeParseException e) {
+			usageError("--" + name + " should be a date in YYYY-MM-DD format");
+			return null;
+		}
+	}
+
+	/**
+	 * Prints an error and the usage, then exits
+	 *
+	 * @param message The error message
+	 */
+	private static void usageError(String message) {
+		System.err.println(message);
+		System.err.println();
+		System.err.print(USAGE);
+		System.exit(EXIT_USAGE);
+	}
+
+}
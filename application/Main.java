@@ -6,19 +6,19 @@
 package application;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.Scanner;
 
 import application.data.MilkData;
-import application.data.MilkEntry;
 import application.gui.DashboardStage;
 import application.gui.DataSelectStage;
+import application.io.DataSource;
+import application.io.DataSourceCatalog;
+import application.io.MilkDataLoader;
+import application.metrics.FlightRecording;
+import application.metrics.Metrics;
 import javafx.application.Application;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
@@ -30,6 +30,9 @@ public class Main extends Application {
 	// Statically keep track of the last data files so that the application
 	// can be restarted with the previous data files.
 	private static List<File> lastDataFiles;
+
+	// What was learned about the last data files as they were loaded
+	private static List<DataSource> lastSources;
 	
 	public static final List<Image> ICONS = Main.getIcons();
 
@@ -46,6 +49,9 @@ public class Main extends Application {
 		System.setProperty("prism.lcdtext", "false");
 		System.setProperty("prism.text", "t2k");
 
+		// Make the metrics shown in the diagnostics window available to JMX clients
+		Metrics.exportToJmx();
+
 		// Start the application with the first report tab open initially
 		startApplication(0);
 	}
@@ -80,61 +86,46 @@ public class Main extends Application {
 	 * @return A MilkData object containing all of the data found
 	 */
 	private static MilkData processLastDataFiles() {
-		MilkData data = new MilkData();
+		MilkDataLoader loader = new MilkDataLoader();
+		MilkData data = loadDataFiles(lastDataFiles, loader);
+		lastSources = loader.getSources();
+		showRejected(loader);
+		return data;
+	}
 
-		int rejectedFiles = 0;
-		int rejectedLines = 0;
+	/**
+	 * Reads data files into a new MilkData, and remembers what was learned about
+	 * them for the data selection screen. Nothing is shown, so this can be called
+	 * off the JavaFX thread.
+	 * 
+	 * @param files  The data files to read
+	 * @param loader The loader to read them with, which then holds their sources
+	 *               and the number of files and lines which could not be read
+	 * @return A MilkData object containing all of the data found
+	 */
+	public static MilkData loadDataFiles(List<File> files, MilkDataLoader loader) {
+		MilkData data = loader.load(files);
+
+		// Remember what was learned about the files for the data selection screen
+		DataSourceCatalog catalog = DataSourceCatalog.open();
+		catalog.record(loader.getSources());
+		try {
+			catalog.save();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
 
-		// Date format for reading dates in year-month-day format (Eg. 2019-1-2)
-		DateFormat dateParser = new SimpleDateFormat("y-M-d");
+		return data;
+	}
 
-		// Loop through all data files
-		for (File dataFile : lastDataFiles) {
-			try {
-				Scanner scanner = new Scanner(dataFile);
-
-				// Ensure the files passed meet the specification by checking the first row
-				if (!scanner.hasNextLine() || !scanner.nextLine().strip().equals("date,farm_id,weight")) {
-					rejectedFiles++;
-					continue;
-				}
-
-				// Loop through each line of each file
-				while (scanner.hasNextLine()) {
-					String row[] = scanner.nextLine().strip().split(",");
-
-					// Ensure there are three columns in each row
-					if (row.length != 3) {
-						rejectedLines++;
-						continue;
-					}
-
-					try {
-						// Parse the date from column 1
-						Date date = dateParser.parse(row[0].strip());
-
-						// Grab the farm ID from column 2
-						String farmID = row[1].strip();
-
-						// Parse the weight from column 3
-						int weight = Integer.parseInt(row[2].strip());
-
-						// Create a new MilkEntry and add it to MilkData
-						data.addEntry(new MilkEntry(farmID, date, weight));
-
-					} catch (ParseException | NumberFormatException e) {
-						// If there was an error parsing the columns, note it in the total count
-						rejectedLines++;
-					}
-				}
-
-				// Close the scanner
-				scanner.close();
-			} catch (FileNotFoundException e) {
-				// If the file could not be opened, note it in the total count
-				rejectedFiles++;
-			}
-		}
+	/**
+	 * Sends the user an alert if files or lines could not be read by a load
+	 * 
+	 * @param loader The loader the files were read with
+	 */
+	public static void showRejected(MilkDataLoader loader) {
+		int rejectedFiles = loader.getRejectedFiles();
+		int rejectedLines = loader.getRejectedLines();
 
 		// Send the user an alert if files could not be read
 		if (rejectedFiles > 0 || rejectedLines > 0) {
@@ -143,11 +134,25 @@ public class Main extends Application {
 			Main.showAlert(AlertType.WARNING, "Some Information Could Not be Parsed",
 					"Some Information Could Not Be Parsed", message);
 		}
+	}
 
-		// Sort all of the data after adding it to the data structure
-		data.organize();
+	/**
+	 * @return the data files last loaded
+	 */
+	public static List<File> getLastDataFiles() {
+		return lastDataFiles;
+	}
 
-		return data;
+	/**
+	 * Remembers the data files loaded into a dashboard, so the application is
+	 * restarted with them
+	 * 
+	 * @param files   The data files loaded
+	 * @param sources What was learned about them as they were loaded
+	 */
+	public static void setLastDataFiles(List<File> files, List<DataSource> sources) {
+		lastDataFiles = files;
+		lastSources = sources;
 	}
 
 	/**
@@ -165,17 +170,31 @@ public class Main extends Application {
 			Main.startApplication(initialTab);
 		} else {
 			// Create and show the dash-board
-			DashboardStage dashboardStage = new DashboardStage(data, initialTab);
+			DashboardStage dashboardStage = new DashboardStage(data, initialTab, lastSources);
 			dashboardStage.show();
 		}	
 	}
 
 	/**
-	 * Launches JavaFX
+	 * Launches JavaFX. See {@link HeadlessMain} for generating reports without
+	 * JavaFX.
 	 * 
-	 * @param args Ignored command line arguments.
+	 * @param args Command line arguments. "--record FILE" records a Java Flight
+	 *             Recorder file of the session, written when the application
+	 *             exits.
 	 */
 	public static void main(String[] args) {
+		for (int i = 0; i + 1 < args.length; i++) {
+			if (!args[i].equals("--record"))
+				continue;
+
+			try {
+				FlightRecording.start(Paths.get(args[i + 1]));
+			} catch (IOException | IllegalStateException | SecurityException e) {
+				System.err.println("Could not start the flight recording: " + e.getMessage());
+			}
+		}
+
 		launch();
 	}
 
@@ -0,0 +1,222 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.bench;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Runs average-time microbenchmarks the way JMH does: timed warmup iterations
+ * are followed by timed measurement iterations, results are consumed so they
+ * cannot be optimized away, and the bytes allocated per operation are measured
+ * with the thread allocation counter (as JMH's GC profiler does). The time
+ * spent collecting garbage during measurement is reported too.
+ *
+ * @author A-Team 128
+ *
+ */
+final class BenchmarkRunner {
+
+	private final int warmupIterations;
+	private final int measurementIterations;
+	private final long iterationNanos;
+	private final Pattern filter;
+	private final PrintStream out;
+
+	// Results are folded into the plain field as they are consumed, and the
+	// field into the volatile once per batch, so the JIT cannot drop the
+	// benchmarked code but no operation pays for a volatile store
+	private int consumed;
+	private volatile int sink;
+
+	// Never equal to a result, but read as if it could be, as JMH's Blackhole does
+	private volatile Object unlikely = new Object();
+
+	/**
+	 * Creates a runner
+	 *
+	 * @param warmupIterations      The number of untimed iterations
+	 * @param measurementIterations The number of timed iterations
+	 * @param iterationMillis       The length of each iteration
+	 * @param filter                Only benchmarks whose names contain a match
+	 *                              are run
+	 * @param out                   The stream to report results to
+	 */
+	BenchmarkRunner(int warmupIterations, int measurementIterations, long iterationMillis, Pattern filter,
+			PrintStream out) {
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		this.iterationNanos = iterationMillis * 1_000_000;
+		this.filter = filter;
+		this.out = out;
+
+		out.printf("%-40s %5s %12s %12s %8s %14s %10s%n", "Benchmark", "Cnt", "Score", "Error", "Units",
+				"Alloc B/op", "GC ms");
+	}
+
+	/**
+	 * Benchmarks an operation over shared state
+	 *
+	 * @param name      The name of the benchmark
+	 * @param operation The operation, whose result is consumed
+	 */
+	void run(String name, Supplier<Object> operation) {
+		run(name, null, (Object state) -> operation.get());
+	}
+
+	/**
+	 * Benchmarks an operation which needs fresh state every time it runs, such
+	 * as one that modifies it. Creating the state is not timed.
+	 *
+	 * @param name      The name of the benchmark
+	 * @param setup     Creates the state of one run, or null if there is none
+	 * @param operation The operation, whose result is consumed
+	 */
+	<S> void run(String name, Supplier<S> setup, Function<S, Object> operation) {
+		run(name, 1, setup, operation);
+	}
+
+	/**
+	 * Benchmarks an operation which performs several operations per run, such
+	 * as adding every entry of a list, reporting the time and allocation of each
+	 * of them
+	 *
+	 * @param name                    The name of the benchmark
+	 * @param operationsPerInvocation The number of operations each run performs
+	 * @param setup                   Creates the state of one run, or null if
+	 *                                there is none
+	 * @param operation               The operation, whose result is consumed
+	 */
+	<S> void run(String name, long operationsPerInvocation, Supplier<S> setup, Function<S, Object> operation) {
+		if (!filter.matcher(name).find())
+			return;
+
+		for (int i = 0; i < warmupIterations; i++)
+			iterate(setup, operation);
+
+		double[] nanosPerOp = new double[measurementIterations];
+		long allocated = 0;
+		long operations = 0;
+		long gcMillis = gcMillis();
+
+		for (int i = 0; i < measurementIterations; i++) {
+			long[] result = iterate(setup, operation);
+			nanosPerOp[i] = (double) result[0] / (result[1] * operationsPerInvocation);
+			operations += result[1] * operationsPerInvocation;
+			allocated += result[2];
+		}
+
+		gcMillis = gcMillis() - gcMillis;
+
+		// Mean and standard deviation of the iterations
+		double mean = 0;
+		for (double score : nanosPerOp)
+			mean += score;
+		mean /= nanosPerOp.length;
+
+		double variance = 0;
+		for (double score : nanosPerOp)
+			variance += (score - mean) * (score - mean);
+		double deviation = nanosPerOp.length > 1 ? Math.sqrt(variance / (nanosPerOp.length - 1)) : 0;
+
+		// Pick a readable unit
+		String unit = "ns/op";
+		double scale = 1;
+		if (mean >= 10_000_000) {
+			unit = "ms/op";
+			scale = 1_000_000;
+		} else if (mean >= 10_000) {
+			unit = "us/op";
+			scale = 1_000;
+		}
+
+		out.printf("%-40s %5d %12.3f %12s %8s %14d %10d%n", name, measurementIterations, mean / scale,
+				String.format("+- %.3f", deviation / scale), unit, allocated / Math.max(1, operations), gcMillis);
+	}
+
+	/**
+	 * Runs an operation repeatedly for one iteration
+	 *
+	 * @return the timed nanoseconds, the number of operations and the bytes
+	 *         allocated by them
+	 */
+	private <S> long[] iterate(Supplier<S> setup, Function<S, Object> operation) {
+		long timed = 0;
+		long allocated = 0;
+		long operations = 0;
+		long end = System.nanoTime() + iterationNanos;
+
+		if (setup == null) {
+			// Timed in batches, so reading the clock does not dominate fast operations
+			int batch = 1;
+			while (System.nanoTime() < end) {
+				long allocatedBefore = allocatedBytes();
+				long start = System.nanoTime();
+				for (int i = 0; i < batch; i++)
+					consume(operation.apply(null));
+				long elapsed = System.nanoTime() - start;
+				sink = consumed;
+				allocated += allocatedBytes() - allocatedBefore;
+				timed += elapsed;
+				operations += batch;
+
+				// Grow the batch while it is a small part of the iteration
+				if (elapsed < iterationNanos / 16 && batch < 1 << 20)
+					batch <<= 1;
+			}
+		} else {
+			// Timed one by one, leaving out the setup
+			do {
+				S state = setup.get();
+				long allocatedBefore = allocatedBytes();
+				long start = System.nanoTime();
+				consume(operation.apply(state));
+				timed += System.nanoTime() - start;
+				sink = consumed;
+				allocated += allocatedBytes() - allocatedBefore;
+				operations++;
+			} while (System.nanoTime() < end);
+		}
+
+		return new long[] { timed, operations, allocated };
+	}
+
+	/**
+	 * Consumes a result. A number is folded in by its value. Any other result is
+	 * only compared with a volatile field, which makes it escape without
+	 * touching it, since hashing it could walk it or write its identity hash
+	 * into its header.
+	 */
+	private void consume(Object result) {
+		if (result instanceof Number)
+			consumed += result.hashCode();
+		else if (result == unlikely)
+			consumed++;
+	}
+
+	/**
+	 * Returns the bytes allocated by this thread so far
+	 */
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+	}
+
+	/**
+	 * Returns the total time all collectors have spent collecting so far
+	 */
+	private static long gcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+			millis += Math.max(0, collector.getCollectionTime());
+		return millis;
+	}
+
+}
@@ -0,0 +1,152 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+
+import application.io.MilkDataLoader;
+
+/**
+ * Writes a corpus of synthetic data files in the date,farm_id,weight format,
+ * for measuring ingestion. Rows are spread over the files by month, and a
+ * fraction of them can be replaced by malformed rows of the kinds seen in real
+ * files. The same options always produce the same files.
+ *
+ * Usage: java -cp bin application.bench.CorpusGenerator --output DIR
+ * --size-mb N [--files N] [--farms N] [--years N] [--malformed FRACTION]
+ * [--seed N]
+ *
+ * @author A-Team 128
+ *
+ */
+public class CorpusGenerator {
+
+	// Average length of a generated row, used to turn a size into a row count
+	private static final int AVERAGE_ROW_BYTES = 22;
+
+	// Rows which cannot be read, one of which replaces each malformed row
+	private static final String[] MALFORMED_ROWS = { "2019-1-2,Farm 1", "2019/1/2,Farm 1,100",
+			"2019-1-2,Farm 1,heavy", "2019-1-2,Farm 1,100,extra", "not a date,Farm 1,100", "",
+			"2019-1-2,Farm 1,99999999999" };
+
+	/**
+	 * Writes the corpus described by the command line
+	 *
+	 * @param args The command line arguments
+	 * @throws IOException if the corpus could not be written
+	 */
+	public static void main(String[] args) throws IOException {
+		HashMap<String, String> options = new HashMap<String, String>();
+		for (int i = 0; i + 1 < args.length; i += 2)
+			options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+
+		if (!options.containsKey("output") || !options.containsKey("size-mb")) {
+			System.err.println("Usage: java -cp bin application.bench.CorpusGenerator --output DIR "
+					+ "--size-mb N [--files N] [--farms N] [--years N] [--malformed FRACTION] [--seed N]");
+			System.exit(2);
+		}
+
+		Path directory = Paths.get(options.get("output"));
+		long sizeBytes = Long.parseLong(options.get("size-mb")) * 1024 * 1024;
+		int files = Integer.parseInt(options.getOrDefault("files", "12"));
+		int farms = Integer.parseInt(options.getOrDefault("farms", "250"));
+		int years = Integer.parseInt(options.getOrDefault("years", "3"));
+		double malformed = Double.parseDouble(options.getOrDefault("malformed", "0.001"));
+		long seed = Long.parseLong(options.getOrDefault("seed", "400"));
+
+		// Enough rows per day to reach the size
+		long days = Math.round(years * 365.25);
+		int rowsPerDay = (int) Math.max(1, sizeBytes / AVERAGE_ROW_BYTES / days);
+
+		long start = System.nanoTime();
+		long rows = write(directory, files, new SyntheticData(seed, farms, 2017, years, rowsPerDay), malformed,
+				seed + 1);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		long bytes = 0;
+		for (int file = 0; file < files; file++)
+			bytes += Files.size(fileName(directory, file));
+
+		System.out.printf("Wrote %d rows (%.1f MB) in %d files to %s in %.1f s%n", rows, bytes / 1048576.0, files,
+				directory, seconds);
+	}
+
+	/**
+	 * Writes a corpus
+	 *
+	 * @param directory     The directory to write the files into
+	 * @param files         The number of files to spread the rows over
+	 * @param synthetic     The rows to write
+	 * @param malformed     The fraction of rows to replace with malformed rows
+	 * @param malformedSeed The seed choosing which rows are malformed
+	 * @return the number of rows written
+	 * @throws IOException if a file could not be written
+	 */
+	public static long write(Path directory, int files, SyntheticData synthetic, double malformed,
+			long malformedSeed) throws IOException {
+		Files.createDirectories(directory);
+
+		Writer[] writers = new Writer[files];
+		try {
+			for (int file = 0; file < files; file++) {
+				writers[file] = new BufferedWriter(
+						new OutputStreamWriter(Files.newOutputStream(fileName(directory, file)), StandardCharsets.UTF_8),
+						1 << 16);
+				writers[file].write(MilkDataLoader.HEADER);
+				writers[file].write('\n');
+			}
+
+			SplittableRandom random = new SplittableRandom(malformedSeed);
+			StringBuilder line = new StringBuilder(64);
+			long[] rows = new long[1];
+
+			synthetic.forEachRow((Date date, int year, int month, int day, int farm, int weight) -> {
+				line.setLength(0);
+				if (malformed > 0 && random.nextDouble() < malformed)
+					line.append(MALFORMED_ROWS[random.nextInt(MALFORMED_ROWS.length)]);
+				else
+					line.append(year).append('-').append(month + 1).append('-').append(day).append(',')
+							.append(synthetic.getFarmID(farm)).append(',').append(weight);
+				line.append('\n');
+
+				try {
+					writers[(year * 12 + month) % files].append(line);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				rows[0]++;
+			});
+
+			return rows[0];
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			for (Writer writer : writers)
+				if (writer != null)
+					writer.close();
+		}
+	}
+
+	/**
+	 * Returns the path of a file of the corpus
+	 */
+	private static Path fileName(Path directory, int file) {
+		return directory.resolve(String.format("corpus-%03d.csv", file));
+	}
+
+}
@@ -0,0 +1,167 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.bench;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import application.data.MilkData;
+import application.io.MilkDataLoader;
+
+/**
+ * Measures loading data files end to end, exactly as the dashboard does when
+ * files are selected (parsing, adding and organizing). For each run it reports
+ * the throughput in MB/s and rows/s, the peak heap used, and the number, total
+ * and longest of the garbage collections during the load.
+ *
+ * Usage: java -cp bin application.bench.IngestionBenchmark [--runs N]
+ * FILE_OR_DIRECTORY...
+ *
+ * @author A-Team 128
+ *
+ */
+public class IngestionBenchmark {
+
+	/**
+	 * Collects the garbage collections reported while it is listening
+	 */
+	private static class GcRecorder implements NotificationListener {
+		private int count;
+		private long totalMillis;
+		private long longestMillis;
+
+		@Override
+		public synchronized void handleNotification(Notification notification, Object handback) {
+			if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+				return;
+
+			GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+					.from((CompositeData) notification.getUserData());
+			long millis = info.getGcInfo().getDuration();
+			count++;
+			totalMillis += millis;
+			longestMillis = Math.max(longestMillis, millis);
+		}
+
+		private synchronized void reset() {
+			count = 0;
+			totalMillis = 0;
+			longestMillis = 0;
+		}
+	}
+
+	/**
+	 * Loads the files given on the command line a number of times, reporting
+	 * each run
+	 *
+	 * @param args The command line arguments
+	 * @throws Exception if the collectors could not be listened to
+	 */
+	public static void main(String[] args) throws Exception {
+		int runs = 3;
+		List<File> files = new ArrayList<File>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--runs") && i + 1 < args.length)
+				runs = Integer.parseInt(args[++i]);
+			else
+				addFiles(new File(args[i]), files);
+		}
+
+		if (files.isEmpty()) {
+			System.err.println(
+					"Usage: java -cp bin application.bench.IngestionBenchmark [--runs N] FILE_OR_DIRECTORY...");
+			System.exit(2);
+		}
+
+		long bytes = 0;
+		for (File file : files)
+			bytes += file.length();
+		double megabytes = bytes / 1048576.0;
+
+		System.out.printf("# %d files, %.1f MB, max heap %d MB%n", files.size(), megabytes,
+				Runtime.getRuntime().maxMemory() / 1048576);
+		System.out.printf("%-5s %10s %10s %12s %10s %10s %14s %6s %10s %10s%n", "Run", "Seconds", "MB/s", "Rows/s",
+				"Rows", "Rejected", "Peak heap MB", "GCs", "GC ms", "Max GC ms");
+
+		GcRecorder gcRecorder = new GcRecorder();
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+			((NotificationEmitter) collector).addNotificationListener(gcRecorder, null, null);
+
+		List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				heapPools.add(pool);
+
+		double[] seconds = new double[runs];
+		for (int run = 0; run < runs; run++) {
+			// Start each run from a clean heap, without the previous run's data
+			System.gc();
+			for (MemoryPoolMXBean pool : heapPools)
+				pool.resetPeakUsage();
+			gcRecorder.reset();
+
+			MilkDataLoader loader = new MilkDataLoader();
+			long start = System.nanoTime();
+			MilkData data = loader.load(files);
+			seconds[run] = (System.nanoTime() - start) / 1e9;
+
+			// Upper bound, as the pools need not peak at the same moment
+			long peakHeap = 0;
+			for (MemoryPoolMXBean pool : heapPools)
+				peakHeap += pool.getPeakUsage().getUsed();
+
+			// Keep the data reachable until the heap has been measured
+			Reference.reachabilityFence(data);
+
+			// Notifications arrive asynchronously, so give the last ones time to arrive
+			Thread.sleep(100);
+
+			long rows = loader.getParsedLines() + loader.getRejectedLines();
+			synchronized (gcRecorder) {
+				System.out.printf("%-5d %10.2f %10.1f %12.0f %10d %10d %14d %6d %10d %10d%n", run + 1, seconds[run],
+						megabytes / seconds[run], rows / seconds[run], rows, loader.getRejectedLines(),
+						peakHeap / 1048576, gcRecorder.count, gcRecorder.totalMillis, gcRecorder.longestMillis);
+			}
+		}
+
+		Arrays.sort(seconds);
+		double median = seconds[runs / 2];
+		System.out.printf("# median %.2f s, %.1f MB/s%n", median, megabytes / median);
+	}
+
+	/**
+	 * Adds a file, or all .csv files in a directory, to a list
+	 */
+	private static void addFiles(File file, List<File> files) {
+		if (!file.isDirectory()) {
+			files.add(file);
+			return;
+		}
+
+		File[] children = file.listFiles((File directory, String name) -> name.endsWith(".csv"));
+		if (children == null)
+			return;
+		Arrays.sort(children);
+		files.addAll(Arrays.asList(children));
+	}
+
+}
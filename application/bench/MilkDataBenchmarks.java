@@ -0,0 +1,195 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.bench;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import application.data.AggregationKernels;
+import application.data.FarmTotals;
+import application.data.MilkData;
+import application.data.MilkEntry;
+import application.data.ReportQueries;
+
+/**
+ * Microbenchmarks of MilkData's ingestion, organize and query paths, of the
+ * reports' aggregation loops and of the aggregation kernels, over
+ * deterministic {@link SyntheticData}.
+ *
+ * Usage: java -cp bin application.bench.MilkDataBenchmarks [--farms N]
+ * [--years N] [--rows-per-day N] [--seed N] [--warmup N] [--iterations N]
+ * [--time-ms N] [--filter REGEX]
+ *
+ * @author A-Team 128
+ *
+ */
+public class MilkDataBenchmarks {
+
+	/**
+	 * Runs the benchmarks selected by the command line
+	 *
+	 * @param args The command line arguments
+	 */
+	public static void main(String[] args) {
+		HashMap<String, String> options = new HashMap<String, String>();
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (!args[i].startsWith("--")) {
+				System.err.println("Unexpected argument " + args[i]);
+				System.exit(2);
+			}
+			options.put(args[i].substring(2), args[i + 1]);
+		}
+
+		int farms = Integer.parseInt(options.getOrDefault("farms", "250"));
+		int years = Integer.parseInt(options.getOrDefault("years", "3"));
+		int rowsPerDay = Integer.parseInt(options.getOrDefault("rows-per-day", "500"));
+		long seed = Long.parseLong(options.getOrDefault("seed", "400"));
+
+		SyntheticData synthetic = new SyntheticData(seed, farms, 2017, years, rowsPerDay);
+		System.out.printf("# %d farms, %d years, %d rows per day: %d rows%n%n", farms, years, rowsPerDay,
+				synthetic.getRowCount());
+
+		BenchmarkRunner runner = new BenchmarkRunner(Integer.parseInt(options.getOrDefault("warmup", "3")),
+				Integer.parseInt(options.getOrDefault("iterations", "5")),
+				Long.parseLong(options.getOrDefault("time-ms", "1000")),
+				Pattern.compile(options.getOrDefault("filter", "")), System.out);
+
+		run(runner, synthetic);
+	}
+
+	/**
+	 * Runs every benchmark over a data set
+	 *
+	 * @param runner    The runner to run the benchmarks with
+	 * @param synthetic The data set
+	 */
+	private static void run(BenchmarkRunner runner, SyntheticData synthetic) {
+		List<MilkEntry> entries = synthetic.getEntries();
+
+		// Ingestion
+		runner.run("addEntry", entries.size(), () -> entries, (List<MilkEntry> all) -> {
+			MilkData data = new MilkData();
+			for (MilkEntry entry : all)
+				data.addEntry(entry);
+			return data;
+		});
+
+		runner.run("organize", () -> {
+			MilkData data = new MilkData();
+			for (MilkEntry entry : entries)
+				data.addEntry(entry);
+			return data;
+		}, (MilkData data) -> {
+			data.organize();
+			return data;
+		});
+
+		// Queries, in the middle of the data set
+		MilkData data = synthetic.getData();
+		int year = synthetic.getStartYear() + synthetic.getYears() / 2;
+		String farmID = synthetic.getFarmID(synthetic.getFarms() / 2);
+		Date start = new GregorianCalendar(year, 2, 15).getTime();
+		Date end = new GregorianCalendar(year, 8, 14).getTime();
+
+		runner.run("getFarmIDs", () -> data.getFarmIDs());
+		runner.run("getValidYears", () -> data.getValidYears());
+		runner.run("getValidMonthsInYear", () -> data.getValidMonthsInYear(year));
+		runner.run("getEntriesForMonth", () -> data.getEntriesForMonth(year, 5));
+		runner.run("getEntriesForMonth(farm)", () -> data.getEntriesForMonth(year, 5, farmID));
+		runner.run("getEntriesForYear", () -> data.getEntriesForYear(year));
+		runner.run("getEntriesForFarm", () -> data.getEntriesForFarm(farmID));
+		runner.run("getEntriesForDateRange", () -> data.getEntriesForDateRange(start, end));
+		runner.run("getEntryCursor", () -> data.getEntryCursor(null, start, end));
+		runner.run("getFarmIndex.search", () -> data.getFarmIndex().search("arm 1", 50));
+		runner.run("getFarmMonthTotals", () -> data.getFarmMonthTotals());
+
+		// Report aggregation loops, as run by the report panes
+		runner.run("report.farm", () -> {
+			long[] monthWeights = new long[12];
+			for (int month = 0; month < 12; month++)
+				for (MilkEntry entry : data.getEntriesForMonth(year, month, farmID))
+					monthWeights[month] += entry.getWeight();
+			return monthWeights;
+		});
+		runner.run("report.annual", () -> FarmTotals.sum(data.getFarmIDs(), data.getEntriesForYear(year), true));
+		runner.run("report.monthly", () -> FarmTotals.sum(data.getFarmIDs(), data.getEntriesForMonth(year, 5), false));
+		runner.run("report.range",
+				() -> FarmTotals.sum(data.getFarmIDs(), data.getEntriesForDateRange(start, end), false));
+		runner.run("report.annual.ordering", () -> FarmTotals.sum(data.getFarmIDs(), data.getEntriesForYear(year), true)
+				.getOrdering(FarmTotals.Column.TOTAL));
+
+		// The same reports from the weight columns, as run by the report panes now
+		runner.run("columns.farm", () -> data.getMonthWeights(farmID, year));
+		runner.run("columns.annual", () -> data.getFarmTotals(year, true));
+		runner.run("columns.monthly", () -> data.getFarmTotals(year, 5, false));
+		runner.run("columns.range", () -> data.getFarmTotals(start, end, false));
+
+		// The aggregation kernels over a year's columns, per element
+		List<MilkEntry> yearEntries = data.getEntriesForYear(year);
+		HashMap<String, Integer> farmIndices = new HashMap<String, Integer>();
+		for (String id : data.getFarmIDs())
+			farmIndices.put(id, farmIndices.size());
+		int[] farms = new int[yearEntries.size()];
+		int[] days = new int[yearEntries.size()];
+		int[] weights = new int[yearEntries.size()];
+		Calendar calendar = new GregorianCalendar();
+		for (int i = 0; i < weights.length; i++) {
+			MilkEntry entry = yearEntries.get(i);
+			calendar.setTime(entry.getDate());
+			farms[i] = farmIndices.get(entry.getFarmID());
+			days[i] = calendar.get(Calendar.DAY_OF_YEAR);
+			weights[i] = entry.getWeight();
+		}
+
+		runKernels(runner, AggregationKernels.scalar(), farms, days, weights);
+		if (AggregationKernels.vector() != null)
+			runKernels(runner, AggregationKernels.vector(), farms, days, weights);
+		else
+			System.out.println("# Vector kernels unavailable, compile vector/ into the class path and run with --add-modules jdk.incubator.vector");
+
+		// The same reports from precomputed month totals, as served headless
+		ReportQueries queries = new ReportQueries(data);
+		runner.run("queries.farm", () -> queries.getFarmReport(farmID, year));
+		runner.run("queries.annual", () -> queries.getAnnualReport(year));
+		runner.run("queries.monthly", () -> queries.getMonthlyReport(year, 5));
+		runner.run("queries.range", () -> queries.getRangeReport(start, end));
+	}
+
+	/**
+	 * Runs the benchmarks of one implementation of the aggregation kernels,
+	 * reporting the time per element read
+	 *
+	 * @param runner  The runner to run the benchmarks with
+	 * @param kernels The kernels
+	 * @param farms   The farm index of each entry
+	 * @param days    The day of the year of each entry
+	 * @param weights The weight of each entry
+	 */
+	private static void runKernels(BenchmarkRunner runner, AggregationKernels kernels, int[] farms, int[] days,
+			int[] weights) {
+		String prefix = "kernels." + (kernels == AggregationKernels.scalar() ? "scalar" : "vector") + ".";
+		int length = weights.length;
+		long[] sums = new long[farms.length == 0 ? 0 : kernels.max(farms, 0, length) + 1];
+		int[] counts = new int[sums.length];
+
+		runner.run(prefix + "sum", length, null, (Object state) -> kernels.sum(weights, 0, length));
+		runner.run(prefix + "min", length, null, (Object state) -> kernels.min(weights, 0, length));
+		runner.run(prefix + "max", length, null, (Object state) -> kernels.max(weights, 0, length));
+		runner.run(prefix + "count", length, null, (Object state) -> kernels.count(days, 0, length, 74, 257));
+		runner.run(prefix + "sumInRange", length, null,
+				(Object state) -> kernels.sumInRange(days, weights, 0, length, 74, 257));
+		runner.run(prefix + "sumByGroup", length, null, (Object state) -> {
+			kernels.sumByGroup(farms, weights, 0, length, sums, counts);
+			return sums;
+		});
+	}
+
+}
@@ -0,0 +1,149 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import application.data.MilkData;
+import application.data.MilkDataSubscriber;
+import application.data.MilkEntry;
+import application.io.LineProtocolPublisher;
+
+/**
+ * Measures streaming ingestion end to end: rows of {@link SyntheticData} are
+ * sent over a loopback TCP connection to a {@link LineProtocolPublisher}, whose
+ * batches a {@link MilkDataSubscriber} adds to a MilkData on a single thread,
+ * as the dashboard's JavaFX thread would. For each run it reports the rows/s
+ * and MB/s sustained from the first row sent to the last row added.
+ *
+ * Usage: java -cp bin application.bench.StreamingBenchmark [--farms N]
+ * [--years N] [--rows-per-day N] [--seed N] [--runs N]
+ *
+ * @author A-Team 128
+ *
+ */
+public class StreamingBenchmark {
+
+	/**
+	 * Streams the synthetic rows a number of times, reporting each run
+	 *
+	 * @param args The command line arguments
+	 * @throws Exception if the rows could not be streamed
+	 */
+	public static void main(String[] args) throws Exception {
+		HashMap<String, String> options = new HashMap<String, String>();
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (!args[i].startsWith("--")) {
+				System.err.println("Unexpected argument " + args[i]);
+				System.exit(2);
+			}
+			options.put(args[i].substring(2), args[i + 1]);
+		}
+
+		int farms = Integer.parseInt(options.getOrDefault("farms", "4000"));
+		int years = Integer.parseInt(options.getOrDefault("years", "3"));
+		int rowsPerDay = Integer.parseInt(options.getOrDefault("rows-per-day", "500"));
+		long seed = Long.parseLong(options.getOrDefault("seed", "400"));
+		int runs = Integer.parseInt(options.getOrDefault("runs", "3"));
+
+		// Format the rows once, so the runs measure the stream and not the formatting
+		SyntheticData synthetic = new SyntheticData(seed, farms, 2017, years, rowsPerDay);
+		ByteArrayOutputStream text = new ByteArrayOutputStream();
+		synthetic.forEachRow((Date date, int year, int month, int day, int farm, int weight) -> {
+			String row = year + "-" + (month + 1) + "-" + day + "," + synthetic.getFarmID(farm) + "," + weight + "\n";
+			text.writeBytes(row.getBytes(StandardCharsets.UTF_8));
+		});
+		byte[] rows = text.toByteArray();
+		long rowCount = synthetic.getRowCount();
+		double megabytes = rows.length / 1048576.0;
+
+		System.out.printf("# %d farms, %d years, %d rows per day: %d rows, %.1f MB%n", farms, years, rowsPerDay,
+				rowCount, megabytes);
+		System.out.printf("%-5s %10s %12s %10s %10s%n", "Run", "Seconds", "Rows/s", "MB/s", "Rows");
+
+		double[] seconds = new double[runs];
+		for (int run = 0; run < runs; run++) {
+			System.gc();
+			seconds[run] = stream(rows, rowCount) / 1e9;
+			System.out.printf("%-5d %10.2f %12.0f %10.1f %10d%n", run + 1, seconds[run], rowCount / seconds[run],
+					megabytes / seconds[run], rowCount);
+		}
+
+		Arrays.sort(seconds);
+		double median = seconds[runs / 2];
+		System.out.printf("# median %.2f s, %.0f rows/s%n", median, rowCount / median);
+	}
+
+	/**
+	 * Streams rows into a new MilkData
+	 *
+	 * @param rows     The rows, one per line
+	 * @param rowCount The number of rows
+	 * @return the nanoseconds from the first row sent to the last row added
+	 */
+	private static long stream(byte[] rows, long rowCount) throws Exception {
+		MilkData data = new MilkData();
+		ExecutorService inserter = Executors.newSingleThreadExecutor();
+		AtomicLong added = new AtomicLong();
+		CountDownLatch allAdded = new CountDownLatch(1);
+
+		MilkDataSubscriber subscriber = new MilkDataSubscriber(data, inserter, (List<MilkEntry> entries) -> {
+			if (added.addAndGet(entries.size()) == rowCount)
+				allAdded.countDown();
+		});
+
+		try {
+			long nanos;
+			try (LineProtocolPublisher publisher = new LineProtocolPublisher(
+					new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+				publisher.subscribe(subscriber);
+
+				long start = System.nanoTime();
+				Thread sender = new Thread(() -> send(rows, publisher.getPort()), "Sender");
+				sender.start();
+				allAdded.await();
+				nanos = System.nanoTime() - start;
+
+				sender.join();
+			}
+
+			// Closing the publisher completes the subscriber
+			subscriber.getCompletion().get();
+			return nanos;
+		} finally {
+			inserter.shutdown();
+		}
+	}
+
+	/**
+	 * Sends rows to a port on the loopback address
+	 */
+	private static void send(byte[] rows, int port) {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+				OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024)) {
+			out.write(rows);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+}
@@ -0,0 +1,177 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.bench;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import application.data.MilkData;
+import application.data.MilkEntry;
+
+/**
+ * Deterministic synthetic milk data: a number of rows on every day of a range
+ * of years, each for a random farm with a random weight. The same seed and
+ * shape always produce the same rows, in date order.
+ *
+ * @author A-Team 128
+ *
+ */
+public class SyntheticData {
+
+	/**
+	 * Receives the generated rows
+	 */
+	@FunctionalInterface
+	public interface RowConsumer {
+		/**
+		 * Receives one row
+		 *
+		 * @param date   The row's date, shared by all rows of the same day
+		 * @param year   The row's year
+		 * @param month  The row's month (0-11)
+		 * @param day    The row's day of the month (1-31)
+		 * @param farm   The index of the row's farm, see {@link #getFarmID(int)}
+		 * @param weight The row's weight
+		 */
+		void accept(Date date, int year, int month, int day, int farm, int weight);
+	}
+
+	private final long seed;
+	private final int farms;
+	private final int startYear;
+	private final int years;
+	private final int rowsPerDay;
+
+	// Farm IDs are built once so rows of the same farm share the string
+	private final String[] farmIDs;
+
+	/**
+	 * Describes a synthetic data set
+	 *
+	 * @param seed       The seed of the random farms and weights
+	 * @param farms      The number of farms
+	 * @param startYear  The first year
+	 * @param years      The number of years
+	 * @param rowsPerDay The number of rows on each day
+	 */
+	public SyntheticData(long seed, int farms, int startYear, int years, int rowsPerDay) {
+		if (farms < 1 || years < 1 || rowsPerDay < 0)
+			throw new IllegalArgumentException("farms and years should be at least 1, rowsPerDay at least 0");
+
+		this.seed = seed;
+		this.farms = farms;
+		this.startYear = startYear;
+		this.years = years;
+		this.rowsPerDay = rowsPerDay;
+
+		this.farmIDs = new String[farms];
+		for (int farm = 0; farm < farms; farm++)
+			farmIDs[farm] = "Farm " + farm;
+	}
+
+	/**
+	 * Returns the farm ID of a farm index
+	 *
+	 * @param farm The index of the farm
+	 * @return the farm's ID
+	 */
+	public String getFarmID(int farm) {
+		return farmIDs[farm];
+	}
+
+	/**
+	 * Returns the number of farms
+	 *
+	 * @return the number of farms
+	 */
+	public int getFarms() {
+		return farms;
+	}
+
+	/**
+	 * Returns the first year
+	 *
+	 * @return the first year
+	 */
+	public int getStartYear() {
+		return startYear;
+	}
+
+	/**
+	 * Returns the number of years
+	 *
+	 * @return the number of years
+	 */
+	public int getYears() {
+		return years;
+	}
+
+	/**
+	 * Returns the number of rows which will be generated
+	 *
+	 * @return the number of rows
+	 */
+	public long getRowCount() {
+		GregorianCalendar calendar = new GregorianCalendar(startYear, Calendar.JANUARY, 1);
+		long days = 0;
+		for (int year = startYear; year < startYear + years; year++)
+			days += calendar.isLeapYear(year) ? 366 : 365;
+		return days * rowsPerDay;
+	}
+
+	/**
+	 * Generates every row, in date order
+	 *
+	 * @param consumer Receives the rows
+	 */
+	public void forEachRow(RowConsumer consumer) {
+		SplittableRandom random = new SplittableRandom(seed);
+		GregorianCalendar calendar = new GregorianCalendar(startYear, Calendar.JANUARY, 1);
+
+		while (calendar.get(Calendar.YEAR) < startYear + years) {
+			Date date = calendar.getTime();
+			int year = calendar.get(Calendar.YEAR);
+			int month = calendar.get(Calendar.MONTH);
+			int day = calendar.get(Calendar.DAY_OF_MONTH);
+
+			for (int row = 0; row < rowsPerDay; row++)
+				consumer.accept(date, year, month, day, random.nextInt(farms), 1000 + random.nextInt(9000));
+
+			calendar.add(Calendar.DAY_OF_MONTH, 1);
+		}
+	}
+
+	/**
+	 * Generates every row as a MilkEntry
+	 *
+	 * @return all entries, in date order
+	 */
+	public List<MilkEntry> getEntries() {
+		List<MilkEntry> entries = new ArrayList<MilkEntry>((int) Math.min(Integer.MAX_VALUE - 8, getRowCount()));
+		forEachRow((Date date, int year, int month, int day, int farm, int weight) -> entries
+				.add(new MilkEntry(farmIDs[farm], date, weight)));
+		return entries;
+	}
+
+	/**
+	 * Generates every row into a new, organized MilkData
+	 *
+	 * @return the organized data
+	 */
+	public MilkData getData() {
+		MilkData data = new MilkData();
+		forEachRow((Date date, int year, int month, int day, int farm, int weight) -> data
+				.addEntry(new MilkEntry(farmIDs[farm], date, weight)));
+		data.organize();
+		return data;
+	}
+
+}
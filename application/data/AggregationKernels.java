@@ -0,0 +1,180 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+/**
+ * Aggregations over primitive int columns, such as the weights and farm
+ * indices of {@link WeightColumns}. Each kernel reads the elements from (inclusive) to
+ * (exclusive) of its arrays.
+ *
+ * Two implementations are provided: a scalar one, and one using the JDK's
+ * Vector API to run the loops with SIMD instructions. The Vector API is the
+ * incubator module jdk.incubator.vector, which javac and the JVM only resolve
+ * when given --add-modules jdk.incubator.vector, so the vector kernels are in
+ * the separate source root vector/ and compiled on their own. {@link #get()}
+ * returns the scalar kernels when they were not compiled or the JVM was not
+ * started with the module. Both give the same results.
+ *
+ * @author A-Team 128
+ *
+ */
+public abstract class AggregationKernels {
+
+	private static final AggregationKernels SCALAR = new ScalarKernels();
+	private static final AggregationKernels VECTOR = loadVectorKernels();
+
+	/**
+	 * Returns the fastest kernels available to the running JVM
+	 *
+	 * @return the vector kernels if the Vector API is available, the scalar
+	 *         kernels otherwise
+	 */
+	public static AggregationKernels get() {
+		return VECTOR != null ? VECTOR : SCALAR;
+	}
+
+	/**
+	 * Returns the scalar kernels, which are always available
+	 *
+	 * @return the scalar kernels
+	 */
+	public static AggregationKernels scalar() {
+		return SCALAR;
+	}
+
+	/**
+	 * Returns the kernels using the Vector API
+	 *
+	 * @return the vector kernels, or null if they were not compiled or the JVM
+	 *         was not started with --add-modules jdk.incubator.vector
+	 */
+	public static AggregationKernels vector() {
+		return VECTOR;
+	}
+
+	/**
+	 * Loads the vector kernels by name, as their class is compiled separately
+	 * from vector/ and links against the incubator module, so it is never loaded
+	 * when the module is not present
+	 *
+	 * @return the vector kernels, or null if they are not available
+	 */
+	private static AggregationKernels loadVectorKernels() {
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+			return null;
+
+		try {
+			return (AggregationKernels) Class.forName("application.data.VectorKernels").getDeclaredConstructor()
+					.newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			// Reports give the same results with the scalar kernels
+			return null;
+		}
+	}
+
+	/**
+	 * Returns a short description of the kernels, such as "scalar"
+	 *
+	 * @return the name of the kernels
+	 */
+	public abstract String getName();
+
+	/**
+	 * Returns the sum of values
+	 *
+	 * @param values The values
+	 * @param from   The first index to sum (inclusive)
+	 * @param to     The last index to sum (exclusive)
+	 * @return the sum of the values
+	 */
+	public abstract long sum(int[] values, int from, int to);
+
+	/**
+	 * Returns the smallest of values
+	 *
+	 * @param values The values
+	 * @param from   The first index to read (inclusive)
+	 * @param to     The last index to read (exclusive)
+	 * @return the smallest value, or Integer.MAX_VALUE if there are none
+	 */
+	public abstract int min(int[] values, int from, int to);
+
+	/**
+	 * Returns the largest of values
+	 *
+	 * @param values The values
+	 * @param from   The first index to read (inclusive)
+	 * @param to     The last index to read (exclusive)
+	 * @return the largest value, or Integer.MIN_VALUE if there are none
+	 */
+	public abstract int max(int[] values, int from, int to);
+
+	/**
+	 * Returns the number of keys between (inclusive) two bounds
+	 *
+	 * @param keys The keys
+	 * @param from The first index to read (inclusive)
+	 * @param to   The last index to read (exclusive)
+	 * @param low  The lowest key counted
+	 * @param high The highest key counted
+	 * @return the number of keys from low to high
+	 */
+	public abstract int count(int[] keys, int from, int to, int low, int high);
+
+	/**
+	 * Returns the sum of the values whose keys are between (inclusive) two
+	 * bounds, such as the weights of a range of days, or of one farm when both
+	 * bounds are its index
+	 *
+	 * @param keys   The key of each value
+	 * @param values The values, index-aligned with the keys
+	 * @param from   The first index to read (inclusive)
+	 * @param to     The last index to read (exclusive)
+	 * @param low    The lowest key summed
+	 * @param high   The highest key summed
+	 * @return the sum of the values with keys from low to high
+	 */
+	public abstract long sumInRange(int[] keys, int[] values, int from, int to, int low, int high);
+
+	/**
+	 * Adds each value to the sum of its group, such as each weight to the total
+	 * of its farm, and counts the values of each group
+	 *
+	 * @param groups The group of each value, an index into the sums
+	 * @param values The values, index-aligned with the groups
+	 * @param from   The first index to read (inclusive)
+	 * @param to     The last index to read (exclusive)
+	 * @param sums   The sum of each group, added to
+	 * @param counts The number of values of each group, added to
+	 */
+	public abstract void sumByGroup(int[] groups, int[] values, int from, int to, long[] sums, int[] counts);
+
+	/**
+	 * Adds the sum of each run of values to the sum of its group, such as each
+	 * farm's run of weights sorted by farm to the total of the farm, and counts
+	 * the values of each run. Each run is summed with {@link #sum(int[], int, int)},
+	 * so the vector kernels sum runs of values grouped beforehand with SIMD
+	 * instructions, which {@link #sumByGroup} cannot.
+	 *
+	 * @param values    The values, grouped into consecutive runs
+	 * @param runStarts The index of the first value of each run, followed by the
+	 *                  index after the last run
+	 * @param sums      The sum of each run's group, added to
+	 * @param counts    The number of values of each run's group, added to
+	 */
+	public void sumRuns(int[] values, int[] runStarts, long[] sums, int[] counts) {
+		for (int run = 0; run + 1 < runStarts.length; run++) {
+			int from = runStarts[run];
+			int to = runStarts[run + 1];
+			if (from < to) {
+				sums[run] += sum(values, from, to);
+				counts[run] += to - from;
+			}
+		}
+	}
+
+}
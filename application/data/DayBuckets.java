@@ -0,0 +1,245 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.util.HashMap;
+
+/**
+ * The total weight of each day, for each farm and for all farms together,
+ * summed as entries are added so that daily and weekly production is read from
+ * the buckets rather than from the entries. Days are numbered as epoch days
+ * (see {@link java.time.LocalDate#toEpochDay()}).
+ *
+ * The days of a farm are kept in blocks of {@link #BLOCK_DAYS} consecutive
+ * days, each allocated when the first entry of one of its days is added, so a
+ * farm only takes memory for the stretches of days it has entries in. A day's
+ * block and its place in the block are the high and low bits of its number.
+ *
+ * Weeks are ISO weeks, which start on Monday, and are rolled up from the days
+ * of the week when they are queried.
+ *
+ * @author A-Team 128
+ *
+ */
+class DayBuckets {
+
+	// Days in a block, a power of two so that a day's block is a shift away
+	static final int BLOCK_DAYS = 64;
+	private static final int BLOCK_SHIFT = Integer.numberOfTrailingZeros(BLOCK_DAYS);
+
+	// Block references in a series when its first entry is added
+	private static final int INITIAL_BLOCKS = 8;
+
+	/**
+	 * The weight of each day in the blocks of days with entries
+	 */
+	private static class Series {
+		private int firstBlock;
+		// The blocks from the first block on, null where no day has entries
+		private long[][] blocks;
+
+		/**
+		 * Adds weight to a day, allocating its block if it has none
+		 */
+		private void add(int day, long weight) {
+			int block = day >> BLOCK_SHIFT;
+			if (blocks == null) {
+				firstBlock = block;
+				blocks = new long[INITIAL_BLOCKS][];
+			} else if (block < firstBlock || block >= firstBlock + blocks.length) {
+				grow(block);
+			}
+
+			long[] days = blocks[block - firstBlock];
+			if (days == null)
+				days = blocks[block - firstBlock] = new long[BLOCK_DAYS];
+			days[day & (BLOCK_DAYS - 1)] += weight;
+		}
+
+		/**
+		 * Grows the block references to include a block, with half as many spare
+		 * references again in the direction they grew. Only the references are
+		 * copied, and spare ones take no blocks.
+		 */
+		private void grow(int block) {
+			int first = Math.min(firstBlock, block);
+			int end = Math.max(firstBlock + blocks.length, block + 1);
+			int spare = (end - first) / 2;
+			if (block < firstBlock)
+				first -= spare;
+			else
+				end += spare;
+
+			long[][] grown = new long[end - first][];
+			System.arraycopy(blocks, 0, grown, firstBlock - first, blocks.length);
+			firstBlock = first;
+			blocks = grown;
+		}
+
+		/**
+		 * Passes the days with a block between (inclusive) two days to a consumer,
+		 * a block at a time
+		 */
+		private void forEachBlock(int startDay, int endDay, BlockConsumer consumer) {
+			if (blocks == null)
+				return;
+
+			int from = Math.max(startDay >> BLOCK_SHIFT, firstBlock);
+			int to = Math.min(endDay >> BLOCK_SHIFT, firstBlock + blocks.length - 1);
+			for (int block = from; block <= to; block++) {
+				long[] days = blocks[block - firstBlock];
+				if (days == null)
+					continue;
+
+				int blockStart = block << BLOCK_SHIFT;
+				int first = Math.max(startDay, blockStart);
+				int last = Math.min(endDay, blockStart + BLOCK_DAYS - 1);
+				consumer.accept(days, blockStart, first, last);
+			}
+		}
+	}
+
+	/**
+	 * Receives part of a block of days
+	 */
+	private interface BlockConsumer {
+		/**
+		 * @param days       The weight of each day of the block
+		 * @param blockStart The epoch day of the block's first day
+		 * @param first      The epoch day of the first day to read
+		 * @param last       The epoch day of the last day to read
+		 */
+		void accept(long[] days, int blockStart, int first, int last);
+	}
+
+	private final HashMap<String, Series> farmSeries;
+	private final Series allFarms;
+
+	/**
+	 * Creates empty buckets
+	 */
+	DayBuckets() {
+		this.farmSeries = new HashMap<String, Series>(250);
+		this.allFarms = new Series();
+	}
+
+	/**
+	 * Returns the number of the Monday starting the ISO week of a day
+	 *
+	 * @param day The epoch day
+	 * @return the epoch day of the Monday on or before the day
+	 */
+	static int weekStart(int day) {
+		// Epoch day 0 was a Thursday, so Monday is 3 days after a multiple of 7
+		return day - Math.floorMod(day + 3, 7);
+	}
+
+	/**
+	 * Adds the weight of an entry to its day
+	 *
+	 * @param farmID The farm of the entry
+	 * @param day    The epoch day of the entry
+	 * @param weight The weight of the entry
+	 */
+	void add(String farmID, int day, int weight) {
+		farmSeries.computeIfAbsent(farmID, (String key) -> new Series()).add(day, weight);
+		allFarms.add(day, weight);
+	}
+
+	/**
+	 * Returns the total weight of each day between (inclusive) two days
+	 *
+	 * @param farmID   The farm, or null for all farms
+	 * @param startDay The epoch day of the beginning of the range
+	 * @param endDay   The epoch day of the end of the range
+	 * @return the weight of each day, from the first day of the range
+	 */
+	long[] getDailyWeights(String farmID, int startDay, int endDay) {
+		long[] days = new long[endDay - startDay + 1];
+		Series series = farmID == null ? allFarms : farmSeries.get(farmID);
+		if (series == null)
+			return days;
+
+		// Copy the parts of the range with blocks; days without one stay 0
+		series.forEachBlock(startDay, endDay, (long[] blockDays, int blockStart, int first, int last) -> System
+				.arraycopy(blockDays, first - blockStart, days, first - startDay, last - first + 1));
+		return days;
+	}
+
+	/**
+	 * Returns the total weight of each ISO week overlapping (inclusive) two days.
+	 * Only the days in the range are counted, so the first and last weeks may be
+	 * partial.
+	 *
+	 * @param farmID   The farm, or null for all farms
+	 * @param startDay The epoch day of the beginning of the range
+	 * @param endDay   The epoch day of the end of the range
+	 * @return the weight of each week, from the week of the first day of the range
+	 */
+	long[] getWeeklyWeights(String farmID, int startDay, int endDay) {
+		int firstWeek = weekStart(startDay);
+		long[] weeks = new long[(weekStart(endDay) - firstWeek) / 7 + 1];
+		Series series = farmID == null ? allFarms : farmSeries.get(farmID);
+		if (series == null)
+			return weeks;
+
+		// Roll up the days of the parts of the range with blocks
+		series.forEachBlock(startDay, endDay, (long[] blockDays, int blockStart, int first, int last) -> {
+			for (int day = first; day <= last; day++)
+				weeks[(day - firstWeek) / 7] += blockDays[day - blockStart];
+		});
+		return weeks;
+	}
+
+	/**
+	 * @return the number of blocks of days allocated, for all series
+	 */
+	int getBlockCount() {
+		int count = blockCount(allFarms);
+		for (Series series : farmSeries.values())
+			count += blockCount(series);
+		return count;
+	}
+
+	/**
+	 * Returns the number of blocks a series allocated
+	 */
+	private static int blockCount(Series series) {
+		int count = 0;
+		if (series.blocks != null)
+			for (long[] days : series.blocks)
+				if (days != null)
+					count++;
+		return count;
+	}
+
+	/**
+	 * Estimates the memory taken by the buckets, with the map of farms' series
+	 *
+	 * @return the estimated bytes of the buckets
+	 */
+	long estimateBytes() {
+		long bytes = MemoryFootprint.object(2, 0) + seriesBytes(allFarms);
+		for (Series series : farmSeries.values())
+			bytes += seriesBytes(series);
+
+		// The map's keys are the farm lists' strings
+		return bytes + MemoryFootprint.hashMap(farmSeries.size(), 0);
+	}
+
+	/**
+	 * Returns the size of a series, its block references and its blocks
+	 */
+	private static long seriesBytes(Series series) {
+		long bytes = MemoryFootprint.object(1, 4);
+		if (series.blocks != null)
+			bytes += MemoryFootprint.referenceArray(series.blocks.length)
+					+ blockCount(series) * MemoryFootprint.array(8, BLOCK_DAYS);
+		return bytes;
+	}
+
+}
@@ -0,0 +1,337 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * A read-only, paged view over the entries matching a query. No entries are
+ * copied when the cursor is created; pages are read from the lists already held
+ * by {@link MilkData}. Orderings other than by date are computed once, the first
+ * time they are requested, and cached for later pages. When entries are added to
+ * the data, the cursor over the same query created by
+ * {@link MilkData#getEntryCursor(EntryCursor, MilkDataChange)} merges the added
+ * entries into those orderings instead of computing them again.
+ *
+ * @author A-Team 128
+ *
+ */
+public class EntryCursor {
+
+	/**
+	 * The orderings entries can be read in
+	 */
+	public enum Ordering {
+		DATE, FARM_ID, WEIGHT
+	}
+
+	// The query the cursor was created for
+	final String farmID;
+	final Date startDate;
+	final Date endDate;
+
+	// Non-empty, date-sorted lists the entries are read from, in order
+	private final List<List<MilkEntry>> segments;
+
+	// Position of the first entry of each segment
+	private final int[] segmentStarts;
+
+	private final int size;
+
+	// Sorted farm IDs, used to rank entries by farm ID
+	private final List<String> farmIDs;
+
+	// Lazily computed permutations (position -> date ordered position)
+	private final EnumMap<Ordering, int[]> orderings;
+
+	/**
+	 * Creates a cursor over the specified date-sorted segments
+	 *
+	 * @param farmID    The farm of the query, or null for all farms
+	 * @param startDate The beginning of the query's date range
+	 * @param endDate   The end of the query's date range
+	 * @param segments  Date-sorted lists to read entries from, in order
+	 * @param farmIDs   The sorted list of all farm IDs
+	 */
+	EntryCursor(String farmID, Date startDate, Date endDate, List<List<MilkEntry>> segments, List<String> farmIDs) {
+		this.farmID = farmID;
+		this.startDate = startDate;
+		this.endDate = endDate;
+		this.segments = segments;
+		this.farmIDs = farmIDs;
+		this.orderings = new EnumMap<Ordering, int[]>(Ordering.class);
+
+		// Compute where each segment begins
+		this.segmentStarts = new int[segments.size()];
+		int total = 0;
+		for (int i = 0; i < segments.size(); i++) {
+			segmentStarts[i] = total;
+			total += segments.get(i).size();
+		}
+		this.size = total;
+	}
+
+	/**
+	 * Returns a cursor over a copy of this cursor's entries, which does not
+	 * change when the lists they were read from do
+	 *
+	 * @return a cursor over the same entries, in the same order
+	 */
+	EntryCursor copy() {
+		List<MilkEntry> entries = new ArrayList<MilkEntry>(size);
+		for (List<MilkEntry> segment : segments)
+			entries.addAll(segment);
+
+		List<List<MilkEntry>> copiedSegments = new ArrayList<List<MilkEntry>>(1);
+		if (!entries.isEmpty())
+			copiedSegments.add(entries);
+		return new EntryCursor(farmID, startDate, endDate, copiedSegments, farmIDs);
+	}
+
+	/**
+	 * Returns the number of entries in the cursor
+	 *
+	 * @return the number of entries in the cursor
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the entry at the specified position in date order
+	 *
+	 * @param position The position of the entry
+	 * @return the entry at the specified position
+	 * @throws IndexOutOfBoundsException if the position is not within the cursor
+	 */
+	public MilkEntry get(int position) throws IndexOutOfBoundsException {
+		if (position < 0 || position >= size)
+			throw new IndexOutOfBoundsException("Position " + position + " is not within the cursor.");
+
+		// Find the last segment beginning at or before the position
+		int segment = Arrays.binarySearch(segmentStarts, position);
+		if (segment < 0)
+			segment = -segment - 2;
+
+		return segments.get(segment).get(position - segmentStarts[segment]);
+	}
+
+	/**
+	 * Copies a page of entries, in the specified ordering, into the page array
+	 *
+	 * @param offset    The position of the first entry of the page
+	 * @param page      The array to fill
+	 * @param ordering  The ordering to read entries in
+	 * @param ascending Whether the ordering should be read ascending
+	 * @return the number of entries copied
+	 */
+	public int fetch(int offset, MilkEntry[] page, Ordering ordering, boolean ascending) {
+		int count = Math.max(0, Math.min(page.length, size - offset));
+		int[] permutation = getOrdering(ordering);
+
+		for (int i = 0; i < count; i++) {
+			int position = ascending ? offset + i : size - 1 - (offset + i);
+			page[i] = get(permutation == null ? position : permutation[position]);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the permutation for the specified ordering, computing it if it has
+	 * not been used before. Entries are sorted by packing the sort key and the
+	 * date-ordered position into a single long, so no boxing or comparator calls
+	 * are needed. Ties keep date order. Synchronized since a report export may
+	 * read the cursor while the table is being sorted.
+	 *
+	 * @param ordering The ordering to return the permutation of
+	 * @return the permutation, or null for date ordering
+	 */
+	private synchronized int[] getOrdering(Ordering ordering) {
+		if (ordering == Ordering.DATE)
+			return null;
+
+		int[] permutation = orderings.get(ordering);
+		if (permutation != null)
+			return permutation;
+
+		long[] keys = new long[size];
+		int position = 0;
+		for (List<MilkEntry> segment : segments)
+			for (MilkEntry entry : segment) {
+				keys[position] = key(entry, ordering, position);
+				position++;
+			}
+
+		Arrays.sort(keys);
+
+		permutation = new int[size];
+		for (int i = 0; i < size; i++)
+			permutation[i] = (int) keys[i];
+
+		orderings.put(ordering, permutation);
+		return permutation;
+	}
+
+	/**
+	 * Carries over the orderings another cursor over the same query computed
+	 * before entries were added, merging the added entries in. Each added
+	 * entry's place in an ordering is binary searched, so only the added entries
+	 * are sorted. If the added entries cannot be placed, the orderings are left
+	 * to be computed when requested.
+	 *
+	 * @param previous The cursor created before the entries were added, whose
+	 *                 lists may have changed since, so its entries are not read
+	 * @param added    The added entries matching the query
+	 */
+	void mergeOrderings(EntryCursor previous, List<MilkEntry> added) {
+		EnumMap<Ordering, int[]> previousOrderings;
+		synchronized (previous) {
+			previousOrderings = new EnumMap<Ordering, int[]>(previous.orderings);
+		}
+		if (previousOrderings.isEmpty())
+			return;
+
+		int[] addedPositions = findAdded(added);
+		if (addedPositions == null || previous.size + addedPositions.length != size)
+			return;
+
+		// The date ordered position of each previous entry in this cursor
+		int[] moved = new int[previous.size];
+		int next = 0;
+		int addedIndex = 0;
+		for (int position = 0; position < size; position++) {
+			if (addedIndex < addedPositions.length && addedPositions[addedIndex] == position)
+				addedIndex++;
+			else
+				moved[next++] = position;
+		}
+
+		previousOrderings.forEach((Ordering ordering, int[] permutation) -> {
+			int[] merged = merge(ordering, permutation, moved, addedPositions);
+			synchronized (this) {
+				orderings.put(ordering, merged);
+			}
+		});
+	}
+
+	/**
+	 * Finds the date ordered positions of added entries. Lists are sorted
+	 * stably after entries are appended to them, so the entries added on a date
+	 * are the last of that date's entries.
+	 *
+	 * @param added The added entries matching the query
+	 * @return the positions of the added entries in ascending order, or null if
+	 *         they are not where they should be
+	 */
+	private int[] findAdded(List<MilkEntry> added) {
+		long[] times = new long[added.size()];
+		for (int i = 0; i < times.length; i++)
+			times[i] = added.get(i).getDate().getTime();
+		Arrays.sort(times);
+
+		int[] positions = new int[times.length];
+		int found = 0;
+		for (int i = 0; i < times.length;) {
+			// The added entries of the date come right before its first later entry
+			int count = 1;
+			while (i + count < times.length && times[i + count] == times[i])
+				count++;
+
+			int end = firstPositionAfter(times[i]);
+			if (end - count < (found == 0 ? 0 : positions[found - 1] + 1))
+				return null;
+			for (int position = end - count; position < end; position++)
+				positions[found++] = position;
+			i += count;
+		}
+		return positions;
+	}
+
+	/**
+	 * Binary searches for the first entry after a time
+	 *
+	 * @param time The time in milliseconds
+	 * @return the position of the first entry after the time, or the size
+	 */
+	private int firstPositionAfter(long time) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (get(middle).getDate().getTime() <= time)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Merges added entries into a previous cursor's ordering
+	 *
+	 * @param ordering       The ordering
+	 * @param permutation    The previous cursor's permutation of the ordering
+	 * @param moved          The position in this cursor of each of the previous
+	 *                       cursor's positions
+	 * @param addedPositions The positions of the added entries in this cursor
+	 * @return the permutation of the ordering in this cursor
+	 */
+	private int[] merge(Ordering ordering, int[] permutation, int[] moved, int[] addedPositions) {
+		long[] addedKeys = new long[addedPositions.length];
+		for (int i = 0; i < addedKeys.length; i++)
+			addedKeys[i] = key(get(addedPositions[i]), ordering, addedPositions[i]);
+		Arrays.sort(addedKeys);
+
+		int[] merged = new int[size];
+		int next = 0;
+		int from = 0;
+		for (long addedKey : addedKeys) {
+			// The previous entries ordered before the added entry keep their order
+			int low = from;
+			int high = permutation.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				int position = moved[permutation[middle]];
+				if (key(get(position), ordering, position) < addedKey)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+
+			for (int i = from; i < low; i++)
+				merged[next++] = moved[permutation[i]];
+			merged[next++] = (int) addedKey;
+			from = low;
+		}
+		for (int i = from; i < permutation.length; i++)
+			merged[next++] = moved[permutation[i]];
+
+		return merged;
+	}
+
+	/**
+	 * Returns the sort key of an entry in an ordering. The key takes the high
+	 * bits, so it decides the order before the position.
+	 *
+	 * @param entry    The entry
+	 * @param ordering The ordering, other than by date
+	 * @param position The entry's date ordered position
+	 * @return the key, whose low 32 bits are the position
+	 */
+	private long key(MilkEntry entry, Ordering ordering, int position) {
+		long key = ordering == Ordering.WEIGHT ? entry.getWeight()
+				: Collections.binarySearch(farmIDs, entry.getFarmID());
+		return (key << 32) | position;
+	}
+
+}
@@ -0,0 +1,253 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A search index over farm IDs supporting case-insensitive prefix and substring
+ * queries. Prefix matches are found by binary searching the sorted, lower-cased
+ * IDs. Substring matches are found by binary searching a suffix array over all
+ * IDs, so a query never has to scan the full list of farms.
+ *
+ * @author A-Team 128
+ *
+ */
+public class FarmIndex {
+
+	// The farm IDs, in the order they were given
+	private final List<String> farmIDs;
+
+	// Indices of the farm IDs, sorted by their lower-cased form
+	private final int[] sortedFarms;
+	private final String[] sortedKeys;
+
+	// Every suffix of every lower-cased ID, packed as (farm index << 32 | offset)
+	// and sorted by the suffix text
+	private final long[] suffixes;
+	private final String[] lowerCaseIDs;
+
+	/**
+	 * Builds an index over the specified farm IDs
+	 *
+	 * @param farmIDs The farm IDs to index
+	 */
+	FarmIndex(List<String> farmIDs) {
+		this.farmIDs = new ArrayList<String>(farmIDs);
+		this.lowerCaseIDs = new String[farmIDs.size()];
+
+		// Offset 0 of each ID is left out of the suffixes, since those matches are
+		// prefix matches, so a blank ID has none
+		int suffixCount = 0;
+		for (int i = 0; i < farmIDs.size(); i++) {
+			lowerCaseIDs[i] = farmIDs.get(i).toLowerCase();
+			suffixCount += Math.max(0, lowerCaseIDs[i].length() - 1);
+		}
+
+		// Sort the farms by their lower-cased IDs for prefix queries
+		long[] order = new long[farmIDs.size()];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		sort(order, (long a, long b) -> lowerCaseIDs[(int) a].compareTo(lowerCaseIDs[(int) b]));
+
+		this.sortedFarms = new int[order.length];
+		this.sortedKeys = new String[order.length];
+		for (int i = 0; i < order.length; i++) {
+			sortedFarms[i] = (int) order[i];
+			sortedKeys[i] = lowerCaseIDs[sortedFarms[i]];
+		}
+
+		// Build the suffix array for substring queries
+		this.suffixes = new long[suffixCount];
+		int next = 0;
+		for (int farm = 0; farm < lowerCaseIDs.length; farm++)
+			for (int offset = 1; offset < lowerCaseIDs[farm].length(); offset++)
+				suffixes[next++] = ((long) farm << 32) | offset;
+		sort(suffixes, (long a, long b) -> compareSuffix(a, b));
+	}
+
+	/**
+	 * Estimates the bytes taken by the index's arrays and lower-cased IDs, for
+	 * {@link MemoryFootprint}
+	 *
+	 * @return the estimated size of the index
+	 */
+	long estimateBytes() {
+		// The index, its copy of the farm ID list and its arrays
+		long bytes = MemoryFootprint.object(5, 0) + MemoryFootprint.object(1, 8)
+				+ MemoryFootprint.referenceArray(farmIDs.size()) + MemoryFootprint.array(4, sortedFarms.length)
+				+ MemoryFootprint.referenceArray(sortedKeys.length)
+				+ MemoryFootprint.referenceArray(lowerCaseIDs.length) + MemoryFootprint.array(8, suffixes.length);
+
+		// toLowerCase() returns the ID itself when it is already lower case
+		for (int i = 0; i < lowerCaseIDs.length; i++)
+			if (lowerCaseIDs[i] != farmIDs.get(i))
+				bytes += MemoryFootprint.string(lowerCaseIDs[i]);
+		return bytes;
+	}
+
+	/**
+	 * Returns the farm IDs containing the query, ignoring case. Farm IDs starting
+	 * with the query come first, in alphanumeric order, followed by the farm IDs
+	 * containing it elsewhere. An empty query matches every farm.
+	 *
+	 * @param query The text to search for
+	 * @param limit The maximum number of farm IDs to return
+	 * @return up to limit farm IDs containing the query
+	 */
+	public List<String> search(String query, int limit) {
+		String key = query.toLowerCase();
+		List<String> results = new ArrayList<String>(Math.min(limit, farmIDs.size()));
+
+		// Farms already returned, so substring matches are not repeated
+		BitSet found = new BitSet(farmIDs.size());
+
+		// Prefix matches form a contiguous range of the sorted IDs
+		for (int i = lowerBound(sortedKeys, key); i < sortedKeys.length && results.size() < limit; i++) {
+			if (!sortedKeys[i].startsWith(key))
+				break;
+			results.add(farmIDs.get(sortedFarms[i]));
+			found.set(sortedFarms[i]);
+		}
+
+		if (key.isEmpty())
+			return results;
+
+		// Substring matches form a contiguous range of the suffix array
+		for (int i = lowerBoundSuffix(key); i < suffixes.length && results.size() < limit; i++) {
+			int farm = (int) (suffixes[i] >>> 32);
+			int offset = (int) suffixes[i];
+			if (!lowerCaseIDs[farm].startsWith(key, offset))
+				break;
+			if (found.get(farm))
+				continue;
+			results.add(farmIDs.get(farm));
+			found.set(farm);
+		}
+
+		return results;
+	}
+
+	/**
+	 * Returns the index of the first key not less than the specified key
+	 *
+	 * @param keys The sorted keys
+	 * @param key  The key to search for
+	 * @return the index of the first key not less than the key
+	 */
+	private static int lowerBound(String[] keys, String key) {
+		int low = 0;
+		int high = keys.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (keys[middle].compareTo(key) < 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the index of the first suffix not less than the specified key
+	 *
+	 * @param key The key to search for
+	 * @return the index of the first suffix not less than the key
+	 */
+	private int lowerBoundSuffix(String key) {
+		int low = 0;
+		int high = suffixes.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compareSuffix(suffixes[middle], key) < 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Orders packed farm indices or suffixes
+	 */
+	private interface LongOrder {
+		int compare(long a, long b);
+	}
+
+	/**
+	 * Sorts packed values with a merge sort, which unlike Arrays.sort does not
+	 * need the values boxed to take a comparator
+	 *
+	 * @param values The values to sort
+	 * @param order  The order to sort them in
+	 */
+	private static void sort(long[] values, LongOrder order) {
+		long[] source = values;
+		long[] buffer = new long[values.length];
+		for (int width = 1; width < values.length; width *= 2) {
+			for (int from = 0; from < values.length; from += 2 * width) {
+				int middle = Math.min(from + width, values.length);
+				int to = Math.min(from + 2 * width, values.length);
+
+				// Merge the two sorted runs into the buffer, keeping equal values in order
+				int left = from;
+				int right = middle;
+				for (int i = from; i < to; i++) {
+					if (right >= to || (left < middle && order.compare(source[left], source[right]) <= 0))
+						buffer[i] = source[left++];
+					else
+						buffer[i] = source[right++];
+				}
+			}
+
+			long[] sorted = buffer;
+			buffer = source;
+			source = sorted;
+		}
+
+		// After an odd number of passes the sorted values are in the buffer
+		if (source != values)
+			System.arraycopy(source, 0, values, 0, values.length);
+	}
+
+	/**
+	 * Compares two packed suffixes by their text
+	 */
+	private int compareSuffix(long a, long b) {
+		String first = lowerCaseIDs[(int) (a >>> 32)];
+		String second = lowerCaseIDs[(int) (b >>> 32)];
+		return compareRegions(first, (int) a, second, (int) b);
+	}
+
+	/**
+	 * Compares a packed suffix against a key
+	 */
+	private int compareSuffix(long suffix, String key) {
+		return compareRegions(lowerCaseIDs[(int) (suffix >>> 32)], (int) suffix, key, 0);
+	}
+
+	/**
+	 * Lexicographically compares two strings starting at the specified offsets,
+	 * without creating substrings
+	 */
+	private static int compareRegions(String first, int firstOffset, String second, int secondOffset) {
+		int firstLength = first.length() - firstOffset;
+		int secondLength = second.length() - secondOffset;
+		int length = Math.min(firstLength, secondLength);
+
+		for (int i = 0; i < length; i++) {
+			char a = first.charAt(firstOffset + i);
+			char b = second.charAt(secondOffset + i);
+			if (a != b)
+				return a - b;
+		}
+		return firstLength - secondLength;
+	}
+
+}
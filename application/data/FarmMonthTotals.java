@@ -0,0 +1,187 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The total weight and number of entries of every farm in every month of every
+ * year, computed in a single pass over {@link MilkData}. Every farm, annual and
+ * monthly report can be derived from it without touching the entries again.
+ *
+ * @author A-Team 128
+ *
+ */
+public class FarmMonthTotals {
+
+	private final List<String> farmIDs;
+	private final List<Integer> years;
+
+	// Indexed by ((farm * years) + year) * 12 + month
+	private final long[] totals;
+	private final int[] counts;
+
+	/**
+	 * Creates empty totals for the specified farms and years
+	 *
+	 * @param farmIDs The sorted farm IDs
+	 * @param years   The sorted years
+	 */
+	FarmMonthTotals(List<String> farmIDs, List<Integer> years) {
+		this.farmIDs = farmIDs;
+		this.years = years;
+		this.totals = new long[farmIDs.size() * years.size() * 12];
+		this.counts = new int[totals.length];
+	}
+
+	/**
+	 * Adds an entry's weight to the totals
+	 *
+	 * @param farm   The index of the entry's farm
+	 * @param year   The index of the entry's year
+	 * @param month  The entry's month (0-11)
+	 * @param weight The entry's weight
+	 */
+	void add(int farm, int year, int month, int weight) {
+		int index = index(farm, year, month);
+		totals[index] += weight;
+		counts[index]++;
+	}
+
+	/**
+	 * Returns the total weight of a farm in a month
+	 *
+	 * @param farm  The index of the farm
+	 * @param year  The index of the year
+	 * @param month The month (0-11)
+	 * @return the total weight of the farm in the month
+	 */
+	long getTotal(int farm, int year, int month) {
+		return totals[index(farm, year, month)];
+	}
+
+	/**
+	 * Returns the number of entries of a farm in a month
+	 *
+	 * @param farm  The index of the farm
+	 * @param year  The index of the year
+	 * @param month The month (0-11)
+	 * @return the number of entries of the farm in the month
+	 */
+	int getCount(int farm, int year, int month) {
+		return counts[index(farm, year, month)];
+	}
+
+	/**
+	 * Returns the sorted farm IDs, index-aligned with the farm indices used by
+	 * this class
+	 *
+	 * @return the sorted farm IDs
+	 */
+	public List<String> getFarmIDs() {
+		return farmIDs;
+	}
+
+	/**
+	 * Returns the sorted years, index-aligned with the year indices used by this
+	 * class
+	 *
+	 * @return the sorted years
+	 */
+	public List<Integer> getYears() {
+		return years;
+	}
+
+	/**
+	 * Returns whether a farm has any entries in a year
+	 *
+	 * @param farm The index of the farm
+	 * @param year The index of the year
+	 * @return whether the farm has entries in the year
+	 */
+	public boolean farmHasEntries(int farm, int year) {
+		for (int month = 0; month < 12; month++)
+			if (counts[index(farm, year, month)] > 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns whether any farm has entries in a month
+	 *
+	 * @param year  The index of the year
+	 * @param month The month (0-11)
+	 * @return whether any farm has entries in the month
+	 */
+	public boolean monthHasEntries(int year, int month) {
+		for (int farm = 0; farm < farmIDs.size(); farm++)
+			if (counts[index(farm, year, month)] > 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns the total weight of a farm in each month of a year
+	 *
+	 * @param farm The index of the farm
+	 * @param year The index of the year
+	 * @return the total weight of each month (0-11)
+	 */
+	public long[] getMonthTotals(int farm, int year) {
+		long[] monthTotals = new long[12];
+		System.arraycopy(totals, index(farm, year, 0), monthTotals, 0, 12);
+		return monthTotals;
+	}
+
+	/**
+	 * Returns the total weight of every farm in a year, including farms without
+	 * entries in the year
+	 *
+	 * @param year The index of the year
+	 * @return the total weight of every farm in the year
+	 */
+	public FarmTotals getAnnualTotals(int year) {
+		long[] annualTotals = new long[farmIDs.size()];
+		for (int farm = 0; farm < farmIDs.size(); farm++)
+			for (int month = 0; month < 12; month++)
+				annualTotals[farm] += totals[index(farm, year, month)];
+		return new FarmTotals(farmIDs, annualTotals);
+	}
+
+	/**
+	 * Returns the total weight of the farms with entries in a month
+	 *
+	 * @param year  The index of the year
+	 * @param month The month (0-11)
+	 * @return the total weight of the farms with entries in the month
+	 */
+	public FarmTotals getMonthlyTotals(int year, int month) {
+		List<String> presentIDs = new ArrayList<String>();
+		long[] presentTotals = new long[farmIDs.size()];
+
+		for (int farm = 0; farm < farmIDs.size(); farm++) {
+			int index = index(farm, year, month);
+			if (counts[index] == 0)
+				continue;
+			presentTotals[presentIDs.size()] = totals[index];
+			presentIDs.add(farmIDs.get(farm));
+		}
+
+		long[] trimmed = new long[presentIDs.size()];
+		System.arraycopy(presentTotals, 0, trimmed, 0, trimmed.length);
+		return new FarmTotals(presentIDs, trimmed);
+	}
+
+	/**
+	 * Returns the position of a farm, year and month in the arrays
+	 */
+	private int index(int farm, int year, int month) {
+		return (farm * years.size() + year) * 12 + month;
+	}
+
+}
@@ -0,0 +1,296 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The total weight of each farm over a set of entries, stored as primitive
+ * columns. Farms are kept in the order of the farm ID list they were created
+ * from, so a farm's row is also its rank by farm ID when that list is sorted.
+ * Sort permutations are computed the first time they are requested and cached.
+ *
+ * @author A-Team 128
+ *
+ */
+public class FarmTotals {
+
+	/**
+	 * The columns rows can be sorted by
+	 */
+	public enum Column {
+		FARM_ID, TOTAL, PERCENT
+	}
+
+	private final List<String> farmIDs;
+	private final long[] totals;
+	private final long grandTotal;
+
+	// Lazily computed ascending permutations (sorted position -> row)
+	private final EnumMap<Column, int[]> orderings;
+
+	/**
+	 * Creates farm totals from index-aligned farm IDs and totals
+	 *
+	 * @param farmIDs The farm ID of each row
+	 * @param totals  The total weight of each row
+	 */
+	public FarmTotals(List<String> farmIDs, long[] totals) {
+		this(farmIDs, totals, sum(totals));
+	}
+
+	/**
+	 * Creates farm totals whose grand total is already known
+	 *
+	 * @param farmIDs    The farm ID of each row
+	 * @param totals     The total weight of each row
+	 * @param grandTotal The sum of the totals
+	 */
+	private FarmTotals(List<String> farmIDs, long[] totals, long grandTotal) {
+		this.farmIDs = farmIDs;
+		this.totals = totals;
+		this.grandTotal = grandTotal;
+		this.orderings = new EnumMap<Column, int[]>(Column.class);
+	}
+
+	/**
+	 * Sums totals
+	 *
+	 * @param totals The totals
+	 * @return the sum of the totals
+	 */
+	private static long sum(long[] totals) {
+		long sum = 0;
+		for (long total : totals)
+			sum += total;
+		return sum;
+	}
+
+	/**
+	 * Sums the weight of the specified entries by farm
+	 *
+	 * @param farmIDs           The farm IDs to create rows for, in row order
+	 * @param entries           The entries to sum
+	 * @param includeEmptyFarms Whether farms without any entries get a row
+	 * @return the total weight of each farm
+	 */
+	public static FarmTotals sum(List<String> farmIDs, List<MilkEntry> entries, boolean includeEmptyFarms) {
+		// Map each farm ID to its index once, rather than searching the list per entry
+		HashMap<String, Integer> farmIndices = new HashMap<String, Integer>(farmIDs.size() * 2);
+		for (int i = 0; i < farmIDs.size(); i++)
+			farmIndices.put(farmIDs.get(i), i);
+
+		long[] sums = new long[farmIDs.size()];
+		boolean[] present = new boolean[farmIDs.size()];
+		for (MilkEntry entry : entries) {
+			int index = farmIndices.get(entry.getFarmID());
+			sums[index] += entry.getWeight();
+			present[index] = true;
+		}
+
+		if (includeEmptyFarms)
+			return new FarmTotals(farmIDs, sums);
+
+		return withoutEmptyFarms(farmIDs, sums, present);
+	}
+
+	/**
+	 * Creates farm totals with rows only for the farms which had entries
+	 *
+	 * @param farmIDs The farm ID of each farm
+	 * @param sums    The total weight of each farm
+	 * @param present Whether each farm had any entries
+	 * @return the totals of the farms which had entries
+	 */
+	static FarmTotals withoutEmptyFarms(List<String> farmIDs, long[] sums, boolean[] present) {
+		List<String> presentIDs = new ArrayList<String>();
+		long[] presentSums = new long[farmIDs.size()];
+		for (int i = 0; i < farmIDs.size(); i++)
+			if (present[i]) {
+				presentSums[presentIDs.size()] = sums[i];
+				presentIDs.add(farmIDs.get(i));
+			}
+
+		return new FarmTotals(presentIDs, Arrays.copyOf(presentSums, presentIDs.size()));
+	}
+
+	/**
+	 * Returns these totals with weights added, such as the weights of a
+	 * {@link MilkDataChange}. If every farm with added weight already has a row,
+	 * only those rows are looked up and updated. Otherwise the rows are merged
+	 * with the farm IDs by walking both in order. No entries are read either way.
+	 *
+	 * @param farmIDs           All farm IDs, sorted, including any added since
+	 *                          these totals were created
+	 * @param weights           The weight added to each farm
+	 * @param includeEmptyFarms Whether farms without any entries get a row
+	 * @return the totals with the weights added
+	 */
+	public FarmTotals plus(List<String> farmIDs, Map<String, Long> weights, boolean includeEmptyFarms) {
+		// With empty farms, the same farm ID list means no farms were added
+		if (!includeEmptyFarms || farmIDs == this.farmIDs) {
+			long[] sums = totals.clone();
+			long sum = grandTotal;
+			boolean rowsFound = true;
+			for (Map.Entry<String, Long> weight : weights.entrySet()) {
+				// Rows are in farm ID order, so a farm's row can be binary searched
+				int row = Collections.binarySearch(this.farmIDs, weight.getKey());
+				if (row < 0) {
+					rowsFound = false;
+					break;
+				}
+				sums[row] += weight.getValue();
+				sum += weight.getValue();
+			}
+			if (rowsFound)
+				return new FarmTotals(this.farmIDs, sums, sum);
+		}
+
+		List<String> sumIDs = new ArrayList<String>();
+		long[] sums = new long[farmIDs.size()];
+
+		int row = 0;
+		for (String farmID : farmIDs) {
+			boolean present = row < totals.length && this.farmIDs.get(row).equals(farmID);
+			Long added = weights.get(farmID);
+			if (!present && added == null && !includeEmptyFarms)
+				continue;
+
+			sums[sumIDs.size()] = (present ? totals[row++] : 0) + (added == null ? 0 : added);
+			sumIDs.add(farmID);
+		}
+
+		if (includeEmptyFarms)
+			return new FarmTotals(farmIDs, sums);
+
+		return new FarmTotals(sumIDs, Arrays.copyOf(sums, sumIDs.size()));
+	}
+
+	/**
+	 * Returns the number of rows
+	 *
+	 * @return the number of rows
+	 */
+	public int size() {
+		return totals.length;
+	}
+
+	/**
+	 * Returns the farm ID of a row
+	 *
+	 * @param row The row
+	 * @return the farm ID of the row
+	 */
+	public String getFarmID(int row) {
+		return farmIDs.get(row);
+	}
+
+	/**
+	 * Returns the total weight of a row
+	 *
+	 * @param row The row
+	 * @return the total weight of the row
+	 */
+	public long getTotal(int row) {
+		return totals[row];
+	}
+
+	/**
+	 * Returns the percent of the grand total a row makes up
+	 *
+	 * @param row The row
+	 * @return the percent of the grand total, or 0 if the grand total is 0
+	 */
+	public double getPercent(int row) {
+		return grandTotal == 0 ? 0 : (double) totals[row] / grandTotal * 100;
+	}
+
+	/**
+	 * Returns the sum of all rows' totals
+	 *
+	 * @return the sum of all rows' totals
+	 */
+	public long getGrandTotal() {
+		return grandTotal;
+	}
+
+	/**
+	 * Returns the farm IDs of all rows, in row order
+	 *
+	 * @return the farm IDs of all rows
+	 */
+	public List<String> getFarmIDs() {
+		return farmIDs;
+	}
+
+	/**
+	 * Returns the rows sorted ascending by a column. The permutation is computed
+	 * once and shared, so it must not be modified.
+	 *
+	 * @param column The column to sort by
+	 * @return the rows, sorted ascending by the column
+	 */
+	public int[] getOrdering(Column column) {
+		// Percentages are proportional to totals, so they share an ordering
+		if (column == Column.PERCENT)
+			column = Column.TOTAL;
+
+		int[] ordering = orderings.get(column);
+		if (ordering != null)
+			return ordering;
+
+		ordering = new int[totals.length];
+		for (int i = 0; i < ordering.length; i++)
+			ordering[i] = i;
+
+		// Rows are already in farm ID order
+		if (column == Column.TOTAL)
+			sortByTotal(ordering, new int[ordering.length], 0, ordering.length);
+
+		orderings.put(column, ordering);
+		return ordering;
+	}
+
+	/**
+	 * Stable merge sort of row indices by their totals, comparing the primitive
+	 * totals directly
+	 *
+	 * @param rows   The rows to sort
+	 * @param buffer A buffer at least as long as the rows
+	 * @param from   The first index to sort (inclusive)
+	 * @param to     The last index to sort (exclusive)
+	 */
+	private void sortByTotal(int[] rows, int[] buffer, int from, int to) {
+		if (to - from < 2)
+			return;
+
+		int middle = (from + to) >>> 1;
+		sortByTotal(rows, buffer, from, middle);
+		sortByTotal(rows, buffer, middle, to);
+
+		// Already in order
+		if (totals[rows[middle - 1]] <= totals[rows[middle]])
+			return;
+
+		System.arraycopy(rows, from, buffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right >= to || (left < middle && totals[buffer[left]] <= totals[buffer[right]]))
+				rows[i] = buffer[left++];
+			else
+				rows[i] = buffer[right++];
+		}
+	}
+
+}
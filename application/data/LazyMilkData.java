@@ -0,0 +1,232 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A MilkData over a data set partitioned by month, which reads a month's
+ * entries only when a query first needs them. The farm IDs and valid months are
+ * known from the partitions' metadata up front, and each query loads only the
+ * months which can hold its answer: a monthly report reads one month, a farm
+ * report only the months the farm has entries in and a date range only the
+ * months whose dates overlap it.
+ *
+ * Months are loaded while holding this object's lock. Lists returned before a
+ * month was loaded may grow when it is, so as with MilkData, queries from
+ * several threads should not iterate over the same lists. Cursors are the
+ * exception: a cursor over a farm whose months are not all loaded yet copies
+ * its entries, since loading any of those months changes the farm's list.
+ *
+ * @author A-Team 128
+ *
+ */
+public class LazyMilkData extends MilkData {
+
+	// Partitions by year * 12 + month
+	private final HashMap<Integer, MonthPartition> partitions;
+	private final HashSet<Integer> loaded;
+	private final Function<MonthPartition, List<MilkEntry>> reader;
+
+	/**
+	 * Creates the data set without reading any entries
+	 *
+	 * @param partitions The metadata of every month of the data set
+	 * @param reader     Reads the entries of a month, throwing an
+	 *                   UncheckedIOException if they cannot be read
+	 */
+	public LazyMilkData(List<MonthPartition> partitions, Function<MonthPartition, List<MilkEntry>> reader) {
+		this.partitions = new HashMap<Integer, MonthPartition>();
+		this.loaded = new HashSet<Integer>();
+		this.reader = reader;
+
+		for (MonthPartition partition : partitions) {
+			this.partitions.put(partition.getYear() * 12 + partition.getMonth(), partition);
+			addPartition(partition);
+		}
+
+		// Sort the farm IDs and valid months, and build the farm index
+		organize();
+	}
+
+	/**
+	 * Returns the number of months whose entries have been read
+	 *
+	 * @return the number of months read
+	 */
+	public synchronized int getLoadedPartitions() {
+		return loaded.size();
+	}
+
+	/**
+	 * Returns the number of months in the data set
+	 *
+	 * @return the number of months
+	 */
+	public int getPartitions() {
+		return partitions.size();
+	}
+
+	/**
+	 * Returns the metadata of every month in the data set
+	 *
+	 * @return the months' metadata, in no particular order
+	 */
+	public Collection<MonthPartition> getMonthPartitions() {
+		return Collections.unmodifiableCollection(partitions.values());
+	}
+
+	@Override
+	public synchronized List<MilkEntry> getEntriesForMonth(int year, int month) {
+		load(partitions.get(year * 12 + month));
+		return super.getEntriesForMonth(year, month);
+	}
+
+	@Override
+	public synchronized List<MilkEntry> getEntriesForMonth(int year, int month, String farmID) {
+		MonthPartition partition = partitions.get(year * 12 + month);
+		if (partition != null && partition.getFarmIDs().contains(farmID))
+			load(partition);
+		return super.getEntriesForMonth(year, month, farmID);
+	}
+
+	@Override
+	public synchronized List<MilkEntry> getEntriesForYear(int year) {
+		for (int month = 0; month < 12; month++)
+			load(partitions.get(year * 12 + month));
+		return super.getEntriesForYear(year);
+	}
+
+	@Override
+	public synchronized List<MilkEntry> getEntriesForFarm(String farmID) {
+		for (MonthPartition partition : partitions.values())
+			if (partition.getFarmIDs().contains(farmID))
+				load(partition);
+		return super.getEntriesForFarm(farmID);
+	}
+
+	@Override
+	public synchronized List<MilkEntry> getEntriesForDateRange(Date startDate, Date endDate) {
+		for (MonthPartition partition : partitions.values())
+			if (partition.overlaps(startDate, endDate))
+				load(partition);
+		return super.getEntriesForDateRange(startDate, endDate);
+	}
+
+	@Override
+	public synchronized EntryCursor getEntryCursor(String farmID, Date startDate, Date endDate) {
+		boolean farmLoaded = true;
+		for (MonthPartition partition : partitions.values()) {
+			if (farmID != null && !partition.getFarmIDs().contains(farmID))
+				continue;
+			if (partition.overlaps(startDate, endDate))
+				load(partition);
+			else if (!loaded.contains(partition.getYear() * 12 + partition.getMonth()))
+				farmLoaded = false;
+		}
+
+		// A cursor over all farms reads the lists of the months in the range, which
+		// are loaded and no longer change. A farm's cursor reads the farm's list,
+		// which each month of the farm loaded later is sorted into.
+		EntryCursor cursor = super.getEntryCursor(farmID, startDate, endDate);
+		return farmID == null || farmLoaded ? cursor : cursor.copy();
+	}
+
+	@Override
+	public synchronized long[] getDailyWeights(String farmID, LocalDate startDate, LocalDate endDate) {
+		loadOverlapping(farmID, startDate, endDate);
+		return super.getDailyWeights(farmID, startDate, endDate);
+	}
+
+	@Override
+	public synchronized long[] getWeeklyWeights(String farmID, LocalDate startDate, LocalDate endDate) {
+		loadOverlapping(farmID, startDate, endDate);
+		return super.getWeeklyWeights(farmID, startDate, endDate);
+	}
+
+	@Override
+	public synchronized FarmTotals getFarmTotals(int year, boolean includeEmptyFarms) {
+		for (int month = 0; month < 12; month++)
+			load(partitions.get(year * 12 + month));
+		return super.getFarmTotals(year, includeEmptyFarms);
+	}
+
+	@Override
+	public synchronized FarmTotals getFarmTotals(int year, int month, boolean includeEmptyFarms) {
+		load(partitions.get(year * 12 + month));
+		return super.getFarmTotals(year, month, includeEmptyFarms);
+	}
+
+	@Override
+	public synchronized FarmTotals getFarmTotals(Date startDate, Date endDate, boolean includeEmptyFarms) {
+		for (MonthPartition partition : partitions.values())
+			if (partition.overlaps(startDate, endDate))
+				load(partition);
+		return super.getFarmTotals(startDate, endDate, includeEmptyFarms);
+	}
+
+	@Override
+	public synchronized long[] getMonthWeights(String farmID, int year) {
+		for (int month = 0; month < 12; month++) {
+			MonthPartition partition = partitions.get(year * 12 + month);
+			if (partition != null && partition.getFarmIDs().contains(farmID))
+				load(partition);
+		}
+		return super.getMonthWeights(farmID, year);
+	}
+
+	@Override
+	public synchronized FarmMonthTotals getFarmMonthTotals() {
+		for (MonthPartition partition : partitions.values())
+			load(partition);
+		return super.getFarmMonthTotals();
+	}
+
+	/**
+	 * Reads the months between (inclusive) two dates which have entries of a farm,
+	 * so the day totals of the range are complete
+	 *
+	 * @param farmID    The farm, or null for all farms
+	 * @param startDate The beginning of the date range
+	 * @param endDate   The end of the date range
+	 */
+	private void loadOverlapping(String farmID, LocalDate startDate, LocalDate endDate) {
+		// Uses java.sql.Date to convert java.time.LocalDate to java.util.Date
+		Date start = java.sql.Date.valueOf(startDate);
+		Date end = java.sql.Date.valueOf(endDate);
+		for (MonthPartition partition : partitions.values())
+			if (partition.overlaps(start, end) && (farmID == null || partition.getFarmIDs().contains(farmID)))
+				load(partition);
+	}
+
+	/**
+	 * Reads the entries of a month, unless they have been already
+	 *
+	 * @param partition The month, or null if it has no entries
+	 */
+	private void load(MonthPartition partition) {
+		if (partition == null)
+			return;
+
+		int key = partition.getYear() * 12 + partition.getMonth();
+		if (loaded.contains(key))
+			return;
+
+		for (MilkEntry entry : reader.apply(partition))
+			addEntry(entry);
+		organizeMonth(partition.getYear(), partition.getMonth());
+		loaded.add(key);
+	}
+
+}
@@ -0,0 +1,361 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+/**
+ * An estimate of the heap used by a {@link MilkData}, broken down by structure:
+ * the entries, their dates and farm ID strings, the lists holding them in
+ * months and farms, and the maps and indexes. Sizes are computed from the
+ * running JVM's object layout (compressed references and headers, object
+ * alignment), as a heap dump would show them, so they can be used to choose
+ * heap settings and to compare storage layouts.
+ *
+ * Dates and farm ID strings may be shared between entries, so their instances
+ * are counted by identity. Lists are assumed to have grown one add at a time,
+ * which is how MilkData fills them, to estimate their unused capacity.
+ *
+ * @author A-Team 128
+ *
+ */
+public class MemoryFootprint {
+
+	/**
+	 * The estimated size of one kind of structure
+	 */
+	public static class Structure {
+		private final String name;
+		private final long objects;
+		private final long bytes;
+
+		private Structure(String name, long objects, long bytes) {
+			this.name = name;
+			this.objects = objects;
+			this.bytes = bytes;
+		}
+
+		/**
+		 * @return the name of the structure
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the number of objects the structure is made of
+		 */
+		public long getObjects() {
+			return objects;
+		}
+
+		/**
+		 * @return the estimated bytes the structure takes
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+	}
+
+	// Object layout of the running JVM
+	private static final int REFERENCE;
+	private static final int OBJECT_HEADER;
+	private static final int ARRAY_HEADER;
+	private static final int ALIGNMENT;
+
+	static {
+		boolean compressedOops = true;
+		boolean compressedClassPointers = true;
+		int alignment = 8;
+		try {
+			HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+			compressedOops = Boolean.parseBoolean(hotSpot.getVMOption("UseCompressedOops").getValue());
+			compressedClassPointers = Boolean
+					.parseBoolean(hotSpot.getVMOption("UseCompressedClassPointers").getValue());
+			alignment = Integer.parseInt(hotSpot.getVMOption("ObjectAlignmentInBytes").getValue());
+		} catch (RuntimeException e) {
+			// Not a HotSpot JVM, assume its defaults for heaps under 32 GB
+		}
+
+		REFERENCE = compressedOops ? 4 : 8;
+		OBJECT_HEADER = compressedClassPointers ? 12 : 16;
+		ARRAY_HEADER = compressedClassPointers ? 16 : 24;
+		ALIGNMENT = alignment;
+	}
+
+	private final List<Structure> structures;
+	private final long rows;
+	private final int distinctFarmIDs;
+	private final long farmIDStrings;
+	private final long listSlack;
+	private final long listSlackBytes;
+
+	/**
+	 * Estimates the footprint of MilkData's structures
+	 *
+	 * @param farmIDs   The farm ID list
+	 * @param months    The entries of each month, and the valid months
+	 * @param days      The total weight of each day
+	 * @param farmLists The entries of each farm
+	 * @param farmIndex The farm ID search index, or null if it has not been built
+	 */
+	MemoryFootprint(List<String> farmIDs, MonthBuckets months, DayBuckets days,
+			HashMap<String, List<MilkEntry>> farmLists, FarmIndex farmIndex) {
+		this.structures = new ArrayList<Structure>();
+
+		// Every entry is in exactly one farm list
+		long entries = 0;
+		for (List<MilkEntry> list : farmLists.values())
+			entries += list.size();
+		this.rows = entries;
+
+		// Distinct instances are counted by sorting their identity hash codes. Two
+		// instances rarely share a code, so this undercounts by a negligible amount
+		// while using 4 bytes per entry.
+		int[] dates = new int[(int) entries];
+		int next = 0;
+		long strings = 0;
+		long farmIDBytes = 0;
+		for (Map.Entry<String, List<MilkEntry>> farm : farmLists.entrySet()) {
+			int[] farmIDCodes = new int[farm.getValue().size()];
+			for (int i = 0; i < farmIDCodes.length; i++) {
+				MilkEntry entry = farm.getValue().get(i);
+				dates[next++] = System.identityHashCode(entry.getDate());
+				farmIDCodes[i] = System.identityHashCode(entry.getFarmID());
+			}
+
+			// The instances of a farm's ID all have its length
+			long instances = countDistinct(farmIDCodes);
+			strings += instances;
+			farmIDBytes += instances * string(farm.getKey());
+		}
+
+		long dateInstances = countDistinct(dates);
+		this.farmIDStrings = strings;
+		this.distinctFarmIDs = farmIDs.size();
+
+		structures.add(new Structure("MilkEntry objects", entries, entries * object(2, 4)));
+		structures.add(new Structure("Date objects", dateInstances, dateInstances * object(1, 8)));
+		structures.add(new Structure("Farm ID strings", farmIDStrings, farmIDBytes));
+
+		// Lists of each month, in the month directory
+		long monthLists = 0;
+		long monthListBytes = 0;
+		long slack = 0;
+		for (int monthNumber = months.getFirstMonth(); monthNumber < months.getEndMonth(); monthNumber++) {
+			List<MilkEntry> list = months.get(monthNumber);
+			if (list == null)
+				continue;
+			monthLists++;
+			monthListBytes += arrayList(list.size());
+			slack += grownCapacity(list.size()) - list.size();
+		}
+		structures.add(new Structure("Month entry lists", monthLists, monthListBytes));
+
+		long farmListBytes = 0;
+		for (List<MilkEntry> list : farmLists.values()) {
+			farmListBytes += arrayList(list.size());
+			slack += grownCapacity(list.size()) - list.size();
+		}
+		structures.add(new Structure("Farm entry lists", farmLists.size(), farmListBytes));
+
+		this.listSlack = slack;
+		this.listSlackBytes = slack * REFERENCE;
+
+		// The month directory and its valid month bits
+		structures.add(new Structure("Month directory", 3, months.estimateBytes()));
+
+		// The weight columns built for the aggregation kernels, 12 bytes per entry
+		// and 4 per farm of each month a report has summed
+		long columnBytes = months.estimateColumnBytes();
+		if (columnBytes > 0)
+			structures.add(new Structure("Weight columns", 0, columnBytes));
+
+		// The blocks of day totals of each farm and of all farms
+		structures.add(new Structure("Day buckets", days.getBlockCount(), days.estimateBytes()));
+
+		// The map keyed by farm ID, the farm ID drop-down list and the set of the
+		// same farm IDs (a HashSet wraps a HashMap)
+		long mapBytes = hashMap(farmLists.size(), 0) + arrayList(farmIDs.size()) + object(1, 0)
+				+ hashMap(farmIDs.size(), 0);
+		long mapObjects = farmLists.size() + farmIDs.size() + 4;
+		structures.add(new Structure("Maps and drop-down lists", mapObjects, mapBytes));
+
+		if (farmIndex != null)
+			structures.add(new Structure("Farm search index", 1, farmIndex.estimateBytes()));
+	}
+
+	/**
+	 * @return the estimated size of each structure
+	 */
+	public List<Structure> getStructures() {
+		return Collections.unmodifiableList(structures);
+	}
+
+	/**
+	 * @return the estimated bytes of all structures
+	 */
+	public long getTotalBytes() {
+		long total = 0;
+		for (Structure structure : structures)
+			total += structure.getBytes();
+		return total;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return the estimated bytes of all structures per entry, or 0 if there are
+	 *         no entries
+	 */
+	public double getBytesPerRow() {
+		return rows == 0 ? 0 : (double) getTotalBytes() / rows;
+	}
+
+	/**
+	 * @return the number of distinct farm IDs
+	 */
+	public int getDistinctFarmIDs() {
+		return distinctFarmIDs;
+	}
+
+	/**
+	 * @return the number of farm ID String instances referenced by entries
+	 */
+	public long getFarmIDStrings() {
+		return farmIDStrings;
+	}
+
+	/**
+	 * @return the number of unused elements in the entry lists' capacity
+	 */
+	public long getListSlack() {
+		return listSlack;
+	}
+
+	/**
+	 * @return the bytes taken by the entry lists' unused capacity
+	 */
+	public long getListSlackBytes() {
+		return listSlackBytes;
+	}
+
+	/**
+	 * Formats the footprint as a table followed by a summary, one line each
+	 *
+	 * @return the formatted footprint
+	 */
+	public String format() {
+		StringBuilder text = new StringBuilder();
+		text.append(String.format("%-26s %12s %14s %10s%n", "Structure", "Objects", "Bytes", "Bytes/row"));
+		for (Structure structure : structures)
+			text.append(String.format("%-26s %,12d %,14d %10.1f%n", structure.getName(), structure.getObjects(),
+					structure.getBytes(), rows == 0 ? 0 : (double) structure.getBytes() / rows));
+		text.append(String.format("%-26s %12s %,14d %10.1f%n", "Total", "", getTotalBytes(), getBytesPerRow()));
+		text.append(String.format("%n%,d rows, %,d distinct farm IDs in %,d String instances%n", rows,
+				distinctFarmIDs, farmIDStrings));
+		text.append(String.format("List slack: %,d unused elements (%,d bytes)%n", listSlack, listSlackBytes));
+		text.append(String.format("Layout: %d-byte references, %d-byte headers, %d-byte alignment%n", REFERENCE,
+				OBJECT_HEADER, ALIGNMENT));
+		return text.toString();
+	}
+
+	/**
+	 * Returns the size of an object with references and primitive fields
+	 */
+	static long object(int references, int primitiveBytes) {
+		return align(OBJECT_HEADER + references * REFERENCE + primitiveBytes);
+	}
+
+	/**
+	 * Returns the size of an array
+	 */
+	static long array(int elementBytes, long length) {
+		return align(ARRAY_HEADER + elementBytes * length);
+	}
+
+	/**
+	 * Returns the size of an array of references
+	 */
+	static long referenceArray(long length) {
+		return array(REFERENCE, length);
+	}
+
+	/**
+	 * Returns the size of a String and its byte array
+	 */
+	static long string(String value) {
+		boolean latin1 = true;
+		for (int i = 0; i < value.length() && latin1; i++)
+			latin1 = value.charAt(i) < 256;
+
+		// value, hash, coder and hashIsZero
+		return object(1, 6) + array(1, latin1 ? value.length() : 2L * value.length());
+	}
+
+	/**
+	 * Returns the size of an ArrayList of references which grew to its size
+	 */
+	private static long arrayList(int size) {
+		// elementData, modCount and size
+		return object(1, 8) + (size == 0 ? 0 : array(REFERENCE, grownCapacity(size)));
+	}
+
+	/**
+	 * Returns the size of a HashMap and its nodes, without the values
+	 */
+	static long hashMap(int size, long keyBytes) {
+		int table = Integer.highestOneBit(Math.max(1, (int) Math.ceil(size / 0.75)) * 2 - 1);
+		// table, entrySet, keySet and values; size, modCount, threshold and loadFactor
+		return object(4, 16) + array(REFERENCE, Math.max(16, table)) + size * (object(3, 4) + keyBytes);
+	}
+
+	/**
+	 * Returns the capacity an ArrayList reaches when filled one add at a time
+	 */
+	private static long grownCapacity(int size) {
+		if (size == 0)
+			return 0;
+		long capacity = 10;
+		while (capacity < size)
+			capacity += capacity >> 1;
+		return capacity;
+	}
+
+	/**
+	 * Rounds a size up to the object alignment
+	 */
+	private static long align(long bytes) {
+		return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	/**
+	 * Sorts an array and returns the number of distinct values in it
+	 */
+	private static long countDistinct(int[] values) {
+		Arrays.sort(values);
+		long distinct = 0;
+		for (int i = 0; i < values.length; i++)
+			if (i == 0 || values[i] != values[i - 1])
+				distinct++;
+		return distinct;
+	}
+
+}
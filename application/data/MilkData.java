@@ -6,15 +6,19 @@
 
 package application.data;
 
-import java.lang.reflect.Array;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.TreeMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import application.metrics.OrganizeEvent;
 
 /**
  * Data structure to store and retrieve MilkEntries
@@ -24,23 +28,37 @@ import java.util.TreeMap;
 public class MilkData {
 
 	// All months in the year
-	private final String MONTHS[] = { "January", "February", "March", "April", "May", "June", "July", "August",
+	private static final String MONTHS[] = { "January", "February", "March", "April", "May", "June", "July", "August",
 			"September", "October", "November", "December" };
 
-	// Required for creating new arrays of ArrayList<MilkEntry>
-	private final Class<?> MILK_ENTRY_LIST_CLASS = new ArrayList<MilkEntry>().getClass();
-
 	// Information for GUI input drop-downs
 	private List<String> farmIDs;
-	private TreeMap<Integer, List<Integer>> validMonthsInYear;
 
-	// Maps years to an array of 12 (one for each month) lists of MilkEntries
-	private HashMap<Integer, List<MilkEntry>[]> monthEntryHierarchy;
+	// The same farm IDs, to test whether a farm is known without searching the list
+	private final HashSet<String> knownFarmIDs;
+
+	// Search index over farmIDs, rebuilt by organize()
+	private FarmIndex farmIndex;
+
+	// Index of each farm ID in farmIDs, as in the weight columns, built when a
+	// report aggregates and dropped when farmIDs changes. Concurrent queries may
+	// build it at once, so it is only published once built, through the volatile
+	private volatile Map<String, Integer> farmIndices;
+
+	// Lists of MilkEntries for each month, and the valid months of each year
+	private MonthBuckets months;
+
+	// Total weight of each day, for each farm and for all farms
+	private DayBuckets days;
 
 	// Maps farm IDs to lists of MilkEntrys
 	private HashMap<String, List<MilkEntry>> farmLists;
 
-	// Calendar used to retrieve year and month information from dates
+	// Told of the entries added after the data was organized
+	private final List<Consumer<MilkDataChange>> changeListeners;
+
+	// Calendar used to retrieve year and month information from dates as they are
+	// added. Queries use their own, so they can run concurrently.
 	private final Calendar calendar;
 
 	/**
@@ -49,13 +67,16 @@ public class MilkData {
 	public MilkData() {
 		// Initialize data structures used to hold GUI drop-down data
 		this.farmIDs = new ArrayList<String>();
-		this.validMonthsInYear = new TreeMap<Integer, List<Integer>>();
+		this.knownFarmIDs = new HashSet<String>();
 
 		// Initialize main data structures where MilkEntries are held
 		// Note that this storage is redundant for the sake of access speed
-		this.monthEntryHierarchy = new HashMap<Integer, List<MilkEntry>[]>(50);
+		this.months = new MonthBuckets();
+		this.days = new DayBuckets();
 		this.farmLists = new HashMap<String, List<MilkEntry>>(250);
 
+		this.changeListeners = new ArrayList<Consumer<MilkDataChange>>();
+
 		// Initialize the calendar used for gathering month/year info as a Gregorian
 		// calendar
 		this.calendar = new GregorianCalendar();
@@ -66,52 +87,33 @@ public class MilkData {
 	 * 
 	 * @param entry The MilkEntry to add to the internal data structures.
 	 */
-	@SuppressWarnings("unchecked")
 	public void addEntry(MilkEntry entry) {
 		// Get the year and month from the entry
 		calendar.setTime(entry.getDate());
 
-		Integer year = calendar.get(Calendar.YEAR);
+		int year = calendar.get(Calendar.YEAR);
 		int month = calendar.get(Calendar.MONTH);
 
 		// ** UPDATE GUI INPUT INFORMATION **
 
 		// Update the farm ID list
-		if (!farmIDs.contains(entry.getFarmID()))
+		if (knownFarmIDs.add(entry.getFarmID())) {
 			farmIDs.add(entry.getFarmID());
-
-		// Update validMonthsInYear
-		List<Integer> validMonths = validMonthsInYear.get(year);
-
-		// Create the list of valid months for the specific year if it does not already
-		// exist
-		if (validMonths == null) {
-			validMonths = new ArrayList<Integer>();
-			validMonthsInYear.put(year, validMonths);
+			farmIDsChanged();
 		}
 
-		if (!validMonths.contains(month))
-			validMonths.add(month);
+		// Mark the month as valid
+		months.markValid(year, month);
 
 		// ** UPDATE MAIN DATA STRUCTURES **
 
-		// Update the monthEntryHierarchy
-		List<MilkEntry>[] monthsLists = monthEntryHierarchy.get(year);
-
-		// Create the array of 12 lists of MilkEntries for the specific year if it does
-		// not already exist
-		if (monthsLists == null) {
-			monthsLists = (List<MilkEntry>[]) Array.newInstance(MILK_ENTRY_LIST_CLASS, 12);
-			monthEntryHierarchy.put(year, monthsLists);
-		}
-
-		List<MilkEntry> listForMonth = monthsLists[month];
-
-		// Create the list for the specific month if it does not already list
-		if (listForMonth == null)
-			listForMonth = (monthsLists[month] = new ArrayList<MilkEntry>());
+		// Add the entry to the list of its month, created if it does not already exist
+		months.getOrCreate(year, month).add(entry);
 
-		listForMonth.add(entry);
+		// Add the weight of the entry to its day
+		days.add(entry.getFarmID(),
+				(int) LocalDate.of(year, month + 1, calendar.get(Calendar.DAY_OF_MONTH)).toEpochDay(),
+				entry.getWeight());
 
 		// Update farmLists
 		List<MilkEntry> listForFarm = farmLists.get(entry.getFarmID());
@@ -130,24 +132,22 @@ public class MilkData {
 	 * once, after all data has been inputed.
 	 */
 	public void organize() {
+		OrganizeEvent event = new OrganizeEvent();
+		event.begin();
+
 		// Sort the farmIDs by alphanumeric order
 		Collections.sort(farmIDs);
+		farmIDsChanged();
 
-		// Organize valid months
-		validMonthsInYear.forEach((Integer year, List<Integer> list) -> {
-			if (list == null)
-				return;
-			Collections.sort(list);
-		});
+		// Build the farm ID search index
+		farmIndex = new FarmIndex(farmIDs);
 
-		// Organize the month entry hierarchy
-		monthEntryHierarchy.forEach((Integer year, List<MilkEntry>[] monthList) -> {
-			for (int month = 0; month < 12; month++) {
-				if (monthList[month] == null)
-					continue;
-				Collections.sort(monthList[month]);
-			}
-		});
+		// Organize the month lists (the valid months are kept in order by their bits)
+		for (int monthNumber = months.getFirstMonth(); monthNumber < months.getEndMonth(); monthNumber++) {
+			List<MilkEntry> list = months.get(monthNumber);
+			if (list != null)
+				Collections.sort(list);
+		}
 
 		// Organize the farm lists
 		farmLists.forEach((String farmID, List<MilkEntry> list) -> {
@@ -155,6 +155,194 @@ public class MilkData {
 				return;
 			Collections.sort(list);
 		});
+
+		event.end();
+		if (event.shouldCommit()) {
+			for (List<MilkEntry> list : farmLists.values())
+				event.entries += list.size();
+			event.farms = farmIDs.size();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Adds entries after the data was organized, keeping it organized. Only the
+	 * entries appended to each list are sorted and merged into it, moving just
+	 * the entries after their place, so adding a day of entries to years of data
+	 * is fast. Lists
+	 * returned by queries must not be read by other threads meanwhile, except the
+	 * farm ID list: when farms are added, it is replaced rather than changed.
+	 * 
+	 * Once the entries were added, the change listeners are told of the buckets
+	 * they were appended to.
+	 * 
+	 * @param entries The entries to add
+	 */
+	public void addEntries(List<MilkEntry> entries) {
+		MilkDataChange change = new MilkDataChange(entries);
+		// The sizes of the changed lists before the entries were appended
+		HashMap<Integer, Integer> changedMonths = new HashMap<Integer, Integer>();
+		HashMap<String, Integer> changedFarms = new HashMap<String, Integer>();
+
+		for (MilkEntry entry : entries) {
+			calendar.setTime(entry.getDate());
+			int year = calendar.get(Calendar.YEAR);
+			int month = calendar.get(Calendar.MONTH);
+
+			// Note the farms and months which had no entries yet
+			if (!farmLists.containsKey(entry.getFarmID())) {
+				if (change.getAddedFarmIDs().isEmpty())
+					farmIDs = new ArrayList<String>(farmIDs);
+				change.addFarm(entry.getFarmID());
+			}
+			if (!months.isValid(year, month))
+				change.addMonth(year, month);
+
+			changedMonths.computeIfAbsent(MonthBuckets.monthNumber(year, month),
+					(Integer monthNumber) -> sizeOf(months.get(monthNumber)));
+			changedFarms.computeIfAbsent(entry.getFarmID(), (String farmID) -> sizeOf(farmLists.get(farmID)));
+
+			addEntry(entry);
+			change.add(entry, year, month);
+		}
+
+		changedMonths.forEach(
+				(Integer monthNumber, Integer sortedSize) -> mergeAppended(months.get(monthNumber), sortedSize));
+		changedFarms.forEach((String farmID, Integer sortedSize) -> mergeAppended(farmLists.get(farmID), sortedSize));
+
+		// Farms were added, so the drop-downs and the search index change
+		if (!change.getAddedFarmIDs().isEmpty()) {
+			Collections.sort(farmIDs);
+			farmIDsChanged();
+			farmIndex = new FarmIndex(farmIDs);
+		}
+
+		for (Consumer<MilkDataChange> listener : new ArrayList<Consumer<MilkDataChange>>(changeListeners))
+			listener.accept(change);
+	}
+
+	/**
+	 * Returns the size of a list which may not exist yet
+	 */
+	private static int sizeOf(List<MilkEntry> list) {
+		return list == null ? 0 : list.size();
+	}
+
+	/**
+	 * Sorts the entries appended to a sorted list and merges them in after the
+	 * entries they compare equal to, as a stable sort of the whole list would.
+	 * Only the entries from the place of the first appended entry on are moved,
+	 * which for entries streamed in date order is none of them.
+	 * 
+	 * @param list       The list
+	 * @param sortedSize The size of the sorted part at the start of the list
+	 */
+	private static void mergeAppended(List<MilkEntry> list, int sortedSize) {
+		if (sortedSize == list.size())
+			return;
+		List<MilkEntry> appended = list.subList(sortedSize, list.size());
+		Collections.sort(appended);
+		if (sortedSize == 0 || list.get(sortedSize - 1).compareTo(appended.get(0)) <= 0)
+			return;
+
+		// Find the first sorted entry after the first appended one
+		int low = 0;
+		int high = sortedSize - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (list.get(middle).compareTo(appended.get(0)) <= 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+
+		List<MilkEntry> sorted = new ArrayList<MilkEntry>(list.subList(low, sortedSize));
+		appended = new ArrayList<MilkEntry>(appended);
+		int position = low;
+		int s = 0;
+		int a = 0;
+		while (s < sorted.size() && a < appended.size())
+			list.set(position++, appended.get(a).compareTo(sorted.get(s)) < 0 ? appended.get(a++) : sorted.get(s++));
+		while (s < sorted.size())
+			list.set(position++, sorted.get(s++));
+		while (a < appended.size())
+			list.set(position++, appended.get(a++));
+	}
+
+	/**
+	 * Adds a listener told of each change made by {@link #addEntries(List)}, on
+	 * the thread which added the entries
+	 * 
+	 * @param listener The listener
+	 */
+	public void addChangeListener(Consumer<MilkDataChange> listener) {
+		changeListeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener added by {@link #addChangeListener(Consumer)}
+	 * 
+	 * @param listener The listener
+	 */
+	public void removeChangeListener(Consumer<MilkDataChange> listener) {
+		changeListeners.remove(listener);
+	}
+
+	/**
+	 * Registers a month and its farms before its entries are added, so the farm
+	 * IDs and valid months are complete while the entries are loaded lazily. Call
+	 * {@link #organize()} after the last month was registered, which sorts the
+	 * farm IDs once.
+	 * 
+	 * @param partition The metadata of the month
+	 */
+	void addPartition(MonthPartition partition) {
+		boolean farmsAdded = false;
+		for (String farmID : partition.getFarmIDs())
+			if (knownFarmIDs.add(farmID)) {
+				farmIDs.add(farmID);
+				farmsAdded = true;
+			}
+		if (farmsAdded)
+			farmIDsChanged();
+
+		months.markValid(partition.getYear(), partition.getMonth());
+	}
+
+	/**
+	 * Drops the farm indices and the weight columns built from them, as the
+	 * farms' positions in the farm ID list may have changed
+	 */
+	private void farmIDsChanged() {
+		farmIndices = null;
+		months.clearColumns();
+	}
+
+	/**
+	 * Sorts the lists changed by adding the entries of one month after the data
+	 * was organized: the month's list and the lists of the farms in it. Sorting a
+	 * farm list only merges the new entries in, as the rest is already sorted.
+	 * 
+	 * @param year  The year the entries were added to
+	 * @param month The month the entries were added to
+	 */
+	void organizeMonth(int year, int month) {
+		List<MilkEntry> entries = monthList(year, month);
+		Collections.sort(entries);
+
+		HashMap<String, List<MilkEntry>> changedFarms = new HashMap<String, List<MilkEntry>>();
+		for (MilkEntry entry : entries)
+			changedFarms.computeIfAbsent(entry.getFarmID(), farmLists::get);
+		changedFarms.forEach((String farmID, List<MilkEntry> list) -> Collections.sort(list));
+	}
+
+	/**
+	 * Estimates the memory taken by the data, by structure and per entry
+	 *
+	 * @return the estimated footprint of the data
+	 */
+	public MemoryFootprint getFootprint() {
+		return new MemoryFootprint(farmIDs, months, days, farmLists, farmIndex);
 	}
 
 	/**
@@ -167,19 +355,41 @@ public class MilkData {
 		return farmIDs;
 	}
 
+	/**
+	 * Returns a search index over all farm IDs. Note that the index only reflects
+	 * the farm IDs present when {@link #organize()} was last called
+	 * 
+	 * @return a search index over all farm IDs
+	 */
+	public FarmIndex getFarmIndex() {
+		// Build the index if organize() has not been called yet
+		if (farmIndex == null)
+			farmIndex = new FarmIndex(farmIDs);
+		return farmIndex;
+	}
+
+	/**
+	 * Returns the name of a month
+	 * 
+	 * @param month The month (0-11)
+	 * @return the name of the month, Eg. "January"
+	 */
+	public static String getMonthName(int month) {
+		return MONTHS[month];
+	}
+
 	/**
 	 * Returns a list of all years for which there are entries
 	 * 
 	 * @return a list of all years for which there are entries
 	 */
 	public List<Integer> getValidYears() {
-		return new ArrayList<Integer>(validMonthsInYear.keySet());
+		return months.getValidYears();
 	}
 
 	/**
 	 * Returns a list of all months in the year specified for which there are
-	 * entries. Note that this list will be sorted if {@link #organize()} was called
-	 * after the last data member was entered
+	 * entries, in calendar order
 	 * 
 	 * @param year The year to search for valid months in.
 	 * @return a list of all months in the year specified for which there are
@@ -187,11 +397,12 @@ public class MilkData {
 	 */
 	public List<String> getValidMonthsInYear(int year) {
 		List<String> monthsList = new ArrayList<String>();
-		// Loop through all valid months in the year specified
-		validMonthsInYear.getOrDefault(year, Collections.<Integer>emptyList()).forEach((Integer monthIndex) -> {
-			// Add the string version of the month to the list
-			monthsList.add(MONTHS[monthIndex]);
-		});
+		int validMonths = months.getValidMonths(year);
+
+		// Loop through the bits of the valid months in the year specified, in order
+		for (int month = 0; month < 12; month++)
+			if ((validMonths & (1 << month)) != 0)
+				monthsList.add(MONTHS[month]);
 		return monthsList;
 	}
 
@@ -210,15 +421,7 @@ public class MilkData {
 		if (month < 0 || month >= 12)
 			throw new IllegalArgumentException("Month should be a number between 0 and 11.");
 
-		// Get the list of MilkEntries for each month
-		List<MilkEntry>[] months = monthEntryHierarchy.get(year);
-
-		// Return an empty list if no entry has been added for the given year or the
-		// given month in the given year
-		if (months == null || months[month] == null)
-			return Collections.<MilkEntry>emptyList();
-
-		return months[month];
+		return monthList(year, month);
 	}
 
 	/**
@@ -236,8 +439,12 @@ public class MilkData {
 	public List<MilkEntry> getEntriesForMonth(int year, int month, String farmID) throws IllegalArgumentException {
 		List<MilkEntry> entriesForFarm = new ArrayList<MilkEntry>();
 
+		// Ensure the month is 0-11
+		if (month < 0 || month >= 12)
+			throw new IllegalArgumentException("Month should be a number between 0 and 11.");
+
 		// Get the entries for the specified month
-		List<MilkEntry> entriesForMonth = getEntriesForMonth(year, month);
+		List<MilkEntry> entriesForMonth = monthList(year, month);
 
 		// Loop through each entry, ensuring that the farmID equals the farmID specified
 		for (MilkEntry entry : entriesForMonth)
@@ -258,13 +465,9 @@ public class MilkData {
 	public List<MilkEntry> getEntriesForYear(int year) {
 		List<MilkEntry> yearList = new ArrayList<MilkEntry>();
 
-		// Get the array of MilkEntry lists for each month of the year specified
-		List<MilkEntry>[] monthsLists = monthEntryHierarchy.get(year);
-
 		// Loop through each month adding everything to the year list
 		for (int month = 0; month < 12; month++)
-			if (monthsLists[month] != null)
-				yearList.addAll(monthsLists[month]);
+			yearList.addAll(monthList(year, month));
 
 		return yearList;
 	}
@@ -293,6 +496,10 @@ public class MilkData {
 	public List<MilkEntry> getEntriesForDateRange(Date startDate, Date endDate) {
 		List<MilkEntry> entries = new ArrayList<MilkEntry>();
 
+		// Queries may run concurrently, so they do not share the calendar used by
+		// addEntry
+		Calendar calendar = new GregorianCalendar();
+
 		// Find the year and month of the first date
 		calendar.setTime(startDate);
 		int startYear = calendar.get(Calendar.YEAR);
@@ -303,18 +510,386 @@ public class MilkData {
 		int endYear = calendar.get(Calendar.YEAR);
 		int endMonth = calendar.get(Calendar.MONTH);
 
-		// Loop through all years between (inclusive) startDate and endDate
-		for (int year = startYear; year <= endYear; year++)
-			// Loop through all months between (inclusive) the start and end date
-			for (int month = (year == startYear ? startMonth : 0); month <= (year == endYear ? endMonth : 11); month++)
-				// Loop through all data entries for the year and month combination
-				for (MilkEntry entry : getEntriesForMonth(year, month))
-					// Only include the entry if it is between (inclusive) the start and end date
-					if (entry.getDate().getTime() >= startDate.getTime()
-							&& entry.getDate().getTime() <= endDate.getTime())
-						entries.add(entry);
+		// Loop through all months between (inclusive) startDate and endDate, which
+		// are consecutive in the month directory
+		int endMonthNumber = Math.min(MonthBuckets.monthNumber(endYear, endMonth), months.getEndMonth() - 1);
+		for (int monthNumber = Math.max(MonthBuckets.monthNumber(startYear, startMonth),
+				months.getFirstMonth()); monthNumber <= endMonthNumber; monthNumber++) {
+			List<MilkEntry> list = months.get(monthNumber);
+			if (list == null)
+				continue;
+
+			// Loop through all data entries for the month
+			for (MilkEntry entry : list)
+				// Only include the entry if it is between (inclusive) the start and end date
+				if (entry.getDate().getTime() >= startDate.getTime()
+						&& entry.getDate().getTime() <= endDate.getTime())
+					entries.add(entry);
+		}
 
 		return entries;
 	}
 
+	/**
+	 * Returns the total weight of every farm in a year. The weights are summed
+	 * from the primitive weight columns of the year's months by the
+	 * {@link AggregationKernels}. Note that {@link #organize()} must have been
+	 * called after the last data member was entered
+	 * 
+	 * @param year              The year
+	 * @param includeEmptyFarms Whether farms without entries in the year get a row
+	 * @return the total weight of the farms in the year, in farm ID order
+	 */
+	public FarmTotals getFarmTotals(int year, boolean includeEmptyFarms) {
+		return sumByFarm(MonthBuckets.monthNumber(year, 0), MonthBuckets.monthNumber(year, 11), null, null,
+				includeEmptyFarms);
+	}
+
+	/**
+	 * Returns the total weight of every farm in a month, summed from the month's
+	 * weight columns. Note that {@link #organize()} must have been called after
+	 * the last data member was entered
+	 * 
+	 * @param year              The year
+	 * @param month             The month (0-11)
+	 * @param includeEmptyFarms Whether farms without entries in the month get a
+	 *                          row
+	 * @return the total weight of the farms in the month, in farm ID order
+	 * @throws IllegalArgumentException if the specified month is not 0-11
+	 */
+	public FarmTotals getFarmTotals(int year, int month, boolean includeEmptyFarms) throws IllegalArgumentException {
+		// Ensure the month is 0-11
+		if (month < 0 || month >= 12)
+			throw new IllegalArgumentException("Month should be a number between 0 and 11.");
+
+		int monthNumber = MonthBuckets.monthNumber(year, month);
+		return sumByFarm(monthNumber, monthNumber, null, null, includeEmptyFarms);
+	}
+
+	/**
+	 * Returns the total weight of every farm between (inclusive) two dates,
+	 * summed from the weight columns of the months in the range. Only the first
+	 * and last months can be partly in the range, and as their lists are sorted
+	 * by date, their entries in the range are found by binary search. Note that
+	 * {@link #organize()} must have been called after the last data member was
+	 * entered
+	 * 
+	 * @param startDate         The beginning of the date range
+	 * @param endDate           The end of the date range
+	 * @param includeEmptyFarms Whether farms without entries in the range get a
+	 *                          row
+	 * @return the total weight of the farms in the range, in farm ID order
+	 */
+	public FarmTotals getFarmTotals(Date startDate, Date endDate, boolean includeEmptyFarms) {
+		// Queries may run concurrently, so they do not share the calendar used by
+		// addEntry
+		Calendar calendar = new GregorianCalendar();
+
+		calendar.setTime(startDate);
+		int startMonth = MonthBuckets.monthNumber(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH));
+		calendar.setTime(endDate);
+		int endMonth = MonthBuckets.monthNumber(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH));
+
+		return sumByFarm(startMonth, endMonth, startDate, endDate, includeEmptyFarms);
+	}
+
+	/**
+	 * Returns the total weight of a farm in each month of a year, summing the
+	 * weights of the farm's index in each month's weight columns. Note that
+	 * {@link #organize()} must have been called after the last data member was
+	 * entered
+	 * 
+	 * @param farmID The farm
+	 * @param year   The year
+	 * @return the total weight of each month (0-11), all 0 if the farm or year has
+	 *         no entries
+	 */
+	public long[] getMonthWeights(String farmID, int year) {
+		AggregationKernels kernels = AggregationKernels.get();
+		Map<String, Integer> indices = getFarmIndices();
+		long[] monthWeights = new long[12];
+
+		Integer farm = indices.get(farmID);
+		if (farm == null)
+			return monthWeights;
+
+		for (int month = 0; month < 12; month++) {
+			// The farm's weights of the month are its run of the weights sorted by farm
+			WeightColumns columns = months.getColumns(MonthBuckets.monthNumber(year, month), indices);
+			if (columns != null)
+				monthWeights[month] = kernels.sum(columns.farmWeights, columns.farmStarts[farm],
+						columns.farmStarts[farm + 1]);
+		}
+		return monthWeights;
+	}
+
+	/**
+	 * Sums the weight of each farm over consecutive months. Whole months are
+	 * summed a farm's run at a time from the weights sorted by farm, and the
+	 * parts of months a date range starts or ends in with the grouped sum kernel
+	 * 
+	 * @param firstMonth        The number of the first month
+	 * @param lastMonth         The number of the last month
+	 * @param startDate         The beginning of the date range in the first
+	 *                          month, or null for the whole month
+	 * @param endDate           The end of the date range in the last month, or
+	 *                          null for the whole month
+	 * @param includeEmptyFarms Whether farms without entries get a row
+	 * @return the total weight of the farms, in farm ID order
+	 */
+	private FarmTotals sumByFarm(int firstMonth, int lastMonth, Date startDate, Date endDate,
+			boolean includeEmptyFarms) {
+		AggregationKernels kernels = AggregationKernels.get();
+		Map<String, Integer> indices = getFarmIndices();
+		long[] sums = new long[farmIDs.size()];
+		int[] counts = new int[farmIDs.size()];
+
+		int from = Math.max(firstMonth, months.getFirstMonth());
+		int to = Math.min(lastMonth, months.getEndMonth() - 1);
+		for (int monthNumber = from; monthNumber <= to; monthNumber++) {
+			WeightColumns columns = months.getColumns(monthNumber, indices);
+			if (columns == null)
+				continue;
+
+			// The columns are in the order of the month's list, which is sorted by date
+			int start = 0;
+			int end = columns.size();
+			if (monthNumber == firstMonth && startDate != null)
+				start = firstIndexAfter(months.get(monthNumber), startDate.getTime() - 1);
+			if (monthNumber == lastMonth && endDate != null)
+				end = firstIndexAfter(months.get(monthNumber), endDate.getTime());
+
+			if (start == 0 && end == columns.size())
+				kernels.sumRuns(columns.farmWeights, columns.farmStarts, sums, counts);
+			else if (start < end)
+				kernels.sumByGroup(columns.farms, columns.weights, start, end, sums, counts);
+		}
+
+		if (includeEmptyFarms)
+			return new FarmTotals(farmIDs, sums);
+
+		boolean[] present = new boolean[farmIDs.size()];
+		for (int farm = 0; farm < present.length; farm++)
+			present[farm] = counts[farm] > 0;
+		return FarmTotals.withoutEmptyFarms(farmIDs, sums, present);
+	}
+
+	/**
+	 * Returns the index of each farm ID in the farm ID list, building it if the
+	 * list changed since it was last built
+	 * 
+	 * @return the index of each farm ID
+	 */
+	private Map<String, Integer> getFarmIndices() {
+		Map<String, Integer> indices = farmIndices;
+		if (indices == null) {
+			HashMap<String, Integer> built = new HashMap<String, Integer>(farmIDs.size() * 2);
+			for (int i = 0; i < farmIDs.size(); i++)
+				built.put(farmIDs.get(i), i);
+			indices = built;
+			farmIndices = indices;
+		}
+		return indices;
+	}
+
+	/**
+	 * Returns the total weight of each day between (inclusive) two dates, read
+	 * from the day buckets kept as entries are added
+	 * 
+	 * @param farmID    The farm to total, or null for all farms
+	 * @param startDate The beginning of the date range
+	 * @param endDate   The end of the date range
+	 * @return the total weight of each day, from the start date
+	 * @throws IllegalArgumentException if the end date is before the start date
+	 */
+	public long[] getDailyWeights(String farmID, LocalDate startDate, LocalDate endDate)
+			throws IllegalArgumentException {
+		if (endDate.isBefore(startDate))
+			throw new IllegalArgumentException("The end date should not be before the start date.");
+
+		return days.getDailyWeights(farmID, (int) startDate.toEpochDay(), (int) endDate.toEpochDay());
+	}
+
+	/**
+	 * Returns the total weight of each ISO week (Monday to Sunday) overlapping
+	 * (inclusive) two dates, rolled up from the day buckets. Only the days in the
+	 * range are counted, so the first and last weeks may be partial.
+	 * 
+	 * @param farmID    The farm to total, or null for all farms
+	 * @param startDate The beginning of the date range
+	 * @param endDate   The end of the date range
+	 * @return the total weight of each week, from the week of the start date
+	 * @throws IllegalArgumentException if the end date is before the start date
+	 */
+	public long[] getWeeklyWeights(String farmID, LocalDate startDate, LocalDate endDate)
+			throws IllegalArgumentException {
+		if (endDate.isBefore(startDate))
+			throw new IllegalArgumentException("The end date should not be before the start date.");
+
+		return days.getWeeklyWeights(farmID, (int) startDate.toEpochDay(), (int) endDate.toEpochDay());
+	}
+
+	/**
+	 * Returns the Monday starting the ISO week of a date
+	 * 
+	 * @param date The date
+	 * @return the Monday on or before the date
+	 */
+	public static LocalDate getWeekStart(LocalDate date) {
+		return LocalDate.ofEpochDay(DayBuckets.weekStart((int) date.toEpochDay()));
+	}
+
+	/**
+	 * Returns the total weight of every farm in every month of every year,
+	 * computed in a single pass over all entries. Note that {@link #organize()}
+	 * must have been called after the last data member was entered
+	 * 
+	 * @return the total weight of every farm in every month of every year
+	 */
+	public FarmMonthTotals getFarmMonthTotals() {
+		List<Integer> years = getValidYears();
+		FarmMonthTotals totals = new FarmMonthTotals(farmIDs, years);
+
+		// Map each farm ID to its index once
+		HashMap<String, Integer> farmIndices = new HashMap<String, Integer>(farmIDs.size() * 2);
+		for (int i = 0; i < farmIDs.size(); i++)
+			farmIndices.put(farmIDs.get(i), i);
+
+		// The month an entry is in is known from the list it is in
+		for (int year = 0; year < years.size(); year++) {
+			for (int month = 0; month < 12; month++)
+				for (MilkEntry entry : monthList(years.get(year), month))
+					totals.add(farmIndices.get(entry.getFarmID()), year, month, entry.getWeight());
+		}
+
+		return totals;
+	}
+
+	/**
+	 * Returns a paged cursor over all entries between (inclusive) two specified
+	 * dates, optionally only for a single farm. No entries are copied; the cursor
+	 * reads from the internal lists, so {@link #organize()} must have been called
+	 * after the last data member was entered.
+	 * 
+	 * @param farmID    The farm to look for entries for, or null for all farms
+	 * @param startDate The beginning of the date range
+	 * @param endDate   The end of the date range
+	 * @return a cursor over all matching entries, in date order
+	 */
+	public EntryCursor getEntryCursor(String farmID, Date startDate, Date endDate) {
+		List<List<MilkEntry>> segments = new ArrayList<List<MilkEntry>>();
+
+		if (farmID != null) {
+			// The farm's list is sorted by date, so the range is a single sub-list
+			addSegment(segments, farmLists.getOrDefault(farmID, Collections.<MilkEntry>emptyList()), startDate,
+					endDate);
+		} else {
+			Calendar calendar = new GregorianCalendar();
+
+			// Find the year and month of the first date
+			calendar.setTime(startDate);
+			int startYear = calendar.get(Calendar.YEAR);
+			int startMonth = calendar.get(Calendar.MONTH);
+
+			// Find the year and month of the second date
+			calendar.setTime(endDate);
+			int endYear = calendar.get(Calendar.YEAR);
+			int endMonth = calendar.get(Calendar.MONTH);
+
+			// Add the in-range part of each month between (inclusive) the two dates
+			int endMonthNumber = Math.min(MonthBuckets.monthNumber(endYear, endMonth), months.getEndMonth() - 1);
+			for (int monthNumber = Math.max(MonthBuckets.monthNumber(startYear, startMonth),
+					months.getFirstMonth()); monthNumber <= endMonthNumber; monthNumber++) {
+				List<MilkEntry> list = months.get(monthNumber);
+				if (list != null)
+					addSegment(segments, list, startDate, endDate);
+			}
+		}
+
+		return new EntryCursor(farmID, startDate, endDate, segments, farmIDs);
+	}
+
+	/**
+	 * Returns a cursor over the entries of another cursor's query, after the
+	 * entries of a change were added. The orderings the cursor already computed
+	 * are carried over by merging the added entries into them, so a table sorted
+	 * by farm or weight is not sorted again each time entries are added.
+	 * 
+	 * @param cursor A cursor created before the change
+	 * @param change The entries added since the cursor was created
+	 * @return a cursor over all entries matching the cursor's query, in date
+	 *         order
+	 */
+	public EntryCursor getEntryCursor(EntryCursor cursor, MilkDataChange change) {
+		EntryCursor updated = getEntryCursor(cursor.farmID, cursor.startDate, cursor.endDate);
+
+		// The added entries the query matches
+		List<MilkEntry> added = new ArrayList<MilkEntry>();
+		for (MilkEntry entry : change.getEntries()) {
+			long time = entry.getDate().getTime();
+			if (time >= cursor.startDate.getTime() && time <= cursor.endDate.getTime()
+					&& (cursor.farmID == null || cursor.farmID.equals(entry.getFarmID())))
+				added.add(entry);
+		}
+
+		updated.mergeOrderings(cursor, added);
+		return updated;
+	}
+
+	/**
+	 * Returns the list of entries of a month. Queries use this rather than the
+	 * public getters, so subclasses can override those without affecting them.
+	 * 
+	 * @param year  The year
+	 * @param month The month (0-11)
+	 * @return the entries of the month, or an empty list if there are none
+	 */
+	private List<MilkEntry> monthList(int year, int month) {
+		List<MilkEntry> list = months.get(MonthBuckets.monthNumber(year, month));
+
+		// Return an empty list if no entry has been added for the given month
+		if (list == null)
+			return Collections.<MilkEntry>emptyList();
+
+		return list;
+	}
+
+	/**
+	 * Adds the part of a date-sorted list that is between (inclusive) two dates to
+	 * a list of segments, if it is not empty
+	 * 
+	 * @param segments  The list of segments to add to
+	 * @param entries   The date-sorted list of entries
+	 * @param startDate The beginning of the date range
+	 * @param endDate   The end of the date range
+	 */
+	private static void addSegment(List<List<MilkEntry>> segments, List<MilkEntry> entries, Date startDate,
+			Date endDate) {
+		int from = firstIndexAfter(entries, startDate.getTime() - 1);
+		int to = firstIndexAfter(entries, endDate.getTime());
+
+		if (from < to)
+			segments.add(entries.subList(from, to));
+	}
+
+	/**
+	 * Binary searches a date-sorted list for the first entry after a time
+	 * 
+	 * @param entries The date-sorted list of entries
+	 * @param time    The time in milliseconds
+	 * @return the index of the first entry after the time, or the size of the list
+	 */
+	private static int firstIndexAfter(List<MilkEntry> entries, long time) {
+		int low = 0;
+		int high = entries.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (entries.get(middle).getDate().getTime() <= time)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
 }
@@ -0,0 +1,216 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The entries added to a {@link MilkData} by one call to
+ * {@link MilkData#addEntries(List)}, summed by the farm and year-month bucket
+ * they were appended to. Reports shown while entries are added can update
+ * their totals from these sums rather than querying the data again, so the
+ * work done per change is proportional to the entries added.
+ *
+ * @author A-Team 128
+ *
+ */
+public class MilkDataChange {
+
+	/**
+	 * The weight and number of entries added to each month of a year of a farm
+	 */
+	private static class YearBuckets {
+		private final long[] weights = new long[12];
+		private final int[] counts = new int[12];
+	}
+
+	private final List<MilkEntry> entries;
+
+	// Buckets appended to: farm ID -> year -> months
+	private final HashMap<String, HashMap<Integer, YearBuckets>> farmBuckets;
+
+	// Months appended to in each year, as bits (1 << month)
+	private final HashMap<Integer, Integer> changedMonths;
+
+	// Farms and year-months which had no entries before the change
+	private final List<String> addedFarmIDs;
+	private final Set<Integer> addedMonths;
+
+	/**
+	 * Creates an empty change of the specified entries, filled in by
+	 * {@link #add(MilkEntry, int, int)} as they are added
+	 *
+	 * @param entries The entries added
+	 */
+	MilkDataChange(List<MilkEntry> entries) {
+		this.entries = entries;
+		this.farmBuckets = new HashMap<String, HashMap<Integer, YearBuckets>>();
+		this.changedMonths = new HashMap<Integer, Integer>();
+		this.addedFarmIDs = new ArrayList<String>();
+		this.addedMonths = new HashSet<Integer>();
+	}
+
+	/**
+	 * Records an entry added to the data
+	 *
+	 * @param entry The entry
+	 * @param year  The year of the entry
+	 * @param month The month of the entry (0-11)
+	 */
+	void add(MilkEntry entry, int year, int month) {
+		YearBuckets buckets = farmBuckets.computeIfAbsent(entry.getFarmID(),
+				(String farmID) -> new HashMap<Integer, YearBuckets>()).computeIfAbsent(year,
+						(Integer key) -> new YearBuckets());
+		buckets.weights[month] += entry.getWeight();
+		buckets.counts[month]++;
+		changedMonths.merge(year, 1 << month, (Integer a, Integer b) -> a | b);
+	}
+
+	/**
+	 * Records a farm which had no entries before the change
+	 *
+	 * @param farmID The farm ID
+	 */
+	void addFarm(String farmID) {
+		addedFarmIDs.add(farmID);
+	}
+
+	/**
+	 * Records a year-month which had no entries before the change
+	 *
+	 * @param year  The year
+	 * @param month The month (0-11)
+	 */
+	void addMonth(int year, int month) {
+		addedMonths.add(year * 12 + month);
+	}
+
+	/**
+	 * Returns the entries added, in the order they were added
+	 *
+	 * @return the entries added
+	 */
+	public List<MilkEntry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Returns the farms which had no entries before the change, in the order
+	 * they were added
+	 *
+	 * @return the farm IDs added
+	 */
+	public List<String> getAddedFarmIDs() {
+		return Collections.unmodifiableList(addedFarmIDs);
+	}
+
+	/**
+	 * Returns whether any year or month had no entries before the change, so the
+	 * valid years or months changed
+	 *
+	 * @return whether year-months were added
+	 */
+	public boolean hasAddedMonths() {
+		return !addedMonths.isEmpty();
+	}
+
+	/**
+	 * Returns whether entries were added to a year
+	 *
+	 * @param year The year
+	 * @return whether entries were added to the year
+	 */
+	public boolean hasEntries(int year) {
+		return changedMonths.containsKey(year);
+	}
+
+	/**
+	 * Returns whether entries were added to a month
+	 *
+	 * @param year  The year
+	 * @param month The month (0-11)
+	 * @return whether entries were added to the month
+	 */
+	public boolean hasEntries(int year, int month) {
+		return (changedMonths.getOrDefault(year, 0) & (1 << month)) != 0;
+	}
+
+	/**
+	 * Returns the weight added to each farm in a year
+	 *
+	 * @param year The year
+	 * @return the weight added to each farm with entries added in the year
+	 */
+	public HashMap<String, Long> getFarmWeights(int year) {
+		HashMap<String, Long> weights = new HashMap<String, Long>();
+		farmBuckets.forEach((String farmID, HashMap<Integer, YearBuckets> years) -> {
+			YearBuckets buckets = years.get(year);
+			if (buckets == null)
+				return;
+			long weight = 0;
+			for (long monthWeight : buckets.weights)
+				weight += monthWeight;
+			weights.put(farmID, weight);
+		});
+		return weights;
+	}
+
+	/**
+	 * Returns the weight added to each farm in a month
+	 *
+	 * @param year  The year
+	 * @param month The month (0-11)
+	 * @return the weight added to each farm with entries added in the month
+	 */
+	public HashMap<String, Long> getFarmWeights(int year, int month) {
+		HashMap<String, Long> weights = new HashMap<String, Long>();
+		farmBuckets.forEach((String farmID, HashMap<Integer, YearBuckets> years) -> {
+			YearBuckets buckets = years.get(year);
+			if (buckets != null && buckets.counts[month] > 0)
+				weights.put(farmID, buckets.weights[month]);
+		});
+		return weights;
+	}
+
+	/**
+	 * Returns the weight added to each farm between (inclusive) two dates. Date
+	 * ranges do not follow the buckets, so the entries added are summed.
+	 *
+	 * @param startDate The beginning of the date range
+	 * @param endDate   The end of the date range
+	 * @return the weight added to each farm with entries added in the range
+	 */
+	public HashMap<String, Long> getFarmWeights(Date startDate, Date endDate) {
+		HashMap<String, Long> weights = new HashMap<String, Long>();
+		for (MilkEntry entry : entries) {
+			long time = entry.getDate().getTime();
+			if (time >= startDate.getTime() && time <= endDate.getTime())
+				weights.merge(entry.getFarmID(), (long) entry.getWeight(), Long::sum);
+		}
+		return weights;
+	}
+
+	/**
+	 * Returns the weight added to a farm in each month of a year
+	 *
+	 * @param farmID The farm ID
+	 * @param year   The year
+	 * @return the weight added in each month (0-11), or null if no entries were
+	 *         added to the farm in the year
+	 */
+	public long[] getMonthWeights(String farmID, int year) {
+		YearBuckets buckets = farmBuckets.getOrDefault(farmID, new HashMap<Integer, YearBuckets>()).get(year);
+		return buckets == null ? null : buckets.weights.clone();
+	}
+
+}
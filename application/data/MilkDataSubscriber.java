@@ -0,0 +1,193 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+import application.metrics.Counter;
+import application.metrics.Histogram;
+import application.metrics.Metrics;
+
+/**
+ * Adds the batches of entries a {@link Flow.Publisher} publishes, such as a
+ * live feed, to a {@link MilkData}, and tells a listener of each addition.
+ * Batches which arrive while an addition runs are gathered and added together
+ * with {@link MilkData#addEntries(List)} once it is done, so the faster entries
+ * arrive, the larger and fewer the additions.
+ *
+ * Demand is limited to {@value #PREFETCH} batches ahead of those added, and
+ * more are requested only as batches are added, so a publisher faster than the
+ * additions is held back rather than buffered.
+ *
+ * The additions run on an executor, which must run its tasks one at a time and
+ * in order: the JavaFX thread (Platform::runLater) when the data is shown, a
+ * single thread executor, or Runnable::run to add them on the publisher's
+ * thread.
+ *
+ * @author A-Team 128
+ *
+ */
+public class MilkDataSubscriber implements Flow.Subscriber<List<MilkEntry>> {
+
+	// The most batches requested ahead of those added
+	public static final int PREFETCH = 16;
+
+	// Metrics of the additions, shown in the diagnostics view
+	private static final Counter ENTRIES_ADDED = Metrics.counter("stream.entries.added");
+	private static final Histogram INSERT_TIME = Metrics.timer("stream.insert");
+
+	private final MilkData data;
+	private final Executor executor;
+	private final Consumer<List<MilkEntry>> listener;
+	private final CompletableFuture<Long> completion;
+
+	private Flow.Subscription subscription;
+
+	// Batches received but not added yet, and whether an addition is scheduled,
+	// guarded by this
+	private List<MilkEntry> pending;
+	private int pendingBatches;
+	private boolean scheduled;
+	private boolean finished;
+	private Throwable error;
+
+	// Entries added, only used on the executor
+	private long added;
+
+	/**
+	 * Creates a subscriber which adds entries to data
+	 *
+	 * @param data     The data to add entries to, which must be organized (or
+	 *                 empty)
+	 * @param executor Runs each addition, one at a time and in order
+	 * @param listener Receives the entries of each addition, on the executor
+	 *                 after they were added
+	 */
+	public MilkDataSubscriber(MilkData data, Executor executor, Consumer<List<MilkEntry>> listener) {
+		this.data = data;
+		this.executor = executor;
+		this.listener = listener;
+		this.completion = new CompletableFuture<Long>();
+		this.pending = new ArrayList<MilkEntry>();
+	}
+
+	/**
+	 * Returns a future completed, on the executor, once the publisher completed
+	 * and every entry received was added. It completes with the number of
+	 * entries added, or exceptionally with the publisher's error.
+	 *
+	 * @return the completion of the subscription
+	 */
+	public CompletableFuture<Long> getCompletion() {
+		return completion;
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		// Only one publisher may be subscribed to
+		if (this.subscription != null) {
+			subscription.cancel();
+			return;
+		}
+
+		this.subscription = subscription;
+		subscription.request(PREFETCH);
+	}
+
+	@Override
+	public void onNext(List<MilkEntry> batch) {
+		boolean schedule;
+		synchronized (this) {
+			pending.addAll(batch);
+			pendingBatches++;
+			schedule = !scheduled;
+			scheduled = true;
+		}
+
+		if (schedule)
+			executor.execute(this::addPending);
+	}
+
+	@Override
+	public void onError(Throwable error) {
+		finish(error);
+	}
+
+	@Override
+	public void onComplete() {
+		finish(null);
+	}
+
+	/**
+	 * Completes the subscription once the entries received have been added
+	 *
+	 * @param error The publisher's error, or null if it completed
+	 */
+	private void finish(Throwable error) {
+		boolean schedule;
+		synchronized (this) {
+			finished = true;
+			this.error = error;
+			schedule = !scheduled;
+			scheduled = true;
+		}
+
+		if (schedule)
+			executor.execute(this::addPending);
+	}
+
+	/**
+	 * Adds the batches received, then requests as many more. Runs on the
+	 * executor, and schedules itself again if more batches arrived meanwhile.
+	 */
+	private void addPending() {
+		List<MilkEntry> entries;
+		int batches;
+		boolean last;
+		synchronized (this) {
+			entries = pending;
+			batches = pendingBatches;
+			last = finished;
+			pending = new ArrayList<MilkEntry>();
+			pendingBatches = 0;
+		}
+
+		if (!entries.isEmpty()) {
+			long insertStart = System.nanoTime();
+			data.addEntries(entries);
+			INSERT_TIME.recordSince(insertStart);
+			ENTRIES_ADDED.add(entries.size());
+			added += entries.size();
+			listener.accept(entries);
+		}
+
+		// Nothing is published after the publisher finished
+		if (last) {
+			if (error != null)
+				completion.completeExceptionally(error);
+			else
+				completion.complete(added);
+			return;
+		}
+
+		subscription.request(batches);
+
+		boolean again;
+		synchronized (this) {
+			again = pendingBatches > 0 || finished;
+			scheduled = again;
+		}
+		if (again)
+			executor.execute(this::addPending);
+	}
+
+}
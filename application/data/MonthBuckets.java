@@ -0,0 +1,257 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The entries of each month, in a dense directory indexed by calendar month.
+ * A month is numbered year * 12 + month, and its list is found by subtracting
+ * the number of the directory's first month, so no key is boxed or hashed, and
+ * consecutive months are next to each other: a range of months is a contiguous
+ * run of the directory.
+ *
+ * Which months are valid is kept apart from the lists, as a bitset of 12 bits
+ * per year, since a month can be valid before its entries are read. The valid
+ * years and months are derived from it.
+ *
+ * The columns the aggregation kernels scan are cached next to each list, and
+ * dropped when the list changes.
+ *
+ * The directory covers whole years, from the first year with a valid month or
+ * entries to the last, and grows in either direction as months outside of it
+ * are added.
+ *
+ * @author A-Team 128
+ *
+ */
+class MonthBuckets {
+
+	// The year of the first 12 buckets
+	private int firstYear;
+
+	// Entries of each month by (year - firstYear) * 12 + month, null if none
+	private List<MilkEntry>[] lists;
+
+	// Weight columns of each month's list, null until a report aggregates it.
+	// Queries may run concurrently, so they read and build them under the lock
+	private WeightColumns[] columns;
+
+	// Valid months of each year by year - firstYear, as bits (1 << month)
+	private short[] validMonths;
+
+	/**
+	 * Creates an empty directory
+	 */
+	MonthBuckets() {
+		this.lists = newLists(0);
+		this.columns = new WeightColumns[0];
+		this.validMonths = new short[0];
+	}
+
+	/**
+	 * Returns the number of a month, which orders months by date
+	 *
+	 * @param year  The year
+	 * @param month The month (0-11)
+	 * @return the number of the month
+	 */
+	static int monthNumber(int year, int month) {
+		return year * 12 + month;
+	}
+
+	/**
+	 * @return the number of the first month in the directory
+	 */
+	int getFirstMonth() {
+		return firstYear * 12;
+	}
+
+	/**
+	 * @return the number of the month after the last month in the directory
+	 */
+	int getEndMonth() {
+		return firstYear * 12 + lists.length;
+	}
+
+	/**
+	 * Returns the entries of a month
+	 *
+	 * @param monthNumber The number of the month
+	 * @return the entries of the month, or null if it has none
+	 */
+	List<MilkEntry> get(int monthNumber) {
+		int index = monthNumber - firstYear * 12;
+		return index < 0 || index >= lists.length ? null : lists[index];
+	}
+
+	/**
+	 * Returns the entries of a month, creating its list if it has none
+	 *
+	 * @param year  The year
+	 * @param month The month (0-11)
+	 * @return the entries of the month
+	 */
+	List<MilkEntry> getOrCreate(int year, int month) {
+		include(year);
+		int index = (year - firstYear) * 12 + month;
+		if (lists[index] == null)
+			lists[index] = new ArrayList<MilkEntry>();
+
+		// The list is about to change
+		columns[index] = null;
+		return lists[index];
+	}
+
+	/**
+	 * Returns the weight columns of a month, building them from its list if they
+	 * were dropped since they were last built
+	 *
+	 * @param monthNumber The number of the month
+	 * @param farmIndices The index of each farm ID in the sorted farm IDs
+	 * @return the columns of the month, or null if it has no entries
+	 */
+	synchronized WeightColumns getColumns(int monthNumber, Map<String, Integer> farmIndices) {
+		int index = monthNumber - firstYear * 12;
+		if (index < 0 || index >= lists.length || lists[index] == null)
+			return null;
+
+		if (columns[index] == null)
+			columns[index] = new WeightColumns(lists[index], farmIndices);
+		return columns[index];
+	}
+
+	/**
+	 * Drops the weight columns of every month, such as when the farm IDs changed
+	 */
+	synchronized void clearColumns() {
+		Arrays.fill(columns, null);
+	}
+
+	/**
+	 * Marks a month as valid
+	 *
+	 * @param year  The year
+	 * @param month The month (0-11)
+	 * @return whether the month was not valid yet
+	 */
+	boolean markValid(int year, int month) {
+		include(year);
+		int mask = validMonths[year - firstYear];
+		if ((mask & (1 << month)) != 0)
+			return false;
+
+		validMonths[year - firstYear] = (short) (mask | (1 << month));
+		return true;
+	}
+
+	/**
+	 * Returns whether a month is valid
+	 *
+	 * @param year  The year
+	 * @param month The month (0-11)
+	 * @return whether the month is valid
+	 */
+	boolean isValid(int year, int month) {
+		return (getValidMonths(year) & (1 << month)) != 0;
+	}
+
+	/**
+	 * Returns the valid months of a year
+	 *
+	 * @param year The year
+	 * @return the valid months, as bits (1 << month)
+	 */
+	int getValidMonths(int year) {
+		int index = year - firstYear;
+		return index < 0 || index >= validMonths.length ? 0 : validMonths[index];
+	}
+
+	/**
+	 * Returns the years with any valid month
+	 *
+	 * @return the years with any valid month, in order
+	 */
+	List<Integer> getValidYears() {
+		List<Integer> years = new ArrayList<Integer>();
+		for (int i = 0; i < validMonths.length; i++)
+			if (validMonths[i] != 0)
+				years.add(firstYear + i);
+		return years;
+	}
+
+	/**
+	 * Estimates the memory taken by the directory, without the lists in it
+	 *
+	 * @return the estimated bytes of the directory
+	 */
+	long estimateBytes() {
+		return MemoryFootprint.object(3, 4) + MemoryFootprint.referenceArray(lists.length)
+				+ MemoryFootprint.referenceArray(columns.length) + MemoryFootprint.array(2, validMonths.length);
+	}
+
+	/**
+	 * Estimates the memory taken by the weight columns built
+	 *
+	 * @return the estimated bytes of the columns
+	 */
+	synchronized long estimateColumnBytes() {
+		long bytes = 0;
+		for (WeightColumns monthColumns : columns)
+			if (monthColumns != null)
+				bytes += monthColumns.estimateBytes();
+		return bytes;
+	}
+
+	/**
+	 * Grows the directory to cover a year, if it does not already
+	 *
+	 * @param year The year
+	 */
+	private void include(int year) {
+		if (validMonths.length == 0) {
+			firstYear = year;
+			lists = newLists(12);
+			columns = new WeightColumns[12];
+			validMonths = new short[1];
+			return;
+		}
+
+		int lastYear = firstYear + validMonths.length - 1;
+		if (year >= firstYear && year <= lastYear)
+			return;
+
+		// Copy the buckets into the grown directory, after any years prepended
+		int newFirstYear = Math.min(firstYear, year);
+		int years = Math.max(lastYear, year) - newFirstYear + 1;
+		int shift = firstYear - newFirstYear;
+
+		List<MilkEntry>[] newLists = newLists(years * 12);
+		System.arraycopy(lists, 0, newLists, shift * 12, lists.length);
+		WeightColumns[] newColumns = new WeightColumns[years * 12];
+		System.arraycopy(columns, 0, newColumns, shift * 12, columns.length);
+		short[] newValidMonths = new short[years];
+		System.arraycopy(validMonths, 0, newValidMonths, shift, validMonths.length);
+
+		firstYear = newFirstYear;
+		lists = newLists;
+		columns = newColumns;
+		validMonths = newValidMonths;
+	}
+
+	/**
+	 * Creates an array of entry lists
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<MilkEntry>[] newLists(int length) {
+		return (List<MilkEntry>[]) new List<?>[length];
+	}
+
+}
@@ -0,0 +1,103 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * The metadata of the entries of one month of a partitioned data set: how many
+ * there are, which farms they belong to and the dates they span. It is enough
+ * to decide whether a query needs the month's entries without reading them.
+ *
+ * @author A-Team 128
+ *
+ */
+public class MonthPartition {
+
+	private final int year;
+	private final int month;
+	private final long rows;
+	private final Set<String> farmIDs;
+	private final long minTime;
+	private final long maxTime;
+
+	/**
+	 * Creates the metadata of a month
+	 *
+	 * @param year    The year
+	 * @param month   The month (0-11)
+	 * @param rows    The number of entries
+	 * @param farmIDs The farms with entries in the month
+	 * @param minDate The date of the earliest entry
+	 * @param maxDate The date of the latest entry
+	 */
+	public MonthPartition(int year, int month, long rows, Set<String> farmIDs, Date minDate, Date maxDate) {
+		this.year = year;
+		this.month = month;
+		this.rows = rows;
+		this.farmIDs = Collections.unmodifiableSet(farmIDs);
+		this.minTime = minDate.getTime();
+		this.maxTime = maxDate.getTime();
+	}
+
+	/**
+	 * @return the year of the partition
+	 */
+	public int getYear() {
+		return year;
+	}
+
+	/**
+	 * @return the month of the partition (0-11)
+	 */
+	public int getMonth() {
+		return month;
+	}
+
+	/**
+	 * @return the number of entries in the partition
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return the farms with entries in the partition
+	 */
+	public Set<String> getFarmIDs() {
+		return farmIDs;
+	}
+
+	/**
+	 * @return the date of the earliest entry
+	 */
+	public Date getMinDate() {
+		return new Date(minTime);
+	}
+
+	/**
+	 * @return the date of the latest entry
+	 */
+	public Date getMaxDate() {
+		return new Date(maxTime);
+	}
+
+	/**
+	 * Returns whether the partition may have entries between (inclusive) two
+	 * dates
+	 *
+	 * @param startDate The beginning of the date range
+	 * @param endDate   The end of the date range
+	 * @return whether the partition's dates overlap the range
+	 */
+	public boolean overlaps(Date startDate, Date endDate) {
+		return minTime <= endDate.getTime() && maxTime >= startDate.getTime();
+	}
+
+}
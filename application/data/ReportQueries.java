@@ -0,0 +1,194 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Answers farm, annual, monthly and date range report queries over an
+ * organized {@link MilkData}. All month totals are computed once up front, so
+ * farm, annual and monthly reports never touch the entries, and a date range
+ * report only scans the months at its two ends. Instances are immutable and
+ * may be queried from any number of threads.
+ *
+ * @author A-Team 128
+ *
+ */
+public class ReportQueries implements ReportSource {
+
+	private final MilkData data;
+	private final FarmMonthTotals totals;
+
+	// Farm ID -> farm index and year -> year index in the totals
+	private final HashMap<String, Integer> farmIndices;
+	private final HashMap<Integer, Integer> yearIndices;
+
+	/**
+	 * Computes the month totals of the specified data. The data must not be
+	 * modified afterwards.
+	 *
+	 * @param data The organized data to answer queries over
+	 */
+	public ReportQueries(MilkData data) {
+		this.data = data;
+		this.totals = data.getFarmMonthTotals();
+
+		List<String> farmIDs = totals.getFarmIDs();
+		this.farmIndices = new HashMap<String, Integer>(farmIDs.size() * 2);
+		for (int i = 0; i < farmIDs.size(); i++)
+			farmIndices.put(farmIDs.get(i), i);
+
+		List<Integer> years = totals.getYears();
+		this.yearIndices = new HashMap<Integer, Integer>(years.size() * 2);
+		for (int i = 0; i < years.size(); i++)
+			yearIndices.put(years.get(i), i);
+	}
+
+	/**
+	 * Returns the sorted farm IDs
+	 *
+	 * @return the sorted farm IDs
+	 */
+	@Override
+	public List<String> getFarmIDs() {
+		return totals.getFarmIDs();
+	}
+
+	/**
+	 * Returns the sorted years with entries
+	 *
+	 * @return the sorted years with entries
+	 */
+	@Override
+	public List<Integer> getYears() {
+		return totals.getYears();
+	}
+
+	/**
+	 * Returns the total weight of a farm in each month of a year
+	 *
+	 * @param farmID The farm
+	 * @param year   The year
+	 * @return the total weight of each month (0-11), all 0 if the farm or year has
+	 *         no entries
+	 */
+	@Override
+	public long[] getFarmReport(String farmID, int year) {
+		Integer farm = farmIndices.get(farmID);
+		Integer yearIndex = yearIndices.get(year);
+
+		if (farm == null || yearIndex == null)
+			return new long[12];
+
+		return totals.getMonthTotals(farm, yearIndex);
+	}
+
+	/**
+	 * Returns the total weight of every farm in a year, including farms without
+	 * entries in the year
+	 *
+	 * @param year The year
+	 * @return the total weight of every farm in the year
+	 */
+	@Override
+	public FarmTotals getAnnualReport(int year) {
+		Integer yearIndex = yearIndices.get(year);
+
+		if (yearIndex == null)
+			return new FarmTotals(totals.getFarmIDs(), new long[totals.getFarmIDs().size()]);
+
+		return totals.getAnnualTotals(yearIndex);
+	}
+
+	/**
+	 * Returns the total weight of the farms with entries in a month
+	 *
+	 * @param year  The year
+	 * @param month The month (0-11)
+	 * @return the total weight of the farms with entries in the month
+	 * @throws IllegalArgumentException if the specified month is not 0-11
+	 */
+	@Override
+	public FarmTotals getMonthlyReport(int year, int month) throws IllegalArgumentException {
+		// Ensure the month is 0-11
+		if (month < 0 || month >= 12)
+			throw new IllegalArgumentException("Month should be a number between 0 and 11.");
+
+		Integer yearIndex = yearIndices.get(year);
+
+		if (yearIndex == null)
+			return new FarmTotals(new ArrayList<String>(), new long[0]);
+
+		return totals.getMonthlyTotals(yearIndex, month);
+	}
+
+	/**
+	 * Returns the total weight of the farms with entries between (inclusive) two
+	 * dates. Months wholly inside the range are taken from the month totals; only
+	 * the entries of partially covered months are scanned.
+	 *
+	 * @param startDate The beginning of the date range
+	 * @param endDate   The end of the date range
+	 * @return the total weight of the farms with entries in the range
+	 */
+	@Override
+	public FarmTotals getRangeReport(Date startDate, Date endDate) {
+		List<String> farmIDs = totals.getFarmIDs();
+		List<Integer> years = totals.getYears();
+
+		long[] sums = new long[farmIDs.size()];
+		boolean[] present = new boolean[farmIDs.size()];
+
+		long start = startDate.getTime();
+		long end = endDate.getTime();
+
+		// Same time zone as the calendar MilkData uses to bucket entries into months
+		Calendar calendar = new GregorianCalendar();
+
+		for (int year = 0; year < years.size(); year++) {
+			for (int month = 0; month < 12; month++) {
+				calendar.clear();
+				calendar.set(years.get(year), month, 1);
+				long monthStart = calendar.getTimeInMillis();
+				calendar.add(Calendar.MONTH, 1);
+				long monthEnd = calendar.getTimeInMillis() - 1;
+
+				// Month is outside of the range
+				if (monthEnd < start || monthStart > end)
+					continue;
+
+				if (monthStart >= start && monthEnd <= end) {
+					// Month is wholly inside of the range
+					for (int farm = 0; farm < sums.length; farm++) {
+						if (totals.getCount(farm, year, month) == 0)
+							continue;
+						sums[farm] += totals.getTotal(farm, year, month);
+						present[farm] = true;
+					}
+				} else {
+					// Month is at an end of the range
+					for (MilkEntry entry : data.getEntriesForMonth(years.get(year), month)) {
+						long time = entry.getDate().getTime();
+						if (time < start || time > end)
+							continue;
+						int farm = farmIndices.get(entry.getFarmID());
+						sums[farm] += entry.getWeight();
+						present[farm] = true;
+					}
+				}
+			}
+		}
+
+		return FarmTotals.withoutEmptyFarms(farmIDs, sums, present);
+	}
+
+}
@@ -0,0 +1,77 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Answers the report queries, either from data in this process
+ * ({@link ReportQueries}) or by combining the answers of other processes.
+ * Implementations may be queried from any number of threads.
+ *
+ * @author A-Team 128
+ *
+ */
+public interface ReportSource {
+
+	/**
+	 * Returns the sorted farm IDs
+	 *
+	 * @return the sorted farm IDs
+	 */
+	public List<String> getFarmIDs();
+
+	/**
+	 * Returns the sorted years with entries
+	 *
+	 * @return the sorted years with entries
+	 */
+	public List<Integer> getYears();
+
+	/**
+	 * Returns the total weight of a farm in each month of a year
+	 *
+	 * @param farmID The farm
+	 * @param year   The year
+	 * @return the total weight of each month (0-11), all 0 if the farm or year has
+	 *         no entries
+	 */
+	public long[] getFarmReport(String farmID, int year);
+
+	/**
+	 * Returns the total weight of every farm in a year, including farms without
+	 * entries in the year
+	 *
+	 * @param year The year
+	 * @return the total weight of every farm in the year, in farm ID order
+	 */
+	public FarmTotals getAnnualReport(int year);
+
+	/**
+	 * Returns the total weight of the farms with entries in a month
+	 *
+	 * @param year  The year
+	 * @param month The month (0-11)
+	 * @return the total weight of the farms with entries in the month, in farm ID
+	 *         order
+	 * @throws IllegalArgumentException if the specified month is not 0-11
+	 */
+	public FarmTotals getMonthlyReport(int year, int month) throws IllegalArgumentException;
+
+	/**
+	 * Returns the total weight of the farms with entries between (inclusive) two
+	 * dates
+	 *
+	 * @param startDate The beginning of the date range
+	 * @param endDate   The end of the date range
+	 * @return the total weight of the farms with entries in the range, in farm ID
+	 *         order
+	 */
+	public FarmTotals getRangeReport(Date startDate, Date endDate);
+
+}
@@ -0,0 +1,73 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+/**
+ * The aggregation kernels as plain loops, used when the Vector API is not
+ * available and as the reference the vector kernels are benchmarked against.
+ *
+ * @author A-Team 128
+ *
+ */
+final class ScalarKernels extends AggregationKernels {
+
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+
+	@Override
+	public long sum(int[] values, int from, int to) {
+		long sum = 0;
+		for (int i = from; i < to; i++)
+			sum += values[i];
+		return sum;
+	}
+
+	@Override
+	public int min(int[] values, int from, int to) {
+		int min = Integer.MAX_VALUE;
+		for (int i = from; i < to; i++)
+			min = Math.min(min, values[i]);
+		return min;
+	}
+
+	@Override
+	public int max(int[] values, int from, int to) {
+		int max = Integer.MIN_VALUE;
+		for (int i = from; i < to; i++)
+			max = Math.max(max, values[i]);
+		return max;
+	}
+
+	@Override
+	public int count(int[] keys, int from, int to, int low, int high) {
+		int count = 0;
+		for (int i = from; i < to; i++)
+			if (keys[i] >= low && keys[i] <= high)
+				count++;
+		return count;
+	}
+
+	@Override
+	public long sumInRange(int[] keys, int[] values, int from, int to, int low, int high) {
+		long sum = 0;
+		for (int i = from; i < to; i++)
+			if (keys[i] >= low && keys[i] <= high)
+				sum += values[i];
+		return sum;
+	}
+
+	@Override
+	public void sumByGroup(int[] groups, int[] values, int from, int to, long[] sums, int[] counts) {
+		for (int i = from; i < to; i++) {
+			sums[groups[i]] += values[i];
+			counts[groups[i]]++;
+		}
+	}
+
+}
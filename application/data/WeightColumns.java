@@ -0,0 +1,93 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The farm index and weight of each entry of a month, as primitive columns in
+ * the order of the month's list, for the {@link AggregationKernels} to scan.
+ * The weights are also kept sorted by farm, with where each farm's run of
+ * weights starts, so the total of a farm over the whole month is the plain sum
+ * of its run, which the kernels vectorize, rather than a sum grouped by farm.
+ * Columns are built from a list the first time a report aggregates it, and
+ * are dropped when entries are added to the month or the farm IDs change,
+ * since a farm's index is its position in the sorted farm IDs.
+ *
+ * @author A-Team 128
+ *
+ */
+final class WeightColumns {
+
+	// Index of each entry's farm in the farm IDs
+	final int[] farms;
+
+	// Weight of each entry
+	final int[] weights;
+
+	// The weights sorted by farm, in list order within a farm
+	final int[] farmWeights;
+
+	// Index of each farm's first weight in farmWeights, and the length of
+	// farmWeights at the end, so farm f's run is farmStarts[f] to farmStarts[f + 1]
+	final int[] farmStarts;
+
+	/**
+	 * Builds the columns of a list of entries
+	 *
+	 * @param entries     The entries
+	 * @param farmIndices The index of each farm ID, from 0 to the number of farms
+	 */
+	WeightColumns(List<MilkEntry> entries, Map<String, Integer> farmIndices) {
+		this.farms = new int[entries.size()];
+		this.weights = new int[entries.size()];
+		this.farmWeights = new int[entries.size()];
+		this.farmStarts = new int[farmIndices.size() + 1];
+
+		for (int i = 0; i < farms.length; i++) {
+			MilkEntry entry = entries.get(i);
+			farms[i] = farmIndices.get(entry.getFarmID());
+			weights[i] = entry.getWeight();
+			farmStarts[farms[i] + 1]++;
+		}
+
+		// Counting sort: each farm's run starts after the runs of the farms before it
+		for (int farm = 1; farm < farmStarts.length; farm++)
+			farmStarts[farm] += farmStarts[farm - 1];
+		int[] next = Arrays.copyOf(farmStarts, farmStarts.length - 1);
+		for (int i = 0; i < farms.length; i++)
+			farmWeights[next[farms[i]]++] = weights[i];
+	}
+
+	/**
+	 * @return the number of farms the columns have a run for
+	 */
+	int farmCount() {
+		return farmStarts.length - 1;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	int size() {
+		return weights.length;
+	}
+
+	/**
+	 * Estimates the memory taken by the columns
+	 *
+	 * @return the estimated bytes of the columns
+	 */
+	long estimateBytes() {
+		return MemoryFootprint.object(4, 0) + MemoryFootprint.array(4, farms.length)
+				+ MemoryFootprint.array(4, weights.length) + MemoryFootprint.array(4, farmWeights.length)
+				+ MemoryFootprint.array(4, farmStarts.length);
+	}
+
+}
@@ -6,23 +6,50 @@
 
 package application.gui;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
 import application.Main;
+import application.data.LazyMilkData;
 import application.data.MilkData;
+import application.data.MilkDataChange;
+import application.data.MilkEntry;
 import application.gui.reports.AnnualReportPane;
 import application.gui.reports.CustomDateRangeReportPane;
+import application.gui.reports.DailyWeeklyReportPane;
+import application.gui.reports.EntryBrowserPane;
 import application.gui.reports.FarmReportPane;
 import application.gui.reports.MonthlyReportPane;
 import application.gui.reports.ReportPane;
+import application.io.BatchExporter;
+import application.io.DataFileWatcher;
+import application.io.DataSource;
+import application.io.MilkDataLoader;
+import application.io.ReportExport;
+import application.io.ReportWriter;
+import application.metrics.Histogram;
+import application.metrics.Metrics;
+import application.metrics.ReportExportEvent;
 import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.value.ObservableValue;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker.State;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.scene.Scene;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.TabPane.TabClosingPolicy;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
@@ -30,6 +57,16 @@ import javafx.stage.Stage;
  * 
  * DashboardStage - The stage used to display the Milk Weight Dashboard
  * 
+ * While watching for new data, rows added to the data files are read in the
+ * background and added to the data. Each report then adds the weights of the
+ * change to the totals it shows, rather than the whole dashboard being
+ * reloaded. Rows read while a report is being exported are added once the
+ * export is done, as the export reads the data.
+ * 
+ * Refreshing or choosing another data source keeps the dashboard open: the
+ * files are read in the background, then the new rows are added or the new
+ * data replaces the data shown, and the reports are shown from it.
+ * 
  * @author Daniel Kouchekinia (kouchekinia, 2020)
  *
  */
@@ -38,9 +75,52 @@ public class DashboardStage extends Stage {
 	private static final String TITLE = "Milk Weight Dashboard";
 	private static final String CSS_PATH = "/stylesheets/Dashboard.css";
 
+	// Time taken to update every report from a change, shown in diagnostics
+	private static final Histogram UPDATE_TIME = Metrics.timer("report.update");
+
 	private TabPane tabPane;
+	private MilkData data;
+	private DiagnosticsStage diagnosticsStage;
+
+	// Reads the rows added to the data files while watching
+	private DataFileWatcher watcher;
+	private final BooleanProperty watching = new SimpleBooleanProperty(false);
+	private final BooleanProperty watchable = new SimpleBooleanProperty(false);
+
+	// What was learned about the data files as they were loaded
+	private List<DataSource> sources;
+
+	// Reports not shown since the data was loaded again, told once selected
+	private final Set<ReportPane> stalePanes = new HashSet<ReportPane>();
+	private boolean reloading;
+
+	// Times the data was replaced, so rows read from the previous files are dropped
+	private int loads;
+
+	// Entries read while reports are being exported
+	private final List<MilkEntry> pendingEntries = new ArrayList<MilkEntry>();
+	private int runningExports;
+
+	// Updates the reports when entries are added to the data
+	private final Consumer<MilkDataChange> changeListener = this::dataChanged;
 
 	public DashboardStage(MilkData data, int initialDashboardTabIndex) {
+		this(data, initialDashboardTabIndex, Collections.<DataSource>emptyList());
+	}
+
+	/**
+	 * Creates a dashboard which can watch the files the data was loaded from
+	 * 
+	 * @param data                     The data to show
+	 * @param initialDashboardTabIndex The tab to show first
+	 * @param sources                  The data sources the data was loaded from
+	 */
+	public DashboardStage(MilkData data, int initialDashboardTabIndex, List<DataSource> sources) {
+		this.data = data;
+		this.sources = sources;
+		this.watcher = createWatcher();
+		watching.addListener((ObservableValue<? extends Boolean> observable, Boolean wasWatching,
+				Boolean isWatching) -> setWatching(isWatching));
 
 		// Create the tab pane
 		tabPane = new TabPane();
@@ -58,11 +138,21 @@ public class DashboardStage extends Stage {
 		tabPane.getTabs().addAll(new Tab("Farm Report", new FarmReportPane(data, this)),
 				new Tab("Annual Report", new AnnualReportPane(data, this)),
 				new Tab("Monthly Report", new MonthlyReportPane(data, this)),
-				new Tab("Custom Date Range Report", new CustomDateRangeReportPane(data, this)));
+				new Tab("Custom Date Range Report", new CustomDateRangeReportPane(data, this)),
+				new Tab("Daily / Weekly Report", new DailyWeeklyReportPane(data, this)),
+				new Tab("Raw Entries", new EntryBrowserPane(data, this)));
 
 		// Set the currently selected tab to the specified one
 		tabPane.getSelectionModel().select(initialDashboardTabIndex);
 
+		// A report is shown again from data loaded while it was not shown once it is selected
+		tabPane.getSelectionModel().selectedItemProperty()
+				.addListener((ObservableValue<? extends Tab> observable, Tab oldTab, Tab tab) -> {
+					ReportPane pane = (ReportPane) tab.getContent();
+					if (stalePanes.remove(pane))
+						pane.dataReplaced(this.data);
+				});
+
 		// Configure window
 
 		// Add icons
@@ -78,33 +168,278 @@ public class DashboardStage extends Stage {
 
 		// Request focus on the tab pane when the stage is shown
 		Platform.runLater(() -> tabPane.requestFocus());
+
+		// Update the reports in place as entries are added
+		data.addChangeListener(changeListener);
+
+		// Stop watching once the dashboard is closed
+		this.setOnHidden((e) -> {
+			watching.set(false);
+			data.removeChangeListener(changeListener);
+		});
+	}
+
+	/**
+	 * Creates a watcher of the files the data was loaded from. A data set read
+	 * lazily cannot have entries added, so is not watched.
+	 * 
+	 * @return the watcher of the data files
+	 */
+	private DataFileWatcher createWatcher() {
+		int load = loads;
+		DataFileWatcher fileWatcher = new DataFileWatcher(
+				data instanceof LazyMilkData ? Collections.<DataSource>emptyList() : sources,
+				(List<MilkEntry> entries) -> Platform.runLater(() -> {
+					if (load == loads)
+						entriesRead(entries);
+				}));
+		watchable.set(fileWatcher.hasFiles());
+		return fileWatcher;
+	}
+
+	/**
+	 * @return the property of whether the data was loaded from files which can be
+	 *         watched
+	 */
+	public ReadOnlyBooleanProperty watchableProperty() {
+		return watchable;
+	}
+
+	/**
+	 * @return the property of whether the data files are watched for new rows
+	 */
+	public BooleanProperty watchingProperty() {
+		return watching;
+	}
+
+	/**
+	 * Starts or stops watching the data files
+	 * 
+	 * @param watch Whether to watch the data files
+	 */
+	private void setWatching(boolean watch) {
+		if (!watch) {
+			watcher.stop();
+			return;
+		}
+
+		try {
+			watcher.start();
+		} catch (IOException e) {
+			e.printStackTrace();
+			watching.set(false);
+			Main.showAlert(AlertType.ERROR, "Could Not Watch for New Data", "Could Not Watch for New Data",
+					"Unfortunately the directories of the data files could not be watched.");
+		}
+	}
+
+	/**
+	 * Adds entries read from the data files, unless reports are being exported,
+	 * in which case they are added once the exports are done
+	 * 
+	 * @param entries The entries read
+	 */
+	private void entriesRead(List<MilkEntry> entries) {
+		pendingEntries.addAll(entries);
+		if (runningExports == 0 && this.isShowing())
+			addPendingEntries();
 	}
 
 	/**
-	 * Reloads the data source, essentially re-opening the application but with the
-	 * same files.
+	 * Adds the entries read to the data, which updates each report
+	 */
+	private void addPendingEntries() {
+		if (pendingEntries.isEmpty())
+			return;
+
+		List<MilkEntry> entries = new ArrayList<MilkEntry>(pendingEntries);
+		pendingEntries.clear();
+		data.addEntries(entries);
+	}
+
+	/**
+	 * Updates each report with the entries added to the data, and has the
+	 * diagnostics window estimate the data's footprint again
+	 * 
+	 * @param change The entries added, summed by farm and month
+	 */
+	private void dataChanged(MilkDataChange change) {
+		long updateStart = System.nanoTime();
+		for (Tab tab : tabPane.getTabs())
+			// A stale report is shown from the data, change included, once selected
+			if (!stalePanes.contains(tab.getContent()))
+				((ReportPane) tab.getContent()).dataChanged(change);
+		if (diagnosticsStage != null)
+			diagnosticsStage.dataChanged(change);
+		UPDATE_TIME.recordSince(updateStart);
+	}
+
+	/**
+	 * Runs an export task, holding back entries read until it is done
+	 * 
+	 * @param title The title of the progress window
+	 * @param task  The export task
+	 */
+	private void runExport(String title, Task<?> task) {
+		runningExports++;
+		task.stateProperty().addListener((ObservableValue<? extends State> observable, State oldState,
+				State state) -> {
+			if (state == State.SUCCEEDED || state == State.FAILED || state == State.CANCELLED) {
+				runningExports--;
+				if (runningExports == 0)
+					addPendingEntries();
+			}
+		});
+
+		new ProgressStage(this, title, task).start();
+	}
+
+	/**
+	 * Reloads the data source in the background, keeping the dashboard open. If
+	 * rows were only appended to the data files since they were loaded, only the
+	 * new rows are read and added, and each report is updated in place. Otherwise
+	 * the files are loaded again and the new data replaces the data shown.
 	 */
 	public void refreshDataSource() {
-		// Close window
-		this.close();
+		reload(Main.getLastDataFiles(), true);
+	}
+
+	/**
+	 * Shows the diagnostics window, reusing it if it is already open.
+	 */
+	public void showDiagnostics() {
+		if (diagnosticsStage == null)
+			diagnosticsStage = new DiagnosticsStage(this, data);
 
-		// Re-process data and show dash-board
-		Main.loadDashboard(tabPane.getSelectionModel().getSelectedIndex());
+		diagnosticsStage.show();
+		diagnosticsStage.toFront();
 	}
 
 	/**
-	 * Restarts the entire application.
+	 * Lets the user choose other data files, which are loaded in the background
+	 * and replace the data shown, keeping the dashboard open.
 	 */
 	public void chooseNewDataSource() {
-		// Close window
-		this.close();
+		DataSelectStage dataSelectStage = new DataSelectStage();
+		dataSelectStage.initOwner(this);
+		dataSelectStage.show();
+
+		dataSelectStage.setOnFileSelect((List<File> files) -> {
+			dataSelectStage.close();
+			reload(files, false);
+		});
+	}
 
-		// Restart application
-		Main.startApplication(tabPane.getSelectionModel().getSelectedIndex());
+	/**
+	 * Loads data files on a background thread while a progress window is shown,
+	 * then adds the rows appended to them or replaces the data shown
+	 * 
+	 * @param files     The data files to load
+	 * @param sameFiles Whether they are the files the data was loaded from, so
+	 *                  only the rows appended to them may need to be read
+	 */
+	private void reload(List<File> files, boolean sameFiles) {
+		if (reloading)
+			return;
+		reloading = true;
+
+		// Only rows appended to files which were all loaded can be read on their own
+		boolean appendOnly = sameFiles && !(data instanceof LazyMilkData) && sources.size() == files.size();
+		DataFileWatcher currentWatcher = watcher;
+		List<MilkEntry> appended = new ArrayList<MilkEntry>();
+		MilkDataLoader loader = new MilkDataLoader();
+
+		Task<MilkData> reloadTask = new Task<MilkData>() {
+			@Override
+			protected MilkData call() {
+				if (appendOnly) {
+					updateMessage("Reading new rows...");
+					List<MilkEntry> entries = currentWatcher.readLoadedFiles();
+					if (entries != null) {
+						appended.addAll(entries);
+						return null;
+					}
+				}
+
+				updateMessage("Loading data...");
+				return Main.loadDataFiles(files, loader);
+			}
+		};
+
+		reloadTask.setOnSucceeded((WorkerStateEvent e) -> {
+			reloading = false;
+			MilkData loaded = reloadTask.getValue();
+			if (loaded == null) {
+				// The rows are added once no report is being exported
+				entriesRead(appended);
+				return;
+			}
+
+			Main.showRejected(loader);
+			if (loaded.getValidYears().size() == 0) {
+				Main.showAlert(AlertType.ERROR, "No valid data", "No valid data could be found.",
+						"No valid data could be found in the files selected, so the data shown was kept.");
+				return;
+			}
+
+			Main.setLastDataFiles(files, loader.getSources());
+			setData(loaded, loader.getSources());
+		});
+
+		reloadTask.setOnFailed((WorkerStateEvent e) -> {
+			reloading = false;
+			reloadTask.getException().printStackTrace();
+			Main.showAlert(AlertType.ERROR, "Could Not Load Data", "Could Not Load Data",
+					"Unfortunately the data files could not be loaded, so the data shown was kept.");
+		});
+
+		new ProgressStage(this, sameFiles ? "Refreshing Data" : "Loading Data", reloadTask).start();
+	}
+
+	/**
+	 * Replaces the data shown with data loaded again. The report shown is shown
+	 * from the new data straight away, the others once they are selected, so the
+	 * window, the inputs of each report and the choices made in them are kept.
+	 * 
+	 * @param data    The data loaded
+	 * @param sources What was learned about the data files as they were loaded
+	 */
+	private void setData(MilkData data, List<DataSource> sources) {
+		// The rows read from the previous files are part of the new data
+		pendingEntries.clear();
+		watcher.stop();
+		this.data.removeChangeListener(changeListener);
+
+		this.data = data;
+		this.sources = sources;
+		loads++;
+		data.addChangeListener(changeListener);
+
+		// Watch the new files if the previous ones were watched
+		watcher = createWatcher();
+		if (watching.get()) {
+			if (watchable.get())
+				setWatching(true);
+			else
+				watching.set(false);
+		}
+
+		// The footprint shown is of the previous data
+		if (diagnosticsStage != null) {
+			diagnosticsStage.close();
+			diagnosticsStage = null;
+		}
+
+		Tab selected = tabPane.getSelectionModel().getSelectedItem();
+		for (Tab tab : tabPane.getTabs())
+			stalePanes.add((ReportPane) tab.getContent());
+		stalePanes.remove(selected.getContent());
+		((ReportPane) selected.getContent()).dataReplaced(data);
 	}
 
 	/**
-	 * Exports a given report to a text file chosen by the user
+	 * Exports a given report to a text file chosen by the user. The report is
+	 * streamed to the file on a background thread while a progress window is shown.
 	 * 
 	 * @param report The report to export
 	 */
@@ -129,30 +464,96 @@ public class DashboardStage extends Stage {
 		if (fileToSaveTo == null)
 			return;
 
-		// Write to the file
-		try {
-			// Open a buffered writer
-			BufferedWriter fileWriter = new BufferedWriter(new FileWriter(fileToSaveTo, false));
+		// Capture the report as it is shown now, it is written on a background thread
+		ReportExport export = report.getReportExport();
+
+		// Stream the report to the file, off the JavaFX thread
+		Task<Long> exportTask = new Task<Long>() {
+			@Override
+			protected Long call() throws IOException {
+				updateMessage("Exporting to '" + fileToSaveTo.getName() + "'...");
+				ReportExportEvent event = new ReportExportEvent();
+				event.begin();
+				try (ReportWriter writer = ReportWriter.open(fileToSaveTo.toPath())) {
+					writer.setProgressListener((long rows) -> updateProgress(rows, export.getRowCount()));
+					export.write(writer);
+
+					event.destination = fileToSaveTo.getPath();
+					event.reports = 1;
+					event.rows = writer.getRowsWritten();
+					event.commit();
+					return writer.getRowsWritten();
+				}
+			}
+		};
+
+		// Alert the user the report has been successfully exported.
+		exportTask.setOnSucceeded((WorkerStateEvent e) -> Main.showAlert(AlertType.INFORMATION,
+				"Report Successfully Exported",
+				"Report has been successfully exported to '" + fileToSaveTo.getName() + "'", ""));
+
+		// Show an alert to the user if there was an IOException
+		exportTask.setOnFailed((WorkerStateEvent e) -> {
+			exportTask.getException().printStackTrace();
+			Main.showAlert(AlertType.ERROR, "Could Not Export Report", "Could Not Export Report",
+					"Unfortunately we could not export the selected report to the file specified.");
+		});
 
-			// Write the text to the file, if it is not null
-			String reportText = report.getTextReport();
-			fileWriter.append(
-					reportText != null ? reportText : "This report type has not been configured for text output.");
+		runExport("Exporting Report", exportTask);
+	}
 
-			// Close the writer
-			fileWriter.close();
+	/**
+	 * Exports every farm, annual and monthly report into a directory chosen by
+	 * the user. The reports are generated and written in parallel on background
+	 * threads while a progress window is shown.
+	 */
+	public void exportAllReports() {
 
-			// Alert the user the report has been successfully exported.
-			Main.showAlert(AlertType.INFORMATION, "Report Successfully Exported",
-					"Report has been successfully exported to '" + fileToSaveTo.getName() + "'", "");
+		// Prompt the user for a directory to export into
+		DirectoryChooser chooser = new DirectoryChooser();
+		chooser.setTitle("Select a Directory to Export All Reports Into");
+		chooser.setInitialDirectory(new File(System.getProperty("user.home")));
+		File directory = chooser.showDialog(this.getScene().getWindow());
 
-		} catch (IOException e) {
-			e.printStackTrace();
+		// If the user did not select a directory or clicked cancel, do nothing
+		if (directory == null)
+			return;
 
-			// Show an alert to the user if there was an IOException
-			Main.showAlert(AlertType.ERROR, "Could Not Export Report", "Could Not Export Report",
-					"Unfortunately we could not export the selected report to the file specified.");
-		}
+		Task<Integer> exportTask = new Task<Integer>() {
+			@Override
+			protected Integer call() throws IOException {
+				ReportExportEvent event = new ReportExportEvent();
+				event.begin();
+
+				// Aggregate all data once, every report is derived from it
+				updateMessage("Aggregating data...");
+				BatchExporter exporter = new BatchExporter(data.getFarmMonthTotals(), directory.toPath());
+
+				int reportCount = exporter.getReportCount();
+				updateMessage(String.format("Exporting %,d reports...", reportCount));
+				exporter.export((int written) -> updateProgress(written, reportCount));
+
+				event.destination = directory.getPath();
+				event.reports = reportCount;
+				event.commit();
+				return reportCount;
+			}
+		};
+
+		// Alert the user the reports have been successfully exported.
+		exportTask.setOnSucceeded((WorkerStateEvent e) -> Main.showAlert(AlertType.INFORMATION,
+				"Reports Successfully Exported", String.format("%,d reports have been successfully exported to '%s'",
+						exportTask.getValue(), directory.getName()),
+				""));
+
+		// Show an alert to the user if there was an IOException
+		exportTask.setOnFailed((WorkerStateEvent e) -> {
+			exportTask.getException().printStackTrace();
+			Main.showAlert(AlertType.ERROR, "Could Not Export Reports", "Could Not Export Reports",
+					"Unfortunately we could not export all reports to the directory specified.");
+		});
+
+		runExport("Exporting All Reports", exportTask);
 	}
 
 }
@@ -6,22 +6,25 @@
 
 package application.gui;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Scanner;
 
 import application.Main;
+import application.io.DataSource;
+import application.io.DataSourceCatalog;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener.Change;
-import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.event.ActionEvent;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.scene.control.SelectionMode;
 import javafx.scene.control.Separator;
@@ -36,20 +39,53 @@ import javafx.stage.Stage;
  * DataSelectStage - Represents a Data Selection Stage Note that this stage will not be shown unless
  * show() is explicitly called
  * 
+ * Recently used data sources are listed from the {@link DataSourceCatalog}, with the size, rows,
+ * dates and farms found when each was last loaded, so the list shows how large a load will be
+ * without opening any file. Whether the files still exist and are unchanged is checked in the
+ * background after the stage is shown.
+ * 
  * @author Daniel Kouchekinia (kouchekinia, 2020)
  *
  */
 public class DataSelectStage extends Stage {
 
 	private Scene scane;
-	private File recentFile;
 	private FileSelectEventHandler fileSelectEventHandler;
 
+	// Sources whose files changed since they were last loaded
+	private final HashSet<File> changedFiles = new HashSet<File>();
+
 	private static final String TITLE = "Select a Data Source";
 	private static final String NO_RECENT_FILES_PLACEHOLDER = "No recently opened files could be found.";
-	private static final String RECENTLY_USED_FILE_PATH = "./recently-used.txt";
 	private static final String CSS_PATH = "/stylesheets/DataSelect.css";
 
+	/**
+	 * Shows a data source's path and, below it, what is known about it
+	 */
+	private class DataSourceCell extends ListCell<DataSource> {
+		private final Label pathLabel = new Label();
+		private final Label detailsLabel = new Label();
+		private final VBox layout = new VBox(2, pathLabel, detailsLabel);
+
+		private DataSourceCell() {
+			detailsLabel.getStyleClass().add("details");
+		}
+
+		@Override
+		protected void updateItem(DataSource source, boolean empty) {
+			super.updateItem(source, empty);
+			if (empty || source == null) {
+				setGraphic(null);
+				return;
+			}
+
+			pathLabel.setText(source.getFile().getPath());
+			detailsLabel.setText((changedFiles.contains(source.getFile()) ? "Changed since last loaded. " : "")
+					+ describe(source));
+			setGraphic(layout);
+		}
+	}
+
 	/**
 	 * Creates a data selection stage.
 	 * 
@@ -57,19 +93,14 @@ public class DataSelectStage extends Stage {
 	 */
 	public DataSelectStage() {
 
-		// Create the recentFile if it does not already exist
-		recentFile = new File(RECENTLY_USED_FILE_PATH);
-		try {
-			recentFile.createNewFile();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		// Only the catalog is read, the files are checked once the stage is shown
+		DataSourceCatalog catalog = DataSourceCatalog.open();
 
 		// Set up Border Pane
 		BorderPane layout = new BorderPane();
 
 		// Set up Scene
-		scane = new Scene(layout, 400, 500);
+		scane = new Scene(layout, 480, 560);
 		scane.getStylesheets().add(CSS_PATH);
 
 		// Add label to the top of the BorderPanem through a GridPane so the
@@ -90,36 +121,44 @@ public class DataSelectStage extends Stage {
 		recentlyUsedLayout.getChildren().add(recentlyUsedLabel);
 
 		// Add recently used list view
-		ListView<File> recentlyUsedListView =
-				new ListView<File>(getRecentlyUsedFiles());
-		// Select the first item by default
-		recentlyUsedListView.getSelectionModel().select(0);
+		ListView<DataSource> recentlyUsedListView =
+				new ListView<DataSource>(FXCollections.observableArrayList(catalog.getSources()));
+		recentlyUsedListView.setCellFactory((ListView<DataSource> view) -> new DataSourceCell());
 		// Allow the user to select multiple files
 		recentlyUsedListView.getSelectionModel()
 				.setSelectionMode(SelectionMode.MULTIPLE);
 		// Add placeholder if the list is empty (otherwise the view becomes all white)
-		if (recentlyUsedListView.getItems().isEmpty()) {
-			recentlyUsedListView.getItems().add(new File(NO_RECENT_FILES_PLACEHOLDER));
-			recentlyUsedListView.setDisable(true);
-		}
+		recentlyUsedListView.setPlaceholder(new Label(NO_RECENT_FILES_PLACEHOLDER));
+		recentlyUsedListView.setDisable(recentlyUsedListView.getItems().isEmpty());
 		recentlyUsedLayout.getChildren().add(recentlyUsedListView);
 
+		// Add a summary of how large loading the selected sources will be
+		Label selectionLabel = new Label();
+		selectionLabel.getStyleClass().add("details");
+		recentlyUsedLayout.getChildren().add(selectionLabel);
+
 		// Add recently used button
 		Button selectRecentlyUsedButton = new Button("Open Selected");
 		// Add an action when the user presses the select recently used button
 		selectRecentlyUsedButton.setOnAction((ActionEvent) -> {
 			// Call the files selected event
-			if(fileSelectEventHandler != null)
-				fileSelectEventHandler.filesSelected(recentlyUsedListView
-						.getSelectionModel().getSelectedItems());
+			if(fileSelectEventHandler != null) {
+				List<File> files = new ArrayList<File>();
+				for (DataSource source : recentlyUsedListView.getSelectionModel().getSelectedItems())
+					files.add(source.getFile());
+				fileSelectEventHandler.filesSelected(files);
+			}
 		});
 		// Disable or enable the button based on whether or not the list of selected items isempty
 		// https://stackoverflow.com/questions/42168434/how-to-listen-for-a-selection-change-in-a-javafx-listview
 		recentlyUsedListView.getSelectionModel().getSelectedItems()
-				.addListener((Change<? extends File> e) -> {
+				.addListener((Change<? extends DataSource> e) -> {
 					// Disable the selection button if nothing was selected
 					selectRecentlyUsedButton.setDisable(e.getList().isEmpty());
+					selectionLabel.setText(describeSelection(e.getList()));
 				});
+		// Select the first item by default
+		recentlyUsedListView.getSelectionModel().select(0);
 		// Select button should be disabled by device
 		selectRecentlyUsedButton
 				.setDisable(recentlyUsedListView.getSelectionModel().isEmpty());
@@ -148,43 +187,115 @@ public class DataSelectStage extends Stage {
 		this.setTitle(TITLE);
 		this.setScene(scane);
 		this.setResizable(false);
+
+		// Check the files once shown, so opening the stage never waits on the disk
+		this.setOnShown((e) -> checkFiles(recentlyUsedListView));
 	}
-	
+
 	/**
-	 * Sets the on file select event handler
-	 * @param eventHandler A FileSelectEventHandler
+	 * Checks in the background whether the listed files still exist and are
+	 * unchanged. Missing files are removed from the list, and changed ones are
+	 * marked.
+	 * 
+	 * @param listView The list of data sources
 	 */
-	public void setOnFileSelect(FileSelectEventHandler eventHandler) {
-		this.fileSelectEventHandler = eventHandler;
+	private void checkFiles(ListView<DataSource> listView) {
+		List<DataSource> sources = new ArrayList<DataSource>(listView.getItems());
+		Task<List<DataSource>> checkTask = new Task<List<DataSource>>() {
+			@Override
+			protected List<DataSource> call() {
+				List<DataSource> stale = new ArrayList<DataSource>();
+				for (DataSource source : sources)
+					if (!source.getFile().exists() || (source.isKnown() && !source.isCurrent()))
+						stale.add(source);
+				return stale;
+			}
+		};
+
+		checkTask.setOnSucceeded((WorkerStateEvent e) -> {
+			for (DataSource source : checkTask.getValue()) {
+				if (source.getFile().exists())
+					changedFiles.add(source.getFile());
+				else
+					listView.getItems().remove(source);
+			}
+			listView.setDisable(listView.getItems().isEmpty());
+			listView.refresh();
+		});
+
+		Thread thread = new Thread(checkTask, "Data source check");
+		thread.setDaemon(true);
+		thread.start();
 	}
 
 	/**
-	 * Reads a list of files in from the recent file
+	 * Describes what is known about a data source
 	 * 
-	 * @return A list of files read in from the recent file
+	 * @param source The data source
+	 * @return a line describing its size, rows, farms and dates
 	 */
-	private ObservableList<File> getRecentlyUsedFiles() {
-		Scanner fileScanner;
-		ObservableList<File> fileList = FXCollections.observableArrayList();
-
-		try {
-			fileScanner = new Scanner(recentFile);
-
-			// Each file is its own line
-			while (fileScanner.hasNextLine()) {
-				// Create a file from each line
-				File recentlyUsed = new File(fileScanner.nextLine());
-				// Add the file, if it exists, the beginning of the list
-				if (recentlyUsed.exists())
-					fileList.add(0, recentlyUsed);
-			}
+	private static String describe(DataSource source) {
+		if (!source.isKnown())
+			return "Not loaded yet";
+
+		DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+		String description = String.format("%s, %,d rows, %,d farms", formatBytes(source.getSize()),
+				source.getRows(), source.getFarms());
+		if (source.getMinDate() != null)
+			description += ", " + dateFormat.format(source.getMinDate()) + " to "
+					+ dateFormat.format(source.getMaxDate());
+		if (source.getRejectedLines() > 0)
+			description += String.format(", %,d unreadable lines", source.getRejectedLines());
+		return description;
+	}
 
-			fileScanner.close();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
+	/**
+	 * Describes how large loading data sources will be
+	 * 
+	 * @param sources The selected data sources
+	 * @return a line with their total size and rows
+	 */
+	private static String describeSelection(List<? extends DataSource> sources) {
+		if (sources.isEmpty())
+			return "";
+
+		long bytes = 0;
+		long rows = 0;
+		int unknown = 0;
+		for (DataSource source : sources) {
+			if (!source.isKnown()) {
+				unknown++;
+				continue;
+			}
+			bytes += source.getSize();
+			rows += source.getRows();
 		}
 
-		return fileList;
+		String description = String.format("%d selected: %s, %,d rows", sources.size(), formatBytes(bytes), rows);
+		if (unknown > 0)
+			description += String.format(" (%d not loaded yet)", unknown);
+		return description;
+	}
+
+	/**
+	 * Formats a number of bytes in the largest unit it has one or more of
+	 */
+	private static String formatBytes(long bytes) {
+		if (bytes < 1024)
+			return bytes + " B";
+		if (bytes < 1024 * 1024)
+			return String.format("%.1f KB", bytes / 1024.0);
+		if (bytes < 1024L * 1024 * 1024)
+			return String.format("%.1f MB", bytes / (1024.0 * 1024));
+		return String.format("%.1f GB", bytes / (1024.0 * 1024 * 1024));
+	}
+	
+	/**
+	 * Sets the on file select event handler
+	 * @param eventHandler A FileSelectEventHandler
+	 */
+	public void setOnFileSelect(FileSelectEventHandler eventHandler) {
+		this.fileSelectEventHandler = eventHandler;
 	}
 
 	/**
@@ -207,21 +318,7 @@ public class DataSelectStage extends Stage {
 		if (fileList == null || fileList.isEmpty())
 			return;
 
-		// Write each file selected into the recent file
-		try {
-			// Open the recent file
-			BufferedWriter writer =
-					new BufferedWriter(new FileWriter(recentFile, true));
-
-			// Append each file's path into the recent file
-			for (File f : fileList)
-				writer.append(f.getAbsolutePath() + "\n");
-
-			// Close the recent file
-			writer.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		// The files are added to the catalog once they have been loaded
 
 		// Call the files selected event
 		if(fileSelectEventHandler != null)
@@ -0,0 +1,165 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.gui;
+
+import application.Main;
+import application.data.MilkData;
+import application.data.MilkDataChange;
+import application.metrics.Counter;
+import application.metrics.Histogram;
+import application.metrics.Metrics;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+/**
+ *
+ * DiagnosticsStage - A window showing the application's {@link Metrics}: how
+ * fast files were parsed, how many lines were rejected, and how long organizing
+ * the data, each report's query and each chart took. The numbers refresh every
+ * second while the window is open, and are also available through JMX. Below
+ * them, the estimated memory taken by the loaded data is shown, estimated again
+ * on the next refresh after entries are added to the data.
+ *
+ * @author A-Team 128
+ *
+ */
+public class DiagnosticsStage extends Stage {
+
+	private static final String TITLE = "Diagnostics";
+	private static final String[] COLUMNS = { "Metric", "Count", "Mean", "p50", "p90", "p99", "Max" };
+
+	private final Label ingestionLabel;
+	private final ObservableList<String[]> rows;
+	private final Timeline refreshTimeline;
+
+	private final MilkData data;
+	private final TextArea footprintArea;
+
+	// Whether entries were added since the footprint was estimated
+	private boolean footprintStale;
+
+	/**
+	 * Creates a diagnostics window. Note that this stage will not be shown unless
+	 * show() is called
+	 *
+	 * @param owner The window the diagnostics window belongs to
+	 * @param data  The loaded data, whose footprint is shown
+	 */
+	public DiagnosticsStage(Window owner, MilkData data) {
+		this.data = data;
+		ingestionLabel = new Label();
+		rows = FXCollections.observableArrayList();
+
+		// One column per statistic, each row holds the formatted values
+		TableView<String[]> table = new TableView<String[]>(rows);
+		for (int i = 0; i < COLUMNS.length; i++) {
+			int column = i;
+			TableColumn<String[], String> tableColumn = new TableColumn<String[], String>(COLUMNS[i]);
+			tableColumn.setCellValueFactory((cell) -> new ReadOnlyObjectWrapper<String>(cell.getValue()[column]));
+			tableColumn.setSortable(false);
+			tableColumn.setPrefWidth(i == 0 ? 200 : 80);
+			table.getColumns().add(tableColumn);
+		}
+
+		Label jmxLabel = new Label("Also exported through JMX under " + Metrics.JMX_DOMAIN);
+
+		// Estimating the footprint reads every entry, so it is only done again on a
+		// refresh after entries were added, however many batches were added
+		footprintArea = new TextArea(data.getFootprint().format());
+		footprintArea.setEditable(false);
+		footprintArea.setStyle("-fx-font-family: monospace;");
+		footprintArea.setPrefRowCount(13);
+
+		VBox layout = new VBox(10, ingestionLabel, table, jmxLabel, new Label("Memory footprint"), footprintArea);
+		layout.setStyle("-fx-padding: 15;");
+
+		refresh();
+
+		// Refresh while shown
+		refreshTimeline = new Timeline(new KeyFrame(Duration.seconds(1), (event) -> refresh()));
+		refreshTimeline.setCycleCount(Timeline.INDEFINITE);
+		this.setOnShown((event) -> {
+			refresh();
+			refreshTimeline.play();
+		});
+		this.setOnHidden((event) -> refreshTimeline.stop());
+
+		// Configure window
+		this.getIcons().addAll(Main.ICONS);
+		this.initOwner(owner);
+		this.setTitle(TITLE);
+		this.setScene(new Scene(layout, 740, 680));
+	}
+
+	/**
+	 * Notes that entries were added to the data, so the footprint shown is
+	 * estimated again on the next refresh. Must be called on the thread which
+	 * added the entries, as the estimate reads the data.
+	 *
+	 * @param change The entries added
+	 */
+	public void dataChanged(MilkDataChange change) {
+		footprintStale = true;
+	}
+
+	/**
+	 * Reads the metrics again, and estimates the footprint again if entries were
+	 * added
+	 */
+	private void refresh() {
+		if (footprintStale) {
+			footprintArea.setText(data.getFootprint().format());
+			footprintStale = false;
+		}
+
+		// Summarize ingestion
+		long parsed = Metrics.counter("ingest.lines.parsed").getCount();
+		long rejected = Metrics.counter("ingest.lines.rejected").getCount();
+		Histogram parseTime = Metrics.timer("ingest.file.parse");
+		double parseSeconds = parseTime.getMean() * parseTime.getCount() / 1e9;
+		long lines = parsed + rejected;
+
+		ingestionLabel.setText(String.format("%,d files read, %,d lines parsed at %,.0f rows/s, %,d rejected (%.3f%%)",
+				Metrics.counter("ingest.files.read").getCount(), parsed, parseSeconds > 0 ? lines / parseSeconds : 0,
+				rejected, lines > 0 ? 100.0 * rejected / lines : 0));
+
+		ObservableList<String[]> updated = FXCollections.observableArrayList();
+		for (Histogram histogram : Metrics.getHistograms())
+			updated.add(new String[] { histogram.getName(), String.format("%,d", histogram.getCount()),
+					format(histogram.getMean(), histogram.getUnit()),
+					format(histogram.get50thPercentile(), histogram.getUnit()),
+					format(histogram.get90thPercentile(), histogram.getUnit()),
+					format(histogram.get99thPercentile(), histogram.getUnit()),
+					format(histogram.getMax(), histogram.getUnit()) });
+		for (Counter counter : Metrics.getCounters())
+			updated.add(new String[] { counter.getName(), String.format("%,d", counter.getCount()), "", "", "", "",
+					"" });
+		rows.setAll(updated);
+	}
+
+	/**
+	 * Formats a value of a histogram, showing latencies in milliseconds
+	 */
+	private static String format(double value, String unit) {
+		if (unit.equals("ns"))
+			return String.format("%,.3f ms", value / 1e6);
+		return String.format("%,.0f %s", value, unit);
+	}
+
+}
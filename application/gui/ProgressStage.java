@@ -0,0 +1,77 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.gui;
+
+import application.Main;
+import javafx.concurrent.Task;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+/**
+ *
+ * ProgressStage - A small window showing the progress of a background task.
+ * The window closes itself once the task has finished.
+ *
+ * @author A-Team 128
+ *
+ */
+public class ProgressStage extends Stage {
+
+	private final Task<?> task;
+
+	/**
+	 * Creates a progress window for the specified task. Note that this stage
+	 * will not be shown unless start() is called
+	 *
+	 * @param owner The window the progress window belongs to
+	 * @param title The title of the window
+	 * @param task  The task to show the progress of
+	 */
+	public ProgressStage(Window owner, String title, Task<?> task) {
+		this.task = task;
+
+		// Show the task's message above a progress bar
+		Label messageLabel = new Label();
+		messageLabel.textProperty().bind(task.messageProperty());
+
+		ProgressBar progressBar = new ProgressBar();
+		progressBar.setMaxWidth(Double.MAX_VALUE);
+		progressBar.progressProperty().bind(task.progressProperty());
+
+		VBox layout = new VBox(10, messageLabel, progressBar);
+		layout.setStyle("-fx-padding: 15;");
+
+		// Close the window when the task is done, however it finished
+		task.runningProperty().addListener((observable, wasRunning, isRunning) -> {
+			if (!isRunning)
+				this.close();
+		});
+
+		// Configure window
+		this.getIcons().addAll(Main.ICONS);
+		this.initOwner(owner);
+		this.setTitle(title);
+		this.setScene(new Scene(layout, 350, 80));
+		this.setResizable(false);
+	}
+
+	/**
+	 * Runs the task on a new background thread and shows the progress window
+	 */
+	public void start() {
+		Thread thread = new Thread(task, getTitle());
+		thread.setDaemon(true);
+		thread.start();
+
+		this.show();
+	}
+
+}
@@ -35,21 +35,19 @@
 
 package application.gui.reports;
 
-import java.text.DecimalFormat;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
 import application.data.MilkData;
 import application.gui.DashboardStage;
+import application.io.ReportExport;
+import application.io.ReportFormat;
+import application.io.ReportWriter;
+import application.metrics.Histogram;
+import application.metrics.Metrics;
+import application.metrics.ReportComputationEvent;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
-import javafx.scene.control.TableColumn;
-import javafx.scene.control.TableView;
-import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.scene.chart.PieChart;
 import application.data.*;
 
@@ -60,74 +58,18 @@ import application.data.*;
  */
 public class AnnualReportPane extends ReportPane {
 
+  private static final Histogram QUERY_TIME = Metrics.timer("report.annual.query"); // Shown in diagnostics.
+
   // Global data fields:
+  private MilkData data; // The user's provided raw data, which may grow or be replaced while shown.
   private Integer selectedYear = null; // The user's selected year of data to consider.
-  private List<FarmTotal> farmTotals = null; // A list of individual total weights per farm.
-  private Double totalAnnualWeight = 0.0; // The sum of all farm weights in the selected year.
+  private FarmTotals farmTotals = null; // Individual total weights per farm.
 
   // Interface elements:
   private ComboBox<Integer> yearInput; // User's selected year of analysis.
   private Button applyButton; // Confirms user's desired inputs.
-
-  /**
-   * An inner class representing the amalgamation of individual weights per farm ID in the user's
-   * specified year.
-   * 
-   * @author Thiago S. Braga
-   *
-   */
-  public class FarmTotal {
-
-    private SimpleStringProperty farmID; // The identifying value of a farm.
-    private SimpleDoubleProperty totalFarmWeight; // Sum of all individual weights for the farm.
-
-    /**
-     * Constructor for creating a FarmTotal object.
-     * 
-     * @param farmID          - an value identifying a specific farm.
-     * @param totalFarmWeight - the sum of individual weights per farm in one specific year.
-     */
-    public FarmTotal(String farmID, Double totalFarmWeight) {
-      this.farmID = new SimpleStringProperty(farmID);
-      this.totalFarmWeight = new SimpleDoubleProperty(totalFarmWeight);
-    }
-
-    /**
-     * Necessary getter method for farmID field.
-     * 
-     * @return farmID.
-     */
-    public String getFarmID() {
-      return farmID.get();
-    }
-
-    /**
-     * Setter method for farmID field.
-     * 
-     * @param newID - the new ID to be set.
-     */
-    public void setFarmID(String newID) {
-      farmID.set(newID);
-    }
-
-    /**
-     * Necessary getter method for totalFarmWeight field.
-     * 
-     * @return totalFarmWeight.
-     */
-    public Double getTotalFarmWeight() {
-      return totalFarmWeight.get();
-    }
-
-    /**
-     * Setter method for totalFarmWeight.
-     * 
-     * @param newTotalWeight - the new weight to be set.
-     */
-    public void setTotalFarmWeight(Double newTotalWeight) {
-      totalFarmWeight.set(newTotalWeight);
-    }
-  }
+  private FarmTotalsTable table; // Total weight per farm.
+  private PieChart pieChart; // Percent of total weight per farm.
 
   /**
    * Constructor for the annual report pane.
@@ -140,6 +82,7 @@ public class AnnualReportPane extends ReportPane {
   public AnnualReportPane(MilkData data, DashboardStage stage) {
 
     super(data, stage); // Call ReportPane constructor.
+    this.data = data;
 
     // Construct left-hand menu pane.
     yearInput = new ComboBox<Integer>(FXCollections.observableArrayList(data.getValidYears()));
@@ -152,8 +95,20 @@ public class AnnualReportPane extends ReportPane {
     applyButton.setMaxWidth(Double.MAX_VALUE);
     optionsPane.getChildren().addAll(new Label("Year:"), yearInput, new Label(""), applyButton);
 
+    // Create the farm total table in the first column, first row of data display grid.
+    table = new FarmTotalsTable("Farm ID", "Total Weight", "% Total");
+    reportPane.add(table, 0, 0);
+
+    // Create pie chart object.
+    pieChart = new PieChart();
+    pieChart.setTitle("Percent of Total Weight");
+    PieChartSlices.fillCell(pieChart);
+
+    // Add pie chart to second column, first row of data display grid.
+    reportPane.add(pieChart, 1, 0);
+
     // Create event handling for apply button click.
-    applyButton.setOnAction(e -> updateResults(data));
+    applyButton.setOnAction(e -> updateResults(this.data));
     
     // Update from initial settings
     inputsUpdated();
@@ -176,148 +131,117 @@ public class AnnualReportPane extends ReportPane {
    * @param data  - unprocessed raw data.
    */
   private void updateResults(MilkData data) {
-
     selectedYear = yearInput.getValue(); // Obtain user's selection.
-
-    // Fetch individual data parameters from raw data.
-    List<String> farmIDList = data.getFarmIDs();
-    List<MilkEntry> annualData = data.getEntriesForYear(selectedYear);
-
-    // Create FarmTotal objects to represent total weights per farm.
-    farmTotals = createFarmTotals(farmIDList, annualData);
-
-    // Calculate total overall weight from individual farm weights.
-    for (FarmTotal farm : farmTotals)
-      totalAnnualWeight += farm.getTotalFarmWeight();
-
-    createTable(); // Build and display table of individual farm totals.
-
-    // Format pie chart data and display pie chart using FarmTotal objects.
-    ObservableList<PieChart.Data> pieChartData = getPieChartData(); 
-    displayPercentOfTotal(pieChartData);
+    showResults(data);
   }
 
   /**
-   * Calculates the total weight produced per farm in a given year from a list of individual farm
-   * IDs containing no duplicates and the parsed entries from data file.
+   * Method responsible for fetching the selected year's data and displaying its results.
    * 
-   * @param farmIDList - a list of farm IDs containing no duplicates
-   * @param entries    - individual entries parsed from user's data file.
-   * @return - a list of FarmTotal objects.
+   * @param data  - unprocessed raw data.
    */
-  private List<FarmTotal> createFarmTotals(List<String> farmIDList, List<MilkEntry> entries) {
-
-    // Create an array to store total weights during calculation.
-    double[] totalWeightArray = new double[farmIDList.size()];
-
-    // The indices of the totalWeightArray will correspond with the indices of individual
-    // farm IDs in the farmIDList.
-    // For each entry, add the weight to its appropriate index.
-    for (int i = 0; i < entries.size(); i++)
-      totalWeightArray[farmIDList.indexOf(entries.get(i).getFarmID())] +=
-          entries.get(i).getWeight();
-
-    farmTotals = new ArrayList<FarmTotal>(); // Initialize the farmTotals list.
-
-    // Create FarmTotal objects given a farm ID and total weight.
-    for (int i = 0; i < farmIDList.size(); i++)
-      farmTotals.add(new FarmTotal(farmIDList.get(i), totalWeightArray[i]));
-
-    return farmTotals;
+  private void showResults(MilkData data) {
+    ReportComputationEvent event = new ReportComputationEvent(); // Spans the update for JFR.
+    event.begin();
+
+    // Sum the weight columns of the year per farm, keeping farms without entries.
+    long queryStart = System.nanoTime();
+    farmTotals = data.getFarmTotals(selectedYear, true);
+    QUERY_TIME.recordSince(queryStart);
+
+    showTotals();
+
+    // The rows summed are only counted when the event is recorded.
+    event.finish("Annual", "year=" + selectedYear, () -> {
+      long rowsTouched = 0;
+      for (int month = 0; month < 12; month++)
+        rowsTouched += data.getEntriesForMonth(selectedYear, month).size();
+      return rowsTouched;
+    });
   }
 
   /**
-   * Helper method for creating and displaying table of farm weight totals.
+   * Method responsible for displaying the farm totals in the table and chart.
    */
-  @SuppressWarnings({"unchecked", "rawtypes"})
-  private void createTable() {
+  private void showTotals() {
+    table.setTotals(farmTotals); // Display table of individual farm totals.
 
-    ObservableList<FarmTotal> tableData = FXCollections.observableArrayList();
-    tableData.addAll(farmTotals);
-
-    // Create the farm total table.
-    TableView table = new TableView();
-
-    // Ensure columns fill entire table
-    table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
-
-    // Establish identifier column.
-    TableColumn farmIDColumn = new TableColumn("Farm ID");
-    farmIDColumn.setCellValueFactory(new PropertyValueFactory<FarmTotal, String>("farmID"));
-
-    // Establish data column.
-    TableColumn totalFarmWeightColumn = new TableColumn("Total Weight");
-    totalFarmWeightColumn
-        .setCellValueFactory(new PropertyValueFactory<FarmTotal, String>("totalFarmWeight"));
-
-    table.setItems(tableData); // Load the data.
-    table.getColumns().setAll(farmIDColumn, totalFarmWeightColumn); // Add columns to table.
-
-    reportPane.add(table, 0, 0);
+    // Only the largest farms are given their own slice, the rest are folded into an "Other" slice.
+    PieChartSlices.show(pieChart, farmTotals.getFarmIDs(), getPercents());
   }
 
   /**
-   * Helper method for creating and displaying pie chart of weight percentages.
+   * Adds any new years to the year input, and adds the weights added to the selected year to the
+   * farm totals shown.
    * 
-   * @param pieChartData - percent of total data ready to be displayed.
+   * @param change - the entries added to the data.
    */
-  private void displayPercentOfTotal(ObservableList<PieChart.Data> pieChartData) {
-
-    // Create pie chart object.
-    PieChart pieChart = new PieChart(pieChartData);
-    pieChart.setTitle("Percent of Total Weight");
-    pieChart.setMaxWidth(325);
+  @Override
+  public void dataChanged(MilkDataChange change) {
+    if (change.hasAddedMonths()) {
+      addChoices(yearInput.getItems(), data.getValidYears());
+      inputsUpdated();
+    }
 
-    // Add pie chart to second column, first row of data display grid.
-    reportPane.add(pieChart, 1, 0);
+    // Every farm has a row, so new farms are added even without entries in the year.
+    if (selectedYear != null
+        && (change.hasEntries(selectedYear) || !change.getAddedFarmIDs().isEmpty())) {
+      farmTotals = farmTotals.plus(data.getFarmIDs(), change.getFarmWeights(selectedYear), true);
+      showTotals();
+    }
   }
 
   /**
-   * Helper method for processing raw milk data for a pie chart.
+   * Shows the selected year of the new data, or its first year if it has no entries in the
+   * selected year.
    * 
-   * @return data ready to be displayed in pie chart.
+   * @param data - the data now shown.
    */
-  private ObservableList<PieChart.Data> getPieChartData() {
-
-    // Create data collection object.
-    ObservableList<PieChart.Data> pieChartData = FXCollections.observableArrayList();
-
-    for (int i = 0; i < farmTotals.size(); i++)
-      pieChartData.add(new PieChart.Data(farmTotals.get(i).getFarmID(),
-          getPercentOfTotal(farmTotals.get(i).getTotalFarmWeight())));
+  @Override
+  public void dataReplaced(MilkData data) {
+    this.data = data;
+    setChoices(yearInput, data.getValidYears());
+    inputsUpdated();
 
-    return pieChartData;
+    if (selectedYear == null || !data.getValidYears().contains(selectedYear))
+      selectedYear = yearInput.getValue();
+    if (selectedYear != null)
+      showResults(data);
   }
 
   /**
-   * A private helper method that calculates the percentage of a given year's total annual weight
-   * attributable to an individual farm.
+   * A private helper method that calculates the percentage of the selected year's total annual
+   * weight attributable to each farm.
    * 
-   * @param farmWeight - the individual farm's total annual weight.
-   * @return - the percent of total weight attributable to the individual farm.
+   * @return - the percent of total weight attributable to each farm, in farm order.
    */
-  private Double getPercentOfTotal(Double farmWeight) {
-    return (farmWeight / totalAnnualWeight) * 100;
+  private double[] getPercents() {
+    double[] percents = new double[farmTotals.size()];
+    for (int i = 0; i < percents.length; i++)
+      percents[i] = farmTotals.getPercent(i);
+    return percents;
   }
 
   /**
-   * Creates an contiguous String to be printed to .csv file.
+   * Creates an export of the selected year's farm totals to be written to .csv file.
    * 
    * Format: farmID,totalFarmWeight,percentOfTotal
    */
   @Override
-  public String getTextReport() {
+  public ReportExport getReportExport() {
 
-    // Conventionally reported percent format.
-    DecimalFormat hundredths = new DecimalFormat("###.##");
+    FarmTotals totals = farmTotals; // The totals at the time of export.
 
-    StringBuilder report = new StringBuilder("Farm ID,Total Weight,Percent of Total Weight\n");
-    for (FarmTotal entry : farmTotals) {
-      report.append(entry.getFarmID()).append(",");
-      report.append(entry.getTotalFarmWeight()).append(",");
-      report.append(hundredths.format(getPercentOfTotal(entry.getTotalFarmWeight().doubleValue())))
-          .append("\n");
-    }
-    return report.toString();
+    return new ReportExport() {
+      @Override
+      public long getRowCount() {
+        return totals.size() + 1;
+      }
+
+      @Override
+      public void write(ReportWriter writer) throws IOException {
+        ReportFormat.writeAnnualReport(writer, totals);
+      }
+    };
   }
 }
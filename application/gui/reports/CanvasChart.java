@@ -0,0 +1,253 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.gui.reports;
+
+import java.util.Arrays;
+import java.util.List;
+
+import application.metrics.Histogram;
+import application.metrics.Metrics;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
+
+/**
+ *
+ * CanvasChart - A lightweight bar chart drawn onto a single Canvas. Unlike the
+ * charts in javafx.scene.chart, no Node is created per data point, so it can
+ * display many thousands of points, such as the days of a long date range.
+ * Points are drawn in the order given, so it suits series ordered by time;
+ * shares of a total are shown as a pie chart by PieChartSlices. When there are
+ * more points than pixel columns, each column draws the largest point that
+ * falls into it. When there are fewer, each point is drawn across its share of
+ * the columns.
+ *
+ * @author A-Team 128
+ *
+ */
+public class CanvasChart extends Pane {
+
+	// Space reserved around the plot area
+	private static final double TITLE_HEIGHT = 30;
+	private static final double AXIS_WIDTH = 50;
+	private static final double PADDING = 10;
+
+	private static final Color BAR_COLOR = Color.web("#f3622d");
+	private static final Color HIGHLIGHT_COLOR = Color.web("#41a9c9");
+	private static final Color AXIS_COLOR = Color.GRAY;
+
+	// Time taken to draw the chart, shown in the diagnostics view
+	private static final Histogram RENDER_TIME = Metrics.timer("chart.canvas.render");
+
+	private final Canvas canvas;
+	private final Tooltip tooltip;
+	private String title;
+
+	// The data currently shown
+	private List<String> labels;
+	private double[] values;
+	private double maxValue;
+
+	// Index of the point drawn in each pixel column of the plot area, -1 if none
+	private int[] columnPoints;
+	private int highlightedColumn;
+
+	/**
+	 * Creates an empty chart of the specified size
+	 *
+	 * @param title  The title shown above the chart
+	 * @param width  The width of the chart
+	 * @param height The height of the chart
+	 */
+	public CanvasChart(String title, double width, double height) {
+		this.title = title;
+		this.canvas = new Canvas(width, height);
+		this.tooltip = new Tooltip();
+		this.columnPoints = new int[0];
+		this.highlightedColumn = -1;
+
+		this.getChildren().add(canvas);
+		this.setMaxSize(width, height);
+
+		// Hit-test the hovered pixel column against the point drawn there
+		canvas.setOnMouseMoved((MouseEvent e) -> hover(e));
+		canvas.setOnMouseExited((MouseEvent e) -> {
+			tooltip.hide();
+			highlight(-1);
+		});
+
+		draw();
+	}
+
+	/**
+	 * Sets the data shown in the chart and redraws it
+	 *
+	 * @param labels The label of each point, shown in its tooltip
+	 * @param values The value of each point, index-aligned with the labels
+	 */
+	public void setData(List<String> labels, double[] values) {
+		this.labels = labels;
+		this.values = values;
+
+		maxValue = 0;
+		for (int i = 0; i < labels.size(); i++)
+			maxValue = Math.max(maxValue, values[i]);
+
+		highlightedColumn = -1;
+		bin();
+		draw();
+	}
+
+	/**
+	 * Sets the title shown above the chart
+	 *
+	 * @param title The title of the chart
+	 */
+	public void setTitle(String title) {
+		this.title = title;
+		draw();
+	}
+
+	/**
+	 * Maps every point to a pixel column of the plot area, keeping the largest
+	 * point of each column. This is the only step that touches every point.
+	 */
+	private void bin() {
+		int columns = Math.max(0, (int) plotWidth());
+		columnPoints = new int[columns];
+		Arrays.fill(columnPoints, -1);
+
+		int count = labels == null ? 0 : labels.size();
+		if (count == 0 || columns == 0)
+			return;
+
+		// Fewer points than columns, each point fills its columns but the last,
+		// which is left as a gap between bars
+		if (count < columns) {
+			for (int i = 0; i < count; i++) {
+				int from = (int) ((long) i * columns / count);
+				int to = (int) ((long) (i + 1) * columns / count);
+				Arrays.fill(columnPoints, from, to - from > 2 ? to - 1 : to, i);
+			}
+			return;
+		}
+
+		for (int i = 0; i < count; i++) {
+			int column = (int) ((long) i * columns / count);
+			if (columnPoints[column] == -1 || values[i] > values[columnPoints[column]])
+				columnPoints[column] = i;
+		}
+	}
+
+	/**
+	 * Draws the chart. The cost depends on the width of the chart, not on the
+	 * number of points.
+	 */
+	private void draw() {
+		long renderStart = System.nanoTime();
+		try {
+			drawChart();
+		} finally {
+			RENDER_TIME.recordSince(renderStart);
+		}
+	}
+
+	/**
+	 * Issues the drawing commands of the chart
+	 */
+	private void drawChart() {
+		GraphicsContext g = canvas.getGraphicsContext2D();
+		double width = canvas.getWidth();
+		double height = canvas.getHeight();
+
+		g.clearRect(0, 0, width, height);
+
+		// Title
+		g.setFill(Color.BLACK);
+		g.setTextAlign(TextAlignment.CENTER);
+		g.setTextBaseline(VPos.CENTER);
+		g.fillText(title, width / 2, TITLE_HEIGHT / 2);
+
+		double left = AXIS_WIDTH;
+		double bottom = height - PADDING;
+		double plotHeight = bottom - TITLE_HEIGHT;
+
+		// Axes
+		g.setStroke(AXIS_COLOR);
+		g.strokeLine(left, TITLE_HEIGHT, left, bottom);
+		g.strokeLine(left, bottom, width - PADDING, bottom);
+
+		// Axis label for the largest value
+		g.setFill(AXIS_COLOR);
+		g.setTextAlign(TextAlignment.RIGHT);
+		g.fillText(String.format("%,.0f", maxValue), left - 4, TITLE_HEIGHT);
+
+		if (maxValue <= 0)
+			return;
+
+		// One bar (one pixel wide) per column, a point spanning several columns is
+		// highlighted in all of them
+		int highlightedPoint = highlightedColumn == -1 ? -1 : columnPoints[highlightedColumn];
+		for (int column = 0; column < columnPoints.length; column++) {
+			int point = columnPoints[column];
+			if (point == -1)
+				continue;
+
+			double barHeight = values[point] / maxValue * plotHeight;
+			g.setFill(point == highlightedPoint ? HIGHLIGHT_COLOR : BAR_COLOR);
+			g.fillRect(left + column, bottom - barHeight, 1, barHeight);
+		}
+	}
+
+	/**
+	 * Shows the tooltip of the point drawn in the hovered column, if any
+	 *
+	 * @param e The mouse event
+	 */
+	private void hover(MouseEvent e) {
+		int column = (int) (e.getX() - AXIS_WIDTH);
+
+		if (column < 0 || column >= columnPoints.length || columnPoints[column] == -1) {
+			tooltip.hide();
+			highlight(-1);
+			return;
+		}
+
+		int point = columnPoints[column];
+		tooltip.setText(String.format("%s: %,.2f", labels.get(point), values[point]));
+		tooltip.show(canvas, e.getScreenX() + 10, e.getScreenY() + 10);
+		highlight(column);
+	}
+
+	/**
+	 * Highlights the bar in the specified column
+	 *
+	 * @param column The column to highlight, -1 for none
+	 */
+	private void highlight(int column) {
+		if (column == highlightedColumn)
+			return;
+		highlightedColumn = column;
+		draw();
+	}
+
+	/**
+	 * Returns the width of the area bars are drawn in
+	 *
+	 * @return the width of the plot area
+	 */
+	private double plotWidth() {
+		return canvas.getWidth() - AXIS_WIDTH - PADDING;
+	}
+
+}
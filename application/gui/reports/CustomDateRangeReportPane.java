@@ -5,20 +5,23 @@
 
 package application.gui.reports;
 
+import application.data.FarmTotals;
 import application.data.MilkData;
-import application.data.MilkEntry;
+import application.data.MilkDataChange;
 import application.gui.DashboardStage;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.collections.FXCollections;
+import application.io.ReportExport;
+import application.io.ReportFormat;
+import application.io.ReportWriter;
+import application.metrics.Histogram;
+import application.metrics.Metrics;
+import application.metrics.ReportComputationEvent;
 import javafx.scene.chart.PieChart;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 
+import java.io.IOException;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.Hashtable;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -27,46 +30,18 @@ import java.util.List;
  * @author Joshua Faessler (faessler, 2020)
  */
 public class CustomDateRangeReportPane extends ReportPane {
+	private static final Histogram QUERY_TIME = Metrics.timer("report.range.query"); // Shown in diagnostics
+
 	private final DatePicker startPicker;
 	private final DatePicker endPicker;
 	private final Label invalidLabel;
 	private final Button applyButton;
-	private final TableView<DisplayEntry> dataTable;
+	private final FarmTotalsTable dataTable;
 	private final PieChart pieChart;
 
 	private MilkData data;
-
-	/**
-	 * Entries in the data table for TableView
-	 */
-	public class DisplayEntry { // needs to be public for access by javafx
-		private final SimpleStringProperty farm;
-		private final SimpleIntegerProperty weight;
-		private final SimpleDoubleProperty percentage;
-
-		DisplayEntry(String farm, int totalWeight, double percentage) {
-			this.farm = new SimpleStringProperty(farm);
-			this.weight = new SimpleIntegerProperty(totalWeight);
-
-			// Round percentage
-			percentage = Math.round(percentage * 1000) / 1000.0d;
-			
-			this.percentage = new SimpleDoubleProperty(percentage);
-		}
-
-		// Methods required by TableView
-		public SimpleStringProperty farmProperty() {
-			return farm;
-		}
-
-		public SimpleIntegerProperty weightProperty() {
-			return weight;
-		}
-
-		public SimpleDoubleProperty percentageProperty() {
-			return percentage;
-		}
-	}
+	private LocalDate appliedStart; // Range of the report shown
+	private LocalDate appliedEnd;
 
 	/**
 	 * Constructor that builds GUI
@@ -74,7 +49,6 @@ public class CustomDateRangeReportPane extends ReportPane {
 	 * @param data  MilkData from loaded file(s)
 	 * @param stage The current stage
 	 */
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public CustomDateRangeReportPane(MilkData data, DashboardStage stage) {
 		super(data, stage);
 		this.data = data;
@@ -93,23 +67,12 @@ public class CustomDateRangeReportPane extends ReportPane {
 		validRange(); // Run valid range once with default values to set invalidLabel and applyButton
 
 		// Build data table
-		dataTable = new TableView<>();
-		// Make columns fill space
-		dataTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
-		// Create and name columns
-		TableColumn<DisplayEntry, String> farmColumn = new TableColumn<>("Farm");
-		TableColumn<DisplayEntry, String> weightColumn = new TableColumn<>("Total Wt.");
-		TableColumn<DisplayEntry, String> percentColumn = new TableColumn<>("% Total");
-		// Set columns to their data
-		farmColumn.setCellValueFactory(new PropertyValueFactory("farm"));
-		weightColumn.setCellValueFactory(new PropertyValueFactory("weight"));
-		percentColumn.setCellValueFactory(new PropertyValueFactory("percentage"));
-		dataTable.getColumns().setAll(farmColumn, weightColumn, percentColumn);
+		dataTable = new FarmTotalsTable("Farm", "Total Wt.", "% Total");
 
 		// Build pie chart
 		pieChart = new PieChart();
 		pieChart.setTitle("Total Weights of All Farms");
-		pieChart.setMaxWidth(325);
+		PieChartSlices.fillCell(pieChart);
 
 		// Add all components
 		optionsPane.getChildren().add(new Label("Start Date"));
@@ -154,55 +117,96 @@ public class CustomDateRangeReportPane extends ReportPane {
 	 * Displays the data according to the entered date range
 	 */
 	private void applyRange() {
+		appliedStart = startPicker.getValue();
+		appliedEnd = endPicker.getValue();
+		showRange();
+	}
+
+	/**
+	 * Displays the data of the date range last applied
+	 */
+	private void showRange() {
+		ReportComputationEvent event = new ReportComputationEvent(); // spans the update for JFR
+		event.begin();
+
 		// Uses java.sql.Date to convert java.time.localDate to java.util.Date
-		List<MilkEntry> entries = data.getEntriesForDateRange(java.sql.Date.valueOf(startPicker.getValue()),
-				java.sql.Date.valueOf(endPicker.getValue()));
-
-		// Get list of weights, as well as total production
-		Hashtable<String, Integer> farmWeights = new Hashtable<>();
-		double total = 0;
-		for (MilkEntry entry : entries) {
-			int previous = 0;
-			String id = entry.getFarmID();
-			if (farmWeights.containsKey(id)) // add the previous value if it exists
-				previous = farmWeights.get(id);
-			farmWeights.put(id, entry.getWeight() + previous);
-			total += entry.getWeight();
-		}
+		long queryStart = System.nanoTime();
+		Date start = java.sql.Date.valueOf(appliedStart);
+		Date end = java.sql.Date.valueOf(appliedEnd);
 
-		ArrayList<DisplayEntry> tableData = new ArrayList<>();
-		ArrayList<PieChart.Data> percentageData = new ArrayList<>();
+		// Get weights of the farms in the date range, as well as total production
+		FarmTotals farmWeights = data.getFarmTotals(start, end, false);
+		QUERY_TIME.recordSince(queryStart);
 
-		for (String id : data.getFarmIDs()) {
-			// Only add if farm id is in the date range
-			if (!farmWeights.containsKey(id))
-				continue;
-			double weight = farmWeights.get(id).doubleValue();
-			tableData.add(new DisplayEntry(id, farmWeights.get(id), (weight / total) * 100));
-			percentageData.add(new PieChart.Data(id, weight));
-		}
+		showTotals(farmWeights);
+
+		// The rows summed are only counted when the event is recorded
+		event.finish("Custom Date Range", "start=" + appliedStart + ", end=" + appliedEnd,
+				() -> data.getEntryCursor(null, start, end).size());
+	}
+
+	/**
+	 * Displays the weights of the farms in the date range last applied
+	 *
+	 * @param farmWeights The total weight of the farms with entries in the range
+	 */
+	private void showTotals(FarmTotals farmWeights) {
+		double[] sliceWeights = new double[farmWeights.size()];
+		for (int i = 0; i < farmWeights.size(); i++)
+			sliceWeights[i] = farmWeights.getTotal(i);
 
 		// set data table
 		dataTable.setVisible(true);
-		dataTable.setItems(FXCollections.observableArrayList(tableData));
+		dataTable.setTotals(farmWeights);
 
-		// set pie chart
-		pieChart.setData(FXCollections.observableArrayList(percentageData));
+		// set pie chart, folding all but the largest farms into an "Other" slice
+		PieChartSlices.show(pieChart, farmWeights.getFarmIDs(), sliceWeights);
 		pieChart.setVisible(true); // Some sort of rendering issue if setVisible is earlier in this method
 	}
 
 	/**
-	 * @return a string used to generate a text report of the processed data
+	 * Adds the weights added to the date range to the farm totals shown
+	 *
+	 * @param change The entries added to the data
 	 */
 	@Override
-	public String getTextReport() {
-		StringBuilder report = new StringBuilder("Farm ID,Total Weight,Percent of Total Weight\n");
-		for (DisplayEntry entry : dataTable.getItems()) {
-			report.append(entry.farm.getValue()).append(",");
-			report.append(entry.weight.getValue()).append(",");
-			report.append(entry.percentage.getValue()).append("\n");
-		}
-		return report.toString();
+	public void dataChanged(MilkDataChange change) {
+		HashMap<String, Long> weights = change.getFarmWeights(java.sql.Date.valueOf(appliedStart),
+				java.sql.Date.valueOf(appliedEnd));
+		if (!weights.isEmpty())
+			showTotals(dataTable.getTotals().plus(data.getFarmIDs(), weights, false));
+	}
+
+	/**
+	 * Shows the date range last applied from the new data
+	 *
+	 * @param data The data now shown
+	 */
+	@Override
+	public void dataReplaced(MilkData data) {
+		this.data = data;
+		showRange();
+	}
+
+	/**
+	 * @return an export used to generate a text report of the processed data
+	 */
+	@Override
+	public ReportExport getReportExport() {
+		FarmTotals farmWeights = dataTable.getTotals();
+		int[] rows = dataTable.getDisplayedRows();
+
+		return new ReportExport() {
+			@Override
+			public long getRowCount() {
+				return rows.length + 1;
+			}
+
+			@Override
+			public void write(ReportWriter writer) throws IOException {
+				ReportFormat.writeFarmShareReport(writer, farmWeights, rows);
+			}
+		};
 	}
 
 }
@@ -0,0 +1,241 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.gui.reports;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.List;
+
+import application.data.MilkData;
+import application.data.MilkDataChange;
+import application.gui.DashboardStage;
+import application.io.ReportExport;
+import application.io.ReportFormat;
+import application.io.ReportWriter;
+import application.metrics.Histogram;
+import application.metrics.Metrics;
+import application.metrics.ReportComputationEvent;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
+
+/**
+ *
+ * DailyWeeklyReportPane - Charts the weight of each day or ISO week of a date
+ * range, for a farm or all farms. The weights are read from the day buckets
+ * MilkData keeps as entries are added, so no entries are read however long the
+ * range is, and the chart draws any number of days.
+ *
+ * @author A-Team 128
+ *
+ */
+public class DailyWeeklyReportPane extends ReportPane {
+
+	private static final String DAILY = "Daily";
+	private static final String WEEKLY = "Weekly";
+
+	// Time taken to read the weights from the buckets, shown in the diagnostics view
+	private static final Histogram QUERY_TIME = Metrics.timer("report.period.query");
+
+	private final CheckBox allFarmsCheck;
+	private final FarmSearchBox farmSelect;
+	private final ComboBox<String> granularitySelect;
+	private final DatePicker startPicker;
+	private final DatePicker endPicker;
+	private final Button applyButton;
+	private final Label totalLabel;
+	private final CanvasChart chart;
+
+	private MilkData data;
+
+	// Query of the weights shown
+	private String appliedFarmID;
+	private boolean appliedWeekly;
+	private LocalDate appliedStart;
+	private LocalDate appliedEnd;
+
+	// The weights shown, and the label of each day or week
+	private List<String> periods;
+	private long[] weights;
+
+	/**
+	 * Constructor that builds the GUI
+	 *
+	 * @param data  MilkData from loaded file(s)
+	 * @param stage The current stage
+	 */
+	public DailyWeeklyReportPane(MilkData data, DashboardStage stage) {
+		super(data, stage);
+		this.data = data;
+
+		List<Integer> validYears = data.getValidYears();
+
+		// Show all farms by default, the search box selects a single farm otherwise
+		allFarmsCheck = new CheckBox("All Farms");
+		allFarmsCheck.setSelected(true);
+		farmSelect = new FarmSearchBox(data.getFarmIndex());
+		farmSelect.setMaxWidth(Double.MAX_VALUE);
+		farmSelect.disableProperty().bind(allFarmsCheck.selectedProperty());
+
+		granularitySelect = new ComboBox<String>();
+		granularitySelect.getItems().addAll(DAILY, WEEKLY);
+		granularitySelect.setValue(DAILY);
+		granularitySelect.setMaxWidth(Double.MAX_VALUE);
+
+		// Default to the range from the beginning of the first year to the end of the
+		// last year
+		startPicker = new DatePicker(LocalDate.of(validYears.get(0), 1, 1));
+		startPicker.setMaxWidth(Double.MAX_VALUE);
+		endPicker = new DatePicker(LocalDate.of(validYears.get(validYears.size() - 1), 12, 31));
+		endPicker.setMaxWidth(Double.MAX_VALUE);
+
+		applyButton = new Button("Apply");
+		applyButton.setMaxWidth(Double.MAX_VALUE);
+		totalLabel = new Label();
+
+		chart = new CanvasChart("", 560, 440);
+
+		// Add all components
+		optionsPane.getChildren().addAll(new Label("Farm ID:"), allFarmsCheck, farmSelect);
+		optionsPane.getChildren().addAll(new Label("Granularity:"), granularitySelect);
+		optionsPane.getChildren().addAll(new Label("Start Date:"), startPicker);
+		optionsPane.getChildren().addAll(new Label("End Date:"), endPicker);
+		optionsPane.getChildren().addAll(new Label(""), applyButton, totalLabel);
+		reportPane.add(chart, 0, 0);
+
+		// Set up event listeners
+		startPicker.setOnAction(e -> validRange());
+		endPicker.setOnAction(e -> validRange());
+		allFarmsCheck.setOnAction(e -> validRange());
+		farmSelect.setOnSelectionChanged(() -> validRange());
+		applyButton.setOnAction(e -> applyQuery());
+
+		// Show the weights for the default values
+		validRange();
+		applyQuery();
+	}
+
+	/**
+	 * Only allows the apply button to be pressed when a valid date range and a
+	 * farm (or all farms) are selected
+	 */
+	private void validRange() {
+		applyButton.setDisable(startPicker.getValue() == null || endPicker.getValue() == null
+				|| endPicker.getValue().isBefore(startPicker.getValue())
+				|| (!allFarmsCheck.isSelected() && farmSelect.getValue() == null));
+	}
+
+	/**
+	 * Shows the weights for the selected farm, granularity and date range
+	 */
+	private void applyQuery() {
+		appliedFarmID = allFarmsCheck.isSelected() ? null : farmSelect.getValue();
+		appliedWeekly = WEEKLY.equals(granularitySelect.getValue());
+		appliedStart = startPicker.getValue();
+		appliedEnd = endPicker.getValue();
+		showReport();
+	}
+
+	/**
+	 * Shows the weights for the farm, granularity and date range last applied
+	 */
+	private void showReport() {
+		ReportComputationEvent event = new ReportComputationEvent(); // spans the update for JFR
+		event.begin();
+
+		long queryStart = System.nanoTime();
+		if (appliedWeekly)
+			weights = data.getWeeklyWeights(appliedFarmID, appliedStart, appliedEnd);
+		else
+			weights = data.getDailyWeights(appliedFarmID, appliedStart, appliedEnd);
+		QUERY_TIME.recordSince(queryStart);
+
+		// Label each day with its date, and each week with its ISO week
+		periods = new ArrayList<String>(weights.length);
+		LocalDate first = appliedWeekly ? MilkData.getWeekStart(appliedStart) : appliedStart;
+		for (int i = 0; i < weights.length; i++) {
+			if (appliedWeekly) {
+				LocalDate week = first.plusWeeks(i);
+				periods.add(String.format("%d-W%02d", week.get(IsoFields.WEEK_BASED_YEAR),
+						week.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR)));
+			} else {
+				periods.add(first.plusDays(i).toString());
+			}
+		}
+
+		long total = 0;
+		double[] values = new double[weights.length];
+		for (int i = 0; i < weights.length; i++) {
+			values[i] = weights[i];
+			total += weights[i];
+		}
+
+		String farm = appliedFarmID == null ? "All Farms" : appliedFarmID;
+		chart.setTitle((appliedWeekly ? WEEKLY : DAILY) + " Weight of " + farm);
+		chart.setData(periods, values);
+		totalLabel.setText(String.format("Total Weight: %,d", total));
+
+		// The weights are read from the day buckets, not from the entries
+		event.finish("Daily/Weekly", "farm=" + farm + ", granularity=" + (appliedWeekly ? WEEKLY : DAILY)
+				+ ", start=" + appliedStart + ", end=" + appliedEnd, 0);
+	}
+
+	/**
+	 * Adds any new farms to the search box, and reads the weights shown from the
+	 * day buckets again, which the change's entries were added to
+	 *
+	 * @param change The entries added to the data
+	 */
+	@Override
+	public void dataChanged(MilkDataChange change) {
+		if (!change.getAddedFarmIDs().isEmpty())
+			farmSelect.setIndex(data.getFarmIndex());
+		showReport();
+	}
+
+	/**
+	 * Adds the new data's farms to the search box, and shows the weights of the
+	 * query last applied from the new data
+	 *
+	 * @param data The data now shown
+	 */
+	@Override
+	public void dataReplaced(MilkData data) {
+		this.data = data;
+		farmSelect.setIndex(data.getFarmIndex());
+		showReport();
+	}
+
+	/**
+	 * Generates an export of the weights currently shown
+	 *
+	 * Format: period,weight for each day or week, then farm,total
+	 */
+	@Override
+	public ReportExport getReportExport() {
+		List<String> labels = periods;
+		long[] values = weights;
+		String farm = appliedFarmID == null ? "All Farms" : appliedFarmID;
+
+		return new ReportExport() {
+			@Override
+			public long getRowCount() {
+				return values.length + 2;
+			}
+
+			@Override
+			public void write(ReportWriter writer) throws IOException {
+				ReportFormat.writePeriodReport(writer, farm, labels, values);
+			}
+		};
+	}
+
+}
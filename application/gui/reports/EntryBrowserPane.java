@@ -0,0 +1,283 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.gui.reports;
+
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.List;
+
+import application.data.EntryCursor;
+import application.data.EntryCursor.Ordering;
+import application.data.MilkData;
+import application.data.MilkDataChange;
+import application.data.MilkEntry;
+import application.gui.DashboardStage;
+import application.io.ReportExport;
+import application.io.ReportWriter;
+import application.metrics.Histogram;
+import application.metrics.Metrics;
+import application.metrics.ReportComputationEvent;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableColumn.SortType;
+import javafx.scene.control.TableView;
+
+/**
+ *
+ * EntryBrowserPane - Displays the raw entries for a farm (or all farms) in a
+ * date range. The table is backed by a {@link PagedEntryList}, so only the rows
+ * around the visible window are ever fetched, and column sorting reads the
+ * cursor's precomputed orderings instead of sorting the rows.
+ *
+ * @author A-Team 128
+ *
+ */
+public class EntryBrowserPane extends ReportPane {
+
+	// Number of entries read from the cursor at a time when exporting
+	private static final int EXPORT_PAGE_SIZE = 4096;
+
+	// Time taken to open a cursor over the entries, shown in the diagnostics view
+	private static final Histogram QUERY_TIME = Metrics.timer("report.entries.query");
+
+	private final CheckBox allFarmsCheck;
+	private final FarmSearchBox farmSelect;
+	private final DatePicker startPicker;
+	private final DatePicker endPicker;
+	private final Button applyButton;
+	private final Label rowCountLabel;
+	private final TableView<MilkEntry> table;
+	private final TableColumn<MilkEntry, String> dateColumn;
+	private final TableColumn<MilkEntry, String> farmColumn;
+	private final TableColumn<MilkEntry, Integer> weightColumn;
+
+	private final DateFormat dateFormat;
+	private MilkData data;
+	private PagedEntryList entries;
+
+	// Query of the entries shown
+	private String appliedFarmID;
+	private LocalDate appliedStart;
+	private LocalDate appliedEnd;
+
+	/**
+	 * Constructor that builds the GUI
+	 *
+	 * @param data  MilkData from loaded file(s)
+	 * @param stage The current stage
+	 */
+	@SuppressWarnings("unchecked")
+	public EntryBrowserPane(MilkData data, DashboardStage stage) {
+		super(data, stage);
+		this.data = data;
+		this.dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+
+		List<Integer> validYears = data.getValidYears();
+
+		// Show all farms by default, the search box selects a single farm otherwise
+		allFarmsCheck = new CheckBox("All Farms");
+		allFarmsCheck.setSelected(true);
+		farmSelect = new FarmSearchBox(data.getFarmIndex());
+		farmSelect.setMaxWidth(Double.MAX_VALUE);
+		farmSelect.disableProperty().bind(allFarmsCheck.selectedProperty());
+
+		// Default to the range from the beginning of the first year to the end of the
+		// last year
+		startPicker = new DatePicker(LocalDate.of(validYears.get(0), 1, 1));
+		startPicker.setMaxWidth(Double.MAX_VALUE);
+		endPicker = new DatePicker(LocalDate.of(validYears.get(validYears.size() - 1), 12, 31));
+		endPicker.setMaxWidth(Double.MAX_VALUE);
+
+		applyButton = new Button("Apply");
+		applyButton.setMaxWidth(Double.MAX_VALUE);
+		rowCountLabel = new Label();
+
+		// Build the table. Cell values are read directly from the entries rather than
+		// through reflection.
+		table = new TableView<MilkEntry>();
+		table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+		table.setPrefSize(560, 440);
+
+		dateColumn = new TableColumn<MilkEntry, String>("Date");
+		dateColumn.setCellValueFactory(
+				(cell) -> new ReadOnlyObjectWrapper<String>(dateFormat.format(cell.getValue().getDate())));
+		farmColumn = new TableColumn<MilkEntry, String>("Farm ID");
+		farmColumn.setCellValueFactory((cell) -> new ReadOnlyObjectWrapper<String>(cell.getValue().getFarmID()));
+		weightColumn = new TableColumn<MilkEntry, Integer>("Weight");
+		weightColumn.setCellValueFactory((cell) -> new ReadOnlyObjectWrapper<Integer>(cell.getValue().getWeight()));
+		table.getColumns().setAll(dateColumn, farmColumn, weightColumn);
+
+		// Sort by switching the list to one of the cursor's orderings
+		table.setSortPolicy((TableView<MilkEntry> t) -> {
+			sortEntries();
+			return true;
+		});
+
+		// Add all components
+		optionsPane.getChildren().addAll(new Label("Farm ID:"), allFarmsCheck, farmSelect);
+		optionsPane.getChildren().addAll(new Label("Start Date:"), startPicker);
+		optionsPane.getChildren().addAll(new Label("End Date:"), endPicker);
+		optionsPane.getChildren().addAll(new Label(""), applyButton, rowCountLabel);
+		reportPane.add(table, 0, 0);
+
+		// Set up event listeners
+		startPicker.setOnAction(e -> validRange());
+		endPicker.setOnAction(e -> validRange());
+		allFarmsCheck.setOnAction(e -> validRange());
+		farmSelect.setOnSelectionChanged(() -> validRange());
+		applyButton.setOnAction(e -> applyQuery());
+
+		// Show the entries for the default values
+		validRange();
+		applyQuery();
+	}
+
+	/**
+	 * Only allows the apply button to be pressed when a valid date range and a
+	 * farm (or all farms) are selected
+	 */
+	private void validRange() {
+		applyButton.setDisable(startPicker.getValue() == null || endPicker.getValue() == null
+				|| endPicker.getValue().isBefore(startPicker.getValue())
+				|| (!allFarmsCheck.isSelected() && farmSelect.getValue() == null));
+	}
+
+	/**
+	 * Shows the entries for the selected farm and date range
+	 */
+	private void applyQuery() {
+		appliedFarmID = allFarmsCheck.isSelected() ? null : farmSelect.getValue();
+		appliedStart = startPicker.getValue();
+		appliedEnd = endPicker.getValue();
+		showEntries(null);
+	}
+
+	/**
+	 * Shows the entries for the farm and date range last applied
+	 *
+	 * @param change The entries added to the data since the shown cursor was
+	 *               created, to update that cursor with, or null to query the
+	 *               entries again
+	 */
+	private void showEntries(MilkDataChange change) {
+		ReportComputationEvent event = new ReportComputationEvent(); // spans the query for JFR
+		event.begin();
+
+		// Uses java.sql.Date to convert java.time.localDate to java.util.Date
+		long queryStart = System.nanoTime();
+		EntryCursor cursor = change != null ? data.getEntryCursor(entries.getCursor(), change)
+				: data.getEntryCursor(appliedFarmID, java.sql.Date.valueOf(appliedStart),
+						java.sql.Date.valueOf(appliedEnd));
+		QUERY_TIME.recordSince(queryStart);
+
+		entries = new PagedEntryList(cursor);
+		sortEntries();
+		table.setItems(entries);
+
+		rowCountLabel.setText(String.format("%,d entries", cursor.size()));
+
+		event.finish("Raw Entries", "farm=" + (appliedFarmID == null ? "all" : appliedFarmID) + ", start="
+				+ appliedStart + ", end=" + appliedEnd, cursor.size());
+	}
+
+	/**
+	 * Adds any new farms to the search box, and updates the shown entries. The
+	 * cursor reads the lists entries were added to, so it is replaced even if
+	 * none of them are shown. Creating it only looks up where the range starts
+	 * and ends in each list, so no entries are copied, and the added entries
+	 * are merged into the sorted orderings it had, so the sort is not redone.
+	 *
+	 * @param change The entries added to the data
+	 */
+	@Override
+	public void dataChanged(MilkDataChange change) {
+		if (!change.getAddedFarmIDs().isEmpty())
+			farmSelect.setIndex(data.getFarmIndex());
+		showEntries(entries == null ? null : change);
+	}
+
+	/**
+	 * Adds the new data's farms to the search box, and shows the entries of the
+	 * farm and date range last applied from the new data
+	 *
+	 * @param data The data now shown
+	 */
+	@Override
+	public void dataReplaced(MilkData data) {
+		this.data = data;
+		farmSelect.setIndex(data.getFarmIndex());
+		showEntries(null);
+	}
+
+	/**
+	 * Reorders the entries according to the table's first sort column
+	 */
+	private void sortEntries() {
+		if (entries == null)
+			return;
+
+		if (table.getSortOrder().isEmpty()) {
+			entries.reorder(Ordering.DATE, true);
+			return;
+		}
+
+		TableColumn<MilkEntry, ?> column = table.getSortOrder().get(0);
+		boolean ascending = column.getSortType() == SortType.ASCENDING;
+
+		if (column == farmColumn)
+			entries.reorder(Ordering.FARM_ID, ascending);
+		else if (column == weightColumn)
+			entries.reorder(Ordering.WEIGHT, ascending);
+		else
+			entries.reorder(Ordering.DATE, ascending);
+	}
+
+	/**
+	 * Generates an export of the entries currently shown, in the order they are
+	 * shown. Entries are read from the cursor a page at a time, so the export
+	 * never holds more than one page.
+	 *
+	 * Format: date,farm_id,weight
+	 */
+	@Override
+	public ReportExport getReportExport() {
+		EntryCursor cursor = entries.getCursor();
+		Ordering ordering = entries.getOrdering();
+		boolean ascending = entries.isAscending();
+
+		return new ReportExport() {
+			@Override
+			public long getRowCount() {
+				return cursor.size() + 1;
+			}
+
+			@Override
+			public void write(ReportWriter writer) throws IOException {
+				// SimpleDateFormat is not thread safe, so the table's one is not used
+				DateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+				MilkEntry[] page = new MilkEntry[EXPORT_PAGE_SIZE];
+
+				writer.append("date,farm_id,weight").endRow();
+				for (int offset = 0; offset < cursor.size(); offset += page.length) {
+					int count = cursor.fetch(offset, page, ordering, ascending);
+					for (int i = 0; i < count; i++) {
+						writer.append(format.format(page[i].getDate())).append(',');
+						writer.append(page[i].getFarmID()).append(',');
+						writer.append(page[i].getWeight()).endRow();
+					}
+				}
+			}
+		};
+	}
+
+}
@@ -6,12 +6,20 @@
 
 package application.gui.reports;
 
+import java.io.IOException;
 import java.text.DecimalFormat;
+import java.time.LocalDate;
 import java.util.List;
 
 import application.data.MilkData;
-import application.data.MilkEntry;
+import application.data.MilkDataChange;
 import application.gui.DashboardStage;
+import application.io.ReportExport;
+import application.io.ReportFormat;
+import application.io.ReportWriter;
+import application.metrics.Histogram;
+import application.metrics.Metrics;
+import application.metrics.ReportComputationEvent;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -43,7 +51,9 @@ public class FarmReportPane extends ReportPane {
 	private final String MONTHS[] = { "January", "February", "March", "April", "May", "June", "July", "August",
 			"September", "October", "November", "December" };
 	private static DecimalFormat df = new DecimalFormat("0.00");
-	private ComboBox<String> farmID;
+	private static final Histogram QUERY_TIME = Metrics.timer("report.farm.query"); // shown in diagnostics
+	private static final Histogram RENDER_TIME = Metrics.timer("chart.bar.render"); // shown in diagnostics
+	private FarmSearchBox farmID;
 	private ComboBox<String> year;
 	private Button apply;
 	private String currentYear;
@@ -134,13 +144,9 @@ public class FarmReportPane extends ReportPane {
 		monthValues = new int[12];
 
 		// Initialize field for farmIDs
-		farmID = new ComboBox<String>(); // ComboBox for Farm ID selection
-		List<String> farmIDs = data.getFarmIDs();
-		ObservableList farmList = FXCollections.observableList(farmIDs);
-		farmID.setItems(farmList);
-		farmID.getSelectionModel().selectFirst();
-		farmID.setOnAction((e) -> inputsUpdated());
-		farmID.setMaxWidth(Double.MAX_VALUE); // Formatting for the ComboBox
+		farmID = new FarmSearchBox(data.getFarmIndex()); // Search box for Farm ID selection
+		farmID.setOnSelectionChanged(() -> inputsUpdated());
+		farmID.setMaxWidth(Double.MAX_VALUE); // Formatting for the search box
 
 		// Initialize field for year selection
 		year = new ComboBox<String>(); // ComboBox for Farm ID selection
@@ -263,33 +269,37 @@ public class FarmReportPane extends ReportPane {
 		return list; // Return the list
 	}
 
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public void handle() {
-		table.refresh(); // reset the table each apply
-		
 		// initialize relevant variables
 		this.currentFarmID = farmID.getValue();
 		this.currentYear = String.valueOf(year.getValue());
+
+		showReport();
+	}
+
+	// Helper method to show the report of the current farm and year
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void showReport() {
+		ReportComputationEvent event = new ReportComputationEvent(); // spans the update for JFR
+		event.begin();
+
+		table.refresh(); // reset the table each apply
 		
 		dataSeries.setName(currentYear);
 		totalWeight = 0;
 
-		for (int j = 0; j < 12; j++) {
-			List<MilkEntry> monthsTotal = data.getEntriesForMonth(Integer.parseInt(currentYear), j, currentFarmID);
-			int counter = 0;
-			for (int i = 0; i < monthsTotal.size(); i++) {
-				String result = monthsTotal.get(i).toString();
-				String weight[] = result.split(","); // split at comma
-				String total[] = weight[1].split(":"); // split at colon
-				counter = counter + Integer.parseInt(total[1].trim());
-			}
-			monthValues[j] = counter;
-		}
+		long queryStart = System.nanoTime();
+		long[] monthWeights = data.getMonthWeights(currentFarmID, Integer.parseInt(currentYear));
+		for (int j = 0; j < 12; j++)
+			monthValues[j] = (int) monthWeights[j];
 		for (int i = 0; i < monthValues.length; i++) {
 			totalWeight = totalWeight + monthValues[i];
 		}
+		QUERY_TIME.recordSince(queryStart);
 
-		// Insert data for barChart
+		// Insert data for barChart, replacing the previous report's
+		long renderStart = System.nanoTime();
+		dataSeries.getData().clear();
 		dataSeries.getData().add(new XYChart.Data(monthValues[0], MONTHS[0]));
 		dataSeries.getData().add(new XYChart.Data(monthValues[1], MONTHS[1]));
 		dataSeries.getData().add(new XYChart.Data(monthValues[2], MONTHS[2]));
@@ -302,6 +312,7 @@ public class FarmReportPane extends ReportPane {
 		dataSeries.getData().add(new XYChart.Data(monthValues[9], MONTHS[9]));
 		dataSeries.getData().add(new XYChart.Data(monthValues[10], MONTHS[10]));
 		dataSeries.getData().add(new XYChart.Data(monthValues[11], MONTHS[11]));
+		RENDER_TIME.recordSince(renderStart);
 
 		// Add items to the table using helper method
 		table.setItems(getTableData());
@@ -310,17 +321,88 @@ public class FarmReportPane extends ReportPane {
 		this.reportPane.getChildren().remove(totalLabel);
 		totalLabel = new Label("Overall Total Weight: " + totalWeight);
 		this.reportPane.add(totalLabel, 0, 1);
+
+		// the farm's rows in the year are only counted when the event is recorded
+		LocalDate yearStart = LocalDate.of(Integer.parseInt(currentYear), 1, 1);
+		event.finish("Farm", "farm=" + currentFarmID + ", year=" + currentYear,
+				() -> data.getEntryCursor(currentFarmID, java.sql.Date.valueOf(yearStart),
+						java.sql.Date.valueOf(yearStart.plusYears(1).minusDays(1))).size());
 	}
 
+	/**
+	 * Adds any new farms and years to the inputs, and adds the weights added to
+	 * the farm and year shown to its months, updating only the bars of the months
+	 * which changed
+	 * 
+	 * @param change - the entries added to the data
+	 */
 	@Override
-	public String getTextReport() {
-		String output = "Month,Month Weight,Percentage of Total\n";
-		for (int i = 0; i < MONTHS.length; i++) {
-			output = output + MONTHS[i] + "," + monthValues[i] + ","
-					+ df.format((double) monthValues[i] / totalWeight * 100) + "\n";
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void dataChanged(MilkDataChange change) {
+		if (!change.getAddedFarmIDs().isEmpty())
+			farmID.setIndex(data.getFarmIndex());
+		if (change.hasAddedMonths()) {
+			addChoices((List) year.getItems(), data.getValidYears());
+			inputsUpdated();
+		}
+
+		if (currentFarmID == null)
+			return;
+		long[] added = change.getMonthWeights(currentFarmID, Integer.parseInt(currentYear));
+		if (added == null)
+			return;
+
+		for (int month = 0; month < 12; month++) {
+			if (added[month] == 0)
+				continue;
+			monthValues[month] += added[month];
+			totalWeight += added[month];
+			((XYChart.Data) dataSeries.getData().get(month)).setXValue(monthValues[month]);
 		}
-		output = output + currentFarmID + "," + currentYear + "," + totalWeight;
-		return output;
-	} // End getTextReport
+
+		// Every month's percent of the total changes
+		table.setItems(getTableData());
+		totalLabel.setText("Overall Total Weight: " + totalWeight);
+	}
+
+	/**
+	 * Shows the farm and year shown from the new data, keeping the farm and year
+	 * selected where the new data has them
+	 * 
+	 * @param data - the data now shown
+	 */
+	@Override
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void dataReplaced(MilkData data) {
+		this.data = data;
+		farmID.setIndex(data.getFarmIndex());
+		setChoices((ComboBox) year, data.getValidYears());
+		inputsUpdated();
+
+		if (currentFarmID != null)
+			showReport();
+	}
+
+	@Override
+	public ReportExport getReportExport() {
+		// Copy the values shown at the time of export
+		long[] values = new long[monthValues.length];
+		for (int i = 0; i < monthValues.length; i++)
+			values[i] = monthValues[i];
+		String farm = currentFarmID;
+		String selectedYear = currentYear;
+
+		return new ReportExport() {
+			@Override
+			public long getRowCount() {
+				return MONTHS.length + 2;
+			}
+
+			@Override
+			public void write(ReportWriter writer) throws IOException {
+				ReportFormat.writeFarmReport(writer, farm, selectedYear, values);
+			}
+		};
+	} // End getReportExport
 
 } // End FarmReportPane
\ No newline at end of file
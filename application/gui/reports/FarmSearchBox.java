@@ -0,0 +1,109 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.gui.reports;
+
+import application.data.FarmIndex;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.VBox;
+
+/**
+ *
+ * FarmSearchBox - A search-as-you-type farm ID selector. Each keystroke queries
+ * the {@link FarmIndex} and only a bounded number of matches is shown, so the
+ * control stays responsive regardless of the number of farms.
+ *
+ * @author A-Team 128
+ *
+ */
+public class FarmSearchBox extends VBox {
+
+	// Maximum number of matches shown at once
+	private static final int MAX_RESULTS = 50;
+
+	private FarmIndex index;
+	private final TextField searchField;
+	private final ListView<String> results;
+	private Runnable onSelectionChanged;
+
+	/**
+	 * Creates a farm search box with the first farm selected
+	 *
+	 * @param index The index to search farm IDs in
+	 */
+	public FarmSearchBox(FarmIndex index) {
+		super(5);
+		this.index = index;
+
+		searchField = new TextField();
+		searchField.setPromptText("Search farm IDs");
+
+		results = new ListView<String>();
+		results.setPrefHeight(120);
+
+		// Search on every keystroke
+		searchField.textProperty().addListener((observable, oldText, newText) -> search(newText));
+
+		// Notify the owner whenever a different farm is selected
+		results.getSelectionModel().selectedItemProperty().addListener((observable, oldFarm, newFarm) -> {
+			if (onSelectionChanged != null)
+				onSelectionChanged.run();
+		});
+
+		this.getChildren().addAll(searchField, results);
+
+		// Show the first farms initially
+		search("");
+	}
+
+	/**
+	 * Returns the selected farm ID
+	 *
+	 * @return the selected farm ID, or null if no farm is selected
+	 */
+	public String getValue() {
+		return results.getSelectionModel().getSelectedItem();
+	}
+
+	/**
+	 * Searches another index, such as one rebuilt after farms were added, keeping
+	 * the query and the selection if it still matches
+	 *
+	 * @param index The index to search farm IDs in
+	 */
+	public void setIndex(FarmIndex index) {
+		this.index = index;
+		search(searchField.getText());
+	}
+
+	/**
+	 * Sets the action performed whenever the selected farm changes
+	 *
+	 * @param onSelectionChanged The action to perform
+	 */
+	public void setOnSelectionChanged(Runnable onSelectionChanged) {
+		this.onSelectionChanged = onSelectionChanged;
+	}
+
+	/**
+	 * Shows the farms matching the query, keeping the current selection if it
+	 * still matches and selecting the first match otherwise
+	 *
+	 * @param query The text to search for
+	 */
+	private void search(String query) {
+		String selected = getValue();
+
+		results.getItems().setAll(index.search(query.strip(), MAX_RESULTS));
+
+		if (selected != null && results.getItems().contains(selected))
+			results.getSelectionModel().select(selected);
+		else
+			results.getSelectionModel().selectFirst();
+	}
+
+}
@@ -0,0 +1,138 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.gui.reports;
+
+import java.util.Arrays;
+
+import application.data.FarmTotals;
+import application.data.FarmTotals.Column;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableColumn.SortType;
+import javafx.scene.control.TableView;
+
+/**
+ *
+ * FarmTotalsTable - A table of farm IDs, total weights and percentages backed by
+ * {@link FarmTotals}. Each row item is a row index into the totals, and cells
+ * read the primitive columns directly. Sorting re-maps the row indices using
+ * the cached orderings of the totals instead of comparing cell values.
+ *
+ * @author A-Team 128
+ *
+ */
+public class FarmTotalsTable extends TableView<Integer> {
+
+	private final TableColumn<Integer, String> farmColumn;
+	private final TableColumn<Integer, Long> totalColumn;
+	private final TableColumn<Integer, Double> percentColumn;
+
+	private FarmTotals totals;
+
+	// Boxed row indices, created once per totals and reused for every sort
+	private Integer[] rows;
+
+	/**
+	 * Creates an empty table with the specified column titles
+	 *
+	 * @param farmTitle    The title of the farm ID column
+	 * @param totalTitle   The title of the total weight column
+	 * @param percentTitle The title of the percent of total column
+	 */
+	@SuppressWarnings("unchecked")
+	public FarmTotalsTable(String farmTitle, String totalTitle, String percentTitle) {
+		this.rows = new Integer[0];
+
+		// Ensure columns fill entire table
+		this.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+		farmColumn = new TableColumn<Integer, String>(farmTitle);
+		farmColumn.setCellValueFactory(
+				(cell) -> new ReadOnlyObjectWrapper<String>(totals.getFarmID(cell.getValue())));
+
+		totalColumn = new TableColumn<Integer, Long>(totalTitle);
+		totalColumn.setCellValueFactory((cell) -> new ReadOnlyObjectWrapper<Long>(totals.getTotal(cell.getValue())));
+
+		// Percentages are shown rounded
+		percentColumn = new TableColumn<Integer, Double>(percentTitle);
+		percentColumn.setCellValueFactory((cell) -> new ReadOnlyObjectWrapper<Double>(
+				Math.round(totals.getPercent(cell.getValue()) * 1000) / 1000.0d));
+
+		this.getColumns().setAll(farmColumn, totalColumn, percentColumn);
+
+		// Sort by re-mapping row indices rather than comparing cells
+		this.setSortPolicy((TableView<Integer> table) -> {
+			sortRows();
+			return true;
+		});
+	}
+
+	/**
+	 * Sets the totals shown in the table, keeping the current sort order
+	 *
+	 * @param totals The totals to show
+	 */
+	public void setTotals(FarmTotals totals) {
+		this.totals = totals;
+
+		rows = new Integer[totals.size()];
+		for (int i = 0; i < rows.length; i++)
+			rows[i] = i;
+
+		sortRows();
+	}
+
+	/**
+	 * Returns the totals shown in the table
+	 *
+	 * @return the totals shown in the table, or null if none have been set
+	 */
+	public FarmTotals getTotals() {
+		return totals;
+	}
+
+	/**
+	 * Returns the rows of the totals in the order they are displayed
+	 *
+	 * @return the displayed order of the rows
+	 */
+	public int[] getDisplayedRows() {
+		int[] displayed = new int[getItems().size()];
+		for (int i = 0; i < displayed.length; i++)
+			displayed[i] = getItems().get(i);
+		return displayed;
+	}
+
+	/**
+	 * Orders the rows by the first sort column, or by farm ID if the table is not
+	 * sorted
+	 */
+	private void sortRows() {
+		if (totals == null)
+			return;
+
+		Column column = Column.FARM_ID;
+		boolean ascending = true;
+
+		if (!getSortOrder().isEmpty()) {
+			TableColumn<Integer, ?> sortColumn = getSortOrder().get(0);
+			ascending = sortColumn.getSortType() == SortType.ASCENDING;
+			if (sortColumn == totalColumn)
+				column = Column.TOTAL;
+			else if (sortColumn == percentColumn)
+				column = Column.PERCENT;
+		}
+
+		int[] ordering = totals.getOrdering(column);
+		Integer[] sorted = new Integer[ordering.length];
+		for (int i = 0; i < ordering.length; i++)
+			sorted[i] = rows[ordering[ascending ? i : ordering.length - 1 - i]];
+
+		getItems().setAll(Arrays.asList(sorted));
+	}
+
+}
@@ -5,23 +5,23 @@
 
 package application.gui.reports;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Hashtable;
 import java.util.List;
+import application.data.FarmTotals;
 import application.data.MilkData;
-import application.data.MilkEntry;
+import application.data.MilkDataChange;
 import application.gui.DashboardStage;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.collections.FXCollections;
+import application.io.ReportExport;
+import application.io.ReportFormat;
+import application.io.ReportWriter;
+import application.metrics.Histogram;
+import application.metrics.Metrics;
+import application.metrics.ReportComputationEvent;
 import javafx.scene.chart.PieChart;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
-import javafx.scene.control.TableColumn;
-import javafx.scene.control.TableView;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.VBox;
 
 /**
@@ -33,93 +33,15 @@ import javafx.scene.layout.VBox;
  *
  */
 public class MonthlyReportPane extends ReportPane {
+	private static final Histogram QUERY_TIME = Metrics.timer("report.monthly.query"); // shown in diagnostics
 	private final ComboBox<String> yearSelect; // ComboBox that stores user selected year
 	private final ComboBox<String> monthSelect; // ComboBox that stores user selected month
 	private final Button applyButton; // apply changes button
-	private final TableView<Entry> table; // table used to display data
+	private final FarmTotalsTable table; // table used to display data
 	private final PieChart piechart; // pie chart used to display data
 	MilkData data; // stores data passed in
-
-	/**
-	 * 
-	 * Entry - private inner class, stores MilkEntry to be used in display
-	 * 
-	 * @author Xuxiang Sun (2020)
-	 *
-	 */
-	public class Entry {
-		private SimpleStringProperty id; // Farm ID
-		private SimpleIntegerProperty weight; // milk weight
-		private SimpleDoubleProperty percent; // percentage
-
-		/**
-		 * Constructor for Entry class
-		 * 
-		 * @param id      - Farm ID
-		 * @param weight  - milk weight
-		 * @param percent - percentage
-		 */
-		public Entry(String id, int weight, double percent) {
-			this.id = new SimpleStringProperty(id);
-			this.weight = new SimpleIntegerProperty(weight);
-			this.percent = new SimpleDoubleProperty(percent);
-		}
-
-		/**
-		 * getter for id
-		 * 
-		 * @return id
-		 */
-		public String getId() {
-			return id.get();
-		}
-
-		/**
-		 * setter for id
-		 * 
-		 * @param s - String to be set
-		 */
-		public void setId(String s) {
-			id.set(s);
-		}
-
-		/**
-		 * getter for weight
-		 * 
-		 * @return weight
-		 */
-		public int getWeight() {
-			return weight.get();
-		}
-
-		/**
-		 * setter for weight
-		 * 
-		 * @param s - String to be set
-		 */
-		public void setWeight(int s) {
-			weight.set(s);
-		}
-
-		/**
-		 * getter for percent
-		 * 
-		 * @return percent
-		 */
-		public double getPercent() {
-			// Return rounded
-			return Math.round(percent.get() * 1000) / 1000.0d;
-		}
-
-		/**
-		 * setter for percent
-		 * 
-		 * @param s - String to be set
-		 */
-		public void setPercent(double s) {
-			percent.set(s);
-		}
-	}
+	private String appliedYear; // year of the report shown
+	private int appliedMonth; // month of the report shown
 
 	/**
 	 * Constructor that displays the GUI
@@ -159,18 +81,7 @@ public class MonthlyReportPane extends ReportPane {
 		this.applyButton.setMaxWidth(Double.MAX_VALUE);
 		this.optionsPane.getChildren().addAll(new Label(""), applyButton);
 
-		this.table = new TableView(); // TableView for displaying data
-		this.table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY); // restricts size of
-																				// table
-		TableColumn firstCol = new TableColumn<>("Farm ID"); // three columns
-		firstCol.setCellValueFactory(new PropertyValueFactory<>("id")); // specifies a cell factory
-		TableColumn secondCol = new TableColumn<>("Total Wt.");
-		secondCol.setCellValueFactory(new PropertyValueFactory<>("weight")); // specifies a cell factory
-		TableColumn thirdCol = new TableColumn<>("% Total");
-		thirdCol.setCellValueFactory(new PropertyValueFactory<>("percent")); // specifies a cell factory
-		this.table.getColumns().add(firstCol);
-		this.table.getColumns().add(secondCol);
-		this.table.getColumns().add(thirdCol);
+		this.table = new FarmTotalsTable("Farm ID", "Total Wt.", "% Total"); // table for displaying data
 
 		VBox vbox = new VBox(); // VBox to organize the GridPane
 		vbox.getChildren().add(table);
@@ -178,7 +89,7 @@ public class MonthlyReportPane extends ReportPane {
 
 		this.piechart = new PieChart(); // pie chart for displaying percentage of total weight by farm
 		piechart.setTitle("Percentage of Total Weight");
-		piechart.setMaxWidth(325);
+		PieChartSlices.fillCell(piechart);
 		this.reportPane.add(piechart, 1, 0); // adds chart to right part of reportPane
 		this.reportPane.getStyleClass().add("reportPane"); // styling
 
@@ -258,57 +169,117 @@ public class MonthlyReportPane extends ReportPane {
 		default:
 			month = 0;
 		}
-		// gets all entries for specified year and month
-		List<MilkEntry> entries = data.getEntriesForMonth(Integer.parseInt(year), month);
-		Hashtable<String, Integer> weightsByID = new Hashtable<>(); // stores milk weight information by
-																	// farm ID
-		double totalWeight = 0; // tracks total weight
-		// stores info and computes weight for every entry for the specified year and
-		// month
-		for (MilkEntry entry : entries) {
-			int previous = 0;
-			String id = entry.getFarmID();
-			if (weightsByID.containsKey(id)) { // add the previous value if it exists
-				previous = weightsByID.get(id);
-			}
-			weightsByID.put(id, entry.getWeight() + previous);
-			totalWeight += entry.getWeight(); // adds up total weight of the specified year and month
-		}
+		show(year, month);
+	}
 
-		ArrayList<Entry> tableData = new ArrayList<>(); // stores data to be used in table
-		ArrayList<PieChart.Data> percentageData = new ArrayList<>(); // stores data to be used in
-																		// piechart
+	/**
+	 * Helper method to show the report of a month in table and piechart
+	 * 
+	 * @param year  - year of the report
+	 * @param month - month of the report, 0 for January
+	 */
+	private void show(String year, int month) {
+		ReportComputationEvent event = new ReportComputationEvent(); // spans the update for JFR
+		event.begin();
+		this.appliedYear = year;
+		this.appliedMonth = month;
 
-		// adds data of weights and percentage of total weight for each individual farm
-		for (String id : data.getFarmIDs()) {
-			// checks if ID is valid
-			if (!weightsByID.containsKey(id)) {
-				continue;
-			}
-			double thisWeight = weightsByID.get(id).doubleValue();
-			tableData.add(new Entry(id, weightsByID.get(id), (thisWeight / totalWeight) * 100)); // adds to table
-			percentageData.add(new PieChart.Data(id, thisWeight)); // adds to piechart
-		}
-		this.table.setItems(FXCollections.observableArrayList(tableData)); // adds data into table
-		this.piechart.setData(FXCollections.observableArrayList(percentageData)); // adds data into
-																					// piechart
+		// computes total weight by farm ID from the month's weight columns, only for
+		// farms with entries in the month
+		long queryStart = System.nanoTime();
+		FarmTotals totals = data.getFarmTotals(Integer.parseInt(year), month, false);
+		QUERY_TIME.recordSince(queryStart);
+		showTotals(totals);
+
+		// the rows summed are only counted when the event is recorded
+		event.finish("Monthly", "year=" + year + ", month=" + (month + 1),
+				() -> data.getEntriesForMonth(Integer.parseInt(year), month).size());
 	}
 
 	/**
-	 * Generates the text used to write to output file
+	 * Helper method to show farm totals in table and piechart
 	 * 
-	 * @return String used to write to output file
+	 * @param totals - total weight of the farms with entries in the month shown
+	 */
+	private void showTotals(FarmTotals totals) {
+		this.table.setTotals(totals); // adds data into table
+
+		// weights to be used in piechart
+		double[] sliceWeights = new double[totals.size()];
+		for (int i = 0; i < totals.size(); i++)
+			sliceWeights[i] = totals.getTotal(i);
+
+		// adds the largest farms into piechart, the rest are shown as "Other"
+		PieChartSlices.show(this.piechart, totals.getFarmIDs(), sliceWeights);
+	}
+
+	/**
+	 * Adds any new years and months to the ComboBoxes, and adds the weights added
+	 * to the month shown to its farm totals
+	 * 
+	 * @param change - the entries added to the data
 	 */
 	@Override
-	public String getTextReport() {
-		// column labels
-		StringBuilder report = new StringBuilder("Farm ID,Total Weight,Percent of Total Weight\n");
-		// loops through every row in table and adds to report
-		for (Entry entry : table.getItems()) {
-			report.append(entry.id.getValue()).append(",");
-			report.append(entry.weight.getValue()).append(",");
-			report.append(entry.percent.getValue()).append("\n");
+	public void dataChanged(MilkDataChange change) {
+		if (change.hasAddedMonths()) {
+			List<String> years = new ArrayList<String>();
+			for (Integer year : data.getValidYears())
+				years.add(year.toString());
+			addChoices(this.yearSelect.getItems(), years);
+			addChoices(this.monthSelect.getItems(),
+					data.getValidMonthsInYear(Integer.parseInt(this.yearSelect.getValue())));
+			monthSelectionChanged();
 		}
-		return report.toString();
+
+		if (appliedYear == null || !change.hasEntries(Integer.parseInt(appliedYear), appliedMonth))
+			return;
+		showTotals(this.table.getTotals().plus(data.getFarmIDs(),
+				change.getFarmWeights(Integer.parseInt(appliedYear), appliedMonth), false));
+	}
+
+	/**
+	 * Adds the new data's years and months to the ComboBoxes, keeping those
+	 * selected where it has them, and shows the month shown from the new data
+	 * 
+	 * @param data - the data now shown
+	 */
+	@Override
+	public void dataReplaced(MilkData data) {
+		this.data = data;
+		String month = this.monthSelect.getValue(); // changing the year selects the first month
+
+		List<String> years = new ArrayList<String>();
+		for (Integer year : data.getValidYears())
+			years.add(year.toString());
+		setChoices(this.yearSelect, years);
+		this.monthSelect.setValue(month);
+		setChoices(this.monthSelect, data.getValidMonthsInYear(Integer.parseInt(this.yearSelect.getValue())));
+		monthSelectionChanged();
+
+		if (appliedYear != null)
+			show(appliedYear, appliedMonth);
+	}
+
+	/**
+	 * Generates the export used to write to output file
+	 * 
+	 * @return export of the rows in the order shown in the table
+	 */
+	@Override
+	public ReportExport getReportExport() {
+		FarmTotals totals = table.getTotals(); // totals at the time of export
+		int[] rows = table.getDisplayedRows(); // order shown in the table
+
+		return new ReportExport() {
+			@Override
+			public long getRowCount() {
+				return rows.length + 1;
+			}
+
+			@Override
+			public void write(ReportWriter writer) throws IOException {
+				ReportFormat.writeFarmShareReport(writer, totals, rows);
+			}
+		};
 	}
 }
@@ -0,0 +1,184 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.gui.reports;
+
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import application.data.EntryCursor;
+import application.data.EntryCursor.Ordering;
+import application.data.MilkEntry;
+import javafx.collections.ObservableListBase;
+
+/**
+ *
+ * PagedEntryList - A read-only ObservableList backed by an {@link EntryCursor}.
+ * Entries are fetched a page at a time as the TableView asks for them, and only
+ * a bounded number of pages is kept in memory. When a page is fetched, its
+ * neighbours are fetched as well so that scrolling does not stall on every page
+ * boundary.
+ *
+ * @author A-Team 128
+ *
+ */
+class PagedEntryList extends ObservableListBase<MilkEntry> {
+
+	private static final int PAGE_SIZE = 256;
+	private static final int CACHED_PAGES = 32;
+
+	private final EntryCursor cursor;
+	private Ordering ordering;
+	private boolean ascending;
+
+	// Least recently used pages are evicted first
+	private final LinkedHashMap<Integer, MilkEntry[]> pages;
+
+	/**
+	 * Creates a list over the specified cursor, in ascending date order
+	 *
+	 * @param cursor The cursor to read entries from
+	 */
+	PagedEntryList(EntryCursor cursor) {
+		this.cursor = cursor;
+		this.ordering = Ordering.DATE;
+		this.ascending = true;
+		this.pages = new LinkedHashMap<Integer, MilkEntry[]>(CACHED_PAGES * 2, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, MilkEntry[]> eldest) {
+				return size() > CACHED_PAGES;
+			}
+		};
+	}
+
+	@Override
+	public MilkEntry get(int index) {
+		if (index < 0 || index >= size())
+			throw new IndexOutOfBoundsException("Index " + index + " is not within the list.");
+
+		int pageIndex = index / PAGE_SIZE;
+		MilkEntry[] page = pages.get(pageIndex);
+
+		if (page == null) {
+			page = fetchPage(pageIndex);
+
+			// Prefetch the pages around this one
+			prefetch(pageIndex - 1);
+			prefetch(pageIndex + 1);
+		}
+
+		return page[index % PAGE_SIZE];
+	}
+
+	@Override
+	public int size() {
+		return cursor.size();
+	}
+
+	/**
+	 * Returns the cursor entries are read from
+	 *
+	 * @return the cursor entries are read from
+	 */
+	EntryCursor getCursor() {
+		return cursor;
+	}
+
+	/**
+	 * Returns the order entries are currently read in
+	 *
+	 * @return the current ordering
+	 */
+	Ordering getOrdering() {
+		return ordering;
+	}
+
+	/**
+	 * Returns whether entries are currently read in ascending order
+	 *
+	 * @return whether the current ordering is ascending
+	 */
+	boolean isAscending() {
+		return ascending;
+	}
+
+	/**
+	 * Changes the order entries are read in. The ordering itself is computed once
+	 * by the cursor, so this only drops the cached pages and notifies listeners.
+	 *
+	 * @param ordering  The new ordering
+	 * @param ascending Whether the ordering should be ascending
+	 */
+	void reorder(Ordering ordering, boolean ascending) {
+		if (this.ordering == ordering && this.ascending == ascending)
+			return;
+
+		// A view of the entries in their previous order, for listeners
+		List<MilkEntry> previous = snapshot();
+
+		this.ordering = ordering;
+		this.ascending = ascending;
+		pages.clear();
+
+		beginChange();
+		nextReplace(0, size(), previous);
+		endChange();
+	}
+
+	/**
+	 * Fetches a page from the cursor and caches it
+	 *
+	 * @param pageIndex The index of the page
+	 * @return the page
+	 */
+	private MilkEntry[] fetchPage(int pageIndex) {
+		MilkEntry[] page = new MilkEntry[PAGE_SIZE];
+		cursor.fetch(pageIndex * PAGE_SIZE, page, ordering, ascending);
+		pages.put(pageIndex, page);
+		return page;
+	}
+
+	/**
+	 * Fetches a page if it exists and is not already cached
+	 *
+	 * @param pageIndex The index of the page
+	 */
+	private void prefetch(int pageIndex) {
+		if (pageIndex < 0 || pageIndex * PAGE_SIZE >= size() || pages.containsKey(pageIndex))
+			return;
+		fetchPage(pageIndex);
+	}
+
+	/**
+	 * Returns a read-only view of the entries in the current ordering, without
+	 * copying them
+	 *
+	 * @return a view of the entries in the current ordering
+	 */
+	private List<MilkEntry> snapshot() {
+		Ordering snapshotOrdering = ordering;
+		boolean snapshotAscending = ascending;
+		MilkEntry[] single = new MilkEntry[1];
+
+		return new AbstractList<MilkEntry>() {
+			@Override
+			public MilkEntry get(int index) {
+				cursor.fetch(index, single, snapshotOrdering, snapshotAscending);
+				return single[0];
+			}
+
+			@Override
+			public int size() {
+				return cursor.size();
+			}
+		};
+	}
+
+}
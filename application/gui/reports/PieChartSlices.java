@@ -0,0 +1,221 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.gui.reports;
+
+import java.util.List;
+import java.util.PriorityQueue;
+
+import application.metrics.Histogram;
+import application.metrics.Metrics;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.chart.PieChart;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
+
+/**
+ *
+ * PieChartSlices - Builds pie chart data for reports with many farms. Only the
+ * largest farms get their own slice, everything else is folded into a single
+ * "Other" slice. The full ranking remains available in each report's table.
+ * The number of slices follows the chart's size, and the slices are shown again
+ * when the chart is resized enough for the number to change.
+ *
+ * @author A-Team 128
+ *
+ */
+final class PieChartSlices {
+
+	// Label of the slice that all remaining farms are folded into
+	static final String OTHER_LABEL = "Other";
+
+	// Side length (in pixels) of chart area each slice and its label needs
+	private static final double SLICE_EXTENT = 30;
+
+	// Bounds for the number of individual slices, regardless of chart size
+	private static final int MIN_SLICES = 4;
+	private static final int MAX_SLICES = 24;
+
+	// Size used when the chart has not been laid out yet
+	private static final double DEFAULT_CHART_SIZE = 325;
+
+	// Key of the chart property holding what the chart shows
+	private static final String SHOWN_KEY = "PieChartSlices.shown";
+
+	/**
+	 * What a chart shows, so its slices can be shown again for a new size and
+	 * its "Other" slice told apart from a farm named like it
+	 */
+	private static final class Shown {
+		private final List<String> labels;
+		private final double[] values;
+		private final int limit;
+		// The slice the remaining farms are folded into, or null if there is none
+		private final PieChart.Data other;
+
+		private Shown(List<String> labels, double[] values, int limit, PieChart.Data other) {
+			this.labels = labels;
+			this.values = values;
+			this.limit = limit;
+			this.other = other;
+		}
+	}
+
+	// Time the report panes take to hand new slices to their pie charts
+	static final Histogram RENDER_TIME = Metrics.timer("chart.pie.render");
+
+	private PieChartSlices() {
+	}
+
+	/**
+	 * Returns the number of individual slices that fit into the chart's area
+	 *
+	 * @param chart The chart the slices will be shown in
+	 * @return the number of individual slices that can be shown
+	 */
+	static int sliceLimit(PieChart chart) {
+		double width = chart.getWidth() > 0 ? chart.getWidth() : DEFAULT_CHART_SIZE;
+		double height = chart.getHeight() > 0 ? chart.getHeight() : DEFAULT_CHART_SIZE;
+
+		int limit = (int) (Math.min(width, height) / SLICE_EXTENT);
+		return Math.max(MIN_SLICES, Math.min(MAX_SLICES, limit));
+	}
+
+	/**
+	 * Creates pie chart data with a slice for each of the largest values and an
+	 * "Other" slice holding the sum of the rest. The top values are selected with
+	 * a min-heap bounded to the limit, so only O(n log limit) work is done.
+	 *
+	 * @param labels The label of each value
+	 * @param values The values, index-aligned with the labels
+	 * @param limit  The maximum number of individual slices
+	 * @return the pie chart data, largest slice first
+	 */
+	static ObservableList<PieChart.Data> topN(List<String> labels, double[] values, int limit) {
+		ObservableList<PieChart.Data> slices = FXCollections.observableArrayList();
+
+		// The head of the heap is the smallest of the values kept so far
+		PriorityQueue<Integer> heap = new PriorityQueue<Integer>(limit + 1,
+				(Integer a, Integer b) -> Double.compare(values[a], values[b]));
+
+		double total = 0;
+		int nonEmpty = 0;
+		for (int i = 0; i < labels.size(); i++) {
+			// Farms with nothing recorded do not get a slice
+			if (values[i] <= 0)
+				continue;
+
+			total += values[i];
+			nonEmpty++;
+
+			if (heap.size() < limit)
+				heap.add(i);
+			else if (values[i] > values[heap.peek()]) {
+				heap.poll();
+				heap.add(i);
+			}
+		}
+
+		// Drain the heap (smallest first) so the largest slice ends up first
+		int[] top = new int[heap.size()];
+		for (int i = top.length - 1; i >= 0; i--)
+			top[i] = heap.poll();
+
+		double other = total;
+		for (int index : top) {
+			slices.add(new PieChart.Data(labels.get(index), values[index]));
+			other -= values[index];
+		}
+
+		// Only add the "Other" slice if some farms were actually folded into it
+		if (nonEmpty > top.length)
+			slices.add(new PieChart.Data(OTHER_LABEL, other));
+
+		return slices;
+	}
+
+	/**
+	 * Lets a chart grow with the cell of the report's grid it is in, so a larger
+	 * window gives the chart room for more slices
+	 *
+	 * @param chart The chart
+	 */
+	static void fillCell(PieChart chart) {
+		GridPane.setHgrow(chart, Priority.ALWAYS);
+		GridPane.setVgrow(chart, Priority.ALWAYS);
+	}
+
+	/**
+	 * Shows the slices of the largest values in a chart. If the chart already
+	 * shows the same slices in the same order, as when a few farms' totals grew,
+	 * only the values of the slices which changed are set, so the chart does not
+	 * rebuild its slices. Farm slices are matched by name, and the "Other" slice
+	 * by identity, since a farm may be named "Other".
+	 *
+	 * The first time a chart is shown, it starts showing its slices again
+	 * whenever it is resized to fit a different number of them.
+	 *
+	 * @param chart  The chart to show the slices in
+	 * @param labels The label of each value
+	 * @param values The values, index-aligned with the labels
+	 */
+	static void show(PieChart chart, List<String> labels, double[] values) {
+		long renderStart = System.nanoTime();
+		Shown previous = (Shown) chart.getProperties().get(SHOWN_KEY);
+		if (previous == null) {
+			InvalidationListener resized = (Observable observable) -> resize(chart);
+			chart.widthProperty().addListener(resized);
+			chart.heightProperty().addListener(resized);
+		}
+
+		int limit = sliceLimit(chart);
+		ObservableList<PieChart.Data> slices = topN(labels, values, limit);
+		ObservableList<PieChart.Data> shown = chart.getData();
+
+		// The last slice is the "Other" slice if more farms have values than fit
+		int nonEmpty = 0;
+		for (double value : values)
+			if (value > 0)
+				nonEmpty++;
+		boolean folded = nonEmpty > limit;
+
+		boolean sameSlices = previous != null && shown != null && shown.size() == slices.size()
+				&& (previous.other != null) == folded
+				&& (previous.other == null || shown.get(shown.size() - 1) == previous.other);
+		for (int i = 0; sameSlices && i < slices.size(); i++)
+			sameSlices = shown.get(i).getName().equals(slices.get(i).getName());
+
+		PieChart.Data other;
+		if (sameSlices) {
+			for (int i = 0; i < slices.size(); i++)
+				if (shown.get(i).getPieValue() != slices.get(i).getPieValue())
+					shown.get(i).setPieValue(slices.get(i).getPieValue());
+			other = previous.other;
+		} else {
+			chart.setData(slices);
+			other = folded ? slices.get(slices.size() - 1) : null;
+		}
+		chart.getProperties().put(SHOWN_KEY, new Shown(labels, values, limit, other));
+		RENDER_TIME.recordSince(renderStart);
+	}
+
+	/**
+	 * Shows a chart's values again if its new size fits a different number of
+	 * slices
+	 *
+	 * @param chart The resized chart
+	 */
+	private static void resize(PieChart chart) {
+		Shown shown = (Shown) chart.getProperties().get(SHOWN_KEY);
+		if (shown != null && sliceLimit(chart) != shown.limit)
+			show(chart, shown.labels, shown.values);
+	}
+
+}
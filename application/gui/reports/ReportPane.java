@@ -6,9 +6,15 @@
 
 package application.gui.reports;
 
+import java.util.List;
+
 import application.data.MilkData;
+import application.data.MilkDataChange;
 import application.gui.DashboardStage;
+import application.io.ReportExport;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.MenuButton;
 import javafx.scene.control.MenuItem;
 import javafx.scene.layout.BorderPane;
@@ -69,6 +75,12 @@ public abstract class ReportPane extends Pane {
 		exportButton.getStyleClass().add("bottomButton");
 		exportButton.setOnAction((ActionEvent) -> stage.exportReport(this));
 
+		// Add export all reports button
+		Button exportAllButton = new Button("Export All Reports");
+		bottomButtonsVBox.getChildren().add(exportAllButton);
+		exportAllButton.getStyleClass().add("bottomButton");
+		exportAllButton.setOnAction((ActionEvent) -> stage.exportAllReports());
+
 		// Add data source menu button button
 		MenuButton dataSourceMenuButton = new MenuButton("Data Source");
 		bottomButtonsVBox.getChildren().add(dataSourceMenuButton);
@@ -79,11 +91,22 @@ public abstract class ReportPane extends Pane {
 		refreshItem.setOnAction((ActionEvent) -> stage.refreshDataSource());
 		dataSourceMenuButton.getItems().add(refreshItem);
 
+		// Add watch item in the data source menu button, checked in every report at once
+		CheckMenuItem watchItem = new CheckMenuItem("Watch for New Data");
+		watchItem.selectedProperty().bindBidirectional(stage.watchingProperty());
+		watchItem.disableProperty().bind(stage.watchableProperty().not());
+		dataSourceMenuButton.getItems().add(watchItem);
+
 		// Add change data source item in the data source menu button
 		MenuItem changeSrcItem = new MenuItem("Change Data Source");
 		changeSrcItem.setOnAction((ActionEvent) -> stage.chooseNewDataSource());
 		dataSourceMenuButton.getItems().add(changeSrcItem);
 
+		// Add diagnostics item in the data source menu button
+		MenuItem diagnosticsItem = new MenuItem("Diagnostics");
+		diagnosticsItem.setOnAction((ActionEvent) -> stage.showDiagnostics());
+		dataSourceMenuButton.getItems().add(diagnosticsItem);
+
 		// Add the individualized report grid pane to the right hand side of the screen
 		this.reportPane = new GridPane();
 		reportPane.getStyleClass().add("reportPane");
@@ -91,10 +114,61 @@ public abstract class ReportPane extends Pane {
 	}
 
 	/**
-	 * Returns a text-based version of the report
+	 * Returns an export of the report as it is currently shown. This is called on
+	 * the JavaFX thread, but the export it returns may be written from any thread.
+	 * 
+	 * @return An export of the report
+	 */
+	public abstract ReportExport getReportExport();
+
+	/**
+	 * Called on the JavaFX thread after entries were added to the data, such as
+	 * the rows appended to a watched data file. Reports add any new choices to
+	 * their inputs, and add the weights of the change to the totals they show
+	 * rather than querying the data again. Does nothing by default.
 	 * 
-	 * @return A text-based version of the report
+	 * @param change The entries added, summed by farm and month
 	 */
-	public abstract String getTextReport();
+	public void dataChanged(MilkDataChange change) {
+	}
+
+	/**
+	 * Called on the JavaFX thread when the data was loaded again, such as when it
+	 * is refreshed or another data source is chosen. Reports show the new data,
+	 * keeping the choices made in their inputs where the new data has them. A
+	 * report which is not shown is only told once it is selected.
+	 * 
+	 * @param data The data now shown
+	 */
+	public abstract void dataReplaced(MilkData data);
+
+	/**
+	 * Replaces the choices of an input, keeping its value if it is still one of
+	 * them and choosing the first otherwise
+	 * 
+	 * @param input  The input
+	 * @param values Every value which may be chosen, in order
+	 */
+	protected static <T> void setChoices(ComboBox<T> input, List<T> values) {
+		T value = input.getValue();
+		input.getItems().setAll(values);
+		if (value != null && values.contains(value))
+			input.setValue(value);
+		else
+			input.getSelectionModel().selectFirst();
+	}
+
+	/**
+	 * Adds the values missing from a list of choices, each after the values before
+	 * it, so choices already made are kept
+	 * 
+	 * @param choices The choices of an input
+	 * @param values  Every value which may be chosen, in order
+	 */
+	protected static <T> void addChoices(List<T> choices, List<T> values) {
+		for (int i = 0; i < values.size(); i++)
+			if (!choices.contains(values.get(i)))
+				choices.add(Math.min(i, choices.size()), values.get(i));
+	}
 
 }
@@ -0,0 +1,177 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import application.data.FarmMonthTotals;
+import application.data.FarmTotals;
+
+/**
+ * Exports every farm report (for every farm and year with entries), every
+ * annual report and every monthly report into a directory. All reports are
+ * derived from one {@link FarmMonthTotals}, and they are generated and written
+ * in parallel across all cores.
+ *
+ * Files are laid out as:
+ * <ul>
+ * <li>annual/annual-YYYY.csv</li>
+ * <li>monthly/monthly-YYYY-MM.csv</li>
+ * <li>farms/FARM/farm-FARM-YYYY.csv</li>
+ * </ul>
+ *
+ * @author A-Team 128
+ *
+ */
+public class BatchExporter {
+
+	/**
+	 * A single report to be written
+	 */
+	@FunctionalInterface
+	private interface Job {
+		void write(ReportWriter writer) throws IOException;
+	}
+
+	private final List<Path> paths;
+	private final List<Job> jobs;
+
+	/**
+	 * Plans the export of all reports derived from the specified totals
+	 *
+	 * @param totals    The totals to derive the reports from
+	 * @param directory The directory to export into
+	 */
+	public BatchExporter(FarmMonthTotals totals, Path directory) {
+		this.paths = new ArrayList<Path>();
+		this.jobs = new ArrayList<Job>();
+
+		List<Integer> years = totals.getYears();
+		List<String> farmIDs = totals.getFarmIDs();
+
+		for (int year = 0; year < years.size(); year++) {
+			int yearIndex = year;
+			String yearName = String.valueOf(years.get(year));
+
+			// Annual report
+			add(directory.resolve("annual").resolve("annual-" + yearName + ".csv"),
+					(ReportWriter writer) -> ReportFormat.writeAnnualReport(writer, totals.getAnnualTotals(yearIndex)));
+
+			// Monthly reports, for months with entries
+			for (int month = 0; month < 12; month++) {
+				if (!totals.monthHasEntries(year, month))
+					continue;
+
+				int monthIndex = month;
+				add(directory.resolve("monthly").resolve(String.format("monthly-%s-%02d.csv", yearName, month + 1)),
+						(ReportWriter writer) -> {
+							FarmTotals monthTotals = totals.getMonthlyTotals(yearIndex, monthIndex);
+							ReportFormat.writeFarmShareReport(writer, monthTotals, monthTotals.getOrdering(FarmTotals.Column.FARM_ID));
+						});
+			}
+		}
+
+		// Farm reports, for farms with entries in the year. Farm IDs may contain any
+		// character, so they are made safe (and unique) for use as file names.
+		Set<String> usedNames = new HashSet<String>();
+		for (int farm = 0; farm < farmIDs.size(); farm++) {
+			String farmName = fileName(farmIDs.get(farm), usedNames);
+			Path farmDirectory = directory.resolve("farms").resolve(farmName);
+
+			for (int year = 0; year < years.size(); year++) {
+				if (!totals.farmHasEntries(farm, year))
+					continue;
+
+				int farmIndex = farm;
+				int yearIndex = year;
+				String yearName = String.valueOf(years.get(year));
+				add(farmDirectory.resolve("farm-" + farmName + "-" + yearName + ".csv"),
+						(ReportWriter writer) -> ReportFormat.writeFarmReport(writer, farmIDs.get(farmIndex), yearName,
+								totals.getMonthTotals(farmIndex, yearIndex)));
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of reports that will be exported
+	 *
+	 * @return the number of reports that will be exported
+	 */
+	public int getReportCount() {
+		return jobs.size();
+	}
+
+	/**
+	 * Writes all reports in parallel
+	 *
+	 * @param progressListener Notified of the number of reports written so far,
+	 *                         from the writing threads
+	 * @throws IOException if any report could not be written
+	 */
+	public void export(IntConsumer progressListener) throws IOException {
+		// Create all directories up front, so the writing threads do not race
+		for (Path path : paths)
+			Files.createDirectories(path.getParent());
+
+		AtomicInteger written = new AtomicInteger();
+
+		try {
+			IntStream.range(0, jobs.size()).parallel().forEach((int job) -> {
+				try (ReportWriter writer = ReportWriter.open(paths.get(job))) {
+					jobs.get(job).write(writer);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				progressListener.accept(written.incrementAndGet());
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Adds a report to be exported
+	 *
+	 * @param path The file to export the report to
+	 * @param job  Writes the report
+	 */
+	private void add(Path path, Job job) {
+		paths.add(path);
+		jobs.add(job);
+	}
+
+	/**
+	 * Returns a file name for a farm ID, which contains only letters, digits, '-'
+	 * and '_' and is not already used
+	 *
+	 * @param farmID    The farm ID
+	 * @param usedNames The names already used, the returned name is added to it
+	 * @return a unique file name for the farm ID
+	 */
+	private static String fileName(String farmID, Set<String> usedNames) {
+		String base = farmID.replaceAll("[^A-Za-z0-9_-]", "_");
+		if (base.isEmpty())
+			base = "_";
+
+		String name = base;
+		for (int suffix = 2; !usedNames.add(name); suffix++)
+			name = base + "-" + suffix;
+
+		return name;
+	}
+
+}
@@ -0,0 +1,420 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import application.data.MilkEntry;
+
+/**
+ * A sparse index of a data file, stored next to it as FILE.csv.idx. It divides
+ * the rows of the file into blocks of consecutive lines and records the byte
+ * offset each block starts at, the dates its entries span and the farms they
+ * belong to, so entries between two dates or of one farm can be read by
+ * seeking to the blocks which may hold them.
+ *
+ * While every row so far is in date order, a block starts at the first row of
+ * each day (so the first block of a month starts at its first row). Once a row
+ * is out of order, the blocks of days so far are merged into blocks of up to
+ * {@value #BLOCK_ROWS} rows, and later blocks only end after that many rows, so
+ * files in farm or random order do not get a block per row. The index records the size and last
+ * modified time of the file it was built from, and is ignored once either
+ * changes.
+ *
+ * The index is a text file:
+ * <ul>
+ * <li>milk data index,VERSION</li>
+ * <li>size,BYTES and modified,MILLISECONDS of the data file</li>
+ * <li>rejected,COUNT of the lines which could not be read</li>
+ * <li>farms,COUNT followed by one farm ID per line</li>
+ * <li>offset,rows,min_date,max_date,farms followed by one row per block, whose
+ * farms are a bit set (in hexadecimal) of the farms above</li>
+ * </ul>
+ *
+ * @author A-Team 128
+ *
+ */
+public final class DataFileIndex {
+
+	/**
+	 * The extension added to a data file's name to name its index
+	 */
+	public static final String SUFFIX = ".idx";
+
+	// The most rows in a block
+	static final int BLOCK_ROWS = 4096;
+
+	private static final String HEADER = "milk data index,2";
+	private static final String BLOCKS_HEADER = "offset,rows,min_date,max_date,farms";
+
+	/**
+	 * A range of lines of the data file
+	 */
+	public static class Block {
+		private final long offset;
+		private final long end;
+		private final int rows;
+		private final long minTime;
+		private final long maxTime;
+		private final BitSet farms;
+
+		private Block(long offset, long end, int rows, long minTime, long maxTime, BitSet farms) {
+			this.offset = offset;
+			this.end = end;
+			this.rows = rows;
+			this.minTime = minTime;
+			this.maxTime = maxTime;
+			this.farms = farms;
+		}
+
+		/**
+		 * @return the byte offset of the block's first line
+		 */
+		public long getOffset() {
+			return offset;
+		}
+
+		/**
+		 * @return the byte offset after the block's last line
+		 */
+		public long getEnd() {
+			return end;
+		}
+
+		/**
+		 * @return the number of entries in the block
+		 */
+		public int getRows() {
+			return rows;
+		}
+
+		/**
+		 * @return the date of the earliest entry in the block
+		 */
+		public Date getMinDate() {
+			return new Date(minTime);
+		}
+
+		/**
+		 * @return the date of the latest entry in the block
+		 */
+		public Date getMaxDate() {
+			return new Date(maxTime);
+		}
+	}
+
+	/**
+	 * Builds the index of a data file as its lines are read in order
+	 */
+	static class Builder {
+		private final LinkedHashMap<String, Integer> farmIDs;
+		private final List<Block> blocks;
+
+		// Whether every row so far was on or after the day of the row before it
+		private boolean dateOrdered;
+
+		// The block being built
+		private long offset;
+		private int rows;
+		private long minTime;
+		private long maxTime;
+		private BitSet farms;
+
+		/**
+		 * Creates a builder
+		 *
+		 * @param dataOffset The offset of the line after the header
+		 */
+		Builder(long dataOffset) {
+			this.farmIDs = new LinkedHashMap<String, Integer>();
+			this.blocks = new ArrayList<Block>();
+			this.offset = dataOffset;
+			this.farms = new BitSet();
+			this.dateOrdered = true;
+		}
+
+		/**
+		 * Adds an entry read from the data file. Lines which could not be read are
+		 * not added, and belong to the block of the entry before them.
+		 *
+		 * @param lineOffset The offset of the entry's line
+		 * @param entry      The entry
+		 */
+		void add(long lineOffset, MilkEntry entry) {
+			long time = entry.getDate().getTime();
+
+			// While the rows are in date order, the latest row so far is the row before
+			if (dateOrdered && rows > 0 && time < maxTime) {
+				dateOrdered = false;
+				mergeDayBlocks();
+			}
+
+			// Start a block at each later day while in date order, or when the block is full
+			if (rows > 0 && ((dateOrdered && time > maxTime) || rows == BLOCK_ROWS)) {
+				finishBlock(lineOffset);
+				offset = lineOffset;
+			}
+
+			if (rows == 0) {
+				minTime = time;
+				maxTime = time;
+			} else {
+				minTime = Math.min(minTime, time);
+				maxTime = Math.max(maxTime, time);
+			}
+			rows++;
+
+			Integer farm = farmIDs.get(entry.getFarmID());
+			if (farm == null) {
+				farm = farmIDs.size();
+				farmIDs.put(entry.getFarmID(), farm);
+			}
+			farms.set(farm);
+		}
+
+		/**
+		 * Builds the index
+		 *
+		 * @param size          The size of the data file
+		 * @param modified      The last modified time of the data file
+		 * @param rejectedLines The number of lines which could not be read
+		 * @return the index
+		 */
+		DataFileIndex build(long size, long modified, int rejectedLines) {
+			finishBlock(size);
+			return new DataFileIndex(size, modified, rejectedLines, new ArrayList<String>(farmIDs.keySet()),
+					blocks);
+		}
+
+		/**
+		 * Merges consecutive blocks of days finished so far into blocks of up to
+		 * {@value #BLOCK_ROWS} rows, once the rows turned out not to be in date order
+		 */
+		private void mergeDayBlocks() {
+			List<Block> merged = new ArrayList<Block>();
+			for (Block block : blocks) {
+				Block last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+				if (last == null || last.rows + block.rows > BLOCK_ROWS) {
+					merged.add(block);
+					continue;
+				}
+
+				// The blocks are consecutive lines, so the merged block spans both
+				last.farms.or(block.farms);
+				merged.set(merged.size() - 1, new Block(last.offset, block.end, last.rows + block.rows,
+						Math.min(last.minTime, block.minTime), Math.max(last.maxTime, block.maxTime), last.farms));
+			}
+			blocks.clear();
+			blocks.addAll(merged);
+		}
+
+		/**
+		 * Adds the block being built, if it has entries, and starts another
+		 */
+		private void finishBlock(long end) {
+			if (rows > 0)
+				blocks.add(new Block(offset, end, rows, minTime, maxTime, farms));
+			rows = 0;
+			farms = new BitSet();
+		}
+	}
+
+	private final long size;
+	private final long modified;
+	private final int rejectedLines;
+	private final List<String> farmIDs;
+	private final List<Block> blocks;
+
+	private DataFileIndex(long size, long modified, int rejectedLines, List<String> farmIDs, List<Block> blocks) {
+		this.size = size;
+		this.modified = modified;
+		this.rejectedLines = rejectedLines;
+		this.farmIDs = farmIDs;
+		this.blocks = blocks;
+	}
+
+	/**
+	 * Returns the index file of a data file
+	 *
+	 * @param dataFile The data file
+	 * @return the path of its index
+	 */
+	public static Path indexFile(File dataFile) {
+		return new File(dataFile.getPath() + SUFFIX).toPath();
+	}
+
+	/**
+	 * Returns whether a data file has an index built from its current contents,
+	 * without reading the blocks
+	 *
+	 * @param dataFile The data file
+	 * @param size     The size of the data file
+	 * @param modified The last modified time of the data file
+	 * @return whether the index is up to date
+	 */
+	static boolean isCurrent(File dataFile, long size, long modified) {
+		try (BufferedReader reader = Files.newBufferedReader(indexFile(dataFile), StandardCharsets.UTF_8)) {
+			return HEADER.equals(reader.readLine()) && ("size," + size).equals(reader.readLine())
+					&& ("modified," + modified).equals(reader.readLine());
+		} catch (IOException | UncheckedIOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the index of a data file
+	 *
+	 * @param dataFile The data file
+	 * @param size     The size of the data file
+	 * @param modified The last modified time of the data file
+	 * @return the index, or null if there is none, it is out of date or it could
+	 *         not be read
+	 */
+	static DataFileIndex read(File dataFile, long size, long modified) {
+		try (BufferedReader reader = Files.newBufferedReader(indexFile(dataFile), StandardCharsets.UTF_8)) {
+			if (!HEADER.equals(reader.readLine()) || !("size," + size).equals(reader.readLine())
+					|| !("modified," + modified).equals(reader.readLine()))
+				return null;
+
+			String rejectedLine = reader.readLine();
+			if (rejectedLine == null || !rejectedLine.startsWith("rejected,"))
+				return null;
+			int rejectedLines = Integer.parseInt(rejectedLine.substring("rejected,".length()));
+
+			String farmsLine = reader.readLine();
+			if (farmsLine == null || !farmsLine.startsWith("farms,"))
+				return null;
+			int farmCount = Integer.parseInt(farmsLine.substring("farms,".length()));
+			List<String> farmIDs = new ArrayList<String>(farmCount);
+			for (int i = 0; i < farmCount; i++) {
+				String farmID = reader.readLine();
+				if (farmID == null)
+					return null;
+				farmIDs.add(farmID);
+			}
+
+			if (!BLOCKS_HEADER.equals(reader.readLine()))
+				return null;
+
+			DateFormat dateParser = new SimpleDateFormat("y-M-d");
+			HexFormat hex = HexFormat.of();
+			List<Block> blocks = new ArrayList<Block>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] columns = line.split(",", -1);
+				if (columns.length != 5)
+					return null;
+
+				// A block ends where the next one starts
+				long offset = Long.parseLong(columns[0]);
+				if (!blocks.isEmpty()) {
+					Block previous = blocks.remove(blocks.size() - 1);
+					blocks.add(new Block(previous.offset, offset, previous.rows, previous.minTime, previous.maxTime,
+							previous.farms));
+				}
+				blocks.add(new Block(offset, size, Integer.parseInt(columns[1]),
+						dateParser.parse(columns[2]).getTime(), dateParser.parse(columns[3]).getTime(),
+						BitSet.valueOf(hex.parseHex(columns[4]))));
+			}
+
+			return new DataFileIndex(size, modified, rejectedLines, farmIDs, blocks);
+		} catch (IOException | UncheckedIOException | NumberFormatException | ParseException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the index next to its data file, replacing any index already there
+	 *
+	 * @param dataFile The data file
+	 * @throws IOException if the index could not be written
+	 */
+	void write(File dataFile) throws IOException {
+		Calendar calendar = new GregorianCalendar();
+		HexFormat hex = HexFormat.of();
+		StringBuilder text = new StringBuilder();
+		text.append(HEADER).append('\n');
+		text.append("size,").append(size).append('\n');
+		text.append("modified,").append(modified).append('\n');
+		text.append("rejected,").append(rejectedLines).append('\n');
+		text.append("farms,").append(farmIDs.size()).append('\n');
+		for (String farmID : farmIDs)
+			text.append(farmID).append('\n');
+
+		text.append(BLOCKS_HEADER).append('\n');
+		for (Block block : blocks) {
+			text.append(block.offset).append(',').append(block.rows).append(',');
+			calendar.setTimeInMillis(block.minTime);
+			text.append(MilkDataLoader.formatDate(calendar)).append(',');
+			calendar.setTimeInMillis(block.maxTime);
+			text.append(MilkDataLoader.formatDate(calendar)).append(',');
+			text.append(hex.formatHex(block.farms.toByteArray())).append('\n');
+		}
+
+		// Replace the index at once, so a load never reads half of it
+		Path file = indexFile(dataFile);
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.write(temporary, text.toString().getBytes(StandardCharsets.UTF_8));
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns the blocks which may hold entries between (inclusive) two dates,
+	 * and of a farm
+	 *
+	 * @param startDate The beginning of the date range
+	 * @param endDate   The end of the date range
+	 * @param farmID    The farm, or null for all farms
+	 * @return the blocks, in file order
+	 */
+	public List<Block> getBlocks(Date startDate, Date endDate, String farmID) {
+		int farm = farmID == null ? -1 : farmIDs.indexOf(farmID);
+		if (farmID != null && farm < 0)
+			return Collections.emptyList();
+
+		List<Block> matching = new ArrayList<Block>();
+		for (Block block : blocks)
+			if (block.minTime <= endDate.getTime() && block.maxTime >= startDate.getTime()
+					&& (farm < 0 || block.farms.get(farm)))
+				matching.add(block);
+		return matching;
+	}
+
+	/**
+	 * @return the number of lines of the data file which could not be read
+	 */
+	public int getRejectedLines() {
+		return rejectedLines;
+	}
+
+	/**
+	 * @return every block, in file order
+	 */
+	public List<Block> getBlocks() {
+		return Collections.unmodifiableList(blocks);
+	}
+
+}
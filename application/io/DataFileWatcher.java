@@ -0,0 +1,286 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.io;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import application.data.MilkEntry;
+import application.metrics.Counter;
+import application.metrics.Metrics;
+
+/**
+ * Watches the directories of loaded data files for rows appended to them and
+ * for new data files, and reads only the new rows. The directories are watched
+ * with a {@link WatchService} on a background thread, which also parses the new
+ * rows and passes them to a listener in batches.
+ *
+ * Each file is read from where it was last read: a loaded file from its size
+ * when it was loaded, and a file created after watching started from its
+ * beginning. CSV files which were already in the directories but not loaded are
+ * not read, and neither are files without the data file header, such as
+ * exported reports, nor files which shrink.
+ *
+ * @author A-Team 128
+ *
+ */
+public class DataFileWatcher {
+
+	// Metrics of the rows read as they are added, shown in the diagnostics view
+	private static final Counter FILES_CHANGED = Metrics.counter("watch.files.changed");
+	private static final Counter ENTRIES_ADDED = Metrics.counter("watch.entries.added");
+
+	// How long to wait for more changes before reading, as a file is often
+	// written in several parts
+	private static final long SETTLE_MILLIS = 250;
+
+	// Offset of a file which is not read
+	private static final long IGNORED = -1;
+
+	private final Consumer<List<MilkEntry>> listener;
+	private final MilkDataLoader loader;
+	private final Set<Path> directories;
+	private final List<DataSource> loaded;
+
+	// Offset to read each known file from, guarded by itself
+	private final HashMap<Path, Long> offsets;
+
+	private boolean started;
+	private WatchService service;
+
+	/**
+	 * Creates a watcher of the data files loaded. Data sets are not watched. Note
+	 * that nothing is watched until {@link #start()} is called.
+	 *
+	 * @param sources  The data sources loaded, with their size when they were
+	 *                 loaded
+	 * @param listener Receives the entries of the rows read, on the watching
+	 *                 thread
+	 */
+	public DataFileWatcher(List<DataSource> sources, Consumer<List<MilkEntry>> listener) {
+		this.listener = listener;
+		this.loader = new MilkDataLoader();
+		this.directories = new LinkedHashSet<Path>();
+		this.offsets = new HashMap<Path, Long>();
+		this.loaded = new ArrayList<DataSource>();
+
+		for (DataSource source : sources) {
+			if (!source.isKnown() || PartitionedDataset.isManifest(source.getFile()))
+				continue;
+			loaded.add(source);
+			Path file = source.getFile().toPath().toAbsolutePath();
+			offsets.put(file, source.getSize());
+			directories.add(file.getParent());
+		}
+	}
+
+	/**
+	 * @return whether there are data files to watch
+	 */
+	public boolean hasFiles() {
+		return !directories.isEmpty();
+	}
+
+	/**
+	 * Starts watching on a new background thread. Rows added while the watcher
+	 * was stopped are read first.
+	 *
+	 * @throws IOException if the directories could not be watched
+	 */
+	public synchronized void start() throws IOException {
+		if (service != null)
+			return;
+
+		WatchService service = FileSystems.getDefault().newWatchService();
+		try {
+			for (Path directory : directories)
+				directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			service.close();
+			throw e;
+		}
+
+		// Only files created from now on are new, the others were not selected
+		boolean first = !started;
+		started = true;
+		this.service = service;
+
+		Thread thread = new Thread(() -> watch(service, first), "Data file watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching. The rows of a change being read are still passed to the
+	 * listener.
+	 */
+	public synchronized void stop() {
+		if (service == null)
+			return;
+
+		try {
+			service.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		service = null;
+	}
+
+	/**
+	 * Reads the rows appended to the loaded data files since they were last
+	 * read, whether or not they are watched, such as when the data is refreshed.
+	 * The part of each changed file which was loaded is first checked against
+	 * its fingerprint, so only files which had rows appended are read from where
+	 * they were last read. Other files in the directories are not read.
+	 *
+	 * @return the entries read, or null if a loaded file was changed other than
+	 *         by appending rows, so the data must be loaded again
+	 */
+	public List<MilkEntry> readLoadedFiles() {
+		List<MilkEntry> entries = new ArrayList<MilkEntry>();
+
+		synchronized (offsets) {
+			for (DataSource source : loaded) {
+				if (source.isCurrent())
+					continue;
+				if (!source.isPrefixOfFile())
+					return null;
+
+				Path file = source.getFile().toPath().toAbsolutePath();
+				long offset = offsets.get(file);
+				long next = loader.readAppended(file.toFile(), offset, entries::add);
+				if (next < 0)
+					return null;
+				if (next != offset)
+					FILES_CHANGED.increment();
+				offsets.put(file, next);
+			}
+		}
+
+		ENTRIES_ADDED.add(entries.size());
+		return entries;
+	}
+
+	/**
+	 * Reads the changes to the directories until the watch service is closed
+	 *
+	 * @param service The watch service of the directories
+	 * @param first   Whether this is the first time the directories are watched
+	 */
+	private void watch(WatchService service, boolean first) {
+		try {
+			// Catch up with the rows added since the files were loaded or last read
+			if (first)
+				ignoreExistingFiles();
+			readChanges(scanDirectories());
+
+			while (true) {
+				Set<Path> changed = new LinkedHashSet<Path>();
+				boolean overflow = false;
+
+				// Collect changes until there is a pause
+				WatchKey key = service.take();
+				while (key != null) {
+					Path directory = (Path) key.watchable();
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+							overflow = true;
+						else
+							changed.add(directory.resolve((Path) event.context()));
+					}
+					key.reset();
+					key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+				}
+
+				// Events were lost, so any file may have changed
+				if (overflow)
+					changed.addAll(scanDirectories());
+
+				readChanges(changed);
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			// Stopped
+		}
+	}
+
+	/**
+	 * Reads the rows added to changed files, and passes their entries to the
+	 * listener
+	 *
+	 * @param changed The files which may have changed
+	 */
+	private void readChanges(Collection<Path> changed) {
+		List<MilkEntry> entries = new ArrayList<MilkEntry>();
+
+		synchronized (offsets) {
+			for (Path file : changed) {
+				if (!file.getFileName().toString().toLowerCase().endsWith(".csv") || !Files.isRegularFile(file))
+					continue;
+
+				long offset = offsets.getOrDefault(file, 0L);
+				if (offset == IGNORED)
+					continue;
+
+				long next = loader.readAppended(file.toFile(), offset, entries::add);
+				if (next != offset)
+					FILES_CHANGED.increment();
+				offsets.put(file, next);
+			}
+		}
+
+		if (entries.isEmpty())
+			return;
+
+		ENTRIES_ADDED.add(entries.size());
+		listener.accept(entries);
+	}
+
+	/**
+	 * Marks the CSV files in the directories which were not loaded as not to be
+	 * read
+	 */
+	private void ignoreExistingFiles() {
+		synchronized (offsets) {
+			for (Path file : scanDirectories())
+				offsets.putIfAbsent(file, IGNORED);
+		}
+	}
+
+	/**
+	 * Lists the CSV files in the directories
+	 */
+	private List<Path> scanDirectories() {
+		List<Path> files = new ArrayList<Path>();
+		for (Path directory : directories) {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.{csv,CSV}")) {
+				for (Path file : stream)
+					files.add(file.toAbsolutePath());
+			} catch (IOException e) {
+				// The directory may have been removed, its files are no longer read
+			}
+		}
+		return files;
+	}
+
+}
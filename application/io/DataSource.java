@@ -0,0 +1,282 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.zip.CRC32C;
+
+import application.data.MilkEntry;
+
+/**
+ * What is known about a data file (or data set manifest) from the last time it
+ * was loaded: its size and modification time then, the number of entries and
+ * lines which could not be read, the dates and number of farms of its entries,
+ * and a fingerprint of its contents. It is gathered while the file is read, so
+ * it costs nothing beyond the load, and is kept in the
+ * {@link DataSourceCatalog}.
+ *
+ * @author A-Team 128
+ *
+ */
+public class DataSource {
+
+	/**
+	 * Gathers the metadata of a data source as its entries are read
+	 */
+	static class Builder {
+		private final File file;
+		private final long size;
+		private final long modified;
+		private final CRC32C checksum;
+		private final HashSet<String> farmIDs;
+		private long rows;
+		private long rejectedLines;
+		private long minTime;
+		private long maxTime;
+
+		/**
+		 * Creates a builder
+		 *
+		 * @param file     The data file or manifest
+		 * @param size     The size of the file
+		 * @param modified The last modified time of the file
+		 */
+		Builder(File file, long size, long modified) {
+			this.file = file.getAbsoluteFile();
+			this.size = size;
+			this.modified = modified;
+			this.checksum = new CRC32C();
+			this.farmIDs = new HashSet<String>();
+			this.minTime = Long.MAX_VALUE;
+			this.maxTime = Long.MIN_VALUE;
+		}
+
+		/**
+		 * Adds an entry read
+		 */
+		void add(MilkEntry entry) {
+			rows++;
+			minTime = Math.min(minTime, entry.getDate().getTime());
+			maxTime = Math.max(maxTime, entry.getDate().getTime());
+			farmIDs.add(entry.getFarmID());
+		}
+
+		/**
+		 * Adds lines which could not be read
+		 */
+		void reject(long lines) {
+			rejectedLines += lines;
+		}
+
+		/**
+		 * @return the checksum the contents read are added to
+		 */
+		CRC32C getChecksum() {
+			return checksum;
+		}
+
+		/**
+		 * Builds the metadata
+		 *
+		 * @param lastUsed When the source was loaded
+		 * @return the metadata
+		 */
+		DataSource build(long lastUsed) {
+			return new DataSource(file, size, modified, rows, rejectedLines, rows == 0 ? null : new Date(minTime),
+					rows == 0 ? null : new Date(maxTime), farmIDs.size(), Long.toHexString(checksum.getValue()),
+					lastUsed);
+		}
+	}
+
+	private final File file;
+	private final long size;
+	private final long modified;
+	private final long rows;
+	private final long rejectedLines;
+	private final Date minDate;
+	private final Date maxDate;
+	private final int farms;
+	private final String fingerprint;
+	private final long lastUsed;
+
+	/**
+	 * Creates the metadata of a data source
+	 *
+	 * @param file          The data file or manifest
+	 * @param size          The size of the file when it was loaded, or -1 if it
+	 *                      has not been loaded
+	 * @param modified      The last modified time of the file when it was loaded
+	 * @param rows          The number of entries
+	 * @param rejectedLines The number of lines which could not be read
+	 * @param minDate       The date of the earliest entry, or null if there are
+	 *                      none
+	 * @param maxDate       The date of the latest entry, or null if there are none
+	 * @param farms         The number of farms with entries
+	 * @param fingerprint   A checksum of the contents, in hexadecimal
+	 * @param lastUsed      When the source was last loaded
+	 */
+	public DataSource(File file, long size, long modified, long rows, long rejectedLines, Date minDate,
+			Date maxDate, int farms, String fingerprint, long lastUsed) {
+		this.file = file;
+		this.size = size;
+		this.modified = modified;
+		this.rows = rows;
+		this.rejectedLines = rejectedLines;
+		this.minDate = minDate;
+		this.maxDate = maxDate;
+		this.farms = farms;
+		this.fingerprint = fingerprint;
+		this.lastUsed = lastUsed;
+	}
+
+	/**
+	 * Creates the metadata of a file which has not been loaded yet
+	 *
+	 * @param file     The data file or manifest
+	 * @param lastUsed When the file was last selected
+	 * @return the metadata, with nothing known but the file
+	 */
+	public static DataSource unknown(File file, long lastUsed) {
+		return new DataSource(file.getAbsoluteFile(), -1, 0, 0, 0, null, null, 0, "", lastUsed);
+	}
+
+	/**
+	 * @return the data file or manifest
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return whether the metadata was gathered from a load of the file
+	 */
+	public boolean isKnown() {
+		return size >= 0;
+	}
+
+	/**
+	 * Returns whether the file still has the size and modification time it had
+	 * when it was loaded. This reads the file's attributes, so should not be
+	 * called on the JavaFX thread.
+	 *
+	 * @return whether the metadata still describes the file
+	 */
+	public boolean isCurrent() {
+		return isKnown() && file.length() == size && file.lastModified() == modified;
+	}
+
+	/**
+	 * Returns whether the file still starts with the contents it had when it was
+	 * loaded, as when rows were only appended to it since. The part of the file
+	 * which was loaded is read and compared with the fingerprint, so this should
+	 * not be called on the JavaFX thread.
+	 *
+	 * @return whether the contents loaded are unchanged
+	 */
+	public boolean isPrefixOfFile() {
+		if (!isKnown() || file.length() < size)
+			return false;
+
+		CRC32C checksum = new CRC32C();
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long position = 0;
+			while (position < size) {
+				buffer.clear().limit((int) Math.min(buffer.capacity(), size - position));
+				int read = channel.read(buffer, position);
+				if (read < 0)
+					return false;
+				buffer.flip();
+				checksum.update(buffer);
+				position += read;
+			}
+		} catch (IOException e) {
+			return false;
+		}
+
+		return Long.toHexString(checksum.getValue()).equals(fingerprint);
+	}
+
+	/**
+	 * @return the size of the file when it was loaded
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the last modified time of the file when it was loaded
+	 */
+	public long getModified() {
+		return modified;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return the number of lines which could not be read
+	 */
+	public long getRejectedLines() {
+		return rejectedLines;
+	}
+
+	/**
+	 * @return the date of the earliest entry, or null if there are none
+	 */
+	public Date getMinDate() {
+		return minDate;
+	}
+
+	/**
+	 * @return the date of the latest entry, or null if there are none
+	 */
+	public Date getMaxDate() {
+		return maxDate;
+	}
+
+	/**
+	 * @return the number of farms with entries
+	 */
+	public int getFarms() {
+		return farms;
+	}
+
+	/**
+	 * @return a checksum of the file's contents, in hexadecimal. For a data set,
+	 *         it is of its manifest.
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @return when the source was last loaded, in milliseconds since the epoch
+	 */
+	public long getLastUsed() {
+		return lastUsed;
+	}
+
+	/**
+	 * Displays the path of the file
+	 */
+	@Override
+	public String toString() {
+		return file.getPath();
+	}
+
+}
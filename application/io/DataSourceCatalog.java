@@ -0,0 +1,195 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The data sources loaded recently, most recent first, with what was learned
+ * about each during its last load (see {@link DataSource}). The catalog is a
+ * small CSV file, so the data selection screen can show how large each source
+ * is without opening any of them. Each file is listed once, and only the
+ * {@value #MAX_SOURCES} most recent are kept.
+ *
+ * The catalog replaces recently-used.txt, whose paths are imported the first
+ * time the catalog is opened.
+ *
+ * @author A-Team 128
+ *
+ */
+public class DataSourceCatalog {
+
+	/**
+	 * The catalog used by the dashboard
+	 */
+	public static final Path DEFAULT_PATH = Paths.get("./data-sources.csv");
+
+	// The list of recently used paths the catalog replaces
+	private static final Path RECENTLY_USED_PATH = Paths.get("./recently-used.txt");
+
+	// The most data sources kept
+	static final int MAX_SOURCES = 20;
+
+	// Columns of the catalog. The path is last, as it may contain commas.
+	private static final String HEADER = "last_used,size,modified,rows,rejected_lines,min_date,max_date,farms,fingerprint,path";
+	private static final int COLUMNS = 10;
+
+	private final Path file;
+	private final List<DataSource> sources;
+
+	private DataSourceCatalog(Path file, List<DataSource> sources) {
+		this.file = file;
+		this.sources = sources;
+	}
+
+	/**
+	 * Opens the dashboard's catalog
+	 *
+	 * @return the catalog
+	 */
+	public static DataSourceCatalog open() {
+		return open(DEFAULT_PATH, RECENTLY_USED_PATH);
+	}
+
+	/**
+	 * Opens a catalog, which is empty if the file does not exist. Rows which
+	 * cannot be read are skipped.
+	 *
+	 * @param file         The catalog file
+	 * @param recentlyUsed A list of recently used paths, one per line and most
+	 *                     recent last, imported if the catalog file does not
+	 *                     exist
+	 * @return the catalog
+	 */
+	public static DataSourceCatalog open(Path file, Path recentlyUsed) {
+		List<DataSource> sources = new ArrayList<DataSource>();
+		try {
+			if (Files.exists(file))
+				sources = readSources(file);
+			else if (Files.exists(recentlyUsed)) {
+				// Most recent last, and may be listed many times
+				List<String> paths = Files.readAllLines(recentlyUsed);
+				Collections.reverse(paths);
+				for (String path : paths)
+					if (!path.isBlank())
+						add(sources, DataSource.unknown(new File(path), 0));
+			}
+		} catch (IOException | UncheckedIOException e) {
+			e.printStackTrace();
+		}
+
+		return new DataSourceCatalog(file, sources);
+	}
+
+	/**
+	 * Returns the data sources, most recently used first
+	 *
+	 * @return the data sources
+	 */
+	public List<DataSource> getSources() {
+		return Collections.unmodifiableList(sources);
+	}
+
+	/**
+	 * Records data sources which were just loaded, replacing what was known about
+	 * them
+	 *
+	 * @param loaded The sources loaded, in the order they were loaded
+	 */
+	public void record(List<DataSource> loaded) {
+		// Keep the order they were loaded in, ahead of older sources
+		List<DataSource> recorded = new ArrayList<DataSource>();
+		for (DataSource source : loaded)
+			add(recorded, source);
+		for (DataSource source : sources)
+			add(recorded, source);
+		sources.clear();
+		sources.addAll(recorded.subList(0, Math.min(recorded.size(), MAX_SOURCES)));
+	}
+
+	/**
+	 * Writes the catalog to its file
+	 *
+	 * @throws IOException if the catalog could not be written
+	 */
+	public void save() throws IOException {
+		DateFormat dateFormat = new SimpleDateFormat("y-M-d");
+		StringBuilder text = new StringBuilder(HEADER).append('\n');
+		for (DataSource source : sources) {
+			text.append(source.getLastUsed()).append(',');
+			text.append(source.getSize()).append(',');
+			text.append(source.getModified()).append(',');
+			text.append(source.getRows()).append(',');
+			text.append(source.getRejectedLines()).append(',');
+			text.append(source.getMinDate() == null ? "" : dateFormat.format(source.getMinDate())).append(',');
+			text.append(source.getMaxDate() == null ? "" : dateFormat.format(source.getMaxDate())).append(',');
+			text.append(source.getFarms()).append(',');
+			text.append(source.getFingerprint()).append(',');
+			text.append(source.getFile().getPath()).append('\n');
+		}
+
+		// Replace the catalog at once, so it is never left half written
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.write(temporary, text.toString().getBytes(StandardCharsets.UTF_8));
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads the rows of a catalog file
+	 */
+	private static List<DataSource> readSources(Path file) throws IOException {
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		List<DataSource> sources = new ArrayList<DataSource>();
+		if (lines.isEmpty() || !lines.get(0).equals(HEADER))
+			return sources;
+
+		DateFormat dateParser = new SimpleDateFormat("y-M-d");
+		for (String line : lines.subList(1, lines.size())) {
+			String[] columns = line.split(",", COLUMNS);
+			if (columns.length != COLUMNS)
+				continue;
+
+			try {
+				Date minDate = columns[5].isEmpty() ? null : dateParser.parse(columns[5]);
+				Date maxDate = columns[6].isEmpty() ? null : dateParser.parse(columns[6]);
+				add(sources,
+						new DataSource(new File(columns[9]), Long.parseLong(columns[1]), Long.parseLong(columns[2]),
+								Long.parseLong(columns[3]), Long.parseLong(columns[4]), minDate, maxDate,
+								Integer.parseInt(columns[7]), columns[8], Long.parseLong(columns[0])));
+			} catch (NumberFormatException | ParseException e) {
+				// Skip the row
+			}
+		}
+
+		return sources;
+	}
+
+	/**
+	 * Adds a source to the end of a list, unless its file is already listed
+	 */
+	private static void add(List<DataSource> sources, DataSource source) {
+		for (DataSource listed : sources)
+			if (listed.getFile().equals(source.getFile()))
+				return;
+		sources.add(source);
+	}
+
+}
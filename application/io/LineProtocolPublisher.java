@@ -0,0 +1,287 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import application.data.MilkEntry;
+import application.metrics.Counter;
+import application.metrics.Metrics;
+
+/**
+ * Publishes the rows sent to a TCP port as batches of entries, a stand-in for a
+ * live feed from the scale house. Each line sent is a row as in a data file
+ * (date,farm_id,weight); a data file's header line is skipped, so a data file
+ * can be sent as it is. Connections are read one at a time, in the order they
+ * were made.
+ *
+ * Rows are read only while the subscriber has demand: otherwise the reading
+ * thread waits, and the sender is held back by TCP. A batch holds up to
+ * {@value #BATCH_ROWS} rows, and is published early when no more have arrived,
+ * so a slow feed is not delayed.
+ *
+ * There is a single subscriber, which is completed when the publisher is
+ * closed.
+ *
+ * @author A-Team 128
+ *
+ */
+public class LineProtocolPublisher implements Flow.Publisher<List<MilkEntry>>, Closeable {
+
+	// The most rows in a batch
+	public static final int BATCH_ROWS = 4096;
+
+	// Metrics of the rows received, shown in the diagnostics view
+	private static final Counter CONNECTIONS = Metrics.counter("stream.connections");
+	private static final Counter LINES_PARSED = Metrics.counter("stream.lines.parsed");
+	private static final Counter LINES_REJECTED = Metrics.counter("stream.lines.rejected");
+	private static final Counter CLOSE_FAILURES = Metrics.counter("stream.close.failures");
+
+	/**
+	 * The subscription of the subscriber, whose rows are read on its own thread
+	 */
+	private class LineSubscription implements Flow.Subscription, Runnable {
+		private final Flow.Subscriber<? super List<MilkEntry>> subscriber;
+
+		// Batches requested but not published yet, guarded by this
+		private long demand;
+		private boolean cancelled;
+		private IllegalArgumentException requestError;
+
+		private LineSubscription(Flow.Subscriber<? super List<MilkEntry>> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public synchronized void request(long n) {
+			if (n <= 0)
+				requestError = new IllegalArgumentException("Requested " + n + " batches, should be positive");
+			else
+				demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+			notifyAll();
+		}
+
+		@Override
+		public void cancel() {
+			synchronized (this) {
+				cancelled = true;
+				notifyAll();
+			}
+
+			// Nothing more can be published, so stop listening. The subscriber is
+			// not signalled after cancelling, so a failure is only counted.
+			try {
+				close();
+			} catch (IOException e) {
+				CLOSE_FAILURES.increment();
+			}
+		}
+
+		/**
+		 * Reads each connection until the publisher is closed or the subscription
+		 * cancelled
+		 */
+		@Override
+		public void run() {
+			try {
+				while (!isCancelled()) {
+					Socket socket;
+					try {
+						socket = serverSocket.accept();
+					} catch (IOException e) {
+						// The publisher was closed
+						break;
+					}
+
+					CONNECTIONS.increment();
+					try {
+						setConnection(socket);
+						readConnection(socket);
+					} catch (IOException e) {
+						// The publisher was closed
+					} finally {
+						closeConnection();
+					}
+				}
+
+				if (!isCancelled())
+					subscriber.onComplete();
+			} catch (IllegalArgumentException e) {
+				subscriber.onError(e);
+			} catch (InterruptedException e) {
+				// Stopped
+			}
+		}
+
+		/**
+		 * Publishes the rows of a connection until it is closed. The rows received
+		 * before it was closed are published, even if it was closed by the
+		 * publisher.
+		 */
+		private void readConnection(Socket socket) throws IOException, InterruptedException {
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 64 * 1024);
+			DateFormat dateParser = new SimpleDateFormat("y-M-d");
+			List<MilkEntry> batch = new ArrayList<MilkEntry>(BATCH_ROWS);
+
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					MilkEntry entry = MilkDataLoader.parseRow(line, dateParser);
+					if (entry != null) {
+						batch.add(entry);
+						LINES_PARSED.increment();
+					} else if (!line.strip().equals(MilkDataLoader.HEADER)) {
+						rejectedLines++;
+						LINES_REJECTED.increment();
+					}
+
+					// Publish a full batch, or whatever arrived once the sender pauses
+					if (batch.size() == BATCH_ROWS || (!batch.isEmpty() && !reader.ready())) {
+						if (!publish(batch))
+							return;
+						batch = new ArrayList<MilkEntry>(BATCH_ROWS);
+					}
+				}
+			} catch (IOException e) {
+				// The sender disconnected, or the publisher was closed
+			}
+
+			if (!batch.isEmpty())
+				publish(batch);
+		}
+
+		/**
+		 * Waits for demand, then publishes a batch
+		 *
+		 * @return whether the subscription is still active
+		 */
+		private boolean publish(List<MilkEntry> batch) throws InterruptedException {
+			synchronized (this) {
+				while (demand == 0 && !cancelled && requestError == null)
+					wait();
+				if (requestError != null)
+					throw requestError;
+				if (cancelled)
+					return false;
+				demand--;
+			}
+
+			subscriber.onNext(batch);
+			return true;
+		}
+
+		private synchronized boolean isCancelled() {
+			return cancelled;
+		}
+	}
+
+	private final ServerSocket serverSocket;
+	private LineSubscription subscription;
+	private Socket connection;
+	private volatile long rejectedLines;
+
+	/**
+	 * Creates a publisher listening on an address. Connections are accepted once
+	 * it is subscribed to.
+	 *
+	 * @param address The address to listen on, usually the loopback address
+	 * @throws IOException if the address could not be bound
+	 */
+	public LineProtocolPublisher(InetSocketAddress address) throws IOException {
+		this.serverSocket = new ServerSocket();
+		serverSocket.bind(address);
+	}
+
+	/**
+	 * @return the port the publisher listens on
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * @return the number of lines received which could not be parsed
+	 */
+	public long getRejectedLines() {
+		return rejectedLines;
+	}
+
+	@Override
+	public synchronized void subscribe(Flow.Subscriber<? super List<MilkEntry>> subscriber) {
+		if (subscription != null) {
+			// Rows can only be read once, so there is a single subscriber
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+				}
+
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("The publisher already has a subscriber"));
+			return;
+		}
+
+		subscription = new LineSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+
+		Thread thread = new Thread(subscription, "Line protocol publisher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops listening and closes the connection being read. The rows already
+	 * received are published, then the subscriber is completed.
+	 *
+	 * @throws IOException if the socket could not be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		closeConnection();
+	}
+
+	/**
+	 * Remembers the connection being read, so it can be closed
+	 */
+	private synchronized void setConnection(Socket socket) throws IOException {
+		if (serverSocket.isClosed())
+			socket.close();
+		connection = socket;
+	}
+
+	/**
+	 * Closes the connection being read, if any
+	 */
+	private synchronized void closeConnection() {
+		if (connection == null)
+			return;
+
+		try {
+			connection.close();
+		} catch (IOException e) {
+			// Closing anyway
+		}
+		connection = null;
+	}
+
+}
@@ -0,0 +1,191 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.Checksum;
+
+/**
+ * Reads the lines of a file through a FileChannel, keeping track of the byte
+ * offset each line starts at. Lines end with \n, \r\n or \r, which is not part
+ * of the line returned. The reader can be moved to any offset, and limited to
+ * the lines starting before another, so a part of a file can be read without
+ * reading what comes before it. The bytes read can be added to a checksum,
+ * which is of the whole file when it is read from start to end without
+ * seeking.
+ *
+ * @author A-Team 128
+ *
+ */
+class LineReader {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final FileChannel channel;
+	private final Charset charset;
+	private final Checksum checksum;
+
+	// The bytes read, buffer[0] is at bufferOffset in the file
+	private byte[] buffer;
+	private long bufferOffset;
+	private int start;
+	private int end;
+	private boolean endOfFile;
+
+	// Lines starting at or after this offset are not read
+	private long limit;
+
+	private long lineOffset;
+	private boolean lineTerminated;
+	private long bytesRead;
+
+	/**
+	 * Creates a reader of a file's lines from its beginning
+	 *
+	 * @param channel  The file's channel
+	 * @param charset  The encoding of the file
+	 * @param checksum The checksum bytes read are added to, or null
+	 */
+	LineReader(FileChannel channel, Charset charset, Checksum checksum) {
+		this.channel = channel;
+		this.charset = charset;
+		this.checksum = checksum;
+		this.buffer = new byte[BUFFER_SIZE];
+		this.limit = Long.MAX_VALUE;
+	}
+
+	/**
+	 * Moves the reader to an offset, and stops it at another
+	 *
+	 * @param offset The offset of the next line to read
+	 * @param limit  The offset from which lines are not read
+	 */
+	void seek(long offset, long limit) {
+		this.limit = limit;
+
+		// Keep the buffer if the offset is in it, as when reading adjacent parts
+		if (offset >= bufferOffset && offset <= bufferOffset + end) {
+			start = (int) (offset - bufferOffset);
+			return;
+		}
+
+		bufferOffset = offset;
+		start = 0;
+		end = 0;
+		endOfFile = false;
+	}
+
+	/**
+	 * Reads the next line
+	 *
+	 * @return the line, or null if the end of the file or the limit was reached
+	 * @throws IOException if the file could not be read
+	 */
+	String readLine() throws IOException {
+		if (getPosition() >= limit)
+			return null;
+
+		int scanned = start;
+		while (true) {
+			// Look for the end of the line in the bytes read so far
+			int i = scanned;
+			while (i < end && buffer[i] != '\n' && buffer[i] != '\r')
+				i++;
+
+			if (i < end) {
+				if (buffer[i] == '\n')
+					return takeLine(i, i + 1);
+				if (i + 1 < end)
+					return takeLine(i, buffer[i + 1] == '\n' ? i + 2 : i + 1);
+				if (endOfFile) {
+					// A \r at the end of the file may yet be followed by a \n
+					String line = takeLine(i, i + 1);
+					lineTerminated = false;
+					return line;
+				}
+				// A \r at the end of the bytes read may be followed by a \n
+			} else if (endOfFile)
+				return start == end ? null : takeLine(end, end);
+
+			// Keep the partial line and read more after it
+			int kept = end - start;
+			scanned = i - start;
+			if (kept == buffer.length)
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			else
+				System.arraycopy(buffer, start, buffer, 0, kept);
+			bufferOffset += start;
+			start = 0;
+			end = kept;
+			fill();
+		}
+	}
+
+	/**
+	 * Returns the line from the start of the unread bytes to an index, and moves
+	 * past it
+	 */
+	private String takeLine(int lineEnd, int next) {
+		lineOffset = bufferOffset + start;
+		lineTerminated = next > lineEnd;
+		String line = new String(buffer, start, lineEnd - start, charset);
+		start = next;
+		return line;
+	}
+
+	/**
+	 * Reads bytes into the free end of the buffer
+	 */
+	private void fill() throws IOException {
+		int read = channel.read(ByteBuffer.wrap(buffer, end, buffer.length - end), bufferOffset + end);
+		if (read < 0)
+			endOfFile = true;
+		else {
+			if (checksum != null)
+				checksum.update(buffer, end, read);
+			end += read;
+			bytesRead += read;
+		}
+	}
+
+	/**
+	 * @return the offset of the line last read
+	 */
+	long getLineOffset() {
+		return lineOffset;
+	}
+
+	/**
+	 * Returns whether the line last read ended with a line break. The last line of
+	 * a file may not, for example while it is still being written, and neither
+	 * does one ending with a \r at the end of the file, as a \n may follow.
+	 *
+	 * @return whether the line last read is complete
+	 */
+	boolean isLineTerminated() {
+		return lineTerminated;
+	}
+
+	/**
+	 * @return the offset of the next line to read
+	 */
+	long getPosition() {
+		return bufferOffset + start;
+	}
+
+	/**
+	 * @return the number of bytes read from the file
+	 */
+	long getBytesRead() {
+		return bytesRead;
+	}
+
+}
@@ -0,0 +1,585 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+
+import application.data.LazyMilkData;
+import application.data.MilkData;
+import application.data.MilkEntry;
+import application.data.MonthPartition;
+import application.metrics.Counter;
+import application.metrics.FileParseEvent;
+import application.metrics.Histogram;
+import application.metrics.Metrics;
+
+/**
+ * Reads milk data CSV files (date,farm_id,weight) into a {@link MilkData}.
+ * Files without the expected header and rows which cannot be parsed are skipped
+ * and counted. The manifest of a {@link PartitionedDataset} may be given in
+ * place of data files: loaded on its own, its months are read lazily,
+ * otherwise all of them are read. This class does not depend on JavaFX, so it can be used by both
+ * the dashboard and the headless command line.
+ *
+ * The first time a data file is read in full, a {@link DataFileIndex} of it is
+ * written next to it, which loads of a date range or farm use to read only the
+ * parts of the file which may hold their entries. The metadata of each file
+ * read in full is gathered as a {@link DataSource} for the
+ * {@link DataSourceCatalog}.
+ *
+ * @author A-Team 128
+ *
+ */
+public class MilkDataLoader {
+
+	// The first row every data file must have
+	public static final String HEADER = "date,farm_id,weight";
+
+	// Metrics of every load, shown in the diagnostics view
+	private static final Histogram FILE_PARSE_TIME = Metrics.timer("ingest.file.parse");
+	private static final Histogram FILE_THROUGHPUT = Metrics.histogram("ingest.file.throughput", "rows/s");
+	private static final Histogram ORGANIZE_TIME = Metrics.timer("data.organize");
+	private static final Counter FILES_READ = Metrics.counter("ingest.files.read");
+	private static final Counter FILES_REJECTED = Metrics.counter("ingest.files.rejected");
+	private static final Counter BYTES_READ = Metrics.counter("ingest.bytes.read");
+	private static final Counter LINES_PARSED = Metrics.counter("ingest.lines.parsed");
+	private static final Counter LINES_REJECTED = Metrics.counter("ingest.lines.rejected");
+	private static final Counter INDEXES_WRITTEN = Metrics.counter("ingest.index.written");
+	private static final Counter BYTES_SKIPPED = Metrics.counter("ingest.bytes.skipped");
+
+	/**
+	 * The entries a load is limited to
+	 */
+	private static class Region {
+		private final Date startDate;
+		private final Date endDate;
+		private final String farmID;
+
+		private Region(Date startDate, Date endDate, String farmID) {
+			this.startDate = startDate;
+			this.endDate = endDate;
+			this.farmID = farmID;
+		}
+
+		/**
+		 * Returns whether an entry is in the region
+		 */
+		private boolean contains(MilkEntry entry) {
+			long time = entry.getDate().getTime();
+			return time >= startDate.getTime() && time <= endDate.getTime()
+					&& (farmID == null || farmID.equals(entry.getFarmID()));
+		}
+	}
+
+	private int rejectedFiles;
+	private int rejectedLines;
+
+	// Lines of indexed files which could not be parsed when they were indexed,
+	// in the parts of the files a load skipped
+	private int skippedRejectedLines;
+	private long parsedLines;
+	private List<DataSource> sources = new ArrayList<DataSource>();
+
+	/**
+	 * Reads all entries of the specified files into a new, organized MilkData
+	 *
+	 * @param files The files to read
+	 * @return A MilkData object containing all of the data found
+	 */
+	public MilkData load(List<File> files) {
+		// A partitioned data set on its own is read lazily
+		if (files.size() == 1 && PartitionedDataset.isManifest(files.get(0))) {
+			rejectedFiles = 0;
+			rejectedLines = 0;
+			skippedRejectedLines = 0;
+			parsedLines = 0;
+			sources = new ArrayList<DataSource>();
+			try {
+				LazyMilkData data = PartitionedDataset.open(files.get(0).toPath());
+				sources.add(describeDataset(files.get(0), data.getMonthPartitions()));
+				return data;
+			} catch (IOException e) {
+				// Counted as rejected when it is read like any other file below
+			}
+		}
+
+		return load(files, (MilkEntry entry) -> true);
+	}
+
+	/**
+	 * Reads the entries of the specified files which pass a filter into a new,
+	 * organized MilkData
+	 *
+	 * @param files  The files to read
+	 * @param filter Decides which of the entries read are kept
+	 * @return A MilkData object containing the entries which passed the filter
+	 */
+	public MilkData load(List<File> files, Predicate<MilkEntry> filter) {
+		MilkData data = new MilkData();
+
+		rejectedFiles = 0;
+		rejectedLines = 0;
+		skippedRejectedLines = 0;
+		parsedLines = 0;
+		sources = new ArrayList<DataSource>();
+
+		// Date format for reading dates in year-month-day format (Eg. 2019-1-2)
+		DateFormat dateParser = new SimpleDateFormat("y-M-d");
+
+		// Loop through all data files
+		for (File dataFile : files)
+			readFile(dataFile, dateParser, null, null, (MilkEntry entry) -> {
+				if (filter.test(entry))
+					data.addEntry(entry);
+			});
+
+		// Sort all of the data after adding it to the data structure
+		long organizeStart = System.nanoTime();
+		data.organize();
+		ORGANIZE_TIME.recordSince(organizeStart);
+
+		return data;
+	}
+
+	/**
+	 * Reads the entries of the specified files between (inclusive) two dates, and
+	 * optionally of one farm, into a new, organized MilkData. Files with an up to
+	 * date index only have the parts which may hold such entries read. Lines
+	 * which are not read are not counted as parsed, but lines the index recorded
+	 * as rejected are, so the rejected lines are those of a full read.
+	 *
+	 * @param files     The files to read
+	 * @param startDate The beginning of the date range
+	 * @param endDate   The end of the date range
+	 * @param farmID    The farm whose entries are read, or null for all farms
+	 * @return A MilkData object containing the entries in the range
+	 */
+	public MilkData load(List<File> files, Date startDate, Date endDate, String farmID) {
+		MilkData data = new MilkData();
+		Region region = new Region(startDate, endDate, farmID);
+
+		rejectedFiles = 0;
+		rejectedLines = 0;
+		skippedRejectedLines = 0;
+		parsedLines = 0;
+		sources = new ArrayList<DataSource>();
+
+		DateFormat dateParser = new SimpleDateFormat("y-M-d");
+		for (File dataFile : files)
+			readFile(dataFile, dateParser, region, null, (MilkEntry entry) -> {
+				if (region.contains(entry))
+					data.addEntry(entry);
+			});
+
+		long organizeStart = System.nanoTime();
+		data.organize();
+		ORGANIZE_TIME.recordSince(organizeStart);
+
+		return data;
+	}
+
+	/**
+	 * Reads the entries of a single file, without organizing them. Lines and
+	 * files which could not be read are counted as by a load.
+	 *
+	 * @param file The file to read
+	 * @return the entries of the file, in the order they were read
+	 */
+	public List<MilkEntry> read(File file) {
+		List<MilkEntry> entries = new ArrayList<MilkEntry>();
+
+		rejectedFiles = 0;
+		rejectedLines = 0;
+		skippedRejectedLines = 0;
+		parsedLines = 0;
+		sources = new ArrayList<DataSource>();
+
+		readFile(file, new SimpleDateFormat("y-M-d"), null, null, entries::add);
+		return entries;
+	}
+
+	/**
+	 * Reads the complete lines of a data file from an offset, such as the lines
+	 * appended since it was last read. A last line without a line break is left
+	 * for the next read, as it may still be being written. Lines and files which
+	 * could not be read are counted as by a load.
+	 *
+	 * @param file     The data file
+	 * @param offset   The offset to read from, 0 for a file not read before
+	 * @param consumer Receives each entry read
+	 * @return the offset to read from next time, or -1 if the file is not a data
+	 *         file or is now smaller than the offset
+	 */
+	public long readAppended(File file, long offset, Consumer<MilkEntry> consumer) {
+		rejectedFiles = 0;
+		rejectedLines = 0;
+		skippedRejectedLines = 0;
+		parsedLines = 0;
+		sources = new ArrayList<DataSource>();
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			// The file was truncated or replaced, so its rows cannot be told apart
+			if (channel.size() < offset)
+				return -1;
+
+			LineReader reader = new LineReader(channel, Charset.defaultCharset(), null);
+			if (offset == 0) {
+				String header = reader.readLine();
+				if (header == null || !reader.isLineTerminated())
+					return 0;
+				if (!header.strip().equals(HEADER)) {
+					rejectedFiles++;
+					FILES_REJECTED.increment();
+					return -1;
+				}
+			} else
+				reader.seek(offset, Long.MAX_VALUE);
+
+			long next = readLines(reader, new SimpleDateFormat("y-M-d"), consumer, null, null, true);
+			BYTES_READ.add(reader.getBytesRead());
+			LINES_PARSED.add(parsedLines);
+			LINES_REJECTED.add(rejectedLines);
+			return next;
+		} catch (IOException e) {
+			// The file may be being replaced, it is read again on its next change
+			rejectedFiles++;
+			FILES_REJECTED.increment();
+			return offset;
+		}
+	}
+
+	/**
+	 * Reads the entries of the partitions of a {@link PartitionedDataset}
+	 *
+	 * @param manifest   The manifest of the data set
+	 * @param dateParser The format dates are parsed with
+	 * @param region     The entries needed, or null if all are
+	 * @param source     The data set the manifest is a partition of, or null if
+	 *                   it is a data source of its own
+	 * @param consumer   Receives each entry read
+	 */
+	private void readDataSet(File manifest, DateFormat dateParser, Region region, DataSource.Builder source,
+			Consumer<MilkEntry> consumer) {
+		boolean ownSource = source == null;
+		if (ownSource) {
+			source = new DataSource.Builder(manifest, manifest.length(), manifest.lastModified());
+			try {
+				source.getChecksum().update(Files.readAllBytes(manifest.toPath()));
+			} catch (IOException e) {
+				// If the manifest could not be read, note it in the total count
+				rejectedFiles++;
+				FILES_REJECTED.increment();
+				return;
+			}
+		}
+
+		if (readPartitions(manifest, dateParser, region, source, consumer) && ownSource && region == null)
+			sources.add(source.build(System.currentTimeMillis()));
+	}
+
+	/**
+	 * Reads the entries of a data file, or of the partitions of a
+	 * {@link PartitionedDataset} if the file is its manifest
+	 *
+	 * @param dataFile   The file to read
+	 * @param dateParser The format dates are parsed with
+	 * @param region     The entries needed, or null if all are
+	 * @param source     The data set the file is a partition of, or null if the
+	 *                   file is a data source of its own
+	 * @param consumer   Receives each entry read, which may be outside of the
+	 *                   region
+	 */
+	private void readFile(File dataFile, DateFormat dateParser, Region region, DataSource.Builder source,
+			Consumer<MilkEntry> consumer) {
+		// A partitioned data set, read its partitions
+		if (PartitionedDataset.isManifest(dataFile)) {
+			readDataSet(dataFile, dateParser, region, source, consumer);
+			return;
+		}
+
+		FileParseEvent event = new FileParseEvent();
+		event.begin();
+		long fileStart = System.nanoTime();
+		long fileParsedLines = parsedLines;
+		int fileRejectedLines = rejectedLines;
+		long bytesRead;
+
+		try (FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			long modified = dataFile.lastModified();
+
+			// A partition's contents are not part of its data set's fingerprint
+			boolean ownSource = source == null;
+			if (ownSource)
+				source = new DataSource.Builder(dataFile, size, modified);
+			LineReader reader = new LineReader(channel, Charset.defaultCharset(),
+					ownSource ? source.getChecksum() : null);
+
+			// Ensure the files passed meet the specification by checking the first row
+			String header = reader.readLine();
+			header = header == null ? "" : header.strip();
+			if (!header.equals(HEADER)) {
+				rejectedFiles++;
+				FILES_REJECTED.increment();
+				return;
+			}
+
+			DataFileIndex index = region == null ? null : DataFileIndex.read(dataFile, size, modified);
+			if (index != null) {
+				// Only read the blocks which may hold entries in the region
+				for (DataFileIndex.Block block : index.getBlocks(region.startDate, region.endDate, region.farmID)) {
+					reader.seek(block.getOffset(), block.getEnd());
+					readLines(reader, dateParser, consumer, source, null, false);
+				}
+
+				// The lines rejected in the blocks skipped, as counted when indexing
+				skippedRejectedLines += Math.max(0, index.getRejectedLines() - (rejectedLines - fileRejectedLines));
+			} else {
+				// Read the whole file, indexing it if it has not been
+				DataFileIndex.Builder builder = DataFileIndex.isCurrent(dataFile, size, modified) ? null
+						: new DataFileIndex.Builder(reader.getPosition());
+				readLines(reader, dateParser, consumer, source, builder, false);
+
+				if (builder != null) {
+					try {
+						builder.build(size, modified, rejectedLines - fileRejectedLines).write(dataFile);
+						INDEXES_WRITTEN.increment();
+					} catch (IOException e) {
+						// The directory may be read-only, the file is still read in full
+					}
+				}
+			}
+
+			bytesRead = reader.getBytesRead();
+			BYTES_SKIPPED.add(Math.max(0, size - bytesRead));
+
+			// Only a full read describes the whole source
+			source.reject(rejectedLines - fileRejectedLines);
+			if (ownSource && region == null)
+				sources.add(source.build(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// If the file could not be opened or read, note it in the total count
+			rejectedFiles++;
+			FILES_REJECTED.increment();
+			return;
+		}
+
+		long fileNanos = System.nanoTime() - fileStart;
+		long fileLines = parsedLines - fileParsedLines + rejectedLines - fileRejectedLines;
+		FILE_PARSE_TIME.record(fileNanos);
+		FILE_THROUGHPUT.record(fileLines * 1_000_000_000L / Math.max(1, fileNanos));
+		FILES_READ.increment();
+		BYTES_READ.add(bytesRead);
+		LINES_PARSED.add(parsedLines - fileParsedLines);
+		LINES_REJECTED.add(rejectedLines - fileRejectedLines);
+
+		event.path = dataFile.getPath();
+		event.bytes = bytesRead;
+		event.rows = parsedLines - fileParsedLines;
+		event.rejected = rejectedLines - fileRejectedLines;
+		event.commit();
+	}
+
+	/**
+	 * Parses the lines of a data file until the reader's end
+	 *
+	 * @param reader        The reader of the file, after its header
+	 * @param dateParser    The format dates are parsed with
+	 * @param consumer      Receives each entry read
+	 * @param source        Gathers the metadata of each entry read, or null
+	 * @param builder       Indexes each entry read, or null
+	 * @param completeLines Whether to stop at a last line without a line break
+	 *                      rather than parse it
+	 * @return the offset after the last line parsed
+	 * @throws IOException if the file could not be read
+	 */
+	private long readLines(LineReader reader, DateFormat dateParser, Consumer<MilkEntry> consumer,
+			DataSource.Builder source, DataFileIndex.Builder builder, boolean completeLines) throws IOException {
+		// Loop through each line of the file
+		String line;
+		while ((line = reader.readLine()) != null) {
+			// The last line may still be being written
+			if (completeLines && !reader.isLineTerminated())
+				return reader.getLineOffset();
+
+			MilkEntry entry = parseRow(line, dateParser);
+			if (entry == null) {
+				// If the row could not be parsed, note it in the total count
+				rejectedLines++;
+				continue;
+			}
+
+			parsedLines++;
+			if (source != null)
+				source.add(entry);
+			if (builder != null)
+				builder.add(reader.getLineOffset(), entry);
+			consumer.accept(entry);
+		}
+
+		return reader.getPosition();
+	}
+
+	/**
+	 * Parses a row of a data file
+	 *
+	 * @param line       The row, as date,farm_id,weight
+	 * @param dateParser The format dates are parsed with
+	 * @return the entry, or null if the row could not be parsed
+	 */
+	static MilkEntry parseRow(String line, DateFormat dateParser) {
+		String row[] = line.strip().split(",");
+
+		// Ensure there are three columns in each row
+		if (row.length != 3)
+			return null;
+
+		try {
+			// Parse the date from column 1
+			Date date = dateParser.parse(row[0].strip());
+
+			// Grab the farm ID from column 2
+			String farmID = row[1].strip();
+
+			// Parse the weight from column 3
+			int weight = Integer.parseInt(row[2].strip());
+
+			return new MilkEntry(farmID, date, weight);
+		} catch (ParseException | NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Formats the date a calendar is set to as year-month-day, as the dates of
+	 * data files are written, for the files and indexes written next to them
+	 *
+	 * @param calendar The calendar, set to the date
+	 * @return the date, such as 2019-1-2
+	 */
+	static String formatDate(Calendar calendar) {
+		return calendar.get(Calendar.YEAR) + "-" + (calendar.get(Calendar.MONTH) + 1) + "-"
+				+ calendar.get(Calendar.DAY_OF_MONTH);
+	}
+
+	/**
+	 * Reads the partitions of a partitioned data set
+	 *
+	 * @param manifest   The manifest of the data set
+	 * @param dateParser The format dates are parsed with
+	 * @param region     The entries needed, or null if all are
+	 * @param source     Gathers the metadata of the data set
+	 * @param consumer   Receives each entry read
+	 * @return whether the manifest could be read
+	 */
+	private boolean readPartitions(File manifest, DateFormat dateParser, Region region, DataSource.Builder source,
+			Consumer<MilkEntry> consumer) {
+		List<MonthPartition> partitions;
+		try {
+			partitions = PartitionedDataset.readManifest(manifest.toPath());
+		} catch (IOException e) {
+			rejectedFiles++;
+			FILES_REJECTED.increment();
+			return false;
+		}
+
+		for (MonthPartition partition : partitions)
+			if (region == null || (partition.overlaps(region.startDate, region.endDate)
+					&& (region.farmID == null || partition.getFarmIDs().contains(region.farmID))))
+				readFile(PartitionedDataset.partitionFile(manifest.toPath(), partition).toFile(), dateParser, region,
+						source, consumer);
+		return true;
+	}
+
+	/**
+	 * Describes a data set opened lazily from the metadata of its partitions, as
+	 * reading it in full would
+	 *
+	 * @param manifest   The manifest of the data set
+	 * @param partitions The partitions of the data set
+	 * @return the metadata of the data set
+	 * @throws IOException if the manifest could not be read
+	 */
+	private static DataSource describeDataset(File manifest, Collection<MonthPartition> partitions) throws IOException {
+		long rows = 0;
+		Date minDate = null;
+		Date maxDate = null;
+		HashSet<String> farmIDs = new HashSet<String>();
+		for (MonthPartition partition : partitions) {
+			rows += partition.getRows();
+			if (minDate == null || partition.getMinDate().before(minDate))
+				minDate = partition.getMinDate();
+			if (maxDate == null || partition.getMaxDate().after(maxDate))
+				maxDate = partition.getMaxDate();
+			farmIDs.addAll(partition.getFarmIDs());
+		}
+
+		// Fingerprinted by its manifest, as when it is read in full
+		CRC32C checksum = new CRC32C();
+		checksum.update(Files.readAllBytes(manifest.toPath()));
+
+		return new DataSource(manifest.getAbsoluteFile(), manifest.length(), manifest.lastModified(), rows, 0,
+				minDate, maxDate, farmIDs.size(), Long.toHexString(checksum.getValue()), System.currentTimeMillis());
+	}
+
+	/**
+	 * Returns the metadata of each data file or data set read in full by the last
+	 * load, in the order they were read. Loads of a date range or farm do not
+	 * describe their files.
+	 *
+	 * @return the metadata of the files read
+	 */
+	public List<DataSource> getSources() {
+		return sources;
+	}
+
+	/**
+	 * Returns the number of files which could not be read by the last load
+	 *
+	 * @return the number of files which could not be read
+	 */
+	public int getRejectedFiles() {
+		return rejectedFiles;
+	}
+
+	/**
+	 * Returns the number of lines which were parsed by the last load, whether or
+	 * not they passed the filter
+	 *
+	 * @return the number of lines which were parsed
+	 */
+	public long getParsedLines() {
+		return parsedLines;
+	}
+
+	/**
+	 * Returns the number of lines which could not be parsed by the last load
+	 *
+	 * @return the number of lines which could not be parsed
+	 */
+	public int getRejectedLines() {
+		return rejectedLines + skippedRejectedLines;
+	}
+
+}
@@ -0,0 +1,229 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.TreeSet;
+
+import application.data.LazyMilkData;
+import application.data.MilkData;
+import application.data.MilkEntry;
+import application.data.MonthPartition;
+
+/**
+ * A data set stored on disk partitioned by year and month, mirroring MilkData's
+ * month hierarchy, so a query for one month only reads that month. The layout
+ * of a data set directory is:
+ * <ul>
+ * <li>manifest.csv - one row per month: year,month,rows,min_date,max_date</li>
+ * <li>YYYY/YYYY-MM.csv - the month's entries, as an ordinary data file</li>
+ * <li>YYYY/YYYY-MM.farms - the farm IDs with entries in the month, one per
+ * line</li>
+ * </ul>
+ * Months are numbered 1-12 and dates are written as year-month-day, as in data
+ * files.
+ *
+ * @author A-Team 128
+ *
+ */
+public final class PartitionedDataset {
+
+	// Name and first row of the file describing the partitions
+	public static final String MANIFEST_NAME = "manifest.csv";
+	public static final String MANIFEST_HEADER = "year,month,rows,min_date,max_date";
+
+	private PartitionedDataset() {
+	}
+
+	/**
+	 * Writes data into a data set directory, replacing the manifest of any data
+	 * set already there
+	 *
+	 * @param data      The data to write
+	 * @param directory The directory to write the data set into
+	 * @return the number of partitions written
+	 * @throws IOException if the data set could not be written
+	 */
+	public static int write(MilkData data, Path directory) throws IOException {
+		Files.createDirectories(directory);
+		Calendar calendar = new GregorianCalendar();
+		StringBuilder manifest = new StringBuilder(MANIFEST_HEADER).append('\n');
+		int partitions = 0;
+
+		for (int year : data.getValidYears()) {
+			for (int month = 0; month < 12; month++) {
+				List<MilkEntry> entries = data.getEntriesForMonth(year, month);
+				if (entries.isEmpty())
+					continue;
+
+				Path file = partitionFile(directory.resolve(MANIFEST_NAME), year, month);
+				Files.createDirectories(file.getParent());
+
+				// The entries, in the order of the month's list
+				TreeSet<String> farmIDs = new TreeSet<String>();
+				long minTime = Long.MAX_VALUE;
+				long maxTime = Long.MIN_VALUE;
+				try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+					writer.write(MilkDataLoader.HEADER);
+					writer.write('\n');
+					for (MilkEntry entry : entries) {
+						calendar.setTime(entry.getDate());
+						writer.write(MilkDataLoader.formatDate(calendar));
+						writer.write(',');
+						writer.write(entry.getFarmID());
+						writer.write(',');
+						writer.write(Integer.toString(entry.getWeight()));
+						writer.write('\n');
+
+						farmIDs.add(entry.getFarmID());
+						minTime = Math.min(minTime, entry.getDate().getTime());
+						maxTime = Math.max(maxTime, entry.getDate().getTime());
+					}
+				}
+
+				Files.write(farmsFile(file), farmIDs, StandardCharsets.UTF_8);
+
+				manifest.append(year).append(',').append(month + 1).append(',').append(entries.size()).append(',');
+				calendar.setTimeInMillis(minTime);
+				manifest.append(MilkDataLoader.formatDate(calendar)).append(',');
+				calendar.setTimeInMillis(maxTime);
+				manifest.append(MilkDataLoader.formatDate(calendar)).append('\n');
+				partitions++;
+			}
+		}
+
+		// Replace the manifest last, so it never lists partitions not yet written
+		Path temporary = directory.resolve(MANIFEST_NAME + ".tmp");
+		Files.write(temporary, manifest.toString().getBytes(StandardCharsets.UTF_8));
+		Files.move(temporary, directory.resolve(MANIFEST_NAME), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+
+		return partitions;
+	}
+
+	/**
+	 * Opens a data set without reading any entries. Each month is read when a
+	 * query first needs it.
+	 *
+	 * @param manifest The manifest of the data set
+	 * @return the data set
+	 * @throws IOException if the manifest or the partitions' farm IDs could not
+	 *                     be read
+	 */
+	public static LazyMilkData open(Path manifest) throws IOException {
+		return new LazyMilkData(readManifest(manifest), (MonthPartition partition) -> {
+			File file = partitionFile(manifest, partition).toFile();
+			MilkDataLoader loader = new MilkDataLoader();
+			List<MilkEntry> entries = loader.read(file);
+			if (loader.getRejectedFiles() > 0)
+				throw new UncheckedIOException(new IOException("Could not read the partition " + file));
+			return entries;
+		});
+	}
+
+	/**
+	 * Returns whether a file is the manifest of a data set
+	 *
+	 * @param file The file
+	 * @return true if the file starts with the manifest's header
+	 */
+	public static boolean isManifest(File file) {
+		if (!file.isFile())
+			return false;
+
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String header = reader.readLine();
+			return header != null && header.strip().equals(MANIFEST_HEADER);
+		} catch (IOException | UncheckedIOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the metadata of every partition of a data set
+	 *
+	 * @param manifest The manifest of the data set
+	 * @return the partitions, in the order of the manifest
+	 * @throws IOException if the manifest or the partitions' farm IDs could not
+	 *                     be read, or the manifest is malformed
+	 */
+	public static List<MonthPartition> readManifest(Path manifest) throws IOException {
+		List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+		if (lines.isEmpty() || !lines.get(0).strip().equals(MANIFEST_HEADER))
+			throw new IOException(manifest + " is not a data set manifest");
+
+		DateFormat dateParser = new SimpleDateFormat("y-M-d");
+		List<MonthPartition> partitions = new ArrayList<MonthPartition>();
+		for (String line : lines.subList(1, lines.size())) {
+			if (line.isBlank())
+				continue;
+
+			String[] columns = line.strip().split(",");
+			try {
+				if (columns.length != 5)
+					throw new NumberFormatException();
+
+				int year = Integer.parseInt(columns[0]);
+				int month = Integer.parseInt(columns[1]) - 1;
+				Path file = partitionFile(manifest, year, month);
+				LinkedHashSet<String> farmIDs = new LinkedHashSet<String>(
+						Files.readAllLines(farmsFile(file), StandardCharsets.UTF_8));
+
+				partitions.add(new MonthPartition(year, month, Long.parseLong(columns[2]), farmIDs,
+						dateParser.parse(columns[3]), dateParser.parse(columns[4])));
+			} catch (NumberFormatException | ParseException e) {
+				throw new IOException("Malformed row in " + manifest + ": " + line);
+			}
+		}
+
+		return partitions;
+	}
+
+	/**
+	 * Returns the data file of a partition
+	 *
+	 * @param manifest  The manifest of the data set
+	 * @param partition The partition
+	 * @return the path of the partition's data file
+	 */
+	public static Path partitionFile(Path manifest, MonthPartition partition) {
+		return partitionFile(manifest, partition.getYear(), partition.getMonth());
+	}
+
+	/**
+	 * Returns the data file of a month
+	 */
+	private static Path partitionFile(Path manifest, int year, int month) {
+		Path directory = manifest.toAbsolutePath().getParent();
+		return directory.resolve(Integer.toString(year)).resolve(String.format("%d-%02d.csv", year, month + 1));
+	}
+
+	/**
+	 * Returns the farm ID file of a partition's data file
+	 */
+	private static Path farmsFile(Path partitionFile) {
+		String name = partitionFile.getFileName().toString();
+		return partitionFile.resolveSibling(name.substring(0, name.length() - ".csv".length()) + ".farms");
+	}
+
+}
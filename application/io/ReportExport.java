@@ -0,0 +1,35 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.io;
+
+import java.io.IOException;
+
+/**
+ * A report ready to be written. Implementations only hold the results already
+ * computed for the report, so they can be written from any thread.
+ *
+ * @author A-Team 128
+ *
+ */
+public interface ReportExport {
+
+	/**
+	 * Returns the number of rows the report will write, used to report progress
+	 *
+	 * @return the number of rows the report will write
+	 */
+	public long getRowCount();
+
+	/**
+	 * Writes the report, row by row
+	 *
+	 * @param writer The writer to write the report to
+	 * @throws IOException if the report could not be written
+	 */
+	public void write(ReportWriter writer) throws IOException;
+
+}
@@ -0,0 +1,118 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.io;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.List;
+
+import application.data.FarmTotals;
+import application.data.MilkData;
+
+/**
+ * The CSV layouts of the reports, shared by the dashboard's exports and the
+ * batch export so that a report looks the same however it was produced.
+ *
+ * @author A-Team 128
+ *
+ */
+public final class ReportFormat {
+
+	private ReportFormat() {
+	}
+
+	/**
+	 * Writes a farm report: the weight of each month of a year and its percent of
+	 * the year's total, followed by a row of farm ID, year and total
+	 *
+	 * @param writer       The writer to write the report to
+	 * @param farmID       The farm of the report
+	 * @param year         The year of the report
+	 * @param monthWeights The total weight of each month (0-11)
+	 * @throws IOException if the report could not be written
+	 */
+	public static void writeFarmReport(ReportWriter writer, String farmID, String year, long[] monthWeights)
+			throws IOException {
+		// DecimalFormat is not thread safe, so one is created per report
+		DecimalFormat hundredths = new DecimalFormat("0.00");
+
+		long total = 0;
+		for (long weight : monthWeights)
+			total += weight;
+
+		writer.append("Month,Month Weight,Percentage of Total").endRow();
+		for (int month = 0; month < monthWeights.length; month++) {
+			writer.append(MilkData.getMonthName(month)).append(',').append(monthWeights[month]).append(',')
+					.append(hundredths.format((double) monthWeights[month] / total * 100)).endRow();
+		}
+		writer.append(farmID).append(',').append(year).append(',').append(total).endRow();
+	}
+
+	/**
+	 * Writes a daily or weekly report: the weight of each day or week of a date
+	 * range, followed by a row of farm and total
+	 *
+	 * @param writer  The writer to write the report to
+	 * @param farmID  The farm of the report, or "All Farms"
+	 * @param periods The label of each day or week, such as 2019-03-04 or
+	 *                2019-W10
+	 * @param weights The total weight of each day or week, index-aligned with the
+	 *                labels
+	 * @throws IOException if the report could not be written
+	 */
+	public static void writePeriodReport(ReportWriter writer, String farmID, List<String> periods, long[] weights)
+			throws IOException {
+		long total = 0;
+
+		writer.append("Period,Weight").endRow();
+		for (int i = 0; i < weights.length; i++) {
+			writer.append(periods.get(i)).append(',').append(weights[i]).endRow();
+			total += weights[i];
+		}
+		writer.append(farmID).append(',').append(total).endRow();
+	}
+
+	/**
+	 * Writes an annual report: every farm's total weight and percent of the
+	 * year's total, in farm ID order
+	 *
+	 * @param writer The writer to write the report to
+	 * @param totals The total weight of every farm in the year
+	 * @throws IOException if the report could not be written
+	 */
+	public static void writeAnnualReport(ReportWriter writer, FarmTotals totals) throws IOException {
+		// Conventionally reported percent format.
+		DecimalFormat hundredths = new DecimalFormat("###.##");
+
+		writer.append("Farm ID,Total Weight,Percent of Total Weight").endRow();
+		for (int row = 0; row < totals.size(); row++) {
+			writer.append(totals.getFarmID(row)).append(',');
+			writer.append(totals.getTotal(row)).append(',');
+			writer.append(hundredths.format(totals.getPercent(row))).endRow();
+		}
+	}
+
+	/**
+	 * Writes a farm share report, as used by the monthly and date range reports:
+	 * each farm's total weight and percent of the overall total
+	 *
+	 * @param writer The writer to write the report to
+	 * @param totals The total weight of each farm
+	 * @param rows   The rows of the totals to write, in order
+	 * @throws IOException if the report could not be written
+	 */
+	public static void writeFarmShareReport(ReportWriter writer, FarmTotals totals, int[] rows) throws IOException {
+		writer.append("Farm ID,Total Weight,Percent of Total Weight").endRow();
+		for (int row : rows) {
+			writer.append(totals.getFarmID(row)).append(',');
+			writer.append(totals.getTotal(row)).append(',');
+			// Round percentage
+			writer.append(Math.round(totals.getPercent(row) * 1000) / 1000.0d).endRow();
+		}
+	}
+
+}
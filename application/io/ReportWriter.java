@@ -0,0 +1,210 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+
+/**
+ * Writes report rows to a channel through fixed-size buffers, so the memory
+ * used does not depend on the number of rows written. Cells are appended one by
+ * one and each row is ended with {@link #endRow()}.
+ *
+ * @author A-Team 128
+ *
+ */
+public class ReportWriter implements Closeable {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// Number of rows between progress notifications
+	private static final int PROGRESS_INTERVAL = 1024;
+
+	private final WritableByteChannel channel;
+	private final CharsetEncoder encoder;
+	private final CharBuffer chars;
+	private final ByteBuffer bytes;
+
+	private long rowsWritten;
+	private LongConsumer progressListener;
+
+	/**
+	 * Creates a writer for the specified channel. The channel is closed when the
+	 * writer is closed.
+	 *
+	 * @param channel The channel to write to
+	 */
+	public ReportWriter(WritableByteChannel channel) {
+		this.channel = channel;
+		this.encoder = StandardCharsets.UTF_8.newEncoder();
+		this.chars = CharBuffer.allocate(BUFFER_SIZE);
+		this.bytes = ByteBuffer.allocate(BUFFER_SIZE * 4);
+	}
+
+	/**
+	 * Opens a writer to the specified file, replacing any existing contents
+	 *
+	 * @param path The file to write to
+	 * @return a writer to the file
+	 * @throws IOException if the file could not be opened
+	 */
+	public static ReportWriter open(Path path) throws IOException {
+		return new ReportWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING));
+	}
+
+	/**
+	 * Sets a listener to be notified of the number of rows written so far. It is
+	 * called periodically while writing and once more when the writer is closed.
+	 *
+	 * @param progressListener The listener to notify
+	 */
+	public void setProgressListener(LongConsumer progressListener) {
+		this.progressListener = progressListener;
+	}
+
+	/**
+	 * Appends text to the current row
+	 *
+	 * @param text The text to append
+	 * @return this writer
+	 * @throws IOException if the text could not be written
+	 */
+	public ReportWriter append(CharSequence text) throws IOException {
+		int offset = 0;
+		while (offset < text.length()) {
+			if (!chars.hasRemaining())
+				flushChars();
+
+			int count = Math.min(chars.remaining(), text.length() - offset);
+			chars.append(text, offset, offset + count);
+			offset += count;
+		}
+		return this;
+	}
+
+	/**
+	 * Appends a single character to the current row
+	 *
+	 * @param c The character to append
+	 * @return this writer
+	 * @throws IOException if the character could not be written
+	 */
+	public ReportWriter append(char c) throws IOException {
+		if (!chars.hasRemaining())
+			flushChars();
+		chars.put(c);
+		return this;
+	}
+
+	/**
+	 * Appends a number to the current row
+	 *
+	 * @param number The number to append
+	 * @return this writer
+	 * @throws IOException if the number could not be written
+	 */
+	public ReportWriter append(long number) throws IOException {
+		return append(Long.toString(number));
+	}
+
+	/**
+	 * Appends a number to the current row
+	 *
+	 * @param number The number to append
+	 * @return this writer
+	 * @throws IOException if the number could not be written
+	 */
+	public ReportWriter append(double number) throws IOException {
+		return append(Double.toString(number));
+	}
+
+	/**
+	 * Ends the current row
+	 *
+	 * @throws IOException if the line break could not be written
+	 */
+	public void endRow() throws IOException {
+		append('\n');
+		rowsWritten++;
+
+		if (progressListener != null && rowsWritten % PROGRESS_INTERVAL == 0)
+			progressListener.accept(rowsWritten);
+	}
+
+	/**
+	 * Returns the number of rows written so far
+	 *
+	 * @return the number of rows written so far
+	 */
+	public long getRowsWritten() {
+		return rowsWritten;
+	}
+
+	/**
+	 * Writes everything buffered to the channel
+	 *
+	 * @throws IOException if the channel could not be written to
+	 */
+	public void flush() throws IOException {
+		flushChars();
+	}
+
+	/**
+	 * Flushes the writer and closes the channel
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+			if (progressListener != null)
+				progressListener.accept(rowsWritten);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Encodes the buffered characters and writes them to the channel
+	 *
+	 * @throws IOException if the channel could not be written to
+	 */
+	private void flushChars() throws IOException {
+		chars.flip();
+		while (true) {
+			CoderResult result = encoder.encode(chars, bytes, false);
+			writeBytes();
+			if (result.isUnderflow())
+				break;
+		}
+		// Keep any half of a surrogate pair for the next flush
+		chars.compact();
+	}
+
+	/**
+	 * Writes the buffered bytes to the channel
+	 *
+	 * @throws IOException if the channel could not be written to
+	 */
+	private void writeBytes() throws IOException {
+		bytes.flip();
+		while (bytes.hasRemaining())
+			channel.write(bytes);
+		bytes.clear();
+	}
+
+}
@@ -0,0 +1,59 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count which only goes up, such as the number of rows parsed. Counting is
+ * lock-free, so it can be used on hot paths from any thread.
+ *
+ * @author A-Team 128
+ *
+ */
+public class Counter implements CounterMXBean {
+
+	private final String name;
+	private final LongAdder count;
+
+	/**
+	 * Creates a counter at 0
+	 *
+	 * @param name The name of the counter
+	 */
+	Counter(String name) {
+		this.name = name;
+		this.count = new LongAdder();
+	}
+
+	/**
+	 * Adds one to the count
+	 */
+	public void increment() {
+		count.increment();
+	}
+
+	/**
+	 * Adds to the count
+	 *
+	 * @param amount The amount to add
+	 */
+	public void add(long amount) {
+		count.add(amount);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+}
@@ -0,0 +1,27 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.metrics;
+
+/**
+ * The attributes of a {@link Counter} exported through JMX
+ *
+ * @author A-Team 128
+ *
+ */
+public interface CounterMXBean {
+
+	/**
+	 * Returns the name of the counter
+	 */
+	String getName();
+
+	/**
+	 * Returns the current count
+	 */
+	long getCount();
+
+}
@@ -0,0 +1,43 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the parsing of one data file
+ *
+ * @author A-Team 128
+ *
+ */
+@Name("application.FileParse")
+@Label("File Parse")
+@Category({ "MilkWeight", "Ingestion" })
+@Description("Reading and parsing one data file")
+public class FileParseEvent extends Event {
+
+	@Label("Path")
+	public String path;
+
+	@Label("Bytes")
+	@DataAmount
+	public long bytes;
+
+	@Label("Rows")
+	@Description("Rows which were parsed")
+	public long rows;
+
+	@Label("Rejected")
+	@Description("Rows which could not be parsed")
+	public long rejected;
+
+}
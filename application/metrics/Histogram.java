@@ -0,0 +1,172 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative long values, such as latencies in nanoseconds,
+ * with HDR-style log-linear buckets: every power of two is split into 32
+ * equal buckets, so any recorded value is reported within about 3% of itself
+ * while the whole long range fits in under 2000 buckets. Recording is
+ * lock-free and allocation free, so it can be used on hot paths from any
+ * thread.
+ *
+ * @author A-Team 128
+ *
+ */
+public class Histogram implements HistogramMXBean {
+
+	// Each power of two is split into 2^SUB_BUCKET_BITS buckets
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// Values below 2 * SUB_BUCKETS get a bucket each, larger ones share them
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final String name;
+	private final String unit;
+
+	private final AtomicLongArray counts;
+	private final LongAdder count;
+	private final LongAdder sum;
+	private final AtomicLong max;
+
+	/**
+	 * Creates an empty histogram
+	 *
+	 * @param name The name of the histogram
+	 * @param unit The unit of the recorded values, such as "ns" or "rows/s"
+	 */
+	Histogram(String name, String unit) {
+		this.name = name;
+		this.unit = unit;
+		this.counts = new AtomicLongArray(BUCKETS);
+		this.count = new LongAdder();
+		this.sum = new LongAdder();
+		this.max = new AtomicLong();
+	}
+
+	/**
+	 * Records a value
+	 *
+	 * @param value The value, negative values are recorded as 0
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+
+		counts.incrementAndGet(bucket(value));
+		count.increment();
+		sum.add(value);
+
+		long currentMax;
+		while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value))
+			;
+	}
+
+	/**
+	 * Records the nanoseconds elapsed since a time from {@link System#nanoTime()}
+	 *
+	 * @param startNanos The start time
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String getUnit() {
+		return unit;
+	}
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	@Override
+	public double getMean() {
+		long total = count.sum();
+		return total == 0 ? 0 : (double) sum.sum() / total;
+	}
+
+	@Override
+	public long getMax() {
+		return max.get();
+	}
+
+	@Override
+	public long get50thPercentile() {
+		return getPercentile(50);
+	}
+
+	@Override
+	public long get90thPercentile() {
+		return getPercentile(90);
+	}
+
+	@Override
+	public long get99thPercentile() {
+		return getPercentile(99);
+	}
+
+	/**
+	 * Returns the value a percentage of the recorded values are at or below, to
+	 * within the histogram's precision
+	 *
+	 * @param percent The percentage (0-100)
+	 * @return the value at the percentile, or 0 if nothing was recorded
+	 */
+	public long getPercentile(double percent) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			total += counts.get(i);
+		if (total == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(total * percent / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank)
+				return Math.min(highestValue(i), max.get());
+		}
+		return max.get();
+	}
+
+	/**
+	 * Returns the bucket a value is counted in
+	 */
+	private static int bucket(long value) {
+		if (value < 2 * SUB_BUCKETS)
+			return (int) value;
+
+		// Shift the value so its top SUB_BUCKET_BITS + 1 bits remain
+		int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (exponent << SUB_BUCKET_BITS) + (int) (value >>> exponent);
+	}
+
+	/**
+	 * Returns the highest value counted in a bucket
+	 */
+	private static long highestValue(int bucket) {
+		if (bucket < 2 * SUB_BUCKETS)
+			return bucket;
+
+		int exponent = (bucket >> SUB_BUCKET_BITS) - 1;
+		long mantissa = (bucket & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+		return ((mantissa + 1) << exponent) - 1;
+	}
+
+}
@@ -0,0 +1,57 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.metrics;
+
+/**
+ * The attributes of a {@link Histogram} exported through JMX
+ *
+ * @author A-Team 128
+ *
+ */
+public interface HistogramMXBean {
+
+	/**
+	 * Returns the name of the histogram
+	 */
+	String getName();
+
+	/**
+	 * Returns the unit of the recorded values
+	 */
+	String getUnit();
+
+	/**
+	 * Returns the number of recorded values
+	 */
+	long getCount();
+
+	/**
+	 * Returns the mean of the recorded values
+	 */
+	double getMean();
+
+	/**
+	 * Returns the largest recorded value
+	 */
+	long getMax();
+
+	/**
+	 * Returns the median of the recorded values
+	 */
+	long get50thPercentile();
+
+	/**
+	 * Returns the 90th percentile of the recorded values
+	 */
+	long get90thPercentile();
+
+	/**
+	 * Returns the 99th percentile of the recorded values
+	 */
+	long get99thPercentile();
+
+}
@@ -0,0 +1,147 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The application's registry of counters and histograms. Metrics are created
+ * the first time they are asked for by name and live for the rest of the run,
+ * so callers can hold on to them in static fields. Once {@link #exportToJmx()}
+ * has been called, every metric is also registered with the platform MBean
+ * server, so tools such as JConsole can read the same numbers.
+ *
+ * @author A-Team 128
+ *
+ */
+public final class Metrics {
+
+	/**
+	 * The JMX domain metrics are registered under
+	 */
+	public static final String JMX_DOMAIN = "application.metrics";
+
+	private static final ConcurrentHashMap<String, Counter> COUNTERS = new ConcurrentHashMap<String, Counter>();
+	private static final ConcurrentHashMap<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<String, Histogram>();
+
+	// Whether metrics are registered with the platform MBean server
+	private static volatile boolean exportingToJmx;
+
+	private Metrics() {
+	}
+
+	/**
+	 * Returns the counter with a name, creating it if needed
+	 *
+	 * @param name The name of the counter
+	 * @return the counter
+	 */
+	public static Counter counter(String name) {
+		Counter counter = COUNTERS.get(name);
+		if (counter != null)
+			return counter;
+
+		counter = COUNTERS.computeIfAbsent(name, (String key) -> new Counter(key));
+		if (exportingToJmx)
+			register(counter, "Counter", name);
+		return counter;
+	}
+
+	/**
+	 * Returns the histogram with a name, creating it if needed
+	 *
+	 * @param name The name of the histogram
+	 * @param unit The unit of the values recorded, used if it is created
+	 * @return the histogram
+	 */
+	public static Histogram histogram(String name, String unit) {
+		Histogram histogram = HISTOGRAMS.get(name);
+		if (histogram != null)
+			return histogram;
+
+		histogram = HISTOGRAMS.computeIfAbsent(name, (String key) -> new Histogram(key, unit));
+		if (exportingToJmx)
+			register(histogram, "Histogram", name);
+		return histogram;
+	}
+
+	/**
+	 * Returns the histogram of latencies in nanoseconds with a name, creating it
+	 * if needed
+	 *
+	 * @param name The name of the histogram
+	 * @return the histogram
+	 */
+	public static Histogram timer(String name) {
+		return histogram(name, "ns");
+	}
+
+	/**
+	 * Returns every counter, sorted by name
+	 *
+	 * @return the counters
+	 */
+	public static List<Counter> getCounters() {
+		List<Counter> counters = new ArrayList<Counter>(COUNTERS.values());
+		Collections.sort(counters, Comparator.comparing(Counter::getName));
+		return counters;
+	}
+
+	/**
+	 * Returns every histogram, sorted by name
+	 *
+	 * @return the histograms
+	 */
+	public static List<Histogram> getHistograms() {
+		List<Histogram> histograms = new ArrayList<Histogram>(HISTOGRAMS.values());
+		Collections.sort(histograms, Comparator.comparing(Histogram::getName));
+		return histograms;
+	}
+
+	/**
+	 * Registers every metric, now and in the future, with the platform MBean
+	 * server. It is not done by default as starting the MBean server slows down
+	 * short command-line runs.
+	 */
+	public static synchronized void exportToJmx() {
+		if (exportingToJmx)
+			return;
+		exportingToJmx = true;
+
+		for (Counter counter : COUNTERS.values())
+			register(counter, "Counter", counter.getName());
+		for (Histogram histogram : HISTOGRAMS.values())
+			register(histogram, "Histogram", histogram.getName());
+	}
+
+	/**
+	 * Registers a metric with the platform MBean server, unless it already is
+	 */
+	private static void register(Object metric, String type, String name) {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+			if (!server.isRegistered(objectName))
+				server.registerMBean(metric, objectName);
+		} catch (InstanceAlreadyExistsException e) {
+			// Another thread registered it first
+		} catch (JMException e) {
+			throw new IllegalStateException("Could not export metric " + name, e);
+		}
+	}
+
+}
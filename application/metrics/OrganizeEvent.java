@@ -0,0 +1,33 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning MilkData.organize()
+ *
+ * @author A-Team 128
+ *
+ */
+@Name("application.Organize")
+@Label("Organize")
+@Category({ "MilkWeight", "Ingestion" })
+@Description("Sorting the loaded entries")
+public class OrganizeEvent extends Event {
+
+	@Label("Entries")
+	public long entries;
+
+	@Label("Farms")
+	public int farms;
+
+}
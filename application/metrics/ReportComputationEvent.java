@@ -0,0 +1,83 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.metrics;
+
+import java.util.function.LongSupplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the computation of a report shown by a report
+ * pane, from querying the data to updating the table and chart. Create it with
+ * {@link #begin()} called, and call {@link #finish(String, String, long)} when
+ * the report is shown. Reports whose row count has to be looked up pass it as
+ * a {@link LongSupplier}, which is only called if the event is committed, so
+ * a report does not read any more data when the recorder is off.
+ *
+ * @author A-Team 128
+ *
+ */
+@Name("application.ReportComputation")
+@Label("Report Computation")
+@Category({ "MilkWeight", "Reports" })
+@Description("Computing and showing a report")
+public class ReportComputationEvent extends Event {
+
+	@Label("Pane")
+	@Description("The type of report pane")
+	public String pane;
+
+	@Label("Parameters")
+	@Description("The inputs the report was computed for")
+	public String parameters;
+
+	@Label("Rows Touched")
+	@Description("Entries read to compute the report")
+	public long rowsTouched;
+
+	/**
+	 * Ends the event and commits it, if it is enabled and long enough
+	 *
+	 * @param pane        The type of report pane
+	 * @param parameters  The inputs the report was computed for
+	 * @param rowsTouched The number of entries read
+	 */
+	public void finish(String pane, String parameters, long rowsTouched) {
+		end();
+		if (!shouldCommit())
+			return;
+
+		this.pane = pane;
+		this.parameters = parameters;
+		this.rowsTouched = rowsTouched;
+		commit();
+	}
+
+	/**
+	 * Ends the event and commits it, if it is enabled and long enough, counting
+	 * the rows touched only then
+	 *
+	 * @param pane        The type of report pane
+	 * @param parameters  The inputs the report was computed for
+	 * @param rowsTouched Counts the entries read
+	 */
+	public void finish(String pane, String parameters, LongSupplier rowsTouched) {
+		end();
+		if (!shouldCommit())
+			return;
+
+		this.pane = pane;
+		this.parameters = parameters;
+		this.rowsTouched = rowsTouched.getAsLong();
+		commit();
+	}
+
+}
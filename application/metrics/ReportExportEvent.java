@@ -0,0 +1,38 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the export of one or more reports
+ *
+ * @author A-Team 128
+ *
+ */
+@Name("application.ReportExport")
+@Label("Report Export")
+@Category({ "MilkWeight", "Reports" })
+@Description("Writing reports to files")
+public class ReportExportEvent extends Event {
+
+	@Label("Destination")
+	@Description("The file or directory written to")
+	public String destination;
+
+	@Label("Reports")
+	public int reports;
+
+	@Label("Rows")
+	@Description("Rows written, for a single report")
+	public long rows;
+
+}
@@ -0,0 +1,77 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import application.data.FarmTotals;
+
+/**
+ * The binary protocol between a {@link QueryCoordinator} and its
+ * {@link PartitionWorker}s. A connection carries any number of requests, one at
+ * a time. Each request is a type byte followed by its arguments; each response
+ * is a status byte followed by the result or an error message.
+ *
+ * Farm totals are sent as a row count followed by (farm ID, total) rows, so
+ * the coordinator merges partial totals by adding the totals of equal farm
+ * IDs.
+ *
+ * @author A-Team 128
+ *
+ */
+final class PartitionProtocol {
+
+	// Request types
+	static final byte FARM_IDS = 1; // -> count, farm IDs
+	static final byte YEARS = 2; // -> count, years
+	static final byte FARM = 3; // farm ID, year -> 12 month totals
+	static final byte ANNUAL = 4; // year -> farm totals
+	static final byte MONTHLY = 5; // year, month (0-11) -> farm totals
+	static final byte RANGE = 6; // start time, end time -> farm totals
+
+	// Response statuses
+	static final byte OK = 0;
+	static final byte ERROR = 1; // -> message
+
+	private PartitionProtocol() {
+	}
+
+	/**
+	 * Writes farm totals
+	 *
+	 * @param out    The stream to write to
+	 * @param totals The totals to write
+	 * @throws IOException if the totals could not be written
+	 */
+	static void writeTotals(DataOutputStream out, FarmTotals totals) throws IOException {
+		out.writeInt(totals.size());
+		for (int row = 0; row < totals.size(); row++) {
+			out.writeUTF(totals.getFarmID(row));
+			out.writeLong(totals.getTotal(row));
+		}
+	}
+
+	/**
+	 * Reads farm totals, adding them to the totals already merged
+	 *
+	 * @param in     The stream to read from
+	 * @param merged The merged total of each farm, added to
+	 * @throws IOException if the totals could not be read
+	 */
+	static void readTotals(DataInputStream in, Map<String, Long> merged) throws IOException {
+		int rows = in.readInt();
+		for (int row = 0; row < rows; row++) {
+			String farmID = in.readUTF();
+			long total = in.readLong();
+			merged.merge(farmID, total, Long::sum);
+		}
+	}
+
+}
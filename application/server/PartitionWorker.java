@@ -0,0 +1,187 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import application.data.FarmTotals;
+import application.data.ReportQueries;
+
+/**
+ * Answers report queries over one partition of the data for a
+ * {@link QueryCoordinator}, over a local socket. Each connection is served by
+ * its own thread and may carry any number of requests.
+ *
+ * @author A-Team 128
+ *
+ */
+public class PartitionWorker {
+
+	private final ReportQueries queries;
+	private final ServerSocket serverSocket;
+	private final ExecutorService executor;
+
+	/**
+	 * Creates a worker for the specified partition. It does not accept
+	 * connections until {@link #start()} is called.
+	 *
+	 * @param queries The queries over the worker's partition
+	 * @param address The address to listen on
+	 * @throws IOException if the address could not be bound
+	 */
+	public PartitionWorker(ReportQueries queries, InetSocketAddress address) throws IOException {
+		this.queries = queries;
+		this.serverSocket = new ServerSocket();
+		this.executor = ReportServer.newRequestExecutor();
+
+		serverSocket.bind(address);
+	}
+
+	/**
+	 * Starts accepting connections
+	 */
+	public void start() {
+		Thread acceptor = new Thread(() -> {
+			while (!serverSocket.isClosed()) {
+				try {
+					Socket socket = serverSocket.accept();
+					socket.setTcpNoDelay(true);
+					executor.execute(() -> serve(socket));
+				} catch (IOException e) {
+					// The socket was closed by stop()
+				}
+			}
+		}, "partition-worker");
+		acceptor.start();
+	}
+
+	/**
+	 * Stops accepting connections
+	 *
+	 * @throws IOException if the socket could not be closed
+	 */
+	public void stop() throws IOException {
+		serverSocket.close();
+		executor.shutdown();
+	}
+
+	/**
+	 * Returns the address the worker is listening on
+	 *
+	 * @return the address the worker is listening on
+	 */
+	public InetSocketAddress getAddress() {
+		return (InetSocketAddress) serverSocket.getLocalSocketAddress();
+	}
+
+	/**
+	 * Answers the requests of a connection until it is closed
+	 *
+	 * @param socket The connection
+	 */
+	private void serve(Socket socket) {
+		try (socket) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+			while (true) {
+				byte type;
+				try {
+					type = in.readByte();
+				} catch (EOFException e) {
+					// The coordinator closed the connection
+					return;
+				}
+
+				try {
+					respond(type, in, out);
+				} catch (IllegalArgumentException e) {
+					out.writeByte(PartitionProtocol.ERROR);
+					out.writeUTF(String.valueOf(e.getMessage()));
+				}
+				out.flush();
+			}
+		} catch (IOException e) {
+			// The connection failed, the coordinator will reconnect
+		}
+	}
+
+	/**
+	 * Reads the arguments of a request and writes its response
+	 *
+	 * @param type The type of the request
+	 * @param in   The stream to read the arguments from
+	 * @param out  The stream to write the response to
+	 * @throws IOException              if the connection failed
+	 * @throws IllegalArgumentException if the request is invalid
+	 */
+	private void respond(byte type, DataInputStream in, DataOutputStream out)
+			throws IOException, IllegalArgumentException {
+		switch (type) {
+		case PartitionProtocol.FARM_IDS: {
+			List<String> farmIDs = queries.getFarmIDs();
+			out.writeByte(PartitionProtocol.OK);
+			out.writeInt(farmIDs.size());
+			for (String farmID : farmIDs)
+				out.writeUTF(farmID);
+			break;
+		}
+		case PartitionProtocol.YEARS: {
+			List<Integer> years = queries.getYears();
+			out.writeByte(PartitionProtocol.OK);
+			out.writeInt(years.size());
+			for (int year : years)
+				out.writeInt(year);
+			break;
+		}
+		case PartitionProtocol.FARM: {
+			long[] monthTotals = queries.getFarmReport(in.readUTF(), in.readInt());
+			out.writeByte(PartitionProtocol.OK);
+			for (long total : monthTotals)
+				out.writeLong(total);
+			break;
+		}
+		case PartitionProtocol.ANNUAL: {
+			int year = in.readInt();
+			out.writeByte(PartitionProtocol.OK);
+			PartitionProtocol.writeTotals(out, queries.getAnnualReport(year));
+			break;
+		}
+		case PartitionProtocol.MONTHLY: {
+			int year = in.readInt();
+			int month = in.readInt();
+			// Computed before the status is written, so an invalid month sends an error
+			FarmTotals totals = queries.getMonthlyReport(year, month);
+			out.writeByte(PartitionProtocol.OK);
+			PartitionProtocol.writeTotals(out, totals);
+			break;
+		}
+		case PartitionProtocol.RANGE: {
+			Date start = new Date(in.readLong());
+			Date end = new Date(in.readLong());
+			out.writeByte(PartitionProtocol.OK);
+			PartitionProtocol.writeTotals(out, queries.getRangeReport(start, end));
+			break;
+		}
+		default:
+			// The rest of the request cannot be skipped without knowing its type
+			throw new IOException("Unknown request type " + type);
+		}
+	}
+
+}
@@ -0,0 +1,336 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import application.data.FarmTotals;
+import application.data.ReportSource;
+
+/**
+ * Answers report queries over a data set which is partitioned across several
+ * {@link PartitionWorker} processes. Each query is sent to every worker at
+ * once, and their partial results are merged: month totals are added, and farm
+ * totals are added by farm ID. Since every partial result is a sum, this is
+ * correct however the data was partitioned, as long as each entry is held by
+ * exactly one worker.
+ *
+ * Connections to the workers are kept open and reused across queries. When a
+ * worker cannot be reached, the query fails with an
+ * {@link UncheckedIOException}.
+ *
+ * @author A-Team 128
+ *
+ */
+public class QueryCoordinator implements ReportSource, Closeable {
+
+	/**
+	 * Writes the arguments of a request
+	 */
+	@FunctionalInterface
+	private interface ArgumentWriter {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/**
+	 * Reads the result of a successful request
+	 */
+	@FunctionalInterface
+	private interface ResultReader<T> {
+		T read(DataInputStream in) throws IOException;
+	}
+
+	/**
+	 * Sends one request over a worker connection and reads its response
+	 */
+	@FunctionalInterface
+	private interface Request<T> {
+		T send(DataOutputStream out, DataInputStream in) throws IOException;
+	}
+
+	/**
+	 * An open connection to a worker
+	 */
+	private static class Connection implements Closeable {
+		private final Socket socket;
+		private final DataInputStream in;
+		private final DataOutputStream out;
+
+		private Connection(InetSocketAddress address) throws IOException {
+			socket = new Socket();
+			socket.setTcpNoDelay(true);
+			socket.connect(address);
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		@Override
+		public void close() throws IOException {
+			socket.close();
+		}
+	}
+
+	private final List<InetSocketAddress> workers;
+
+	// Idle connections to each worker, index-aligned with workers
+	private final List<ConcurrentLinkedQueue<Connection>> idleConnections;
+
+	private final ExecutorService executor;
+
+	// The data set does not change, so these are fetched once
+	private final List<String> farmIDs;
+	private final List<Integer> years;
+
+	/**
+	 * Connects to the specified workers and fetches their farm IDs and years
+	 *
+	 * @param workers The addresses of the workers
+	 * @throws IOException if a worker could not be reached
+	 */
+	public QueryCoordinator(List<InetSocketAddress> workers) throws IOException {
+		this.workers = new ArrayList<InetSocketAddress>(workers);
+		this.idleConnections = new ArrayList<ConcurrentLinkedQueue<Connection>>();
+		for (int i = 0; i < workers.size(); i++)
+			idleConnections.add(new ConcurrentLinkedQueue<Connection>());
+		this.executor = ReportServer.newRequestExecutor();
+
+		try {
+			TreeSet<String> allFarmIDs = new TreeSet<String>();
+			for (List<String> partial : queryAll(PartitionProtocol.FARM_IDS, (DataInputStream in) -> {
+				int count = in.readInt();
+				List<String> partialFarmIDs = new ArrayList<String>(count);
+				for (int i = 0; i < count; i++)
+					partialFarmIDs.add(in.readUTF());
+				return partialFarmIDs;
+			}, null))
+				allFarmIDs.addAll(partial);
+
+			TreeSet<Integer> allYears = new TreeSet<Integer>();
+			for (List<Integer> partial : queryAll(PartitionProtocol.YEARS, (DataInputStream in) -> {
+				int count = in.readInt();
+				List<Integer> partialYears = new ArrayList<Integer>(count);
+				for (int i = 0; i < count; i++)
+					partialYears.add(in.readInt());
+				return partialYears;
+			}, null))
+				allYears.addAll(partial);
+
+			this.farmIDs = Collections.unmodifiableList(new ArrayList<String>(allFarmIDs));
+			this.years = Collections.unmodifiableList(new ArrayList<Integer>(allYears));
+		} catch (UncheckedIOException e) {
+			close();
+			throw e.getCause();
+		}
+	}
+
+	@Override
+	public List<String> getFarmIDs() {
+		return farmIDs;
+	}
+
+	@Override
+	public List<Integer> getYears() {
+		return years;
+	}
+
+	@Override
+	public long[] getFarmReport(String farmID, int year) {
+		long[] monthTotals = new long[12];
+		for (long[] partial : queryAll(PartitionProtocol.FARM, (DataInputStream in) -> {
+			long[] partialTotals = new long[12];
+			for (int month = 0; month < 12; month++)
+				partialTotals[month] = in.readLong();
+			return partialTotals;
+		}, (DataOutputStream out) -> {
+			out.writeUTF(farmID);
+			out.writeInt(year);
+		}))
+			for (int month = 0; month < 12; month++)
+				monthTotals[month] += partial[month];
+		return monthTotals;
+	}
+
+	@Override
+	public FarmTotals getAnnualReport(int year) {
+		return queryTotals(PartitionProtocol.ANNUAL, (DataOutputStream out) -> out.writeInt(year));
+	}
+
+	@Override
+	public FarmTotals getMonthlyReport(int year, int month) throws IllegalArgumentException {
+		// Ensure the month is 0-11
+		if (month < 0 || month >= 12)
+			throw new IllegalArgumentException("Month should be a number between 0 and 11.");
+
+		return queryTotals(PartitionProtocol.MONTHLY, (DataOutputStream out) -> {
+			out.writeInt(year);
+			out.writeInt(month);
+		});
+	}
+
+	@Override
+	public FarmTotals getRangeReport(Date startDate, Date endDate) {
+		return queryTotals(PartitionProtocol.RANGE, (DataOutputStream out) -> {
+			out.writeLong(startDate.getTime());
+			out.writeLong(endDate.getTime());
+		});
+	}
+
+	/**
+	 * Closes all idle connections to the workers
+	 */
+	@Override
+	public void close() {
+		for (ConcurrentLinkedQueue<Connection> idle : idleConnections) {
+			Connection connection;
+			while ((connection = idle.poll()) != null) {
+				try {
+					connection.close();
+				} catch (IOException e) {
+					// Already closed
+				}
+			}
+		}
+		executor.shutdown();
+	}
+
+	/**
+	 * Sends a request for farm totals to every worker and merges the partial
+	 * totals by farm ID
+	 *
+	 * @param type      The type of the request
+	 * @param arguments Writes the request's arguments
+	 * @return the merged totals, in farm ID order
+	 */
+	private FarmTotals queryTotals(byte type, ArgumentWriter arguments) {
+		// Sorted the same way as MilkData sorts farm IDs
+		TreeMap<String, Long> merged = new TreeMap<String, Long>();
+
+		for (Map<String, Long> partial : queryAll(type, (DataInputStream in) -> {
+			HashMap<String, Long> partialTotals = new HashMap<String, Long>();
+			PartitionProtocol.readTotals(in, partialTotals);
+			return partialTotals;
+		}, arguments))
+			partial.forEach((String farmID, Long total) -> merged.merge(farmID, total, Long::sum));
+
+		long[] totals = new long[merged.size()];
+		int row = 0;
+		for (long total : merged.values())
+			totals[row++] = total;
+
+		return new FarmTotals(new ArrayList<String>(merged.keySet()), totals);
+	}
+
+	/**
+	 * Sends a request to every worker at once and waits for all of their results
+	 *
+	 * @param type      The type of the request
+	 * @param reader    Reads a worker's result
+	 * @param arguments Writes the request's arguments, or null if it has none
+	 * @return the result of each worker
+	 * @throws IllegalArgumentException if a worker rejected the request
+	 * @throws UncheckedIOException     if a worker could not be reached
+	 */
+	private <T> List<T> queryAll(byte type, ResultReader<T> reader, ArgumentWriter arguments)
+			throws IllegalArgumentException, UncheckedIOException {
+		Request<T> request = (DataOutputStream out, DataInputStream in) -> {
+			out.writeByte(type);
+			if (arguments != null)
+				arguments.write(out);
+			out.flush();
+
+			if (in.readByte() == PartitionProtocol.ERROR)
+				throw new IllegalArgumentException(in.readUTF());
+			return reader.read(in);
+		};
+
+		// Send to all but the first worker in the background, and the first from this
+		// thread
+		List<Future<T>> futures = new ArrayList<Future<T>>(workers.size());
+		for (int worker = 1; worker < workers.size(); worker++) {
+			int workerIndex = worker;
+			futures.add(executor.submit(() -> send(workerIndex, request)));
+		}
+
+		List<T> results = new ArrayList<T>(workers.size());
+		results.add(send(0, request));
+
+		for (Future<T> future : futures) {
+			try {
+				results.add(future.get());
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new IllegalStateException(e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new UncheckedIOException(new IOException("Interrupted while waiting for a worker"));
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Sends a request to a worker over an idle connection, or a new one if none
+	 * are idle
+	 *
+	 * @param worker  The index of the worker
+	 * @param request The request
+	 * @return the worker's result
+	 * @throws IllegalArgumentException if the worker rejected the request
+	 * @throws UncheckedIOException     if the worker could not be reached
+	 */
+	private <T> T send(int worker, Request<T> request) throws IllegalArgumentException, UncheckedIOException {
+		Connection connection = idleConnections.get(worker).poll();
+
+		try {
+			if (connection == null)
+				connection = new Connection(workers.get(worker));
+
+			T result = request.send(connection.out, connection.in);
+
+			// The whole response was read, so the connection can be reused
+			idleConnections.get(worker).add(connection);
+			return result;
+		} catch (IllegalArgumentException e) {
+			// The error response was read completely as well
+			idleConnections.get(worker).add(connection);
+			throw e;
+		} catch (IOException e) {
+			// The connection may be part way through a response, so it is discarded
+			if (connection != null) {
+				try {
+					connection.close();
+				} catch (IOException closeException) {
+					e.addSuppressed(closeException);
+				}
+			}
+			throw new UncheckedIOException("Could not query the worker at " + workers.get(worker), e);
+		}
+	}
+
+}
@@ -0,0 +1,160 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.server;
+
+import java.util.List;
+
+import application.data.FarmTotals;
+import application.data.MilkData;
+
+/**
+ * The JSON layouts of the reports served by {@link ReportServer}. They carry
+ * the same rows as the CSV layouts in {@link application.io.ReportFormat}.
+ *
+ * @author A-Team 128
+ *
+ */
+final class ReportJson {
+
+	private ReportJson() {
+	}
+
+	/**
+	 * Formats a farm report: the weight of each month of a year and its percent of
+	 * the year's total
+	 *
+	 * @param farmID       The farm of the report
+	 * @param year         The year of the report
+	 * @param monthWeights The total weight of each month (0-11)
+	 * @return the report as JSON
+	 */
+	static String farmReport(String farmID, int year, long[] monthWeights) {
+		long total = 0;
+		for (long weight : monthWeights)
+			total += weight;
+
+		StringBuilder json = new StringBuilder(1024);
+		json.append("{\"farmID\":");
+		appendString(json, farmID);
+		json.append(",\"year\":").append(year);
+		json.append(",\"total\":").append(total);
+		json.append(",\"months\":[");
+		for (int month = 0; month < monthWeights.length; month++) {
+			if (month > 0)
+				json.append(',');
+			json.append("{\"month\":");
+			appendString(json, MilkData.getMonthName(month));
+			json.append(",\"weight\":").append(monthWeights[month]);
+			json.append(",\"percent\":");
+			appendPercent(json, total == 0 ? 0 : (double) monthWeights[month] / total * 100);
+			json.append('}');
+		}
+		return json.append("]}").toString();
+	}
+
+	/**
+	 * Formats a farm share report, as used by the annual, monthly and date range
+	 * reports: each farm's total weight and percent of the overall total, in farm
+	 * ID order
+	 *
+	 * @param totals The total weight of each farm
+	 * @return the report as JSON
+	 */
+	static String farmShareReport(FarmTotals totals) {
+		StringBuilder json = new StringBuilder(64 + totals.size() * 48);
+		json.append("{\"total\":").append(totals.getGrandTotal());
+		json.append(",\"farms\":[");
+		int[] rows = totals.getOrdering(FarmTotals.Column.FARM_ID);
+		for (int i = 0; i < rows.length; i++) {
+			int row = rows[i];
+			if (i > 0)
+				json.append(',');
+			json.append("{\"farmID\":");
+			appendString(json, totals.getFarmID(row));
+			json.append(",\"weight\":").append(totals.getTotal(row));
+			json.append(",\"percent\":");
+			appendPercent(json, totals.getPercent(row));
+			json.append('}');
+		}
+		return json.append("]}").toString();
+	}
+
+	/**
+	 * Formats a list of strings or numbers as a JSON array
+	 *
+	 * @param values The strings or numbers
+	 * @return the values as JSON
+	 */
+	static String list(List<?> values) {
+		StringBuilder json = new StringBuilder(16 + values.size() * 16);
+		json.append('[');
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0)
+				json.append(',');
+			Object value = values.get(i);
+			if (value instanceof Number)
+				json.append(value);
+			else
+				appendString(json, String.valueOf(value));
+		}
+		return json.append(']').toString();
+	}
+
+	/**
+	 * Formats an error message
+	 *
+	 * @param message The message
+	 * @return the error as JSON
+	 */
+	static String error(String message) {
+		StringBuilder json = new StringBuilder(32 + message.length());
+		json.append("{\"error\":");
+		appendString(json, message);
+		return json.append('}').toString();
+	}
+
+	/**
+	 * Appends a percent, rounded to 3 decimals
+	 */
+	private static void appendPercent(StringBuilder json, double percent) {
+		json.append(Math.round(percent * 1000) / 1000.0d);
+	}
+
+	/**
+	 * Appends a quoted and escaped JSON string
+	 */
+	private static void appendString(StringBuilder json, String string) {
+		json.append('"');
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			switch (c) {
+			case '"':
+				json.append("\\\"");
+				break;
+			case '\\':
+				json.append("\\\\");
+				break;
+			case '\n':
+				json.append("\\n");
+				break;
+			case '\r':
+				json.append("\\r");
+				break;
+			case '\t':
+				json.append("\\t");
+				break;
+			default:
+				if (c < 0x20)
+					json.append(String.format("\\u%04x", (int) c));
+				else
+					json.append(c);
+			}
+		}
+		json.append('"');
+	}
+
+}
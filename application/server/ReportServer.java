@@ -0,0 +1,336 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import application.data.ReportSource;
+import application.metrics.Counter;
+import application.metrics.Histogram;
+import application.metrics.Metrics;
+
+/**
+ * Serves reports over one loaded data set as JSON, so other tools can query it
+ * without the dashboard. All requests share one {@link ReportSource} and a
+ * cache of recently computed responses.
+ *
+ * Endpoints (all GET):
+ * <ul>
+ * <li>/farms - the farm IDs</li>
+ * <li>/years - the years with entries</li>
+ * <li>/farm?farm=ID&amp;year=YYYY - monthly weights of a farm in a year</li>
+ * <li>/annual?year=YYYY - total weight of every farm in a year</li>
+ * <li>/monthly?year=YYYY&amp;month=M - total weight of every farm in a month
+ * (1-12)</li>
+ * <li>/range?start=YYYY-MM-DD&amp;end=YYYY-MM-DD - total weight of every farm
+ * between two dates</li>
+ * </ul>
+ *
+ * @author A-Team 128
+ *
+ */
+public class ReportServer {
+
+	/**
+	 * Computes the JSON response of an endpoint from its query parameters
+	 */
+	@FunctionalInterface
+	private interface Endpoint {
+		String respond(Map<String, String> parameters) throws IllegalArgumentException;
+	}
+
+	public static final int DEFAULT_PORT = 8400;
+
+	// Number of responses kept in the cache
+	private static final int CACHE_SIZE = 4096;
+
+	// Number of connections the operating system queues before they are accepted
+	private static final int BACKLOG = 1024;
+
+	// Time taken to compute responses missing from the cache, and cache hits
+	private static final Histogram QUERY_TIME = Metrics.timer("server.query");
+	private static final Counter CACHE_HITS = Metrics.counter("server.cache.hits");
+
+	private final ReportSource queries;
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	// Recently computed responses by request path and query, least recently used
+	// first
+	private final LinkedHashMap<String, byte[]> cache;
+
+	/**
+	 * Creates a server for the specified queries. It does not accept requests
+	 * until {@link #start()} is called.
+	 *
+	 * @param queries The source to answer requests from
+	 * @param address The address to listen on
+	 * @throws IOException if the address could not be bound
+	 */
+	public ReportServer(ReportSource queries, InetSocketAddress address) throws IOException {
+		// The JDK's server writes the headers and body of a response separately, so
+		// with Nagle's algorithm each keep-alive request waits for a delayed ACK.
+		// The setting is read when the first server is created.
+		if (System.getProperty("sun.net.httpserver.nodelay") == null)
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		this.queries = queries;
+		this.server = HttpServer.create(address, BACKLOG);
+		this.executor = newRequestExecutor();
+		this.cache = new LinkedHashMap<String, byte[]>(CACHE_SIZE * 2, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+				return size() > CACHE_SIZE;
+			}
+		};
+
+		server.setExecutor(executor);
+
+		addEndpoint("/farms", (Map<String, String> parameters) -> ReportJson.list(queries.getFarmIDs()));
+		addEndpoint("/years", (Map<String, String> parameters) -> ReportJson.list(queries.getYears()));
+		addEndpoint("/farm", this::farmReport);
+		addEndpoint("/annual", this::annualReport);
+		addEndpoint("/monthly", this::monthlyReport);
+		addEndpoint("/range", this::rangeReport);
+
+		// Anything else
+		server.createContext("/", (HttpExchange exchange) -> send(exchange, 404, ReportJson.error("Not found")));
+	}
+
+	/**
+	 * Starts accepting requests
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests, waiting up to a second for current ones to finish
+	 */
+	public void stop() {
+		server.stop(1);
+		executor.shutdown();
+	}
+
+	/**
+	 * Returns the address the server is listening on
+	 *
+	 * @return the address the server is listening on
+	 */
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	/**
+	 * Handles /farm
+	 */
+	private String farmReport(Map<String, String> parameters) {
+		String farmID = require(parameters, "farm");
+		int year = parseInt(parameters, "year");
+		return ReportJson.farmReport(farmID, year, queries.getFarmReport(farmID, year));
+	}
+
+	/**
+	 * Handles /annual
+	 */
+	private String annualReport(Map<String, String> parameters) {
+		return ReportJson.farmShareReport(queries.getAnnualReport(parseInt(parameters, "year")));
+	}
+
+	/**
+	 * Handles /monthly
+	 */
+	private String monthlyReport(Map<String, String> parameters) {
+		int year = parseInt(parameters, "year");
+		int month = parseInt(parameters, "month");
+		if (month < 1 || month > 12)
+			throw new IllegalArgumentException("month should be a number between 1 and 12");
+		return ReportJson.farmShareReport(queries.getMonthlyReport(year, month - 1));
+	}
+
+	/**
+	 * Handles /range
+	 */
+	private String rangeReport(Map<String, String> parameters) {
+		LocalDate start = parseDate(parameters, "start");
+		LocalDate end = parseDate(parameters, "end");
+		if (end.isBefore(start))
+			throw new IllegalArgumentException("end is before start");
+
+		// Uses java.sql.Date to convert java.time.localDate to java.util.Date
+		return ReportJson.farmShareReport(
+				queries.getRangeReport(java.sql.Date.valueOf(start), java.sql.Date.valueOf(end)));
+	}
+
+	/**
+	 * Serves an endpoint at exactly a path, answering from the cache when possible
+	 *
+	 * @param path     The path of the endpoint
+	 * @param endpoint Computes the endpoint's responses
+	 */
+	private void addEndpoint(String path, Endpoint endpoint) {
+		server.createContext(path, (HttpExchange exchange) -> {
+			// Contexts match by prefix, so /farmsxyz would otherwise reach /farms
+			if (!exchange.getRequestURI().getPath().equals(path)) {
+				send(exchange, 404, ReportJson.error("Not found"));
+				return;
+			}
+
+			if (!exchange.getRequestMethod().equals("GET")) {
+				exchange.getResponseHeaders().set("Allow", "GET");
+				send(exchange, 405, ReportJson.error("Only GET is supported"));
+				return;
+			}
+
+			String rawQuery = exchange.getRequestURI().getRawQuery();
+			String key = rawQuery == null ? path : path + '?' + rawQuery;
+
+			byte[] response;
+			synchronized (cache) {
+				response = cache.get(key);
+			}
+
+			if (response != null)
+				CACHE_HITS.increment();
+			else {
+				try {
+					long queryStart = System.nanoTime();
+					response = endpoint.respond(parseQuery(rawQuery)).getBytes(StandardCharsets.UTF_8);
+					QUERY_TIME.recordSince(queryStart);
+				} catch (IllegalArgumentException e) {
+					send(exchange, 400, ReportJson.error(e.getMessage()));
+					return;
+				} catch (UncheckedIOException e) {
+					// The source could not reach another process
+					send(exchange, 502, ReportJson.error(e.getMessage()));
+					return;
+				}
+
+				// Two requests may compute the same response at once, which is harmless
+				synchronized (cache) {
+					cache.put(key, response);
+				}
+			}
+
+			send(exchange, 200, response);
+		});
+	}
+
+	/**
+	 * Sends a JSON response and closes the exchange
+	 */
+	private static void send(HttpExchange exchange, int status, String json) throws IOException {
+		send(exchange, status, json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Sends a JSON response and closes the exchange
+	 */
+	private static void send(HttpExchange exchange, int status, byte[] json) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, json.length);
+		try (OutputStream body = exchange.getResponseBody()) {
+			body.write(json);
+		}
+	}
+
+	/**
+	 * Parses a URL query string into its decoded parameters
+	 *
+	 * @param rawQuery The raw query string, or null
+	 * @return the parameters
+	 * @throws IllegalArgumentException if the query string is malformed
+	 */
+	private static Map<String, String> parseQuery(String rawQuery) throws IllegalArgumentException {
+		HashMap<String, String> parameters = new HashMap<String, String>();
+		if (rawQuery == null || rawQuery.isEmpty())
+			return parameters;
+
+		for (String pair : rawQuery.split("&")) {
+			int equals = pair.indexOf('=');
+			String name = equals < 0 ? pair : pair.substring(0, equals);
+			String value = equals < 0 ? "" : pair.substring(equals + 1);
+			try {
+				parameters.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+			} catch (UnsupportedEncodingException e) {
+				// UTF-8 is always supported
+				throw new IllegalStateException(e);
+			}
+		}
+		return parameters;
+	}
+
+	/**
+	 * Returns a required parameter
+	 */
+	private static String require(Map<String, String> parameters, String name) throws IllegalArgumentException {
+		String value = parameters.get(name);
+		if (value == null)
+			throw new IllegalArgumentException("missing parameter " + name);
+		return value;
+	}
+
+	/**
+	 * Returns a required number parameter
+	 */
+	private static int parseInt(Map<String, String> parameters, String name) throws IllegalArgumentException {
+		try {
+			return Integer.parseInt(require(parameters, name));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(name + " should be a number");
+		}
+	}
+
+	/**
+	 * Returns a required YYYY-MM-DD date parameter
+	 */
+	private static LocalDate parseDate(Map<String, String> parameters, String name) throws IllegalArgumentException {
+		try {
+			return LocalDate.parse(require(parameters, name));
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException(name + " should be a date in YYYY-MM-DD format");
+		}
+	}
+
+	/**
+	 * Returns an executor which runs each request on its own virtual thread when
+	 * the running JDK has them (21 and later), otherwise on a cached pool of
+	 * platform threads. The lookup is reflective so this still compiles and runs
+	 * on the JDK 17 the project is built with.
+	 *
+	 * @return the executor to run requests on
+	 */
+	static ExecutorService newRequestExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			// Not available, or a preview feature which is not enabled
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+}
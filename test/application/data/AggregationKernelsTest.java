@@ -0,0 +1,165 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Random;
+
+import application.bench.SyntheticData;
+
+/**
+ * Checks that the vector kernels give the results of the scalar kernels, over
+ * every length up to several vectors so that each length of the tail loop is
+ * read, over empty ranges and ranges longer than a summing block, and with
+ * values at the ends of the int range. Then checks the reports summed from the
+ * weight columns against sums of the entries.
+ *
+ * The vector kernels are only checked when they were compiled from vector/
+ * and the Vector API is available:
+ * java --add-modules jdk.incubator.vector -cp bin:test-classes
+ * application.data.AggregationKernelsTest
+ *
+ * @author A-Team 128
+ *
+ */
+public class AggregationKernelsTest {
+
+	/**
+	 * Runs the checks, exiting with an error if any fails
+	 *
+	 * @param args Unused
+	 */
+	public static void main(String[] args) {
+		AggregationKernels scalar = AggregationKernels.scalar();
+		AggregationKernels vector = AggregationKernels.vector();
+		if (vector == null)
+			System.out.println("Vector kernels unavailable, compile vector/ into the class path and run with --add-modules jdk.incubator.vector");
+
+		Random random = new Random(11);
+		for (AggregationKernels kernels : vector == null ? new AggregationKernels[] { scalar }
+				: new AggregationKernels[] { scalar, vector }) {
+			// Every offset and length up to 4 vectors of 16 lanes, including empty ranges
+			int[] keys = randomValues(random, 80, 0, 20);
+			int[] values = randomValues(random, 80, -1000, 1000);
+			for (int from = 0; from <= 16; from++)
+				for (int to = from; to <= keys.length; to++)
+					checkRange(kernels, keys, values, from, to);
+
+			// Longer than a block of the vector sums, with the extremes of int
+			int[] large = randomValues(random, 100003, -1000, 1000);
+			large[0] = Integer.MAX_VALUE;
+			large[1] = Integer.MIN_VALUE;
+			Arrays.fill(large, 50000, 90000, Integer.MAX_VALUE);
+			int[] largeKeys = randomValues(random, large.length, 0, 250);
+			checkRange(kernels, largeKeys, large, 0, large.length);
+			checkRange(kernels, largeKeys, large, 3, large.length - 5);
+			Arrays.fill(large, 50000, 90000, Integer.MIN_VALUE);
+			checkRange(kernels, largeKeys, large, 1, large.length);
+
+			// Runs of every length, including empty runs
+			int[] runStarts = new int[30];
+			for (int run = 1; run < runStarts.length; run++)
+				runStarts[run] = runStarts[run - 1] + (run % 5 == 0 ? 0 : random.nextInt(40));
+			int[] runValues = randomValues(random, runStarts[runStarts.length - 1], -1000, 1000);
+			long[] sums = new long[runStarts.length - 1];
+			int[] counts = new int[sums.length];
+			kernels.sumRuns(runValues, runStarts, sums, counts);
+			for (int run = 0; run < sums.length; run++) {
+				check(sums[run] == scalar.sum(runValues, runStarts[run], runStarts[run + 1]),
+						kernels.getName() + " sum of run " + run);
+				check(counts[run] == runStarts[run + 1] - runStarts[run], kernels.getName() + " count of run " + run);
+			}
+		}
+
+		checkReports();
+		System.out.println("AggregationKernelsTest passed");
+	}
+
+	/**
+	 * Checks each kernel over a range against the scalar kernels
+	 */
+	private static void checkRange(AggregationKernels kernels, int[] keys, int[] values, int from, int to) {
+		AggregationKernels scalar = AggregationKernels.scalar();
+		String range = kernels.getName() + " from " + from + " to " + to;
+
+		long expectedSum = 0;
+		for (int i = from; i < to; i++)
+			expectedSum += values[i];
+		check(kernels.sum(values, from, to) == expectedSum, "sum " + range);
+		check(kernels.min(values, from, to) == scalar.min(values, from, to), "min " + range);
+		check(kernels.max(values, from, to) == scalar.max(values, from, to), "max " + range);
+		check(kernels.count(keys, from, to, 3, 11) == scalar.count(keys, from, to, 3, 11), "count " + range);
+		check(kernels.sumInRange(keys, values, from, to, 3, 11) == scalar.sumInRange(keys, values, from, to, 3, 11),
+				"sumInRange " + range);
+
+		int groups = scalar.max(keys, 0, keys.length) + 1;
+		long[] sums = new long[groups];
+		int[] counts = new int[groups];
+		long[] expectedSums = new long[groups];
+		int[] expectedCounts = new int[groups];
+		kernels.sumByGroup(keys, values, from, to, sums, counts);
+		scalar.sumByGroup(keys, values, from, to, expectedSums, expectedCounts);
+		check(Arrays.equals(sums, expectedSums) && Arrays.equals(counts, expectedCounts), "sumByGroup " + range);
+	}
+
+	/**
+	 * Checks the annual, monthly and date range reports, which sum whole months
+	 * by farm runs and partial months by group, against sums of the entries
+	 */
+	private static void checkReports() {
+		MilkData data = new SyntheticData(5, 40, 2018, 2, 60).getData();
+		for (boolean includeEmptyFarms : new boolean[] { true, false }) {
+			check(data.getFarmTotals(2019, includeEmptyFarms),
+					FarmTotals.sum(data.getFarmIDs(), data.getEntriesForYear(2019), includeEmptyFarms), "annual");
+			check(data.getFarmTotals(2018, 6, includeEmptyFarms), FarmTotals.sum(data.getFarmIDs(),
+					data.getEntriesForMonth(2018, 6), includeEmptyFarms), "monthly");
+
+			Date start = new GregorianCalendar(2018, 10, 17).getTime();
+			Date end = new GregorianCalendar(2019, 2, 3).getTime();
+			check(data.getFarmTotals(start, end, includeEmptyFarms), FarmTotals.sum(data.getFarmIDs(),
+					data.getEntriesForDateRange(start, end), includeEmptyFarms), "range");
+		}
+
+		String farmID = data.getFarmIDs().get(7);
+		long[] monthWeights = new long[12];
+		for (int month = 0; month < 12; month++)
+			for (MilkEntry entry : data.getEntriesForMonth(2019, month, farmID))
+				monthWeights[month] += entry.getWeight();
+		check(Arrays.equals(data.getMonthWeights(farmID, 2019), monthWeights), "farm");
+	}
+
+	/**
+	 * Returns random values between (inclusive) two bounds
+	 */
+	private static int[] randomValues(Random random, int length, int low, int high) {
+		int[] values = new int[length];
+		for (int i = 0; i < length; i++)
+			values[i] = low + random.nextInt(high - low + 1);
+		return values;
+	}
+
+	/**
+	 * Checks that two farm totals have the same farms and totals
+	 */
+	private static void check(FarmTotals actual, FarmTotals expected, String description) {
+		boolean equal = actual.size() == expected.size() && actual.getGrandTotal() == expected.getGrandTotal();
+		for (int i = 0; equal && i < actual.size(); i++)
+			equal = actual.getFarmID(i).equals(expected.getFarmID(i)) && actual.getTotal(i) == expected.getTotal(i);
+		check(equal, description + " report differs from the sum of its entries");
+	}
+
+	/**
+	 * Fails the test if a condition does not hold
+	 */
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+
+}
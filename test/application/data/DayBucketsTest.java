@@ -0,0 +1,142 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Checks the daily and weekly weights of the day buckets against sums of the
+ * added entries, across the blocks of days, ISO weeks which span two years, and
+ * ranges whose first and last weeks are partial.
+ *
+ * Usage: java -cp bin:test-classes application.data.DayBucketsTest
+ *
+ * @author A-Team 128
+ *
+ */
+public class DayBucketsTest {
+
+	/**
+	 * Runs the checks, exiting with an error if any fails
+	 *
+	 * @param args Unused
+	 */
+	public static void main(String[] args) {
+		checkYearBoundaries();
+		checkRandomRanges();
+		System.out.println("DayBucketsTest passed");
+	}
+
+	/**
+	 * Checks weeks which start in one year and end in the next
+	 */
+	private static void checkYearBoundaries() {
+		DayBuckets buckets = new DayBuckets();
+		// 2019-12-30 is the Monday of 2020-W01, and 2020-12-28 the Monday of 2020-W53
+		add(buckets, "A", "2019-12-27", 1); // Friday of the week before the range
+		add(buckets, "A", "2019-12-28", 2);
+		add(buckets, "A", "2019-12-29", 4);
+		add(buckets, "A", "2019-12-30", 8);
+		add(buckets, "A", "2020-01-01", 16);
+		add(buckets, "B", "2020-01-05", 32);
+		add(buckets, "A", "2020-01-06", 64);
+		add(buckets, "A", "2020-01-08", 128); // after the range
+		add(buckets, "A", "2020-12-31", 256);
+		add(buckets, "B", "2021-01-03", 512);
+
+		check(DayBuckets.weekStart(day("2020-01-01")) == day("2019-12-30"), "week of 2020-01-01");
+		check(DayBuckets.weekStart(day("2021-01-03")) == day("2020-12-28"), "week of 2021-01-03");
+		check(DayBuckets.weekStart(day("2020-01-06")) == day("2020-01-06"), "week of a Monday");
+
+		// Saturday to Tuesday: two days of the first week and two of the last
+		int start = day("2019-12-28");
+		int end = day("2020-01-07");
+		check(Arrays.equals(buckets.getWeeklyWeights("A", start, end), new long[] { 6, 24, 64 }), "partial weeks of A");
+		check(Arrays.equals(buckets.getWeeklyWeights("B", start, end), new long[] { 0, 32, 0 }), "partial weeks of B");
+		check(Arrays.equals(buckets.getWeeklyWeights(null, start, end), new long[] { 6, 56, 64 }), "partial weeks");
+
+		// A range of a single day in the middle of a week
+		check(Arrays.equals(buckets.getWeeklyWeights(null, day("2020-01-01"), day("2020-01-01")), new long[] { 16 }),
+				"single day week");
+
+		check(Arrays.equals(buckets.getWeeklyWeights(null, day("2020-12-29"), day("2021-01-04")), new long[] { 768, 0 }),
+				"2020-W53");
+		check(Arrays.equals(buckets.getDailyWeights(null, day("2020-12-30"), day("2021-01-03")),
+				new long[] { 0, 256, 0, 0, 512 }), "days across 2021");
+
+		check(Arrays.equals(buckets.getWeeklyWeights("C", start, end), new long[3]), "farm without entries");
+		check(Arrays.equals(buckets.getDailyWeights(null, day("1990-01-01"), day("1990-01-02")), new long[2]),
+				"range before the entries");
+	}
+
+	/**
+	 * Checks random ranges of sparse random entries against a map of each day's
+	 * weight, with entries far apart so that some blocks are never allocated
+	 */
+	private static void checkRandomRanges() {
+		Random random = new Random(7);
+		DayBuckets buckets = new DayBuckets();
+		HashMap<Integer, Long> expected = new HashMap<Integer, Long>();
+		int firstDay = day("2015-06-01");
+		int span = 3000;
+
+		// Entries out of date order, so the blocks grow in both directions
+		for (int i = 0; i < 400; i++) {
+			int day = firstDay + (i % 2 == 0 ? span / 2 + random.nextInt(span / 2)
+					: random.nextInt(20) * DayBuckets.BLOCK_DAYS * 2 + random.nextInt(DayBuckets.BLOCK_DAYS));
+			int weight = random.nextInt(1000);
+			buckets.add("A", day, weight);
+			expected.merge(day, (long) weight, Long::sum);
+		}
+
+		// Only the blocks with entries are allocated, once for the farm and once for all farms
+		long blocks = expected.keySet().stream().map((Integer day) -> Math.floorDiv(day, DayBuckets.BLOCK_DAYS)).distinct().count();
+		check(buckets.getBlockCount() == 2 * blocks, buckets.getBlockCount() + " blocks instead of " + 2 * blocks);
+
+		for (int i = 0; i < 200; i++) {
+			int start = firstDay - 100 + random.nextInt(span + 200);
+			int end = start + random.nextInt(400);
+
+			long[] days = buckets.getDailyWeights("A", start, end);
+			long[] weeks = buckets.getWeeklyWeights("A", start, end);
+			long[] expectedWeeks = new long[weeks.length];
+			for (int day = start; day <= end; day++) {
+				long weight = expected.getOrDefault(day, 0L);
+				check(days[day - start] == weight, "day " + LocalDate.ofEpochDay(day));
+				expectedWeeks[(DayBuckets.weekStart(day) - DayBuckets.weekStart(start)) / 7] += weight;
+			}
+			check(Arrays.equals(weeks, expectedWeeks), "weeks from " + LocalDate.ofEpochDay(start));
+			check(Arrays.equals(buckets.getDailyWeights(null, start, end), days), "all farms from " + start);
+		}
+	}
+
+	/**
+	 * Adds weight to a farm on a date
+	 */
+	private static void add(DayBuckets buckets, String farmID, String date, int weight) {
+		buckets.add(farmID, day(date), weight);
+	}
+
+	/**
+	 * Returns the epoch day of an ISO date
+	 */
+	private static int day(String date) {
+		return (int) LocalDate.parse(date).toEpochDay();
+	}
+
+	/**
+	 * Fails the test if a condition does not hold
+	 */
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+
+}
@@ -0,0 +1,179 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import application.bench.SyntheticData;
+import application.data.FarmTotals;
+import application.data.MilkData;
+
+/**
+ * Checks that the reports read through the data files' indexes are those read
+ * from the whole files, and that both count the same rejected lines. One file
+ * is in date order, so its blocks are days, one is in reverse date order and
+ * one in farm order, so their blocks are runs of rows spanning many days, and
+ * there are no more of them than their rows need.
+ *
+ * Usage: java -cp bin:test-classes application.io.IndexedReadTest
+ *
+ * @author A-Team 128
+ *
+ */
+public class IndexedReadTest {
+
+	/**
+	 * Runs the checks, exiting with an error if any fails
+	 *
+	 * @param args Unused
+	 * @throws IOException if the data files could not be written
+	 */
+	public static void main(String[] args) throws IOException {
+		Path directory = Files.createTempDirectory("indexed-read-test");
+		SyntheticData synthetic = new SyntheticData(42, 30, 2018, 2, 40);
+		List<File> files = Arrays.asList(writeFile(directory.resolve("ordered.csv"), synthetic, Order.DATE),
+				writeFile(directory.resolve("reversed.csv"), synthetic, Order.REVERSED),
+				writeFile(directory.resolve("farms.csv"), synthetic, Order.FARM));
+
+		// Reading the files in full writes their indexes
+		MilkDataLoader fullLoader = new MilkDataLoader();
+		MilkData full = fullLoader.load(files);
+		for (File file : files)
+			check(Files.exists(DataFileIndex.indexFile(file)), "no index was written for " + file);
+
+		// Files out of date order get about as many blocks as BLOCK_ROWS rows fill
+		int blockLimit = 2 * (int) (synthetic.getRowCount() / DataFileIndex.BLOCK_ROWS + 1);
+		for (File file : files.subList(1, files.size())) {
+			int blocks = DataFileIndex.read(file, file.length(), file.lastModified()).getBlocks().size();
+			check(blocks <= blockLimit, file + " has " + blocks + " blocks");
+		}
+
+		for (int year = 2018; year <= 2019; year++) {
+			Date start = new GregorianCalendar(year, 0, 1).getTime();
+			Date end = new GregorianCalendar(year, 11, 31).getTime();
+			checkRead(files, start, end, null, fullLoader.getRejectedLines(), (MilkData data) -> check(
+					data.getFarmTotals(start, end, false), full.getFarmTotals(start, end, false), "annual " + start));
+
+			for (int month = 0; month < 12; month++) {
+				Date monthStart = new GregorianCalendar(year, month, 1).getTime();
+				Date monthEnd = new GregorianCalendar(year, month + 1, 0).getTime();
+				int y = year;
+				int m = month;
+				checkRead(files, monthStart, monthEnd, null, fullLoader.getRejectedLines(), (MilkData data) -> check(
+						data.getFarmTotals(y, m, false), full.getFarmTotals(y, m, false), "monthly " + monthStart));
+			}
+
+			for (int farm = 0; farm < synthetic.getFarms(); farm += 7) {
+				String farmID = synthetic.getFarmID(farm);
+				int y = year;
+				checkRead(files, start, end, farmID, fullLoader.getRejectedLines(),
+						(MilkData data) -> check(Arrays.equals(data.getMonthWeights(farmID, y),
+								full.getMonthWeights(farmID, y)), "farm " + farmID + " " + y));
+			}
+		}
+
+		Date rangeStart = new GregorianCalendar(2018, 10, 17).getTime();
+		Date rangeEnd = new GregorianCalendar(2019, 1, 3).getTime();
+		checkRead(files, rangeStart, rangeEnd, null, fullLoader.getRejectedLines(), (MilkData data) -> check(
+				data.getFarmTotals(rangeStart, rangeEnd, false), full.getFarmTotals(rangeStart, rangeEnd, false), "range"));
+
+		System.out.println("IndexedReadTest passed");
+	}
+
+	/**
+	 * Checks the data of an indexed read
+	 */
+	private interface DataCheck {
+		void check(MilkData data);
+	}
+
+	/**
+	 * Reads the entries in a region through the indexes and checks them
+	 *
+	 * @param files         The data files
+	 * @param startDate     The beginning of the region
+	 * @param endDate       The end of the region
+	 * @param farmID        The farm of the region, or null for all farms
+	 * @param rejectedLines The lines rejected by the full read
+	 * @param check         Checks the data read
+	 */
+	private static void checkRead(List<File> files, Date startDate, Date endDate, String farmID, int rejectedLines,
+			DataCheck check) {
+		MilkDataLoader loader = new MilkDataLoader();
+		MilkData data = loader.load(files, startDate, endDate, farmID);
+		check.check(data);
+		check(loader.getRejectedLines() == rejectedLines,
+				"rejected " + loader.getRejectedLines() + " lines instead of " + rejectedLines);
+	}
+
+	/**
+	 * The order rows are written in
+	 */
+	private enum Order {
+		DATE, REVERSED, FARM
+	}
+
+	/**
+	 * Writes the synthetic rows as a data file with a malformed line after every
+	 * 97 rows
+	 *
+	 * @param path      The file to write
+	 * @param synthetic The rows to write
+	 * @param order     The order the rows are written in
+	 * @return the file written
+	 * @throws IOException if the file could not be written
+	 */
+	private static File writeFile(Path path, SyntheticData synthetic, Order order) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		synthetic.forEachRow((Date date, int year, int month, int day, int farm, int weight) -> {
+			lines.add(year + "-" + (month + 1) + "-" + day + "," + synthetic.getFarmID(farm) + "," + weight);
+			if (lines.size() % 97 == 0)
+				lines.add(year + "-" + (month + 1) + "-" + day + ",malformed");
+		});
+		if (order == Order.REVERSED)
+			Collections.reverse(lines);
+		else if (order == Order.FARM)
+			// Stable, so each farm's rows stay in date order
+			lines.sort((String a, String b) -> a.substring(a.indexOf(',')).compareTo(b.substring(b.indexOf(','))));
+
+		try (PrintWriter writer = new PrintWriter(path.toFile())) {
+			writer.println(MilkDataLoader.HEADER);
+			for (String line : lines)
+				writer.println(line);
+		}
+		return path.toFile();
+	}
+
+	/**
+	 * Checks that two farm totals have the same farms and totals
+	 */
+	private static void check(FarmTotals actual, FarmTotals expected, String description) {
+		boolean equal = actual.size() == expected.size() && actual.getGrandTotal() == expected.getGrandTotal();
+		for (int i = 0; equal && i < actual.size(); i++)
+			equal = actual.getFarmID(i).equals(expected.getFarmID(i)) && actual.getTotal(i) == expected.getTotal(i);
+		check(equal, description + " differs from the full read");
+	}
+
+	/**
+	 * Fails the test if a condition does not hold
+	 */
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+
+}
@@ -0,0 +1,183 @@
+/**
+ * MilkWeight final project for A team 128
+ * Project members: Joshua Faessler, Daniel Kouchekina, Ryan Sun, and Thiago Braga
+ */
+
+
+package application.data;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The aggregation kernels written against the Vector API, processing as many
+ * ints at once as the CPU's widest vectors hold (8 with AVX2, 16 with
+ * AVX-512). Elements after the last whole vector are processed one at a time.
+ *
+ * Sums are kept in int lanes rather than widened to long, which would halve the
+ * lanes: each value is split into its signed upper and unsigned lower 16 bits,
+ * which are summed separately in blocks small enough that neither can overflow,
+ * then combined into the long sum after each block.
+ *
+ * This class links against jdk.incubator.vector, so it is kept out of the
+ * application sources and compiled on its own with --add-modules
+ * jdk.incubator.vector, against the compiled application classes. It is only
+ * loaded, by name, by {@link AggregationKernels#get()} once the module was
+ * found.
+ *
+ * @author A-Team 128
+ *
+ */
+final class VectorKernels extends AggregationKernels {
+
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	// Elements summed into the int lanes before the lanes are added to the long
+	// sum: 32768 lower halves (at most 65535 each) still fit in an int
+	private static final int BLOCK = 32768;
+
+	// Grouped sums have no vector form, see sumByGroup
+	private static final ScalarKernels SCALAR = new ScalarKernels();
+
+	// Runs shorter than this many vectors are summed by the scalar loop, as
+	// reducing the lanes costs more than the few vectors save
+	private static final int MIN_RUN_VECTORS = 4;
+
+	@Override
+	public String getName() {
+		return "vector (" + SPECIES.vectorBitSize() + "-bit)";
+	}
+
+	@Override
+	public long sum(int[] values, int from, int to) {
+		long sum = 0;
+		int i = from;
+		int bound = from + SPECIES.loopBound(to - from);
+
+		while (i < bound) {
+			int blockEnd = Math.min(bound, i + BLOCK);
+			IntVector upper = IntVector.zero(SPECIES);
+			IntVector lower = IntVector.zero(SPECIES);
+			for (; i < blockEnd; i += SPECIES.length()) {
+				IntVector vector = IntVector.fromArray(SPECIES, values, i);
+				upper = upper.add(vector.lanewise(VectorOperators.ASHR, 16));
+				lower = lower.add(vector.and(0xFFFF));
+			}
+			sum += ((long) upper.reduceLanes(VectorOperators.ADD) << 16) + lower.reduceLanes(VectorOperators.ADD);
+		}
+
+		for (; i < to; i++)
+			sum += values[i];
+		return sum;
+	}
+
+	@Override
+	public int min(int[] values, int from, int to) {
+		int i = from;
+		int bound = from + SPECIES.loopBound(to - from);
+
+		IntVector min = IntVector.broadcast(SPECIES, Integer.MAX_VALUE);
+		for (; i < bound; i += SPECIES.length())
+			min = min.min(IntVector.fromArray(SPECIES, values, i));
+
+		int result = min.reduceLanes(VectorOperators.MIN);
+		for (; i < to; i++)
+			result = Math.min(result, values[i]);
+		return result;
+	}
+
+	@Override
+	public int max(int[] values, int from, int to) {
+		int i = from;
+		int bound = from + SPECIES.loopBound(to - from);
+
+		IntVector max = IntVector.broadcast(SPECIES, Integer.MIN_VALUE);
+		for (; i < bound; i += SPECIES.length())
+			max = max.max(IntVector.fromArray(SPECIES, values, i));
+
+		int result = max.reduceLanes(VectorOperators.MAX);
+		for (; i < to; i++)
+			result = Math.max(result, values[i]);
+		return result;
+	}
+
+	@Override
+	public int count(int[] keys, int from, int to, int low, int high) {
+		int i = from;
+		int bound = from + SPECIES.loopBound(to - from);
+
+		// Each lane counts the keys in range it saw
+		IntVector counts = IntVector.zero(SPECIES);
+		for (; i < bound; i += SPECIES.length()) {
+			IntVector vector = IntVector.fromArray(SPECIES, keys, i);
+			VectorMask<Integer> inRange = vector.compare(VectorOperators.GE, low)
+					.and(vector.compare(VectorOperators.LE, high));
+			counts = counts.lanewise(VectorOperators.ADD, 1, inRange);
+		}
+
+		int count = counts.reduceLanes(VectorOperators.ADD);
+		for (; i < to; i++)
+			if (keys[i] >= low && keys[i] <= high)
+				count++;
+		return count;
+	}
+
+	@Override
+	public long sumInRange(int[] keys, int[] values, int from, int to, int low, int high) {
+		long sum = 0;
+		int i = from;
+		int bound = from + SPECIES.loopBound(to - from);
+
+		while (i < bound) {
+			int blockEnd = Math.min(bound, i + BLOCK);
+			IntVector upper = IntVector.zero(SPECIES);
+			IntVector lower = IntVector.zero(SPECIES);
+			for (; i < blockEnd; i += SPECIES.length()) {
+				IntVector key = IntVector.fromArray(SPECIES, keys, i);
+				VectorMask<Integer> inRange = key.compare(VectorOperators.GE, low)
+						.and(key.compare(VectorOperators.LE, high));
+				IntVector vector = IntVector.fromArray(SPECIES, values, i);
+				upper = upper.add(vector.lanewise(VectorOperators.ASHR, 16), inRange);
+				lower = lower.add(vector.and(0xFFFF), inRange);
+			}
+			sum += ((long) upper.reduceLanes(VectorOperators.ADD) << 16) + lower.reduceLanes(VectorOperators.ADD);
+		}
+
+		for (; i < to; i++)
+			if (keys[i] >= low && keys[i] <= high)
+				sum += values[i];
+		return sum;
+	}
+
+	@Override
+	public void sumRuns(int[] values, int[] runStarts, long[] sums, int[] counts) {
+		int minRun = MIN_RUN_VECTORS * SPECIES.length();
+		for (int run = 0; run + 1 < runStarts.length; run++) {
+			int from = runStarts[run];
+			int to = runStarts[run + 1];
+			if (to - from >= minRun) {
+				sums[run] += sum(values, from, to);
+			} else {
+				long sum = 0;
+				for (int i = from; i < to; i++)
+					sum += values[i];
+				sums[run] += sum;
+			}
+			counts[run] += to - from;
+		}
+	}
+
+	/**
+	 * Runs the scalar loop: adding a vector of values to the sums of their groups
+	 * would need a scatter that combines lanes of the same group, which the
+	 * Vector API does not have, and farms repeat within a vector's worth of
+	 * entries. Values sorted by group are summed with {@link #sumRuns} instead.
+	 */
+	@Override
+	public void sumByGroup(int[] groups, int[] values, int from, int to, long[] sums, int[] counts) {
+		SCALAR.sumByGroup(groups, values, from, to, sums, counts);
+	}
+
+}